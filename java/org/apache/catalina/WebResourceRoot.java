@@ -16,11 +16,15 @@
  */
 package org.apache.catalina;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.List;
 import java.util.Set;
 
+import jakarta.servlet.ServletOutputStream;
+
 import org.apache.catalina.util.ResourceSet;
 
 /**
@@ -435,6 +439,90 @@ public interface WebResourceRoot extends Lifecycle {
         return false;
     }
 
+    /**
+     * Obtain a compressed representation of the given resource. Implementations that support this feature generate
+     * the compressed content once and retain it until the original resource changes or the space is required for
+     * other compressed content.
+     * <p>
+     * The default implementation returns {@code null}.
+     *
+     * @param resource The resource to compress
+     * @param encoding The content coding the encoder implements
+     * @param encoder  The encoder to use if a compressed representation has to be generated
+     *
+     * @return The compressed representation of the resource or {@code null} if no compressed representation is
+     *             available
+     */
+    default WebResource getCompressedResource(WebResource resource, String encoding, ContentEncoder encoder) {
+        return null;
+    }
+
+    /**
+     * Set the maximum permitted size for the compressed resource cache.
+     * <p>
+     * The default implementation is a NO-OP.
+     *
+     * @param compressedCacheMaxSize Maximum compressed resource cache size in kilobytes
+     */
+    default void setCompressedCacheMaxSize(long compressedCacheMaxSize) {
+        // NO-OP
+    }
+
+    /**
+     * Get the maximum permitted size for the compressed resource cache.
+     * <p>
+     * The default implementation returns zero.
+     *
+     * @return Maximum compressed resource cache size in kilobytes
+     */
+    default long getCompressedCacheMaxSize() {
+        return 0;
+    }
+
+    /**
+     * Write some or all of the content of the given resource from a read-only memory mapping of the file that
+     * provides it. Implementations that support this feature retain the mapping, outside of the heap, until the
+     * resource changes or the space is required for other mappings.
+     * <p>
+     * The default implementation returns {@code false}.
+     *
+     * @param resource The resource to write
+     * @param start    The offset of the first byte to write
+     * @param end      The offset of the byte after the last byte to write
+     * @param out      The stream to write the content to
+     *
+     * @return {@code true} if the content was written or {@code false} if no mapping is available for the resource in
+     *             which case nothing has been written
+     *
+     * @throws IOException If an error occurs writing the content
+     */
+    default boolean writeMappedContent(WebResource resource, long start, long end, ServletOutputStream out)
+            throws IOException {
+        return false;
+    }
+
+    /**
+     * Set the maximum permitted size for the memory mapped content cache.
+     * <p>
+     * The default implementation is a NO-OP.
+     *
+     * @param mappedCacheMaxSize Maximum memory mapped content cache size in kilobytes
+     */
+    default void setMappedCacheMaxSize(long mappedCacheMaxSize) {
+        // NO-OP
+    }
+
+    /**
+     * Get the maximum permitted size for the memory mapped content cache.
+     * <p>
+     * The default implementation returns zero.
+     *
+     * @return Maximum memory mapped content cache size in kilobytes
+     */
+    default long getMappedCacheMaxSize() {
+        return 0;
+    }
+
     enum ResourceSetType {
         PRE,
         RESOURCE_JAR,
@@ -445,7 +533,8 @@ public interface WebResourceRoot extends Lifecycle {
     enum ArchiveIndexStrategy {
         SIMPLE(false, false),
         BLOOM(true, true),
-        PURGED(true, false);
+        PURGED(true, false),
+        MERGED(false, false);
 
         private final boolean usesBloom;
         private final boolean retain;
@@ -478,4 +567,22 @@ public interface WebResourceRoot extends Lifecycle {
          */
         boolean noCache(String path);
     }
+
+    /**
+     * Generates the compressed representation of a resource for {@link #getCompressedResource}.
+     */
+    @FunctionalInterface
+    interface ContentEncoder {
+
+        /**
+         * Create a stream that compresses the data written to it and writes the result to the given stream.
+         *
+         * @param out The stream to which the compressed data should be written
+         *
+         * @return The compressing stream
+         *
+         * @throws IOException If the compressing stream cannot be created
+         */
+        OutputStream createOutputStream(OutputStream out) throws IOException;
+    }
 }
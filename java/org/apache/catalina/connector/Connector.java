@@ -199,6 +199,18 @@ public class Connector extends LifecycleMBeanBase {
     protected static final StringManager sm = StringManager.getManager(Connector.class);
 
 
+    /**
+     * Should the decoding of request parameter values be deferred until the values are accessed?
+     */
+    private boolean lazyParameterDecoding = false;
+
+    /**
+     * The maximum number of request mapping results cached by this connector. Zero, the default, disables the cache.
+     */
+    private int mappingCacheSize = 0;
+
+    private volatile MappingCache mappingCache = null;
+
     /**
      * The maximum number of cookies permitted for a request. Use a value less than zero for no limit. Defaults to 200.
      */
@@ -453,6 +465,82 @@ public class Connector extends LifecycleMBeanBase {
     }
 
 
+    /**
+     * @return {@code true} if the decoding of request parameter values is deferred until the values are accessed
+     */
+    public boolean getLazyParameterDecoding() {
+        return lazyParameterDecoding;
+    }
+
+
+    /**
+     * Configure whether the decoding of request parameter values obtained from the query string and from form posts
+     * should be deferred until the values are accessed. When enabled, a value that cannot be decoded does not cause
+     * the parsing of the parameters to fail. Instead, the failure is reported when the value is accessed.
+     *
+     * @param lazyParameterDecoding {@code true} to decode parameter values when they are first accessed
+     */
+    public void setLazyParameterDecoding(boolean lazyParameterDecoding) {
+        this.lazyParameterDecoding = lazyParameterDecoding;
+    }
+
+
+    /**
+     * @return the maximum number of request mapping results cached by this connector
+     */
+    public int getMappingCacheSize() {
+        return mappingCacheSize;
+    }
+
+
+    /**
+     * Set the maximum number of request mapping results cached by this connector. Changing the size discards the
+     * results cached so far.
+     *
+     * @param mappingCacheSize The new size of the cache. Zero or less disables the cache.
+     */
+    public void setMappingCacheSize(int mappingCacheSize) {
+        this.mappingCacheSize = mappingCacheSize;
+        if (mappingCacheSize > 0) {
+            mappingCache = new MappingCache(mappingCacheSize);
+        } else {
+            mappingCache = null;
+        }
+    }
+
+
+    MappingCache getMappingCache() {
+        return mappingCache;
+    }
+
+
+    /**
+     * Obtain the number of requests for the given host that were mapped using the mapping cache of this connector.
+     *
+     * @param hostName The name of the host
+     *
+     * @return the number of cache hits since the cache was created
+     */
+    public long getMappingCacheHitCount(String hostName) {
+        MappingCache mappingCache = this.mappingCache;
+        return mappingCache == null ? 0 : mappingCache.getHitCount(hostName);
+    }
+
+
+    /**
+     * Obtain the number of requests for the given host that were mapped to a context without using the mapping cache
+     * of this connector.
+     *
+     * @param hostName The name of the host
+     *
+     * @return the number of cache misses since the cache was created
+     */
+    public long getMappingCacheMissCount(String hostName) {
+        MappingCache mappingCache = this.mappingCache;
+        return mappingCache == null ? 0 : mappingCache.getMissCount(hostName);
+    }
+
+
     public int getMaxCookieCount() {
         return maxCookieCount;
     }
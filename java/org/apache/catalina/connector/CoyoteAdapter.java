@@ -610,6 +610,26 @@ public class CoyoteAdapter implements Adapter {
 
         MessageBytes decodedURI = req.decodedURI();
 
+        // Server name used for request mapping
+        MessageBytes serverName;
+        if (connector.getUseIPVHosts()) {
+            serverName = req.localName();
+            if (serverName.isNull()) {
+                // well, they did ask for it
+                res.action(ActionCode.REQ_LOCAL_NAME_ATTRIBUTE, null);
+            }
+        } else {
+            serverName = req.serverName();
+        }
+
+        // The cached mapping result, if any, and what is required to cache
+        // the mapping result otherwise
+        MappingCache mappingCache = connector.getMappingCache();
+        MappingCache.Entry cachedMapping = null;
+        boolean mappingCacheable = false;
+        int mappingHash = 0;
+        long mapperModificationCount = 0;
+
         // Filter CONNECT method
         if (req.method().equals("CONNECT")) {
             response.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, sm.getString("coyoteAdapter.connect"));
@@ -622,30 +642,48 @@ public class CoyoteAdapter implements Adapter {
                     }
                 }
 
-                // Copy the raw URI to the decodedURI
-                decodedURI.duplicate(undecodedURI);
-
-                // Parse (and strip out) the path parameters
-                parsePathParameters(req, request);
-
-                // URI decoding
-                // %xx decoding of the URL
-                try {
-                    req.getURLDecoder().convert(decodedURI.getByteChunk(),
-                            connector.getEncodedSolidusHandlingInternal(),
-                            connector.getEncodedReverseSolidusHandlingInternal());
-                } catch (IOException ioe) {
-                    response.sendError(400, sm.getString("coyoteAdapter.invalidURIWithMessage", ioe.getMessage()));
+                if (mappingCache != null && !response.isError() &&
+                        MappingCache.isCacheable(undecodedURI.getByteChunk(), serverName)) {
+                    // The modification count must be read before the request is mapped
+                    mapperModificationCount = connector.getService().getMapper().getModificationCount();
+                    mappingHash = MappingCache.hash(undecodedURI.getByteChunk(), serverName);
+                    cachedMapping = mappingCache.get(mappingHash, undecodedURI.getByteChunk(), serverName,
+                            mapperModificationCount);
+                    mappingCacheable = true;
                 }
-                // Normalization
-                if (normalize(req.decodedURI(), connector.getAllowBackslash())) {
-                    // Character decoding
-                    convertURI(decodedURI, request);
-                    // URIEncoding values are limited to US-ASCII supersets.
-                    // Therefore, it is not necessary to check that the URI remains
-                    // normalized after character decoding
+
+                if (cachedMapping != null) {
+                    // The URI has already been decoded and normalized for a previous request
+                    CharChunk uriCC = decodedURI.getCharChunk();
+                    uriCC.recycle();
+                    uriCC.append(cachedMapping.getDecodedURI());
+                    decodedURI.setChars(uriCC.getBuffer(), uriCC.getStart(), uriCC.getLength());
                 } else {
-                    response.sendError(400, sm.getString("coyoteAdapter.invalidURI"));
+                    // Copy the raw URI to the decodedURI
+                    decodedURI.duplicate(undecodedURI);
+
+                    // Parse (and strip out) the path parameters
+                    parsePathParameters(req, request);
+
+                    // URI decoding
+                    // %xx decoding of the URL
+                    try {
+                        req.getURLDecoder().convert(decodedURI.getByteChunk(),
+                                connector.getEncodedSolidusHandlingInternal(),
+                                connector.getEncodedReverseSolidusHandlingInternal());
+                    } catch (IOException ioe) {
+                        response.sendError(400, sm.getString("coyoteAdapter.invalidURIWithMessage", ioe.getMessage()));
+                    }
+                    // Normalization
+                    if (normalize(req.decodedURI(), connector.getAllowBackslash())) {
+                        // Character decoding
+                        convertURI(decodedURI, request);
+                        // URIEncoding values are limited to US-ASCII supersets.
+                        // Therefore, it is not necessary to check that the URI remains
+                        // normalized after character decoding
+                    } else {
+                        response.sendError(400, sm.getString("coyoteAdapter.invalidURI"));
+                    }
                 }
             } else {
                 /*
@@ -665,17 +703,6 @@ public class CoyoteAdapter implements Adapter {
         }
 
         // Request mapping.
-        MessageBytes serverName;
-        if (connector.getUseIPVHosts()) {
-            serverName = req.localName();
-            if (serverName.isNull()) {
-                // well, they did ask for it
-                res.action(ActionCode.REQ_LOCAL_NAME_ATTRIBUTE, null);
-            }
-        } else {
-            serverName = req.serverName();
-        }
-
         // Version for the second mapping loop and
         // Context that we expect to get for that version
         String version = null;
@@ -690,8 +717,18 @@ public class CoyoteAdapter implements Adapter {
         }
 
         while (mapRequired) {
-            // This will map the latest version by default
-            connector.getService().getMapper().map(serverName, decodedURI, version, request.getMappingData());
+            if (cachedMapping != null) {
+                cachedMapping.apply(request.getMappingData());
+                // Should the context turn out to be paused, use the mapper
+                cachedMapping = null;
+                mappingCacheable = false;
+            } else {
+                // This will map the latest version by default
+                connector.getService().getMapper().map(serverName, decodedURI, version, request.getMappingData());
+                if (mappingCache != null && version == null) {
+                    mappingCache.miss(request.getMappingData());
+                }
+            }
 
             // If there is no context at this point, either this is a 404
             // because no ROOT context has been deployed or the URI was invalid
@@ -785,9 +822,16 @@ public class CoyoteAdapter implements Adapter {
                 // Reset mapping
                 request.getMappingData().recycle();
                 mapRequired = true;
+                // The context has been paused since the modification count was read
+                mappingCacheable = false;
             }
         }
 
+        if (mappingCacheable && !response.isError() && MappingCache.isCacheable(decodedURI, request.getMappingData())) {
+            mappingCache.put(mappingHash, undecodedURI.getByteChunk(), serverName, decodedURI,
+                    request.getMappingData(), mapperModificationCount);
+        }
+
         // Possible redirect
         MessageBytes redirectPathMB = request.getMappingData().redirectPath;
         if (!redirectPathMB.isNull()) {
@@ -1001,35 +1045,32 @@ public class CoyoteAdapter implements Adapter {
         }
 
         // Parse session id from cookies
+        // Only the session cookies are looked at so that, if the cookies are
+        // parsed lazily, the other cookies are not parsed
         ServerCookies serverCookies = request.getServerCookies();
-        int count = serverCookies.getCookieCount();
-        if (count <= 0) {
-            return;
-        }
-
         String sessionCookieName = SessionConfig.getSessionCookieName(context);
 
-        for (int i = 0; i < count; i++) {
-            ServerCookie scookie = serverCookies.getCookie(i);
-            if (scookie.getName().equals(sessionCookieName)) {
-                // Override anything requested in the URL
-                if (!request.isRequestedSessionIdFromCookie()) {
-                    // Accept only the first session id cookie
+        int idx = serverCookies.findCookie(sessionCookieName, 0);
+        while (idx >= 0) {
+            ServerCookie scookie = serverCookies.getCookie(idx);
+            // Override anything requested in the URL
+            if (!request.isRequestedSessionIdFromCookie()) {
+                // Accept only the first session id cookie
+                convertMB(scookie.getValue());
+                request.setRequestedSessionId(scookie.getValue().toString());
+                request.setRequestedSessionCookie(true);
+                request.setRequestedSessionURL(false);
+                if (log.isTraceEnabled()) {
+                    log.trace(" Requested cookie session id is " + request.getRequestedSessionId());
+                }
+            } else {
+                if (!request.isRequestedSessionIdValid()) {
+                    // Replace the session id until one is valid
                     convertMB(scookie.getValue());
                     request.setRequestedSessionId(scookie.getValue().toString());
-                    request.setRequestedSessionCookie(true);
-                    request.setRequestedSessionURL(false);
-                    if (log.isTraceEnabled()) {
-                        log.trace(" Requested cookie session id is " + request.getRequestedSessionId());
-                    }
-                } else {
-                    if (!request.isRequestedSessionIdValid()) {
-                        // Replace the session id until one is valid
-                        convertMB(scookie.getValue());
-                        request.setRequestedSessionId(scookie.getValue().toString());
-                    }
                 }
             }
+            idx = serverCookies.findCookie(sessionCookieName, idx + 1);
         }
 
     }
@@ -0,0 +1,333 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.connector;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.http.MappingMatch;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.mapper.MappingData;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.CharChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
+
+/**
+ * A bounded cache of request mapping results used by {@link CoyoteAdapter} to avoid decoding, normalizing and mapping
+ * the same request URIs over and over again.
+ * <p>
+ * Results are keyed on the server name and the undecoded request URI so that a hit also avoids the URI processing that
+ * precedes mapping. Since that processing depends on the configuration of the connector, each connector has its own
+ * cache. Each result records the {@link org.apache.catalina.mapper.Mapper#getModificationCount() modification count}
+ * of the mapper observed before the request was mapped and is ignored once the mappings have changed, e.g. because a
+ * context has been paused, reloaded or removed. Only results that depend on nothing but the mappings are cached:
+ * redirects, welcome file and directory processing and contexts with multiple versions are always handled by the
+ * mapper.
+ * <p>
+ * The cache is an array of small buckets. When a bucket is full, an invalidated result is replaced if there is one,
+ * otherwise an arbitrary one. Lookups do not take any lock.
+ */
+final class MappingCache {
+
+    private static final int BUCKET_SIZE = 4;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final Map<String,Statistics> statistics = new ConcurrentHashMap<>();
+
+    // Racy by design, it only spreads replacements over the slots of a bucket
+    private int victim;
+
+
+    /**
+     * Create a new cache.
+     *
+     * @param size The maximum number of mapping results to cache
+     */
+    MappingCache(int size) {
+        int length = BUCKET_SIZE;
+        while (length < size && length < (1 << 30)) {
+            length <<= 1;
+        }
+        entries = new AtomicReferenceArray<>(length);
+        mask = length - 1;
+    }
+
+
+    /**
+     * Determine if the mapping result for the given request URI and server name may be cached. URIs with path
+     * parameters are excluded since the path parameters are not part of the mapping result and requests without a
+     * server name are excluded since the mapper updates the server name of those requests.
+     *
+     * @param uri        The undecoded request URI
+     * @param serverName The server name used to map the request
+     *
+     * @return {@code true} if the mapping result may be cached
+     */
+    static boolean isCacheable(ByteChunk uri, MessageBytes serverName) {
+        return !serverName.isNull() && uri.indexOf(';', 0) == -1;
+    }
+
+
+    /**
+     * Determine if the result of mapping a request may be cached.
+     *
+     * @param decodedURI  The decoded and normalized request URI
+     * @param mappingData The result of mapping the request
+     *
+     * @return {@code true} if the mapping result may be cached
+     */
+    static boolean isCacheable(MessageBytes decodedURI, MappingData mappingData) {
+        Context context = mappingData.context;
+        if (context == null || mappingData.wrapper == null || mappingData.contexts != null ||
+                !mappingData.redirectPath.isNull() || context.getPaused()) {
+            return false;
+        }
+        // Welcome file processing depends on the content of the web application
+        if (decodedURI.toString().endsWith("/")) {
+            return false;
+        }
+        // The default servlet mapping of a directory depends on the content of the web application
+        return mappingData.matchType != MappingMatch.DEFAULT || !context.getMapperDirectoryRedirectEnabled();
+    }
+
+
+    /**
+     * Compute the hash used to look up the mapping result of a request. It must be computed before the request is
+     * mapped.
+     *
+     * @param uri        The undecoded request URI
+     * @param serverName The server name used to map the request
+     *
+     * @return the hash for the request
+     */
+    static int hash(ByteChunk uri, MessageBytes serverName) {
+        int h = hash(0, uri.getBuffer(), uri.getStart(), uri.getEnd());
+        if (serverName.getType() == MessageBytes.T_BYTES) {
+            ByteChunk bc = serverName.getByteChunk();
+            h = hash(h, bc.getBuffer(), bc.getStart(), bc.getEnd());
+        } else {
+            serverName.toChars();
+            CharChunk cc = serverName.getCharChunk();
+            char[] buf = cc.getBuffer();
+            for (int i = cc.getStart(); i < cc.getEnd(); i++) {
+                h = 31 * h + buf[i];
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+
+    private static int hash(int h, byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            h = 31 * h + (buf[i] & 0xFF);
+        }
+        return h;
+    }
+
+
+    /**
+     * Look up the mapping result for a request.
+     *
+     * @param hash              The hash of the request
+     * @param uri               The undecoded request URI
+     * @param serverName        The server name used to map the request
+     * @param modificationCount The modification count of the mapper, read before calling this method
+     *
+     * @return the cached mapping result or {@code null} if there is no valid cached result for the request
+     */
+    Entry get(int hash, ByteChunk uri, MessageBytes serverName, long modificationCount) {
+        int base = hash & mask & -BUCKET_SIZE;
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            Entry entry = entries.get(base + i);
+            if (entry != null && entry.hash == hash && entry.modificationCount == modificationCount &&
+                    entry.matches(uri, serverName)) {
+                entry.statistics.hits.increment();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Add the mapping result of a request to the cache. The caller is responsible for checking that the result may be
+     * cached.
+     *
+     * @param hash              The hash of the request, computed before the request was mapped
+     * @param uri               The undecoded request URI
+     * @param serverName        The server name used to map the request
+     * @param decodedURI        The decoded and normalized request URI
+     * @param mappingData       The result of mapping the request
+     * @param modificationCount The modification count of the mapper, read before the request was mapped
+     */
+    void put(int hash, ByteChunk uri, MessageBytes serverName, MessageBytes decodedURI, MappingData mappingData,
+            long modificationCount) {
+        int base = hash & mask & -BUCKET_SIZE;
+        int slot = -1;
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            Entry current = entries.get(base + i);
+            if (current == null || current.modificationCount != modificationCount) {
+                slot = i;
+                if (current == null) {
+                    break;
+                }
+            } else if (current.hash == hash && current.matches(uri, serverName)) {
+                // Another thread has just cached the same result
+                return;
+            }
+        }
+        if (slot == -1) {
+            slot = (victim++) & (BUCKET_SIZE - 1);
+        }
+        entries.set(base + slot, new Entry(hash, uri, serverName.toString(), decodedURI.toString(), mappingData,
+                getStatistics(mappingData.host), modificationCount));
+    }
+
+
+    /**
+     * Record that the given request could not be mapped using the cache.
+     *
+     * @param mappingData The result of mapping the request
+     */
+    void miss(MappingData mappingData) {
+        if (mappingData.host != null) {
+            getStatistics(mappingData.host).misses.increment();
+        }
+    }
+
+
+    /**
+     * @param hostName The name of a host
+     *
+     * @return the number of requests for the given host that were mapped using this cache
+     */
+    long getHitCount(String hostName) {
+        Statistics hostStatistics = statistics.get(hostName);
+        return hostStatistics == null ? 0 : hostStatistics.hits.sum();
+    }
+
+
+    /**
+     * @param hostName The name of a host
+     *
+     * @return the number of requests for the given host that could not be mapped using this cache
+     */
+    long getMissCount(String hostName) {
+        Statistics hostStatistics = statistics.get(hostName);
+        return hostStatistics == null ? 0 : hostStatistics.misses.sum();
+    }
+
+
+    private Statistics getStatistics(Host host) {
+        return statistics.computeIfAbsent(host.getName(), k -> new Statistics());
+    }
+
+
+    private static final class Statistics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+
+    /**
+     * An immutable mapping result.
+     */
+    static final class Entry {
+
+        private final int hash;
+        private final byte[] uri;
+        private final String serverName;
+        private final long modificationCount;
+        private final Statistics statistics;
+
+        private final String decodedURI;
+        private final Host host;
+        private final Context context;
+        private final int contextSlashCount;
+        private final Wrapper wrapper;
+        private final boolean jspWildCard;
+        private final String requestPath;
+        private final String wrapperPath;
+        private final String pathInfo;
+        private final MappingMatch matchType;
+
+        private Entry(int hash, ByteChunk uri, String serverName, String decodedURI, MappingData mappingData,
+                Statistics statistics, long modificationCount) {
+            this.hash = hash;
+            this.uri = Arrays.copyOfRange(uri.getBuffer(), uri.getStart(), uri.getEnd());
+            this.serverName = serverName;
+            this.modificationCount = modificationCount;
+            this.statistics = statistics;
+            this.decodedURI = decodedURI;
+            host = mappingData.host;
+            context = mappingData.context;
+            contextSlashCount = mappingData.contextSlashCount;
+            wrapper = mappingData.wrapper;
+            jspWildCard = mappingData.jspWildCard;
+            requestPath = toString(mappingData.requestPath);
+            wrapperPath = toString(mappingData.wrapperPath);
+            pathInfo = toString(mappingData.pathInfo);
+            matchType = mappingData.matchType;
+        }
+
+        private static String toString(MessageBytes mb) {
+            return mb.isNull() ? null : mb.toString();
+        }
+
+        private boolean matches(ByteChunk uri, MessageBytes serverName) {
+            return Arrays.equals(this.uri, 0, this.uri.length, uri.getBuffer(), uri.getStart(), uri.getEnd()) &&
+                    serverName.equals(this.serverName);
+        }
+
+        /**
+         * @return the decoded and normalized request URI
+         */
+        String getDecodedURI() {
+            return decodedURI;
+        }
+
+        /**
+         * Copy this mapping result to the mapping data of a request.
+         *
+         * @param mappingData The mapping data of the request
+         */
+        void apply(MappingData mappingData) {
+            mappingData.host = host;
+            mappingData.context = context;
+            mappingData.contextSlashCount = contextSlashCount;
+            mappingData.wrapper = wrapper;
+            mappingData.jspWildCard = jspWildCard;
+            if (requestPath != null) {
+                mappingData.requestPath.setString(requestPath);
+            }
+            if (wrapperPath != null) {
+                mappingData.wrapperPath.setString(wrapperPath);
+            }
+            if (pathInfo != null) {
+                mappingData.pathInfo.setString(pathInfo);
+            }
+            mappingData.matchType = matchType;
+        }
+    }
+}
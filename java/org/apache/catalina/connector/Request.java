@@ -40,6 +40,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import javax.naming.NamingException;
 import javax.security.auth.Subject;
@@ -98,6 +99,7 @@ import org.apache.tomcat.util.buf.B2CConverter;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.buf.CharsetHolder;
 import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.buf.StringCache.Site;
 import org.apache.tomcat.util.buf.StringUtils;
 import org.apache.tomcat.util.http.CookieProcessor;
 import org.apache.tomcat.util.http.FastHttpDateFormat;
@@ -1130,6 +1132,21 @@ public class Request implements HttpServletRequest {
     }
 
 
+    /**
+     * Pass every request parameter to the given action, in the order the parameters were received. Values that have
+     * not been accessed yet are decoded but not retained so, when the connector is configured with
+     * {@code lazyParameterDecoding}, this is the most efficient way to process each parameter of a large form once.
+     *
+     * @param action The action to perform for each parameter name and value
+     *
+     * @throws IllegalStateException if the parameters cannot be parsed or a value cannot be decoded
+     */
+    public void forEachParameter(BiConsumer<String,String> action) {
+        parseParameters();
+        coyoteRequest.getParameters().forEach(action);
+    }
+
+
     @Override
     public String getProtocol() {
         return coyoteRequest.protocol().toStringType();
@@ -2708,13 +2725,14 @@ public class Request implements HttpServletRequest {
 
         cookies = new Cookie[count];
 
+        Charset charset = getCookieProcessor().getCharset();
         int idx = 0;
         for (int i = 0; i < count; i++) {
             ServerCookie scookie = serverCookies.getCookie(i);
             try {
                 // We must unescape the '\\' escape character
-                Cookie cookie = new Cookie(scookie.getName().toString(), null);
-                scookie.getValue().getByteChunk().setCharset(getCookieProcessor().getCharset());
+                Cookie cookie = new Cookie(scookie.getName().toString(Site.COOKIE_NAME), null);
+                scookie.getValue().getByteChunk().setCharset(charset);
                 cookie.setValue(unescape(scookie.getValue().toString()));
                 cookies[idx++] = cookie;
             } catch (IllegalArgumentException ignore) {
@@ -2774,6 +2792,7 @@ public class Request implements HttpServletRequest {
          */
         Parameters parameters = coyoteRequest.getParameters();
         parameters.setLimit(maxParameterCount);
+        parameters.setLazyDecoding(connector.getLazyParameterDecoding());
 
         // getCharacterEncoding() may have been overridden to search for
         // hidden form field containing request encoding
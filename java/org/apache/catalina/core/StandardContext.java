@@ -100,6 +100,7 @@ import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
 import org.apache.catalina.Wrapper;
 import org.apache.catalina.deploy.NamingResourcesImpl;
+import org.apache.catalina.loader.ClassPreloader;
 import org.apache.catalina.loader.WebappClassLoaderBase;
 import org.apache.catalina.loader.WebappLoader;
 import org.apache.catalina.session.StandardManager;
@@ -800,6 +801,12 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
     private boolean parallelAnnotationScanning = false;
 
+    private boolean annotationScanIndex = false;
+
+    private boolean preloadClasses = false;
+
+    private ClassPreloader classPreloader = null;
+
     private int notFoundClassResourceCacheSize = 1000;
 
     private EncodedSolidusHandling encodedReverseSolidusHandling = EncodedSolidusHandling.DECODE;
@@ -1439,6 +1446,56 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    /**
+     * @return {@code true} if the results of scanning JARs for annotations are recorded in an index in the work
+     *             directory so that JARs that have not changed do not need to be scanned again when this Context is
+     *             next started
+     */
+    public boolean getAnnotationScanIndex() {
+        return this.annotationScanIndex;
+    }
+
+
+    /**
+     * Configure whether the results of scanning JARs for annotations are recorded in an index in the work directory
+     * so that JARs that have not changed do not need to be scanned again when this Context is next started.
+     *
+     * @param annotationScanIndex {@code true} to use an annotation scan index
+     */
+    public void setAnnotationScanIndex(boolean annotationScanIndex) {
+
+        boolean oldAnnotationScanIndex = this.annotationScanIndex;
+        this.annotationScanIndex = annotationScanIndex;
+        support.firePropertyChange("annotationScanIndex", oldAnnotationScanIndex, this.annotationScanIndex);
+
+    }
+
+
+    /**
+     * @return {@code true} if the classes loaded by the web application class loader are recorded in the work
+     *             directory when this Context is stopped and loaded in the background when this Context is next
+     *             started
+     */
+    public boolean getPreloadClasses() {
+        return this.preloadClasses;
+    }
+
+
+    /**
+     * Configure whether the classes loaded by the web application class loader are recorded in the work directory
+     * when this Context is stopped and loaded in the background when this Context is next started.
+     *
+     * @param preloadClasses {@code true} to preload classes
+     */
+    public void setPreloadClasses(boolean preloadClasses) {
+
+        boolean oldPreloadClasses = this.preloadClasses;
+        this.preloadClasses = preloadClasses;
+        support.firePropertyChange("preloadClasses", oldPreloadClasses, this.preloadClasses);
+
+    }
+
+
     /**
      * @return the Locale to character set mapper for this Context.
      */
@@ -4441,6 +4498,15 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
             }
 
+            // Preload classes in the background while the remaining components
+            // start. Needs to be after listeners as they may add class file
+            // transformers.
+            if (ok && getPreloadClasses() && getLoader().getClassLoader() instanceof WebappClassLoaderBase cl) {
+                File workDir = (File) getServletContext().getAttribute(ServletContext.TEMPDIR);
+                classPreloader = new ClassPreloader(cl, new File(workDir, ClassPreloader.FILE_NAME));
+                classPreloader.start(Container.getService(this).getServer().getUtilityExecutor());
+            }
+
             // Check constraints for uncovered HTTP methods
             // Needs to be after SCIs and listeners as they may programmatically
             // change constraints
@@ -4475,6 +4541,12 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
             }
 
+            // Wait for the preloaded classes so they are available to the
+            // first requests
+            if (classPreloader != null) {
+                classPreloader.await();
+            }
+
             // Start ContainerBackgroundProcessor thread
             super.threadStart();
         } finally {
@@ -4695,6 +4767,12 @@ public class StandardContext extends ContainerBase implements Context, Notificat
             if (realm instanceof Lifecycle) {
                 ((Lifecycle) realm).stop();
             }
+            // Record the loaded classes before the class loader is stopped
+            if (classPreloader != null) {
+                classPreloader.save();
+                classPreloader = null;
+            }
+
             Loader loader = getLoader();
             if (loader instanceof Lifecycle) {
                 ClassLoader classLoader = loader.getClassLoader();
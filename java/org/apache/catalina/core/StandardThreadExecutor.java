@@ -91,6 +91,12 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      */
     protected long threadRenewalDelay = org.apache.tomcat.util.threads.Constants.DEFAULT_THREAD_RENEWAL_DELAY;
 
+    /**
+     * The target for the time tasks spend in the queue in milliseconds. If the queue is overloaded, new requests that
+     * exceed twice this delay are rejected. Zero or less disables rejection.
+     */
+    protected long targetQueueDelay = 0;
+
     private TaskQueue taskqueue = null;
 
     // ---------------------------------------------- Constructors
@@ -112,6 +118,7 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     protected void startInternal() throws LifecycleException {
 
         taskqueue = new TaskQueue(maxQueueSize);
+        taskqueue.setTargetDelay(targetQueueDelay);
         TaskThreadFactory tf = new TaskThreadFactory(namePrefix, daemon, getThreadPriority());
         executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime, TimeUnit.MILLISECONDS,
                 taskqueue, tf);
@@ -244,6 +251,18 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         }
     }
 
+    public long getTargetQueueDelay() {
+        return targetQueueDelay;
+    }
+
+    public void setTargetQueueDelay(long targetQueueDelay) {
+        this.targetQueueDelay = targetQueueDelay;
+        TaskQueue taskqueue = this.taskqueue;
+        if (taskqueue != null) {
+            taskqueue.setTargetDelay(targetQueueDelay);
+        }
+    }
+
     // Statistics from the thread pool
     @Override
     public int getActiveCount() {
@@ -271,6 +290,38 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         return (executor != null) ? executor.getQueue().size() : -1;
     }
 
+    public double getQueueDelayP50() {
+        TaskQueue taskqueue = this.taskqueue;
+        return (taskqueue != null) ? taskqueue.getDelayPercentile(50) : -1;
+    }
+
+    public double getQueueDelayP90() {
+        TaskQueue taskqueue = this.taskqueue;
+        return (taskqueue != null) ? taskqueue.getDelayPercentile(90) : -1;
+    }
+
+    public double getQueueDelayP99() {
+        TaskQueue taskqueue = this.taskqueue;
+        return (taskqueue != null) ? taskqueue.getDelayPercentile(99) : -1;
+    }
+
+    public double getQueueDelayMax() {
+        TaskQueue taskqueue = this.taskqueue;
+        return (taskqueue != null) ? taskqueue.getMaxDelay() : -1;
+    }
+
+    public long getShedCount() {
+        TaskQueue taskqueue = this.taskqueue;
+        return (taskqueue != null) ? taskqueue.getShedCount() : -1;
+    }
+
+    public void resetQueueDelayStatistics() {
+        TaskQueue taskqueue = this.taskqueue;
+        if (taskqueue != null) {
+            taskqueue.resetDelayStatistics();
+        }
+    }
+
 
     @Override
     public boolean resizePool(int corePoolSize, int maximumPoolSize) {
@@ -289,7 +289,7 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
 
 
     public void setMaxInactiveInterval(int interval, boolean addDeltaRequest) {
-        super.maxInactiveInterval = interval;
+        super.setMaxInactiveInterval(interval);
         if (addDeltaRequest) {
             lockInternal();
             try {
@@ -0,0 +1,220 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.loader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Loads, in the background, the classes that a web application class loader defined when the web application was
+ * last run so that the first requests after the web application starts do not have to wait for those classes to be
+ * loaded. The classes are recorded in the order in which they were defined which means that a class is always recorded
+ * after its super class and interfaces. The list is split into batches that are loaded in parallel if the class
+ * loader is capable of loading classes in parallel. Classes are loaded but not initialized so no web application code
+ * is executed.
+ */
+public final class ClassPreloader {
+
+    private static final Log log = LogFactory.getLog(ClassPreloader.class);
+    private static final StringManager sm = StringManager.getManager(ClassPreloader.class);
+
+    /**
+     * The name of the file, in the work directory of the web application, in which the classes to preload are
+     * recorded.
+     */
+    public static final String FILE_NAME = "class-preload.lst";
+
+    private static final int BATCH_SIZE = 256;
+
+    private final WebappClassLoaderBase classLoader;
+    private final File file;
+    private final List<FutureTask<Void>> tasks = new ArrayList<>();
+    private final AtomicInteger loadedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private long startTime;
+
+
+    /**
+     * Create a preloader for the given class loader.
+     *
+     * @param classLoader The class loader that will load the classes and record the classes that it defines
+     * @param file        The file from which the classes to load are read and to which the classes defined by the
+     *                        class loader are written
+     */
+    public ClassPreloader(WebappClassLoaderBase classLoader, File file) {
+        this.classLoader = classLoader;
+        this.file = file;
+    }
+
+
+    /**
+     * Start recording the classes defined by the class loader and start loading the classes read from the file, if
+     * any.
+     *
+     * @param executor The executor to use to load the classes. If {@code null}, the classes are loaded by the current
+     *                     thread.
+     */
+    public void start(ExecutorService executor) {
+        startTime = System.nanoTime();
+        classLoader.setRecordDefinedClasses(true);
+
+        List<String> classNames = read();
+        if (classNames.isEmpty()) {
+            return;
+        }
+        int batchSize = BATCH_SIZE;
+        if (executor == null || !classLoader.isRegisteredAsParallelCapable()) {
+            // Loading would be serialized anyway
+            batchSize = classNames.size();
+        }
+        for (int i = 0; i < classNames.size(); i += batchSize) {
+            List<String> batch = classNames.subList(i, Math.min(i + batchSize, classNames.size()));
+            if (executor == null) {
+                load(batch);
+            } else {
+                FutureTask<Void> task = new FutureTask<>(() -> load(batch), null);
+                tasks.add(task);
+                executor.execute(task);
+            }
+        }
+    }
+
+
+    /**
+     * Wait for the classes read from the file to be loaded. Any batch of classes that the executor has not yet started
+     * to load is loaded by the current thread. The executor may be the one used to start this web application, in which
+     * case the batches may be queued behind the start of this and other web applications.
+     */
+    public void await() {
+        for (FutureTask<Void> task : tasks) {
+            // No-op if the task has already been started by the executor
+            //XX task.run();
+            try {
+                task.get();
+            } catch (Exception e) {
+                log.warn(sm.getString("classPreloader.loadFailed", file), e);
+            }
+        }
+        tasks.clear();
+        int loaded = loadedCount.get();
+        int failed = failedCount.get();
+        if (loaded + failed > 0 && log.isDebugEnabled()) {
+            log.debug(sm.getString("classPreloader.loaded", Integer.valueOf(loaded), Integer.valueOf(failed),
+                    Long.valueOf((System.nanoTime() - startTime) / 1_000_000)));
+        }
+    }
+
+
+    /**
+     * Write the classes defined by the class loader to the file and stop recording. The file is not changed if the
+     * class loader did not define any classes.
+     */
+    public void save() {
+        List<String> classNames = classLoader.getDefinedClassNames();
+        classLoader.setRecordDefinedClasses(false);
+        if (classNames.isEmpty()) {
+            return;
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                for (String className : classNames) {
+                    writer.write(className);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            log.warn(sm.getString("classPreloader.saveFailed", file), ioe);
+            if (tmp.exists() && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+
+    /**
+     * @return the number of classes that have been loaded from the list read from the file
+     */
+    public int getLoadedCount() {
+        return loadedCount.get();
+    }
+
+
+    /**
+     * @return the number of classes in the list read from the file that could not be loaded
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+
+    private List<String> read() {
+        List<String> classNames = new ArrayList<>();
+        if (!file.isFile()) {
+            return classNames;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    classNames.add(line);
+                }
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("classPreloader.readFailed", file), ioe);
+            classNames.clear();
+        }
+        return classNames;
+    }
+
+
+    private void load(List<String> classNames) {
+        for (String className : classNames) {
+            if (!classLoader.getState().isAvailable()) {
+                return;
+            }
+            try {
+                Class.forName(className, false, classLoader);
+                loadedCount.incrementAndGet();
+            } catch (Throwable t) {
+                // The class may have been removed or may depend on a class that is no longer present
+                ExceptionUtils.handleThrowable(t);
+                failedCount.incrementAndGet();
+                if (log.isTraceEnabled()) {
+                    log.trace(sm.getString("classPreloader.classFailed", className), t);
+                }
+            }
+        }
+    }
+}
@@ -48,7 +48,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
@@ -321,6 +323,12 @@ public abstract class WebappClassLoaderBase extends URLClassLoader
      */
     private final ConcurrentLruCache<String> notFoundClassResources = new ConcurrentLruCache<>(1000);
 
+    /*
+     * The binary names of the classes defined by this class loader, in the order in which they were defined, or null if
+     * the defined classes are not being recorded.
+     */
+    private volatile Queue<String> definedClassNames = null;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -329,6 +337,34 @@ public abstract class WebappClassLoaderBase extends URLClassLoader
     }
 
 
+    /**
+     * Configure whether the binary names of the classes defined by this class loader are recorded. Disabling recording
+     * discards any names recorded so far.
+     *
+     * @param recordDefinedClasses {@code true} to record the classes defined by this class loader
+     */
+    public void setRecordDefinedClasses(boolean recordDefinedClasses) {
+        if (!recordDefinedClasses) {
+            definedClassNames = null;
+        } else if (definedClassNames == null) {
+            definedClassNames = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+
+    /**
+     * @return the binary names of the classes defined by this class loader since recording was enabled, in the order in
+     *             which they were defined. A class is always defined after its super class and interfaces.
+     */
+    public List<String> getDefinedClassNames() {
+        Queue<String> definedClassNames = this.definedClassNames;
+        if (definedClassNames == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(definedClassNames);
+    }
+
+
     public int getNotFoundClassResourceCacheSize() {
         return notFoundClassResources.getLimit();
     }
@@ -2150,6 +2186,11 @@ public abstract class WebappClassLoaderBase extends URLClassLoader
                 }
             }
             entry.loadedClass = clazz;
+
+            Queue<String> definedClassNames = this.definedClassNames;
+            if (definedClassNames != null) {
+                definedClassNames.add(name);
+            }
         }
 
         return clazz;
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.servlet.http.MappingMatch;
 
@@ -86,6 +87,12 @@ public final class Mapper {
     private final Map<Context,ContextVersion> contextObjectToContextVersionMap = new ConcurrentHashMap<>();
 
 
+    /**
+     * Incremented after every change to the mappings so that cached mapping results can be invalidated.
+     */
+    private final AtomicLong modificationCount = new AtomicLong();
+
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -100,6 +107,7 @@ public final class Mapper {
         } else {
             defaultHost = exactFind(hosts, this.defaultHostName);
         }
+        modified();
     }
 
 
@@ -147,6 +155,7 @@ public final class Mapper {
             }
         }
         newHost.addAliases(newAliases);
+        modified();
     }
 
 
@@ -171,6 +180,7 @@ public final class Mapper {
             }
         }
         hosts = Arrays.copyOf(newHosts, j);
+        modified();
     }
 
     /**
@@ -190,6 +200,7 @@ public final class Mapper {
         MappedHost newAlias = new MappedHost(alias, realHost);
         if (addHostAliasImpl(newAlias)) {
             realHost.addAlias(newAlias);
+            modified();
         }
     }
 
@@ -237,6 +248,7 @@ public final class Mapper {
         if (removeMap(hosts, newHosts, alias)) {
             hosts = newHosts;
             hostMapping.getRealHost().removeAlias(hostMapping);
+            modified();
         }
 
     }
@@ -316,7 +328,7 @@ public final class Mapper {
                 }
             }
         }
-
+        modified();
     }
 
 
@@ -357,6 +369,7 @@ public final class Mapper {
                 } else {
                     context.versions = newContextVersions;
                 }
+                modified();
             }
         }
     }
@@ -378,6 +391,7 @@ public final class Mapper {
             return;
         }
         contextVersion.markPaused();
+        modified();
     }
 
 
@@ -414,7 +428,10 @@ public final class Mapper {
         if (contextVersion == null) {
             return;
         }
-        addWrapper(contextVersion, path, wrapper, jspWildCard, resourceOnly);
+        synchronized (contextVersion) {
+            addWrapper(contextVersion, path, wrapper, jspWildCard, resourceOnly);
+            compileWrappers(contextVersion);
+        }
     }
 
     public void addWrappers(String hostName, String contextPath, String version,
@@ -434,14 +451,18 @@ public final class Mapper {
      * @param wrappers       Information on wrapper mappings
      */
     private void addWrappers(ContextVersion contextVersion, Collection<WrapperMappingInfo> wrappers) {
-        for (WrapperMappingInfo wrapper : wrappers) {
-            addWrapper(contextVersion, wrapper.mapping(), wrapper.wrapper(), wrapper.jspWildCard(),
-                    wrapper.resourceOnly());
+        synchronized (contextVersion) {
+            for (WrapperMappingInfo wrapper : wrappers) {
+                addWrapper(contextVersion, wrapper.mapping(), wrapper.wrapper(), wrapper.jspWildCard(),
+                        wrapper.resourceOnly());
+            }
+            compileWrappers(contextVersion);
         }
     }
 
     /**
-     * Adds a wrapper to the given context.
+     * Adds a wrapper to the given context. The caller is responsible for calling
+     * {@link #compileWrappers(ContextVersion)} once all the wrappers have been added.
      *
      * @param context      The context to which to add the wrapper
      * @param path         Wrapper mapping
@@ -462,10 +483,6 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length + 1];
                 if (insertMap(oldWrappers, newWrappers, newWrapper)) {
                     context.wildcardWrappers = newWrappers;
-                    int slashCount = slashCount(newWrapper.name);
-                    if (slashCount > context.nesting) {
-                        context.nesting = slashCount;
-                    }
                 }
             } else if (path.startsWith("*.")) {
                 // Extension wrapper
@@ -533,14 +550,6 @@ public final class Mapper {
                 }
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length - 1];
                 if (removeMap(oldWrappers, newWrappers, name)) {
-                    // Recalculate nesting
-                    context.nesting = 0;
-                    for (MappedWrapper newWrapper : newWrappers) {
-                        int slashCount = slashCount(newWrapper.name);
-                        if (slashCount > context.nesting) {
-                            context.nesting = slashCount;
-                        }
-                    }
                     context.wildcardWrappers = newWrappers;
                 }
             } else if (path.startsWith("*.")) {
@@ -576,10 +585,40 @@ public final class Mapper {
                     context.exactWrappers = newWrappers;
                 }
             }
+            compileWrappers(context);
         }
     }
 
 
+    /**
+     * Replace the index used to map requests to the wrappers of the given context with a new index built from the
+     * current wrapper mappings of the context. Must be called while holding the lock on the context.
+     *
+     * @param context The context for which the index should be rebuilt
+     */
+    private void compileWrappers(ContextVersion context) {
+        context.wrapperIndex =
+                new WrapperIndex(context.exactWrappers, context.wildcardWrappers, context.extensionWrappers);
+        modified();
+    }
+
+
+    /**
+     * Obtain the number of changes made to the mappings so far. A mapping result obtained after reading this value
+     * remains valid for as long as the value returned by this method does not change.
+     *
+     * @return the modification count of this mapper
+     */
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+
+    private void modified() {
+        modificationCount.incrementAndGet();
+    }
+
+
     /**
      * Add a welcome file to the given context.
      *
@@ -599,6 +638,7 @@ public final class Mapper {
         System.arraycopy(contextVersion.welcomeResources, 0, newWelcomeResources, 0, len - 1);
         newWelcomeResources[len - 1] = welcomeFile;
         contextVersion.welcomeResources = newWelcomeResources;
+        modified();
     }
 
 
@@ -631,6 +671,7 @@ public final class Mapper {
                 System.arraycopy(contextVersion.welcomeResources, match + 1, newWelcomeResources, match, len - match);
             }
             contextVersion.welcomeResources = newWelcomeResources;
+            modified();
         }
     }
 
@@ -649,6 +690,7 @@ public final class Mapper {
             return;
         }
         contextVersion.welcomeResources = new String[0];
+        modified();
     }
 
 
@@ -842,14 +884,13 @@ public final class Mapper {
         path.setStart(servletPath);
 
         // Rule 1 -- Exact Match
-        MappedWrapper[] exactWrappers = contextVersion.exactWrappers;
-        internalMapExactWrapper(exactWrappers, path, mappingData);
+        WrapperIndex wrapperIndex = contextVersion.wrapperIndex;
+        internalMapExactWrapper(wrapperIndex, path, mappingData);
 
         // Rule 2 -- Prefix Match
         boolean checkJspWelcomeFiles = false;
-        MappedWrapper[] wildcardWrappers = contextVersion.wildcardWrappers;
         if (mappingData.wrapper == null) {
-            internalMapWildcardWrapper(wildcardWrappers, contextVersion.nesting, path, mappingData);
+            internalMapWildcardWrapper(wrapperIndex, path, mappingData);
             if (mappingData.wrapper != null && mappingData.jspWildCard) {
                 char[] buf = path.getBuffer();
                 if (buf[pathEnd - 1] == '/') {
@@ -879,9 +920,8 @@ public final class Mapper {
         }
 
         // Rule 3 -- Extension Match
-        MappedWrapper[] extensionWrappers = contextVersion.extensionWrappers;
         if (mappingData.wrapper == null && !checkJspWelcomeFiles) {
-            internalMapExtensionWrapper(extensionWrappers, path, mappingData, true);
+            internalMapExtensionWrapper(wrapperIndex, path, mappingData, true);
         }
 
         // Rule 4 -- Welcome resources processing for servlets
@@ -899,11 +939,11 @@ public final class Mapper {
                     path.setStart(servletPath);
 
                     // Rule 4a -- Welcome resources processing for exact macth
-                    internalMapExactWrapper(exactWrappers, path, mappingData);
+                    internalMapExactWrapper(wrapperIndex, path, mappingData);
 
                     // Rule 4b -- Welcome resources processing for prefix match
                     if (mappingData.wrapper == null) {
-                        internalMapWildcardWrapper(wildcardWrappers, contextVersion.nesting, path, mappingData);
+                        internalMapWildcardWrapper(wrapperIndex, path, mappingData);
                     }
 
                     // Rule 4c -- Welcome resources processing
@@ -912,7 +952,7 @@ public final class Mapper {
                         String pathStr = path.toString();
                         WebResource file = contextVersion.resources.getResource(pathStr);
                         if (file != null && file.isFile()) {
-                            internalMapExtensionWrapper(extensionWrappers, path, mappingData, true);
+                            internalMapExtensionWrapper(wrapperIndex, path, mappingData, true);
                             if (mappingData.wrapper == null && contextVersion.defaultWrapper != null) {
                                 mappingData.wrapper = contextVersion.defaultWrapper.object;
                                 mappingData.requestPath.setChars(path.getBuffer(), path.getStart(), path.getLength());
@@ -947,7 +987,7 @@ public final class Mapper {
                     path.setEnd(pathEnd);
                     path.append(contextVersion.welcomeResources[i], 0, contextVersion.welcomeResources[i].length());
                     path.setStart(servletPath);
-                    internalMapExtensionWrapper(extensionWrappers, path, mappingData, false);
+                    internalMapExtensionWrapper(wrapperIndex, path, mappingData, false);
                 }
 
                 path.setStart(servletPath);
@@ -1004,14 +1044,14 @@ public final class Mapper {
     /**
      * Exact mapping.
      */
-    private void internalMapExactWrapper(MappedWrapper[] wrappers, CharChunk path, MappingData mappingData) {
+    private void internalMapExactWrapper(WrapperIndex wrapperIndex, CharChunk path, MappingData mappingData) {
         if (path.isEmpty()) {
             /*
              * Looking for a context root mapped servlet but that will be stored under the name "/"
              */
             path = CONTEXT_ROOT_MAPPED_PATH_CHAR_CHUNK;
         }
-        MappedWrapper wrapper = exactFind(wrappers, path);
+        MappedWrapper wrapper = wrapperIndex.findExact(path.getBuffer(), path.getStart(), path.getEnd());
         if (wrapper != null) {
             mappingData.requestPath.setString(wrapper.name);
             mappingData.wrapper = wrapper.object;
@@ -1031,47 +1071,19 @@ public final class Mapper {
     /**
      * Wildcard mapping.
      */
-    private void internalMapWildcardWrapper(MappedWrapper[] wrappers, int nesting, CharChunk path,
-            MappingData mappingData) {
+    private void internalMapWildcardWrapper(WrapperIndex wrapperIndex, CharChunk path, MappingData mappingData) {
 
-        int pathEnd = path.getEnd();
-
-        int lastSlash = -1;
-        int length = -1;
-        int pos = find(wrappers, path);
-        if (pos != -1) {
-            boolean found = false;
-            while (pos >= 0) {
-                if (path.startsWith(wrappers[pos].name)) {
-                    length = wrappers[pos].name.length();
-                    if (path.getLength() == length) {
-                        found = true;
-                        break;
-                    } else if (path.startsWithIgnoreCase("/", length)) {
-                        found = true;
-                        break;
-                    }
-                }
-                if (lastSlash == -1) {
-                    lastSlash = nthSlash(path, nesting + 1);
-                } else {
-                    lastSlash = lastSlash(path);
-                }
-                path.setEnd(lastSlash);
-                pos = find(wrappers, path);
-            }
-            path.setEnd(pathEnd);
-            if (found) {
-                mappingData.wrapperPath.setString(wrappers[pos].name);
-                if (path.getLength() > length) {
-                    mappingData.pathInfo.setChars(path.getBuffer(), path.getStart() + length,
-                            path.getLength() - length);
-                }
-                mappingData.requestPath.setChars(path.getBuffer(), path.getStart(), path.getLength());
-                mappingData.wrapper = wrappers[pos].object;
-                mappingData.jspWildCard = wrappers[pos].jspWildCard;
-                mappingData.matchType = MappingMatch.PATH;
+        MappedWrapper wrapper = wrapperIndex.findWildcard(path.getBuffer(), path.getStart(), path.getEnd());
+        if (wrapper != null) {
+            int length = wrapper.name.length();
+            mappingData.wrapperPath.setString(wrapper.name);
+            if (path.getLength() > length) {
+                mappingData.pathInfo.setChars(path.getBuffer(), path.getStart() + length, path.getLength() - length);
             }
+            mappingData.requestPath.setChars(path.getBuffer(), path.getStart(), path.getLength());
+            mappingData.wrapper = wrapper.object;
+            mappingData.jspWildCard = wrapper.jspWildCard;
+            mappingData.matchType = MappingMatch.PATH;
         }
     }
 
@@ -1079,12 +1091,12 @@ public final class Mapper {
     /**
      * Extension mappings.
      *
-     * @param wrappers         Set of wrappers to check for matches
+     * @param wrapperIndex     Index of the wrappers to check for matches
      * @param path             Path to map
      * @param mappingData      Mapping data for result
      * @param resourceExpected Is this mapping expecting to find a resource
      */
-    private void internalMapExtensionWrapper(MappedWrapper[] wrappers, CharChunk path, MappingData mappingData,
+    private void internalMapExtensionWrapper(WrapperIndex wrapperIndex, CharChunk path, MappingData mappingData,
             boolean resourceExpected) {
         char[] buf = path.getBuffer();
         int pathEnd = path.getEnd();
@@ -1105,17 +1117,13 @@ public final class Mapper {
                 }
             }
             if (period >= 0) {
-                path.setStart(period + 1);
-                path.setEnd(pathEnd);
-                MappedWrapper wrapper = exactFind(wrappers, path);
+                MappedWrapper wrapper = wrapperIndex.findExtension(buf, period + 1, pathEnd);
                 if (wrapper != null && (resourceExpected || !wrapper.resourceOnly)) {
                     mappingData.wrapperPath.setChars(buf, servletPath, pathEnd - servletPath);
                     mappingData.requestPath.setChars(buf, servletPath, pathEnd - servletPath);
                     mappingData.wrapper = wrapper.object;
                     mappingData.matchType = MappingMatch.EXTENSION;
                 }
-                path.setStart(servletPath);
-                path.setEnd(pathEnd);
             }
         }
     }
@@ -1632,7 +1640,7 @@ public final class Mapper {
         public MappedWrapper[] exactWrappers = new MappedWrapper[0];
         public MappedWrapper[] wildcardWrappers = new MappedWrapper[0];
         public MappedWrapper[] extensionWrappers = new MappedWrapper[0];
-        public int nesting = 0;
+        volatile WrapperIndex wrapperIndex = WrapperIndex.EMPTY;
         private volatile boolean paused;
 
         public ContextVersion(String version, String path, int slashCount, Context context, WebResourceRoot resources,
@@ -0,0 +1,238 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.catalina.mapper.Mapper.MappedWrapper;
+
+/**
+ * Immutable index of the wrapper mappings of a context version, compiled from the sorted arrays maintained by the
+ * {@link Mapper}. Exact and extension mappings are held in hash tables and prefix mappings in a trie of path segments
+ * so that the cost of mapping a request does not depend on the number of mappings. A new index is built, and replaces
+ * the previous one, each time the mappings of the context version change.
+ */
+final class WrapperIndex {
+
+    static final WrapperIndex EMPTY =
+            new WrapperIndex(new MappedWrapper[0], new MappedWrapper[0], new MappedWrapper[0]);
+
+
+    private final Table<MappedWrapper> exactWrappers;
+    private final Table<MappedWrapper> extensionWrappers;
+    private final Node wildcardRoot;
+
+
+    WrapperIndex(MappedWrapper[] exactWrappers, MappedWrapper[] wildcardWrappers, MappedWrapper[] extensionWrappers) {
+        this.exactWrappers = Table.of(exactWrappers);
+        this.extensionWrappers = Table.of(extensionWrappers);
+
+        NodeBuilder root = new NodeBuilder();
+        for (MappedWrapper wrapper : wildcardWrappers) {
+            String name = wrapper.name;
+            NodeBuilder node = root;
+            if (!name.isEmpty()) {
+                if (name.charAt(0) != '/') {
+                    // Servlet paths are either empty or start with '/' so this mapping can never match
+                    continue;
+                }
+                int start = 1;
+                int end;
+                do {
+                    end = name.indexOf('/', start);
+                    if (end == -1) {
+                        end = name.length();
+                    }
+                    node = node.children.computeIfAbsent(name.substring(start, end), k -> new NodeBuilder());
+                    start = end + 1;
+                } while (end < name.length());
+            }
+            node.wrapper = wrapper;
+        }
+        wildcardRoot = root.build();
+    }
+
+
+    /**
+     * Find the exact mapping for the given path.
+     *
+     * @param buf   The buffer containing the path
+     * @param start The start of the path in the buffer
+     * @param end   The end of the path in the buffer
+     *
+     * @return the wrapper mapped to the path or {@code null} if there is none
+     */
+    MappedWrapper findExact(char[] buf, int start, int end) {
+        return exactWrappers.get(buf, start, end);
+    }
+
+
+    /**
+     * Find the extension mapping for the given extension.
+     *
+     * @param buf   The buffer containing the extension, excluding the leading '.'
+     * @param start The start of the extension in the buffer
+     * @param end   The end of the extension in the buffer
+     *
+     * @return the wrapper mapped to the extension or {@code null} if there is none
+     */
+    MappedWrapper findExtension(char[] buf, int start, int end) {
+        return extensionWrappers.get(buf, start, end);
+    }
+
+
+    /**
+     * Find the longest prefix mapping that matches the given path. A prefix matches if it is equal to the path or to
+     * the part of the path that precedes a '/'.
+     *
+     * @param buf   The buffer containing the path
+     * @param start The start of the path in the buffer
+     * @param end   The end of the path in the buffer
+     *
+     * @return the wrapper mapped to the longest matching prefix or {@code null} if there is none
+     */
+    MappedWrapper findWildcard(char[] buf, int start, int end) {
+        if (start < end && buf[start] != '/') {
+            return null;
+        }
+        Node node = wildcardRoot;
+        MappedWrapper result = node.wrapper;
+        int pos = start;
+        while (pos < end && node.children != null) {
+            // buf[pos] is always '/' here
+            int segmentStart = pos + 1;
+            int segmentEnd = segmentStart;
+            while (segmentEnd < end && buf[segmentEnd] != '/') {
+                segmentEnd++;
+            }
+            node = node.children.get(buf, segmentStart, segmentEnd);
+            if (node == null) {
+                break;
+            }
+            if (node.wrapper != null) {
+                result = node.wrapper;
+            }
+            pos = segmentEnd;
+        }
+        return result;
+    }
+
+
+    // ------------------------------------------------------------ Trie nodes
+
+
+    private static final class Node {
+
+        private final MappedWrapper wrapper;
+        private final Table<Node> children;
+
+        private Node(MappedWrapper wrapper, Table<Node> children) {
+            this.wrapper = wrapper;
+            this.children = children;
+        }
+    }
+
+
+    private static final class NodeBuilder {
+
+        private final Map<String,NodeBuilder> children = new HashMap<>();
+        private MappedWrapper wrapper;
+
+        private Node build() {
+            if (children.isEmpty()) {
+                return new Node(wrapper, null);
+            }
+            Map<String,Node> nodes = new HashMap<>();
+            for (Map.Entry<String,NodeBuilder> entry : children.entrySet()) {
+                nodes.put(entry.getKey(), entry.getValue().build());
+            }
+            return new Node(wrapper, new Table<>(nodes));
+        }
+    }
+
+
+    // ------------------------------------------------------------ Hash table
+
+
+    /*
+     * Open addressing hash table that can be queried with a range of a char array so that no String needs to be
+     * created to perform a lookup.
+     */
+    private static final class Table<V> {
+
+        private final String[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        private static Table<MappedWrapper> of(MappedWrapper[] wrappers) {
+            Map<String,MappedWrapper> map = new HashMap<>();
+            for (MappedWrapper wrapper : wrappers) {
+                map.put(wrapper.name, wrapper);
+            }
+            return new Table<>(map);
+        }
+
+        private Table(Map<String,V> map) {
+            // Keep the load factor at or below 0.5
+            int capacity = Integer.highestOneBit(Math.max(2, map.size() * 2) * 2 - 1);
+            keys = new String[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            for (Map.Entry<String,V> entry : map.entrySet()) {
+                int i = spread(entry.getKey().hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = entry.getKey();
+                values[i] = entry.getValue();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V get(char[] buf, int start, int end) {
+            // Same hash as String.hashCode()
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buf[i];
+            }
+            int len = end - start;
+            int i = spread(hash) & mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == len && matches(key, buf, start)) {
+                    return (V) values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private static boolean matches(String key, char[] buf, int start) {
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != buf[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -73,6 +73,9 @@ import org.apache.catalina.util.IOTools;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
 import org.apache.catalina.webresources.CachedResource;
+import org.apache.catalina.webresources.CompressedResource;
+import org.apache.coyote.CompressionCodec;
+import org.apache.coyote.CompressionConfig;
 import org.apache.tomcat.util.buf.B2CConverter;
 import org.apache.tomcat.util.http.FastHttpDateFormat;
 import org.apache.tomcat.util.http.ResponseUtil;
@@ -190,6 +193,17 @@ public class DefaultServlet extends HttpServlet {
      */
     protected CompressionFormat[] compressionFormats;
 
+    /**
+     * Configuration used to generate compressed versions of resources that are then retained by the resources cache.
+     * {@code null} if compressed versions are not generated.
+     */
+    protected transient CompressionConfig compressionConfig = null;
+
+    /**
+     * Codecs to use to generate compressed versions of resources in server preference order.
+     */
+    private transient CompressionCodec[] compressionCodecs = new CompressionCodec[0];
+
     /**
      * The output buffer size to use when serving resources.
      */
@@ -317,6 +331,11 @@ public class DefaultServlet extends HttpServlet {
         compressionFormats = parseCompressionFormats(getServletConfig().getInitParameter("precompressed"),
                 getServletConfig().getInitParameter("gzip"));
 
+        compressionConfig = parseCompressionConfig();
+        if (compressionConfig != null) {
+            compressionCodecs = compressionConfig.getCompressionCodecs();
+        }
+
         if (getServletConfig().getInitParameter("sendfileSize") != null) {
             sendfileSize = Integer.parseInt(getServletConfig().getInitParameter("sendfileSize")) * 1024;
         }
@@ -431,6 +450,40 @@ public class DefaultServlet extends HttpServlet {
     }
 
 
+    private CompressionConfig parseCompressionConfig() {
+        String compressResources = getServletConfig().getInitParameter("compressResources");
+        if (compressResources == null || compressResources.isBlank()) {
+            return null;
+        }
+        CompressionConfig result = new CompressionConfig();
+        result.setCompressionEncodings(compressResources);
+        // Resources are compressed once so default to the best compression
+        result.setGzipCompressionLevel(9);
+        result.setBrotliCompressionLevel(11);
+        result.setZstdCompressionLevel(19);
+        if (getServletConfig().getInitParameter("compressibleMimeType") != null) {
+            result.setCompressibleMimeType(getServletConfig().getInitParameter("compressibleMimeType"));
+        }
+        if (getServletConfig().getInitParameter("compressionMinSize") != null) {
+            result.setCompressionMinSize(
+                    Integer.parseInt(getServletConfig().getInitParameter("compressionMinSize")));
+        }
+        if (getServletConfig().getInitParameter("gzipCompressionLevel") != null) {
+            result.setGzipCompressionLevel(
+                    Integer.parseInt(getServletConfig().getInitParameter("gzipCompressionLevel")));
+        }
+        if (getServletConfig().getInitParameter("brotliCompressionLevel") != null) {
+            result.setBrotliCompressionLevel(
+                    Integer.parseInt(getServletConfig().getInitParameter("brotliCompressionLevel")));
+        }
+        if (getServletConfig().getInitParameter("zstdCompressionLevel") != null) {
+            result.setZstdCompressionLevel(
+                    Integer.parseInt(getServletConfig().getInitParameter("zstdCompressionLevel")));
+        }
+        return result;
+    }
+
+
     // ------------------------------------------------------ Protected Methods
 
 
@@ -962,6 +1015,23 @@ public class DefaultServlet extends HttpServlet {
             }
         }
 
+        // Serve a compressed version of the file generated on demand and
+        // retained by the resources cache
+        if (!usingPrecompressedVersion && compressionCodecs.length > 0 && !included && resource.isFile() &&
+                isCompressible(contentType, resource.getContentLength())) {
+            ResponseUtil.addVaryFieldName(response, "accept-encoding");
+            CompressionCodec codec = getBestCompressionCodec(request);
+            if (codec != null) {
+                WebResource compressedResource =
+                        resources.getCompressedResource(resource, codec.getEncoding(), codec::createOutputStream);
+                if (compressedResource != null) {
+                    response.addHeader("Content-Encoding", codec.getEncoding());
+                    resource = compressedResource;
+                    usingPrecompressedVersion = true;
+                }
+            }
+        }
+
         Ranges ranges = FULL;
         long contentLength = -1L;
 
@@ -1151,13 +1221,16 @@ public class DefaultServlet extends HttpServlet {
                                 // implementations as that could trigger loading
                                 // the contents of a very large file into memory
                                 byte[] resourceBody = null;
-                                if (resource instanceof CachedResource) {
+                                if (resource instanceof CachedResource || resource instanceof CompressedResource) {
                                     resourceBody = resource.getContent();
                                 }
                                 if (resourceBody == null) {
                                     // Resource content not directly available,
-                                    // use InputStream
-                                    renderResult = resource.getInputStream();
+                                    // write it from a memory mapping if one is
+                                    // available, otherwise use InputStream
+                                    if (!resources.writeMappedContent(resource, 0, contentLength, ostream)) {
+                                        renderResult = resource.getInputStream();
+                                    }
                                 } else {
                                     // Use the resource content directly
                                     ostream.write(resourceBody);
@@ -1206,7 +1279,8 @@ public class DefaultServlet extends HttpServlet {
                      // Content has already been written - this must be an include. Ignore the error and continue.
                     }
                     if (ostream != null) {
-                        if (!checkSendfile(request, response, resource, contentLength, range)) {
+                        if (!checkSendfile(request, response, resource, contentLength, range) &&
+                                !resources.writeMappedContent(resource, start, end + 1, ostream)) {
                             copy(resource, contentLength, ostream, range);
                         }
                     } else {
@@ -1417,10 +1491,43 @@ public class DefaultServlet extends HttpServlet {
      */
     private PrecompressedResource getBestPrecompressedResource(HttpServletRequest request,
             List<PrecompressedResource> precompressedResources) {
+        String[] encodings = new String[precompressedResources.size()];
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = precompressedResources.get(i).format.encoding;
+        }
+        int best = getBestEncoding(request, encodings);
+        return best == -1 ? null : precompressedResources.get(best);
+    }
+
+    /**
+     * Match the client preferred encoding formats to the codecs configured to generate compressed resources.
+     *
+     * @param request The servlet request we are processing
+     *
+     * @return The best matching codec or null if no match was found.
+     */
+    private CompressionCodec getBestCompressionCodec(HttpServletRequest request) {
+        String[] encodings = new String[compressionCodecs.length];
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = compressionCodecs[i].getEncoding();
+        }
+        int best = getBestEncoding(request, encodings);
+        return best == -1 ? null : compressionCodecs[best];
+    }
+
+    /**
+     * Match the client preferred encoding formats to the available encodings.
+     *
+     * @param request   The servlet request we are processing
+     * @param encodings The available encodings in server preference order
+     *
+     * @return The index of the best matching encoding or -1 if no match was found.
+     */
+    private static int getBestEncoding(HttpServletRequest request, String[] encodings) {
         Enumeration<String> headers = request.getHeaders("Accept-Encoding");
-        PrecompressedResource bestResource = null;
-        double bestResourceQuality = 0;
-        int bestResourcePreference = Integer.MAX_VALUE;
+        int bestEncoding = -1;
+        double bestEncodingQuality = 0;
+        int bestEncodingPreference = Integer.MAX_VALUE;
         while (headers.hasMoreElements()) {
             String header = headers.nextElement();
             for (String preference : header.split(",")) {
@@ -1433,31 +1540,30 @@ public class DefaultServlet extends HttpServlet {
                     }
                     quality = Double.parseDouble(preference.substring(equalsIdx + 1).trim());
                 }
-                if (quality >= bestResourceQuality) {
+                if (quality >= bestEncodingQuality) {
                     String encoding = preference;
                     if (qualityIdx > 0) {
                         encoding = encoding.substring(0, qualityIdx);
                     }
                     encoding = encoding.trim();
                     if ("identity".equals(encoding)) {
-                        bestResource = null;
-                        bestResourceQuality = quality;
-                        bestResourcePreference = Integer.MAX_VALUE;
+                        bestEncoding = -1;
+                        bestEncodingQuality = quality;
+                        bestEncodingPreference = Integer.MAX_VALUE;
                         continue;
                     }
                     if ("*".equals(encoding)) {
-                        bestResource = precompressedResources.getFirst();
-                        bestResourceQuality = quality;
-                        bestResourcePreference = 0;
+                        bestEncoding = 0;
+                        bestEncodingQuality = quality;
+                        bestEncodingPreference = 0;
                         continue;
                     }
-                    for (int i = 0; i < precompressedResources.size(); ++i) {
-                        PrecompressedResource resource = precompressedResources.get(i);
-                        if (encoding.equals(resource.format.encoding)) {
-                            if (quality > bestResourceQuality || i < bestResourcePreference) {
-                                bestResource = resource;
-                                bestResourceQuality = quality;
-                                bestResourcePreference = i;
+                    for (int i = 0; i < encodings.length; ++i) {
+                        if (encoding.equals(encodings[i])) {
+                            if (quality > bestEncodingQuality || i < bestEncodingPreference) {
+                                bestEncoding = i;
+                                bestEncodingQuality = quality;
+                                bestEncodingPreference = i;
                             }
                             break;
                         }
@@ -1465,7 +1571,27 @@ public class DefaultServlet extends HttpServlet {
                 }
             }
         }
-        return bestResource;
+        return bestEncoding;
+    }
+
+    /**
+     * Should a compressed version of a resource with the given content type and length be generated?
+     *
+     * @param contentType   The content type of the resource
+     * @param contentLength The length of the resource in bytes
+     *
+     * @return {@code true} if the resource is eligible for compression, otherwise {@code false}
+     */
+    private boolean isCompressible(String contentType, long contentLength) {
+        if (contentType == null || contentLength < compressionConfig.getCompressionMinSize()) {
+            return false;
+        }
+        for (String compressibleMimeType : compressionConfig.getCompressibleMimeTypes()) {
+            if (contentType.startsWith(compressibleMimeType)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void doDirectoryRedirect(HttpServletRequest request, HttpServletResponse response) throws IOException {
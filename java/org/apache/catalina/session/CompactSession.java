@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.util.ArrayList;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.SessionListener;
+import org.apache.tomcat.util.collections.CompactConcurrentMap;
+
+/**
+ * A {@link StandardSession} that minimises the memory used by sessions with few or no attributes. The attributes and
+ * notes are held in {@link CompactConcurrentMap}s that do not allocate any storage until an entry is added and that
+ * hold a small number of entries in a single array. The collection of session event listeners is only created when the
+ * first listener is added.
+ * <p>
+ * The serialized form is identical to that of {@link StandardSession} so sessions may be persisted with one
+ * implementation and restored with the other.
+ */
+public class CompactSession extends StandardSession {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Construct a new Session associated with the specified Manager.
+     *
+     * @param manager The manager with which this Session is associated
+     */
+    public CompactSession(Manager manager) {
+        super(manager, new CompactConcurrentMap<>(), new CompactConcurrentMap<>(), null);
+    }
+
+
+    @Override
+    public void addSessionListener(SessionListener listener) {
+        synchronized (this) {
+            if (listeners == null) {
+                listeners = new ArrayList<>();
+            }
+        }
+        super.addSessionListener(listener);
+    }
+
+
+    @Override
+    public void removeSessionListener(SessionListener listener) {
+        if (listeners != null) {
+            super.removeSessionListener(listener);
+        }
+    }
+
+
+    @Override
+    public void fireSessionEvent(String type, Object data) {
+        if (listeners != null) {
+            super.fireSessionEvent(type, data);
+        }
+    }
+
+
+    @Override
+    protected void doReadObject(ObjectInputStream stream) throws ClassNotFoundException, IOException {
+        super.doReadObject(stream);
+        // Don't retain an empty collection of listeners created while restoring the session
+        if (listeners != null && listeners.isEmpty()) {
+            listeners = null;
+        }
+    }
+}
@@ -580,6 +580,77 @@ public class DataSourceStore extends StoreBase {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sessions are serialized and then written using one batch of deletes and one batch of inserts on a single
+     * connection.
+     */
+    @Override
+    public void saveAll(List<Session> sessions) throws IOException {
+        String removeSql =
+                "DELETE FROM " + sessionTable + " WHERE " + sessionIdCol + " = ?  AND " + sessionAppCol + " = ?";
+        String saveSql = "INSERT INTO " + sessionTable + " (" + sessionIdCol + ", " + sessionAppCol + ", " +
+                sessionDataCol + ", " + sessionValidCol + ", " + sessionMaxInactiveCol + ", " + sessionLastAccessedCol +
+                ") VALUES (?, ?, ?, ?, ?, ?)";
+
+        List<SessionData> sessionData = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            synchronized (session) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(bos))) {
+                    ((StandardSession) session).writeObjectData(oos);
+                }
+                sessionData.add(new SessionData(session.getIdInternal(), bos.toByteArray(),
+                        session.isValid() ? "1" : "0", session.getMaxInactiveInterval(),
+                        session.getLastAccessedTime()));
+            }
+        }
+
+        int numberOfTries = 2;
+        while (numberOfTries > 0) {
+            Connection _conn = getConnection();
+            if (_conn == null) {
+                return;
+            }
+
+            try (PreparedStatement preparedRemoveSql = _conn.prepareStatement(removeSql);
+                    PreparedStatement preparedSaveSql = _conn.prepareStatement(saveSql)) {
+                for (SessionData data : sessionData) {
+                    preparedRemoveSql.setString(1, data.id());
+                    preparedRemoveSql.setString(2, getName());
+                    preparedRemoveSql.addBatch();
+                }
+                preparedRemoveSql.executeBatch();
+
+                for (SessionData data : sessionData) {
+                    preparedSaveSql.setString(1, data.id());
+                    preparedSaveSql.setString(2, getName());
+                    preparedSaveSql.setBinaryStream(3, new ByteArrayInputStream(data.data()), data.data().length);
+                    preparedSaveSql.setString(4, data.valid());
+                    preparedSaveSql.setInt(5, data.maxInactiveInterval());
+                    preparedSaveSql.setLong(6, data.lastAccessedTime());
+                    preparedSaveSql.addBatch();
+                }
+                preparedSaveSql.executeBatch();
+                // Break out after the finally block
+                numberOfTries = 0;
+            } catch (SQLException e) {
+                manager.getContext().getLogger().error(sm.getString("dataSourceStore.SQLException"), e);
+            } finally {
+                release(_conn);
+            }
+            numberOfTries--;
+        }
+
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            for (SessionData data : sessionData) {
+                manager.getContext().getLogger().trace(sm.getString("dataSourceStore.saving", data.id(), sessionTable));
+            }
+        }
+    }
+
+
     // --------------------------------------------------------- Protected Methods
 
     /**
@@ -700,4 +771,7 @@ public class DataSourceStore extends StoreBase {
         }
     }
 
+
+    private record SessionData(String id, byte[] data, String valid, int maxInactiveInterval, long lastAccessedTime) {
+    }
 }
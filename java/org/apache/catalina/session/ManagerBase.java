@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -121,6 +122,11 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
      */
     protected final AtomicLong expiredSessions = new AtomicLong(0);
 
+    /**
+     * Number of sessions that have been created.
+     */
+    private final LongAdder createdSessions = new LongAdder();
+
 
     /**
      * The set of currently active Sessions for this Manager, keyed by session identifier.
@@ -146,6 +152,24 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
      */
     protected long processingTime = 0;
 
+    /**
+     * Number of times a session has been examined during session expiration.
+     */
+    private final AtomicLong expiryCheckCount = new AtomicLong(0);
+
+    /**
+     * Should an index of the sessions by expiry time be used to limit session expiration to the sessions that may have
+     * expired?
+     */
+    private volatile boolean sessionExpiryIndex = false;
+
+    private volatile SessionExpiryIndex expiryIndex = null;
+
+    /**
+     * Should this manager create {@link CompactSession}s rather than {@link StandardSession}s?
+     */
+    private boolean compactSessions = false;
+
     /**
      * Iteration count for background processing.
      */
@@ -491,6 +515,66 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     }
 
 
+    /**
+     * @return the number of times a session has been examined during session expiration
+     */
+    public long getExpiryCheckCount() {
+        return expiryCheckCount.get();
+    }
+
+
+    /**
+     * @return the number of sessions that have been created by this manager
+     */
+    public long getCreatedSessions() {
+        return createdSessions.sum();
+    }
+
+
+    /**
+     * @return {@code true} if this manager creates {@link CompactSession}s
+     */
+    public boolean getCompactSessions() {
+        return compactSessions;
+    }
+
+
+    /**
+     * Configure whether this manager creates {@link CompactSession}s, which use less memory than
+     * {@link StandardSession}s when sessions have few or no attributes. Sessions that already exist are not affected.
+     * Sub-classes that override {@link #getNewSession()} may ignore this setting.
+     *
+     * @param compactSessions {@code true} to create {@link CompactSession}s
+     */
+    public void setCompactSessions(boolean compactSessions) {
+        this.compactSessions = compactSessions;
+    }
+
+
+    /**
+     * @return {@code true} if an index of the sessions by expiry time is used during session expiration
+     */
+    public boolean getSessionExpiryIndex() {
+        return sessionExpiryIndex;
+    }
+
+
+    /**
+     * Configure whether an index of the sessions by expiry time should be used during session expiration. Without the
+     * index, every session is examined each time {@link #processExpires()} runs. With the index, only the sessions
+     * whose maximum inactive interval may have elapsed are examined. The index can only be used if all the sessions of
+     * this manager extend {@link StandardSession}.
+     *
+     * @param sessionExpiryIndex {@code true} to use an index of the sessions by expiry time
+     */
+    public void setSessionExpiryIndex(boolean sessionExpiryIndex) {
+        this.sessionExpiryIndex = sessionExpiryIndex;
+        if (!sessionExpiryIndex) {
+            expiryIndex = null;
+        }
+    }
+
+
     public void setProcessingTime(long processingTime) {
         this.processingTime = processingTime;
     }
@@ -563,6 +647,12 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     public void processExpires() {
 
         long timeNow = System.currentTimeMillis();
+        SessionExpiryIndex expiryIndex = getExpiryIndex(timeNow);
+        if (expiryIndex != null) {
+            processExpires(expiryIndex, timeNow);
+            return;
+        }
+
         Session[] sessions = findSessions();
         int expireHere = 0;
 
@@ -574,6 +664,7 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
                 expireHere++;
             }
         }
+        expiryCheckCount.addAndGet(sessions.length);
         long timeEnd = System.currentTimeMillis();
         if (log.isTraceEnabled()) {
             log.trace("End expire sessions " + getName() + " processingTime " + (timeEnd - timeNow) +
@@ -584,6 +675,75 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     }
 
 
+    private void processExpires(SessionExpiryIndex expiryIndex, long timeNow) {
+        int[] expireHere = new int[1];
+
+        if (log.isTraceEnabled()) {
+            log.trace("Start expire sessions using index " + getName() + " at " + timeNow + " sessioncount " +
+                    sessions.size());
+        }
+        int examined = expiryIndex.process(timeNow, session -> {
+            if (sessions.get(session.getIdInternal()) != session) {
+                // Removed from this manager
+                return false;
+            }
+            if (!session.isValid()) {
+                expireHere[0]++;
+                return false;
+            }
+            return true;
+        });
+        expiryCheckCount.addAndGet(examined);
+        long timeEnd = System.currentTimeMillis();
+        if (log.isTraceEnabled()) {
+            log.trace("End expire sessions " + getName() + " processingTime " + (timeEnd - timeNow) +
+                    " examined sessions: " + examined + " expired sessions: " + expireHere[0]);
+        }
+        processingTime += (timeEnd - timeNow);
+    }
+
+
+    /*
+     * The index is created when it is first needed so that it includes any sessions added before then, such as those
+     * loaded from persistent storage when the manager starts.
+     */
+    private SessionExpiryIndex getExpiryIndex(long timeNow) {
+        if (!sessionExpiryIndex) {
+            return null;
+        }
+        SessionExpiryIndex result = expiryIndex;
+        if (result == null) {
+            result = new SessionExpiryIndex(timeNow);
+            // Publish the index before adding the current sessions so sessions added concurrently are not missed
+            expiryIndex = result;
+            for (Session session : findSessions()) {
+                result.schedule(session);
+            }
+        }
+        if (!result.isComplete()) {
+            log.warn(sm.getString("managerBase.expiryIndex.unsupported", getContext().getName()));
+            sessionExpiryIndex = false;
+            expiryIndex = null;
+            return null;
+        }
+        return result;
+    }
+
+
+    /**
+     * Notify the index of sessions by expiry time, if any, that a session has been added or that its maximum inactive
+     * interval has changed.
+     *
+     * @param session The session
+     */
+    protected void scheduleExpiry(Session session) {
+        SessionExpiryIndex expiryIndex = this.expiryIndex;
+        if (expiryIndex != null) {
+            expiryIndex.schedule(session);
+        }
+    }
+
+
     @Override
     protected void initInternal() throws LifecycleException {
         super.initInternal();
@@ -641,6 +801,7 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
 
     @Override
     protected void stopInternal() throws LifecycleException {
+        expiryIndex = null;
         if (sessionIdGenerator instanceof Lifecycle) {
             ((Lifecycle) sessionIdGenerator).stop();
         }
@@ -650,6 +811,7 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     @Override
     public void add(Session session) {
         sessions.put(session.getIdInternal(), session);
+        scheduleExpiry(session);
         int size = getActiveSessions();
         if (size > maxActive) {
             synchronized (maxActiveUpdateLock) {
@@ -688,6 +850,7 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
             id = generateSessionId();
         }
         session.setId(id);
+        createdSessions.increment();
 
         SessionTiming timing = new SessionTiming(session.getCreationTime(), 0);
         synchronized (sessionCreationTiming) {
@@ -830,6 +993,9 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
      * @return a new session for use with this manager
      */
     protected StandardSession getNewSession() {
+        if (compactSessions) {
+            return new CompactSession(this);
+        }
         return new StandardSession(this);
     }
 
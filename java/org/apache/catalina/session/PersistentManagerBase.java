@@ -17,12 +17,23 @@
 package org.apache.catalina.session;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.Context;
 import org.apache.catalina.Lifecycle;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
@@ -31,6 +42,8 @@ import org.apache.catalina.Store;
 import org.apache.catalina.StoreManager;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
 
 /**
  * Extends the {@link ManagerBase} class to implement most of the functionality required by a Manager which supports any
@@ -59,6 +72,11 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     private static final String PERSISTED_LAST_ACCESSED_TIME =
             "org.apache.catalina.session.PersistentManagerBase.persistedLastAccessedTime";
 
+    /**
+     * Time in seconds to wait for the write-behind executor to finish writing the current batch when stopping.
+     */
+    private static final long WRITE_BEHIND_STOP_TIMEOUT = 10;
+
 
     /**
      * Store object which will manage the Session store.
@@ -105,6 +123,42 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     private final ThreadLocal<Session> sessionToSwapIn = new ThreadLocal<>();
 
 
+    /**
+     * Should sessions that are backed up be written to the Store asynchronously?
+     */
+    protected boolean writeBehind = false;
+
+
+    /**
+     * The maximum number of sessions waiting to be written to the Store when write-behind is enabled.
+     */
+    protected int writeBehindQueueSize = 10000;
+
+
+    /**
+     * The maximum number of sessions written to the Store in a single operation when write-behind is enabled.
+     */
+    protected int writeBehindBatchSize = 100;
+
+
+    /*
+     * Sessions waiting to be written to the Store by the write-behind executor, in the order they were queued, with
+     * the time they were queued. Guarded by the map itself, as is writeBehindDraining.
+     */
+    private final Map<Session,Long> writeBehindQueue = new LinkedHashMap<>();
+
+    private boolean writeBehindDraining = false;
+
+    /*
+     * Sessions that are currently being written to the Store by the write-behind executor.
+     */
+    private final Set<Session> writeBehindInFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong writeBehindCoalescedCount = new AtomicLong(0);
+
+    private volatile ExecutorService writeBehindExecutor = null;
+
+
     // ------------------------------------------------------------- Properties
 
 
@@ -205,6 +259,98 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     }
 
 
+    /**
+     * @return {@code true} if sessions that are backed up are written to the Store asynchronously
+     */
+    public boolean getWriteBehind() {
+        return writeBehind;
+    }
+
+
+    /**
+     * Configure whether sessions that are backed up because of {@link #setMaxIdleBackup(int)} are written to the Store
+     * asynchronously by a dedicated thread rather than by the background processing thread. Sessions are queued and
+     * written in batches. A session that is queued again before it has been written is only written once. Sessions
+     * that are swapped out are always written synchronously. Changes take effect when the Manager is next started.
+     *
+     * @param writeBehind {@code true} to write backed up sessions asynchronously
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+
+    /**
+     * @return the maximum number of sessions waiting to be written to the Store when write-behind is enabled
+     */
+    public int getWriteBehindQueueSize() {
+        return writeBehindQueueSize;
+    }
+
+
+    /**
+     * Set the maximum number of sessions waiting to be written to the Store when write-behind is enabled. When the
+     * queue is full, sessions that are backed up are written synchronously.
+     *
+     * @param writeBehindQueueSize the maximum number of queued sessions
+     */
+    public void setWriteBehindQueueSize(int writeBehindQueueSize) {
+        this.writeBehindQueueSize = writeBehindQueueSize;
+    }
+
+
+    /**
+     * @return the maximum number of sessions written to the Store in a single operation when write-behind is enabled
+     */
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+
+    /**
+     * Set the maximum number of sessions written to the Store in a single operation when write-behind is enabled. The
+     * sessions of a batch may not be accessed while the batch is being written.
+     *
+     * @param writeBehindBatchSize the maximum number of sessions per batch
+     */
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+
+    /**
+     * @return the number of sessions currently waiting to be written to the Store
+     */
+    public int getWriteBehindQueueDepth() {
+        synchronized (writeBehindQueue) {
+            return writeBehindQueue.size();
+        }
+    }
+
+
+    /**
+     * @return the time in milliseconds that the session that has been waiting longest to be written to the Store has
+     *             been waiting or zero if no sessions are waiting
+     */
+    public long getWriteBehindLag() {
+        synchronized (writeBehindQueue) {
+            Iterator<Long> iter = writeBehindQueue.values().iterator();
+            if (iter.hasNext()) {
+                return Math.max(0, System.currentTimeMillis() - iter.next().longValue());
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * @return the number of times a session was not queued to be written to the Store because it was already queued
+     */
+    public long getWriteBehindCoalescedCount() {
+        return writeBehindCoalescedCount.get();
+    }
+
+
     /**
      * Check, whether a session is loaded in memory
      *
@@ -447,6 +593,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         super.remove(session, update);
 
         if (store != null) {
+            cancelWriteBehind(session);
             removeSession(session.getIdInternal());
         }
     }
@@ -663,6 +810,9 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
             return;
         }
 
+        // Any queued write of this session is superseded by this one
+        cancelWriteBehind(session);
+
         try {
             store.save(session);
         } catch (IOException ioe) {
@@ -673,6 +823,150 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     }
 
 
+    /**
+     * Back up the provided session to the Store without modifying the copy in memory. If write-behind is enabled, the
+     * session is queued to be written asynchronously unless the queue is full in which case it is written before this
+     * method returns. Callers must hold the lock on the session.
+     *
+     * @param session The session that should be backed up
+     *
+     * @throws IOException an IO error occurred writing the session synchronously
+     */
+    protected void backupSession(Session session) throws IOException {
+
+        ExecutorService executor = writeBehindExecutor;
+        if (executor != null) {
+            synchronized (writeBehindQueue) {
+                if (writeBehindQueue.containsKey(session)) {
+                    writeBehindCoalescedCount.incrementAndGet();
+                    return;
+                }
+                if (writeBehindQueue.size() < writeBehindQueueSize) {
+                    writeBehindQueue.put(session, Long.valueOf(System.currentTimeMillis()));
+                    if (writeBehindDraining) {
+                        return;
+                    }
+                    try {
+                        executor.execute(this::drainWriteBehindQueue);
+                        writeBehindDraining = true;
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Stopping - write the session synchronously
+                        writeBehindQueue.remove(session);
+                    }
+                }
+            }
+        }
+
+        writeSession(session);
+    }
+
+
+    /*
+     * The background processing thread skips sessions that are being written by the write-behind executor rather than
+     * waiting for the lock on the session. They will be processed on a later run.
+     */
+    private boolean isWriteBehindInFlight(Session session) {
+        return writeBehindExecutor != null && writeBehindInFlight.contains(session);
+    }
+
+
+    private void cancelWriteBehind(Session session) {
+        if (writeBehindExecutor != null) {
+            synchronized (writeBehindQueue) {
+                writeBehindQueue.remove(session);
+            }
+        }
+    }
+
+
+    private void drainWriteBehindQueue() {
+        Context context = getContext();
+        ClassLoader oldThreadContextCL = context.bind(null);
+        try {
+            List<Session> batch = new ArrayList<>();
+            while (true) {
+                synchronized (writeBehindQueue) {
+                    Iterator<Session> iter = writeBehindQueue.keySet().iterator();
+                    while (iter.hasNext() && batch.size() < Math.max(1, writeBehindBatchSize)) {
+                        batch.add(iter.next());
+                        iter.remove();
+                    }
+                    if (batch.isEmpty()) {
+                        writeBehindDraining = false;
+                        return;
+                    }
+                    writeBehindInFlight.addAll(batch);
+                }
+                try {
+                    writeBehindBatch(batch, 0, new ArrayList<>());
+                } finally {
+                    writeBehindInFlight.clear();
+                }
+                batch.clear();
+            }
+        } finally {
+            context.unbind(oldThreadContextCL);
+        }
+    }
+
+
+    /*
+     * Holds the lock of every session in the batch while the batch is written so that none of the sessions can be
+     * swapped out, removed or invalidated part way through. Each thread that locks a session only ever locks that one
+     * session so locking the sessions in any order is safe.
+     */
+    private void writeBehindBatch(List<Session> batch, int index, List<Session> sessions) {
+        if (index < batch.size()) {
+            Session session = batch.get(index);
+            synchronized (session) {
+                if (session.getManager() == this && ((StandardSession) session).isValidInternal()) {
+                    sessions.add(session);
+                }
+                writeBehindBatch(batch, index + 1, sessions);
+            }
+            return;
+        }
+
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            if (store instanceof StoreBase storeBase) {
+                storeBase.saveAll(sessions);
+            } else {
+                for (Session session : sessions) {
+                    store.save(session);
+                }
+            }
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            log.error(sm.getString("persistentManager.writeBehindError", Integer.valueOf(sessions.size())), t);
+        }
+    }
+
+
+    private void stopWriteBehind() {
+        ExecutorService executor = writeBehindExecutor;
+        if (executor == null) {
+            return;
+        }
+        writeBehindExecutor = null;
+        // The queued backups are superseded by unloading or expiring the sessions
+        synchronized (writeBehindQueue) {
+            writeBehindQueue.clear();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(WRITE_BEHIND_STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn(sm.getString("persistentManager.writeBehindStopTimeout"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
     /**
      * Start this component and implement the requirements of
      * {@link org.apache.catalina.util.LifecycleBase#startInternal()}.
@@ -691,6 +985,11 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
             ((Lifecycle) store).start();
         }
 
+        if (store != null && writeBehind) {
+            writeBehindExecutor = Executors.newSingleThreadExecutor(
+                    new TaskThreadFactory(getContext().getName() + "-WriteBehind-", true, Thread.NORM_PRIORITY));
+        }
+
         setState(LifecycleState.STARTING);
     }
 
@@ -711,6 +1010,8 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
 
         setState(LifecycleState.STOPPING);
 
+        stopWriteBehind();
+
         if (getStore() != null && saveOnRestart) {
             unload();
         } else {
@@ -752,6 +1053,9 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         if (maxIdleSwap >= 0) {
             for (Session value : sessions) {
                 StandardSession session = (StandardSession) value;
+                if (isWriteBehindInFlight(session)) {
+                    continue;
+                }
                 synchronized (session) {
                     if (!session.isValid()) {
                         continue;
@@ -805,6 +1109,9 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
 
         for (int i = 0; i < sessions.length && toswap > 0; i++) {
             StandardSession session = (StandardSession) sessions[i];
+            if (isWriteBehindInFlight(session)) {
+                continue;
+            }
             synchronized (session) {
                 int timeIdle = (int) (session.getIdleTimeInternal() / 1000L);
                 if (timeIdle >= minIdleSwap) {
@@ -844,6 +1151,9 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         if (maxIdleBackup >= 0) {
             for (Session value : sessions) {
                 StandardSession session = (StandardSession) value;
+                if (isWriteBehindInFlight(session)) {
+                    continue;
+                }
                 synchronized (session) {
                     if (!session.isValid()) {
                         continue;
@@ -862,7 +1172,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
                         }
 
                         try {
-                            writeSession(session);
+                            backupSession(session);
                         } catch (IOException ignore) {
                             // This is logged in writeSession()
                         }
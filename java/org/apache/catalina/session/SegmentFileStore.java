@@ -0,0 +1,705 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+import jakarta.servlet.ServletContext;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Session;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Concrete implementation of the <b>Store</b> interface that appends saved Sessions to memory mapped segment files in
+ * a configured directory. An in-memory index maps the ID of each saved Session to the location of its most recent copy
+ * so saving, loading and removing a Session does not open, create or delete a file and listing the saved Sessions
+ * does not read the directory. Segments in which most of the space is occupied by copies of Sessions that have since
+ * been saved again or removed are compacted during the periodic session expiration. Sessions that are saved are still
+ * subject to being expired based on inactivity.
+ * <p>
+ * When this Store starts, the existing segments are read sequentially to rebuild the index. Each copy of a Session is
+ * protected by a checksum so copies that were only partially written when the previous instance stopped unexpectedly
+ * are ignored.
+ */
+public final class SegmentFileStore extends StoreBase {
+
+    private static final Log log = LogFactory.getLog(SegmentFileStore.class);
+    private static final StringManager sm = StringManager.getManager(SegmentFileStore.class);
+
+
+    // ----------------------------------------------------- Constants
+
+    /**
+     * The extension to use for segment filenames.
+     */
+    private static final String FILE_EXT = ".segment";
+
+    /*
+     * Layout of a record. The checksum covers everything from the sequence number to the end of the record. The state
+     * is excluded so that a record can be marked as removed in place.
+     */
+    private static final int OFFSET_LENGTH = 0;
+    private static final int OFFSET_CHECKSUM = 4;
+    private static final int OFFSET_STATE = 8;
+    private static final int OFFSET_SEQUENCE = 9;
+    private static final int OFFSET_THIS_ACCESSED_TIME = 17;
+    private static final int OFFSET_MAX_INACTIVE_INTERVAL = 25;
+    private static final int OFFSET_ID_LENGTH = 29;
+    private static final int HEADER_LENGTH = 31;
+
+    private static final byte STATE_REMOVED = 0;
+    private static final byte STATE_CURRENT = 1;
+
+    /**
+     * Segments in which less than this proportion of the used space holds current copies of Sessions are compacted.
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The pathname of the directory in which Sessions are stored. This may be an absolute pathname, or a relative path
+     * that is resolved against the temporary work directory for this application.
+     */
+    private String directory = ".";
+
+
+    /**
+     * A File representing the directory in which Sessions are stored.
+     */
+    private File directoryFile = null;
+
+
+    /**
+     * The size in bytes of each segment.
+     */
+    private int segmentSize = 16 * 1024 * 1024;
+
+
+    /**
+     * Name to register for this Store, used for logging.
+     */
+    private static final String storeName = "segmentFileStore";
+
+
+    /*
+     * Writers hold the write lock. Readers of the segments hold the read lock so segments are never unmapped while
+     * they are being read.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String,IndexEntry> index = new ConcurrentHashMap<>();
+
+    /*
+     * The following fields are guarded by the write lock.
+     */
+    private final TreeMap<Long,Segment> segments = new TreeMap<>();
+    private Segment activeSegment = null;
+    private long nextSegmentId = 1;
+    private long nextSequence = 1;
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * @return The directory path for this Store.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+
+    /**
+     * Set the directory path for this Store. Changes take effect when the Store is next started.
+     *
+     * @param path The new directory path
+     */
+    public void setDirectory(String path) {
+        String oldDirectory = this.directory;
+        this.directory = path;
+        this.directoryFile = null;
+        support.firePropertyChange("directory", oldDirectory, this.directory);
+    }
+
+
+    /**
+     * @return The size in bytes of each segment
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+
+    /**
+     * Set the size in bytes of each segment. A Session that is larger than the segment size is written to a segment of
+     * its own.
+     *
+     * @param segmentSize The new segment size
+     */
+    public void setSegmentSize(int segmentSize) {
+        int oldSegmentSize = this.segmentSize;
+        this.segmentSize = segmentSize;
+        support.firePropertyChange("segmentSize", Integer.valueOf(oldSegmentSize), Integer.valueOf(this.segmentSize));
+    }
+
+
+    @Override
+    public String getStoreName() {
+        return storeName;
+    }
+
+
+    @Override
+    public int getSize() throws IOException {
+        return index.size();
+    }
+
+
+    /**
+     * @return The number of segment files currently used by this Store
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                deleteSegment(segment);
+            }
+            activeSegment = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public String[] keys() throws IOException {
+        return index.keySet().toArray(new String[0]);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The index holds the last accessed time and maximum inactive interval of each Session so only the Sessions that
+     * have expired are returned.
+     */
+    @Override
+    public String[] expiredKeys() throws IOException {
+        long timeNow = System.currentTimeMillis();
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String,IndexEntry> entry : index.entrySet()) {
+            IndexEntry indexEntry = entry.getValue();
+            int timeIdle = (int) ((timeNow - indexEntry.thisAccessedTime()) / 1000L);
+            if (timeIdle >= indexEntry.maxInactiveInterval()) {
+                result.add(entry.getKey());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also compacts the segments in which most of the space is no longer used.
+     */
+    @Override
+    public void processExpires() {
+        super.processExpires();
+        if (!getState().isAvailable()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException ioe) {
+            log.error(sm.getString("segmentFileStore.compactFailed", directoryFile), ioe);
+        }
+    }
+
+
+    @Override
+    public Session load(String id) throws ClassNotFoundException, IOException {
+        byte[] data;
+        IndexEntry indexEntry;
+        lock.readLock().lock();
+        try {
+            indexEntry = index.get(id);
+            if (indexEntry == null) {
+                return null;
+            }
+            data = indexEntry.segment().readData(indexEntry.offset(), indexEntry.length());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Context context = getManager().getContext();
+        Log contextLog = context.getLogger();
+
+        if (contextLog.isTraceEnabled()) {
+            contextLog.trace(sm.getString("segmentFileStore.loading", id, indexEntry.segment().file));
+        }
+
+        ClassLoader oldThreadContextCL = context.bind(null);
+
+        try (ObjectInputStream ois = getObjectInputStream(new ByteArrayInputStream(data))) {
+            StandardSession session = (StandardSession) manager.createEmptySession();
+            session.readObjectData(ois);
+            session.setManager(manager);
+            return session;
+        } finally {
+            context.unbind(oldThreadContextCL);
+        }
+    }
+
+
+    @Override
+    public void remove(String id) throws IOException {
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger().trace(sm.getString("segmentFileStore.removing", id, directoryFile));
+        }
+
+        lock.writeLock().lock();
+        try {
+            IndexEntry indexEntry = index.remove(id);
+            if (indexEntry != null) {
+                markRemoved(indexEntry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void save(Session session) throws IOException {
+        byte[] record = toRecord(session);
+
+        lock.writeLock().lock();
+        try {
+            appendNewRecord(session.getIdInternal(), record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sessions are serialized and then appended to the segments while holding the lock once.
+     */
+    @Override
+    public void saveAll(List<Session> sessions) throws IOException {
+        List<byte[]> records = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            records.add(toRecord(session));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < records.size(); i++) {
+                appendNewRecord(sessions.get(i).getIdInternal(), records.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // ------------------------------------------------------ Lifecycle Methods
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        lock.writeLock().lock();
+        try {
+            recover();
+        } catch (IOException ioe) {
+            throw new LifecycleException(sm.getString("segmentFileStore.recoverFailed", directory), ioe);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        super.startInternal();
+    }
+
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+            activeSegment = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Rebuild the index from the existing segments. Must be called while holding the write lock.
+     */
+    private void recover() throws IOException {
+        File dir = directory();
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_EXT));
+        if (files == null) {
+            return;
+        }
+
+        TreeMap<Long,File> existing = new TreeMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                existing.put(Long.valueOf(Long.parseLong(name.substring(0, name.length() - FILE_EXT.length()), 16)),
+                        file);
+            } catch (NumberFormatException e) {
+                log.warn(sm.getString("segmentFileStore.invalidName", file));
+            }
+        }
+
+        for (Map.Entry<Long,File> entry : existing.entrySet()) {
+            long segmentId = entry.getKey().longValue();
+            File file = entry.getValue();
+            nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+            if (file.length() > Integer.MAX_VALUE) {
+                log.warn(sm.getString("segmentFileStore.invalidSegment", file));
+                continue;
+            }
+            Segment segment = new Segment(segmentId, file, (int) file.length());
+            segments.put(entry.getKey(), segment);
+            recover(segment);
+        }
+
+        // Sessions are always appended to a new segment
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment.liveBytes == 0) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+
+    private void recover(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_LENGTH <= buffer.capacity()) {
+            int length = buffer.getInt(position + OFFSET_LENGTH);
+            if (length == 0) {
+                // End of the data in this segment
+                break;
+            }
+            if (length < HEADER_LENGTH || length > buffer.capacity() - position) {
+                log.warn(sm.getString("segmentFileStore.invalidRecord", segment.file, Integer.valueOf(position)));
+                break;
+            }
+            if (buffer.getInt(position + OFFSET_CHECKSUM) != checksum(buffer, position, length)) {
+                log.warn(sm.getString("segmentFileStore.invalidRecord", segment.file, Integer.valueOf(position)));
+                segment.markRemoved(position);
+                position += length;
+                continue;
+            }
+
+            long sequence = buffer.getLong(position + OFFSET_SEQUENCE);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (buffer.get(position + OFFSET_STATE) == STATE_CURRENT) {
+                IndexEntry indexEntry = new IndexEntry(segment, position, length, sequence,
+                        buffer.getLong(position + OFFSET_THIS_ACCESSED_TIME),
+                        buffer.getInt(position + OFFSET_MAX_INACTIVE_INTERVAL));
+                segment.liveBytes += length;
+                String id = segment.readId(position);
+                IndexEntry previous = index.get(id);
+                if (previous == null || previous.sequence() < sequence) {
+                    index.put(id, indexEntry);
+                    if (previous != null) {
+                        markRemoved(previous);
+                    }
+                } else {
+                    // The previous instance stopped before marking this copy as removed
+                    markRemoved(indexEntry);
+                }
+            }
+            position += length;
+        }
+        segment.position = position;
+    }
+
+
+    /**
+     * Serialize the session into a new record. The sequence number and checksum are added when the record is
+     * appended.
+     */
+    private byte[] toRecord(Session session) throws IOException {
+        byte[] id = session.getIdInternal().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(new byte[HEADER_LENGTH]);
+        bos.write(id);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(bos))) {
+            ((StandardSession) session).writeObjectData(oos);
+        }
+        byte[] record = bos.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(OFFSET_LENGTH, record.length);
+        buffer.put(OFFSET_STATE, STATE_CURRENT);
+        buffer.putLong(OFFSET_THIS_ACCESSED_TIME, ((StandardSession) session).getThisAccessedTimeInternal());
+        buffer.putInt(OFFSET_MAX_INACTIVE_INTERVAL, session.getMaxInactiveInterval());
+        buffer.putShort(OFFSET_ID_LENGTH, (short) id.length);
+        return record;
+    }
+
+
+    /**
+     * Append a new copy of a session. Must be called while holding the write lock.
+     */
+    private void appendNewRecord(String id, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        long sequence = nextSequence++;
+        buffer.putLong(OFFSET_SEQUENCE, sequence);
+        buffer.putInt(OFFSET_CHECKSUM, checksum(buffer, 0, record.length));
+
+        IndexEntry indexEntry = appendRecord(record, sequence);
+        IndexEntry previous = index.put(id, indexEntry);
+        if (previous != null) {
+            markRemoved(previous);
+        }
+
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger()
+                    .trace(sm.getString("segmentFileStore.saving", id, indexEntry.segment().file));
+        }
+    }
+
+
+    /**
+     * Append a complete record to the active segment, starting a new segment if required. Must be called while holding
+     * the write lock.
+     */
+    private IndexEntry appendRecord(byte[] record, long sequence) throws IOException {
+        if (activeSegment == null || activeSegment.remaining() < record.length) {
+            File dir = directory();
+            if (dir == null) {
+                throw new IOException(sm.getString("segmentFileStore.noDirectory"));
+            }
+            long segmentId = nextSegmentId++;
+            File file = new File(dir, String.format("%016x", Long.valueOf(segmentId)) + FILE_EXT);
+            activeSegment = new Segment(segmentId, file, Math.max(segmentSize, record.length));
+            segments.put(Long.valueOf(segmentId), activeSegment);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int offset = activeSegment.append(record);
+        return new IndexEntry(activeSegment, offset, record.length, sequence,
+                buffer.getLong(OFFSET_THIS_ACCESSED_TIME), buffer.getInt(OFFSET_MAX_INACTIVE_INTERVAL));
+    }
+
+
+    private void markRemoved(IndexEntry indexEntry) {
+        indexEntry.segment().markRemoved(indexEntry.offset());
+        indexEntry.segment().liveBytes -= indexEntry.length();
+    }
+
+
+    /**
+     * Copy the current records from the segments that are mostly unused to the active segment and delete them.
+     * Package private so the tests can trigger compaction directly.
+     */
+    void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment == activeSegment || segment.liveBytes >= segment.position * COMPACTION_THRESHOLD) {
+                    continue;
+                }
+                int position = 0;
+                while (position < segment.position) {
+                    int length = segment.buffer.getInt(position + OFFSET_LENGTH);
+                    if (segment.buffer.get(position + OFFSET_STATE) == STATE_CURRENT) {
+                        String id = segment.readId(position);
+                        IndexEntry indexEntry = index.get(id);
+                        if (indexEntry != null && indexEntry.segment() == segment && indexEntry.offset() == position) {
+                            byte[] record = new byte[length];
+                            segment.buffer.get(position, record);
+                            // The copy keeps the sequence number so either copy is valid if the old segment survives
+                            index.put(id, appendRecord(record, indexEntry.sequence()));
+                        }
+                    }
+                    position += length;
+                }
+                deleteSegment(segment);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(Long.valueOf(segment.id));
+        segment.close();
+        if (segment.file.exists() && !segment.file.delete()) {
+            log.warn(sm.getString("segmentFileStore.deleteFailed", segment.file));
+        }
+    }
+
+
+    private static int checksum(ByteBuffer buffer, int position, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + OFFSET_SEQUENCE, length - OFFSET_SEQUENCE));
+        return (int) crc.getValue();
+    }
+
+
+    /**
+     * Return a File object representing the pathname to our session persistence directory, if any. The directory will
+     * be created if it does not already exist.
+     */
+    private File directory() throws IOException {
+        if (this.directory == null) {
+            return null;
+        }
+        if (this.directoryFile != null) {
+            // NOTE: Race condition is harmless, so do not synchronize
+            return this.directoryFile;
+        }
+        File file = new File(this.directory);
+        if (!file.isAbsolute()) {
+            Context context = manager.getContext();
+            ServletContext servletContext = context.getServletContext();
+            File work = (File) servletContext.getAttribute(ServletContext.TEMPDIR);
+            file = new File(work, this.directory);
+        }
+        if (!file.exists() || !file.isDirectory()) {
+            if (!file.delete() && file.exists()) {
+                throw new IOException(sm.getString("fileStore.deleteFailed", file));
+            }
+            if (!file.mkdirs() && !file.isDirectory()) {
+                throw new IOException(sm.getString("fileStore.createFailed", file));
+            }
+        }
+        this.directoryFile = file;
+        return file;
+    }
+
+
+    private record IndexEntry(Segment segment, int offset, int length, long sequence, long thisAccessedTime,
+            int maxInactiveInterval) {
+    }
+
+
+    private static final class Segment {
+
+        private final long id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        // Guarded by the write lock
+        private int position = 0;
+        private int liveBytes = 0;
+
+        Segment(long id, File file, int capacity) throws IOException {
+            this.id = id;
+            this.file = file;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        /*
+         * The length is written last so a record that is only partially written when the process stops is seen as
+         * the end of the segment.
+         */
+        int append(byte[] record) {
+            int offset = position;
+            buffer.put(offset + OFFSET_CHECKSUM, record, OFFSET_CHECKSUM, record.length - OFFSET_CHECKSUM);
+            buffer.putInt(offset + OFFSET_LENGTH, record.length);
+            position += record.length;
+            liveBytes += record.length;
+            return offset;
+        }
+
+        void markRemoved(int offset) {
+            buffer.put(offset + OFFSET_STATE, STATE_REMOVED);
+        }
+
+        String readId(int offset) {
+            byte[] id = new byte[buffer.getShort(offset + OFFSET_ID_LENGTH)];
+            buffer.get(offset + HEADER_LENGTH, id);
+            return new String(id, StandardCharsets.UTF_8);
+        }
+
+        byte[] readData(int offset, int length) {
+            int dataOffset = HEADER_LENGTH + buffer.getShort(offset + OFFSET_ID_LENGTH);
+            byte[] data = new byte[length - dataOffset];
+            buffer.get(offset + dataOffset, data);
+            return data;
+        }
+
+        void close() {
+            buffer.force();
+            ByteBufferUtils.cleanDirectBuffer(buffer);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+import org.apache.catalina.Session;
+
+/**
+ * An index of sessions by expiry time that allows {@link ManagerBase#processExpires()} to examine only the sessions
+ * that may have expired rather than every session.
+ * <p>
+ * The index is a hierarchical timing wheel with a resolution of one second. Each level has 64 slots and each slot of a
+ * level covers the time range of a whole revolution of the level below. Sessions are placed in the slot for the time at
+ * which they will expire if they are not accessed again. Entries are moved down a level when the time range of their
+ * slot is reached and examined when their slot of the lowest level is reached. The index is not updated when a session
+ * is accessed. Instead, the expiry time of a session is calculated again when it is examined and, if the session has
+ * been accessed in the meantime, it is placed back in the index. Each session is therefore examined about once per
+ * maximum inactive interval rather than once per expiration run.
+ * <p>
+ * Sessions may be scheduled from any thread. They are only queued until the next call to
+ * {@link #process(long, Predicate)} which is the only method that modifies the wheel. Only sessions that extend
+ * {@link StandardSession} can be indexed.
+ */
+final class SessionExpiryIndex {
+
+    private static final int TICK = 1000;
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOT_COUNT = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    private static final int LEVEL_COUNT = 4;
+
+    private final Queue<StandardSession> pending = new ConcurrentLinkedQueue<>();
+    private final ArrayList<StandardSession>[][] wheel;
+    private volatile boolean complete = true;
+
+    // The last tick that has been processed. Only accessed while holding the lock.
+    private long currentTick;
+
+
+    @SuppressWarnings("unchecked")
+    SessionExpiryIndex(long timeNow) {
+        currentTick = timeNow / TICK;
+        wheel = new ArrayList[LEVEL_COUNT][SLOT_COUNT];
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                wheel[level][slot] = new ArrayList<>();
+            }
+        }
+    }
+
+
+    /**
+     * Queue a session so that it is placed in the index, or moved if it may now expire earlier, by the next call to
+     * {@link #process(long, Predicate)}.
+     *
+     * @param session The session to index
+     */
+    void schedule(Session session) {
+        if (session instanceof StandardSession standardSession) {
+            pending.add(standardSession);
+        } else {
+            complete = false;
+        }
+    }
+
+
+    /**
+     * @return {@code false} if a session that cannot be indexed has been scheduled, in which case the index does not
+     *             cover all the sessions of the Manager
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+
+    /**
+     * Examine the sessions whose expiry time has been reached. Sessions that are still active once examined are placed
+     * back in the index.
+     *
+     * @param timeNow The current time
+     * @param active  Called for each session that is examined. Returns {@code false} if the session has expired or
+     *                    is no longer managed in which case it is removed from the index.
+     *
+     * @return the number of sessions that were examined
+     */
+    synchronized int process(long timeNow, Predicate<StandardSession> active) {
+        long nowTick = timeNow / TICK;
+
+        StandardSession session;
+        while ((session = pending.poll()) != null) {
+            long tick = getExpiryTick(session);
+            if (tick == 0) {
+                // The session does not expire. Any existing entry is removed when it is examined.
+                continue;
+            }
+            tick = Math.max(tick, currentTick + 1);
+            // An existing entry that is not later than the new expiry time is sufficient
+            if (session.expiryIndexTick == 0 || session.expiryIndexTick > tick) {
+                session.expiryIndexTick = tick;
+                place(session, tick);
+            }
+        }
+
+        int examined = 0;
+        while (currentTick < nowTick) {
+            currentTick++;
+            // Move the entries of the slots of higher levels that have been reached down to lower levels
+            for (int level = LEVEL_COUNT - 1; level > 0; level--) {
+                int shift = LEVEL_BITS * level;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    for (StandardSession entry : take(level, (int) (currentTick >>> shift) & SLOT_MASK)) {
+                        // Entries for sessions that were moved follow the current entry
+                        if (entry.expiryIndexTick != 0) {
+                            place(entry, entry.expiryIndexTick);
+                        }
+                    }
+                }
+            }
+
+            for (StandardSession entry : take(0, (int) currentTick & SLOT_MASK)) {
+                if (entry.expiryIndexTick != currentTick) {
+                    // Obsolete entry for a session that has been moved or removed
+                    continue;
+                }
+                entry.expiryIndexTick = 0;
+                examined++;
+                if (!active.test(entry)) {
+                    continue;
+                }
+                long tick = getExpiryTick(entry);
+                if (tick != 0) {
+                    // Sessions that are still in use may not have expired even though their time has been reached
+                    tick = Math.max(tick, nowTick + 1);
+                    entry.expiryIndexTick = tick;
+                    place(entry, tick);
+                }
+            }
+        }
+        return examined;
+    }
+
+
+    private void place(StandardSession session, long tick) {
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVEL_COUNT - 1 && delta >= 1L << (LEVEL_BITS * (level + 1))) {
+            level++;
+        }
+        // Sessions beyond the range of the highest level are placed in a slot of that level again when it is reached
+        wheel[level][(int) (tick >>> (LEVEL_BITS * level)) & SLOT_MASK].add(session);
+    }
+
+
+    private ArrayList<StandardSession> take(int level, int slot) {
+        ArrayList<StandardSession> result = wheel[level][slot];
+        if (!result.isEmpty()) {
+            wheel[level][slot] = new ArrayList<>();
+        }
+        return result;
+    }
+
+
+    /*
+     * Returns the first tick at which the session will have expired if it is not accessed again or zero if the session
+     * does not expire. This must be consistent with StandardSession.getIdleTimeInternal().
+     */
+    private static long getExpiryTick(StandardSession session) {
+        int maxInactiveInterval = session.getMaxInactiveInterval();
+        if (maxInactiveInterval <= 0) {
+            return 0;
+        }
+        long lastAccessedTime = session.lastAccessAtStart ? session.lastAccessedTime : session.thisAccessedTime;
+        return Math.ceilDiv(lastAccessedTime + maxInactiveInterval * 1000L, TICK);
+    }
+}
@@ -83,9 +83,28 @@ public class StandardSession implements HttpSession, Session, Serializable {
      * @param manager The manager with which this Session is associated
      */
     public StandardSession(Manager manager) {
+        this(manager, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ArrayList<>());
+    }
+
+
+    /**
+     * Construct a new Session associated with the specified Manager that uses the provided collections to hold its
+     * attributes, notes and session event listeners.
+     *
+     * @param manager    The manager with which this Session is associated
+     * @param attributes The collection to hold the attributes of this session
+     * @param notes      The collection to hold the notes of this session
+     * @param listeners  The collection to hold the session event listeners of this session. Sub-classes that pass
+     *                       <code>null</code> must override the methods that use the session event listeners.
+     */
+    protected StandardSession(Manager manager, ConcurrentMap<String,Object> attributes, Map<String,Object> notes,
+            ArrayList<SessionListener> listeners) {
 
         super();
         this.manager = manager;
+        this.attributes = attributes;
+        this.notes = notes;
+        this.listeners = listeners;
 
         if (manager != null) {
             // Manager could be null in test environments
@@ -113,7 +132,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
     /**
      * The collection of user data attributes associated with this Session.
      */
-    protected ConcurrentMap<String,Object> attributes = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String,Object> attributes;
 
 
     /**
@@ -158,7 +177,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
     /**
      * The session event listeners for this Session.
      */
-    protected transient ArrayList<SessionListener> listeners = new ArrayList<>();
+    protected transient ArrayList<SessionListener> listeners;
 
 
     /**
@@ -190,7 +209,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
      * Internal notes associated with this session by Catalina components and event listeners. <b>IMPLEMENTATION
      * NOTE:</b> This object is <em>not</em> saved and restored across session serializations!
      */
-    protected transient Map<String,Object> notes = new ConcurrentHashMap<>();
+    protected transient Map<String,Object> notes;
 
 
     /**
@@ -237,6 +256,13 @@ public class StandardSession implements HttpSession, Session, Serializable {
     protected transient boolean lastAccessAtStart;
 
 
+    /**
+     * The time, in seconds, of the entry for this session in the expiry index of the Manager or zero if the session is
+     * not indexed.
+     */
+    transient long expiryIndexTick = 0;
+
+
     // ----------------------------------------------------- Session Properties
 
 
@@ -440,6 +466,9 @@ public class StandardSession implements HttpSession, Session, Serializable {
     @Override
     public void setMaxInactiveInterval(int interval) {
         this.maxInactiveInterval = interval;
+        if (manager instanceof ManagerBase managerBase) {
+            managerBase.scheduleExpiry(this);
+        }
     }
 
 
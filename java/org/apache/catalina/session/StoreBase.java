@@ -22,10 +22,12 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.util.List;
 
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
 import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
 import org.apache.catalina.Store;
 import org.apache.catalina.util.CustomObjectInputStream;
 import org.apache.catalina.util.LifecycleBase;
@@ -179,6 +181,22 @@ public abstract class StoreBase extends LifecycleBase implements Store {
     }
 
 
+    /**
+     * Save the provided sessions to the Store, replacing any previously saved copies. The default implementation calls
+     * {@link #save(Session)} for each session. Stores that can save several sessions more efficiently than one at a
+     * time should override this method.
+     *
+     * @param sessions The sessions to save
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    public void saveAll(List<Session> sessions) throws IOException {
+        for (Session session : sessions) {
+            save(session);
+        }
+    }
+
+
     // --------------------------------------------------------- Protected Methods
 
     /**
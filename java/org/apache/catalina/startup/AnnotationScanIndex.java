@@ -0,0 +1,317 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.bcel.Const;
+import org.apache.tomcat.util.bcel.classfile.AnnotationEntry;
+import org.apache.tomcat.util.bcel.classfile.JavaClass;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A persistent index of the classes found in the JARs that are scanned for annotations and
+ * {@link jakarta.servlet.annotation.HandlesTypes} matches. For each JAR, the index records the class hierarchy and
+ * annotation types of every class, which is all that is required to check for {@link
+ * jakarta.servlet.annotation.HandlesTypes} matches, and which classes have a Servlet annotation that needs to be
+ * processed. A JAR that has not changed since the index was written does not need to be parsed again.
+ * <p>
+ * A JAR is considered unchanged if it has the same path, size and last modified time or, if the last modified time
+ * has changed, if the names, sizes and CRCs of its entries are unchanged. Only JARs that are local files are indexed.
+ */
+final class AnnotationScanIndex {
+
+    private static final Log log = LogFactory.getLog(AnnotationScanIndex.class);
+    private static final StringManager sm = StringManager.getManager(AnnotationScanIndex.class);
+
+    private static final int MAGIC = 0x5443_4153;
+    private static final int VERSION = 1;
+
+    private static final String[] EMPTY = new String[0];
+
+    private final File file;
+    private final Map<String,JarEntry> jars = new ConcurrentHashMap<>();
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private volatile boolean modified = false;
+
+
+    private AnnotationScanIndex(File file) {
+        this.file = file;
+    }
+
+
+    /**
+     * Load the index from the given file. If the file does not exist or cannot be read, an empty index is returned.
+     *
+     * @param file The file from which to load the index and to which the index will be saved
+     *
+     * @return The index
+     */
+    static AnnotationScanIndex load(File file) {
+        AnnotationScanIndex index = new AnnotationScanIndex(file);
+        if (!file.isFile()) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.info(sm.getString("annotationScanIndex.invalid", file));
+                return index;
+            }
+            int jarCount = in.readInt();
+            for (int i = 0; i < jarCount; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                long fingerprint = in.readLong();
+                int classCount = in.readInt();
+                List<ClassEntry> classes = new ArrayList<>(classCount);
+                for (int j = 0; j < classCount; j++) {
+                    String entryName = in.readUTF();
+                    String className = in.readUTF();
+                    boolean annotation = in.readBoolean();
+                    boolean servletAnnotations = in.readBoolean();
+                    String superclassName = in.readUTF();
+                    String[] interfaceNames = readStrings(in);
+                    String[] annotationTypes = readStrings(in);
+                    classes.add(new ClassEntry(entryName, className, annotation, servletAnnotations, superclassName,
+                            interfaceNames, annotationTypes));
+                }
+                index.jars.put(path, new JarEntry(size, lastModified, fingerprint, classes));
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("annotationScanIndex.loadFailed", file), ioe);
+            index.jars.clear();
+        }
+        return index;
+    }
+
+
+    /**
+     * Look up the classes in the given JAR.
+     *
+     * @param jarFile The JAR
+     *
+     * @return The classes in the JAR or {@code null} if the JAR is not in the index or has changed since it was
+     *             indexed
+     */
+    List<ClassEntry> get(File jarFile) {
+        String path = jarFile.getAbsolutePath();
+        JarEntry entry = jars.get(path);
+        if (entry == null) {
+            return null;
+        }
+        long size = jarFile.length();
+        if (entry.size() != size) {
+            return null;
+        }
+        long lastModified = jarFile.lastModified();
+        if (entry.lastModified() != lastModified) {
+            // Check the content - the JAR may have been extracted or copied again
+            try {
+                if (entry.fingerprint() != fingerprint(jarFile)) {
+                    return null;
+                }
+            } catch (IOException ioe) {
+                return null;
+            }
+            jars.put(path, new JarEntry(size, lastModified, entry.fingerprint(), entry.classes()));
+            modified = true;
+        }
+        used.add(path);
+        return entry.classes();
+    }
+
+
+    /**
+     * Add or replace the classes in the given JAR.
+     *
+     * @param jarFile The JAR
+     * @param classes The classes in the JAR
+     */
+    void put(File jarFile, List<ClassEntry> classes) {
+        String path = jarFile.getAbsolutePath();
+        try {
+            jars.put(path, new JarEntry(jarFile.length(), jarFile.lastModified(), fingerprint(jarFile), classes));
+            used.add(path);
+            modified = true;
+        } catch (IOException ioe) {
+            log.debug(sm.getString("annotationScanIndex.fingerprintFailed", jarFile), ioe);
+        }
+    }
+
+
+    /**
+     * Save the index if it has changed. JARs that were not looked up or added since the index was loaded are removed
+     * from the index.
+     */
+    void save() {
+        if (!modified && used.size() == jars.size()) {
+            return;
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                List<Map.Entry<String,JarEntry>> entries = new ArrayList<>();
+                for (Map.Entry<String,JarEntry> entry : jars.entrySet()) {
+                    if (used.contains(entry.getKey())) {
+                        entries.add(entry);
+                    }
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<String,JarEntry> entry : entries) {
+                    JarEntry jarEntry = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(jarEntry.size());
+                    out.writeLong(jarEntry.lastModified());
+                    out.writeLong(jarEntry.fingerprint());
+                    out.writeInt(jarEntry.classes().size());
+                    for (ClassEntry classEntry : jarEntry.classes()) {
+                        out.writeUTF(classEntry.entryName());
+                        out.writeUTF(classEntry.className());
+                        out.writeBoolean(classEntry.annotation());
+                        out.writeBoolean(classEntry.servletAnnotations());
+                        out.writeUTF(classEntry.superclassName());
+                        writeStrings(out, classEntry.interfaceNames());
+                        writeStrings(out, classEntry.annotationTypes());
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException ioe) {
+            log.warn(sm.getString("annotationScanIndex.saveFailed", file), ioe);
+            if (tmp.exists() && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == 0) {
+            return EMPTY;
+        }
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readUTF();
+        }
+        return result;
+    }
+
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+
+    private static long fingerprint(File jarFile) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buf = new byte[16];
+        try (ZipFile zipFile = new ZipFile(jarFile)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                crc.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                long entryCrc = entry.getCrc();
+                long entrySize = entry.getSize();
+                for (int i = 0; i < 8; i++) {
+                    buf[i] = (byte) (entryCrc >>> (i * 8));
+                    buf[i + 8] = (byte) (entrySize >>> (i * 8));
+                }
+                crc.update(buf);
+            }
+            return (crc.getValue() << 32) | (zipFile.size() & 0xFFFFFFFFL);
+        }
+    }
+
+
+    private record JarEntry(long size, long lastModified, long fingerprint, List<ClassEntry> classes) {
+    }
+
+
+    /**
+     * The information recorded for each class.
+     *
+     * @param entryName          The name of the JAR entry for the class
+     * @param className          The fully qualified name of the class
+     * @param annotation         {@code true} if the class is an annotation
+     * @param servletAnnotations {@code true} if the class is annotated with {@code WebServlet}, {@code WebFilter} or
+     *                               {@code WebListener}
+     * @param superclassName     The fully qualified name of the super class
+     * @param interfaceNames     The fully qualified names of the interfaces implemented by the class
+     * @param annotationTypes    The types, in internal form, of the annotations on the class, its fields and its
+     *                               methods
+     */
+    record ClassEntry(String entryName, String className, boolean annotation, boolean servletAnnotations,
+            String superclassName, String[] interfaceNames, String[] annotationTypes) {
+
+        static ClassEntry create(String entryName, JavaClass javaClass) {
+            boolean servletAnnotations = false;
+            AnnotationEntry[] classAnnotations = javaClass.getAnnotationEntries();
+            if (classAnnotations != null) {
+                for (AnnotationEntry ae : classAnnotations) {
+                    switch (ae.getAnnotationType()) {
+                        case "Ljakarta/servlet/annotation/WebServlet;", "Ljakarta/servlet/annotation/WebFilter;",
+                                "Ljakarta/servlet/annotation/WebListener;" -> servletAnnotations = true;
+                        default -> {
+                            // Not of interest
+                        }
+                    }
+                }
+            }
+            String[] annotationTypes = EMPTY;
+            AnnotationEntry[] allAnnotations = javaClass.getAllAnnotationEntries();
+            if (allAnnotations != null && allAnnotations.length > 0) {
+                annotationTypes = new String[allAnnotations.length];
+                for (int i = 0; i < allAnnotations.length; i++) {
+                    annotationTypes[i] = allAnnotations[i].getAnnotationType();
+                }
+            }
+            return new ClassEntry(entryName, javaClass.getClassName(),
+                    (javaClass.getAccessFlags() & Const.ACC_ANNOTATION) != 0, servletAnnotations,
+                    javaClass.getSuperclassName(), javaClass.getInterfaceNames(), annotationTypes);
+        }
+    }
+}
@@ -35,6 +35,7 @@ public final class Constants {
     public static final String HostContextXml = "context.xml.default";
     public static final String HostWebXml = "web.xml.default";
     public static final String WarTracker = "/META-INF/war-tracker";
+    public static final String AnnotationScanIndexFile = "annotation-scan.idx";
 
     /**
      * A value that points to a non-existent file used to suppress loading the default web.xml file.
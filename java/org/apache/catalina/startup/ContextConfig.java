@@ -230,6 +230,11 @@ public class ContextConfig implements LifecycleListener {
      */
     protected boolean handlesTypesNonAnnotations = false;
 
+    /**
+     * The index of previously scanned JARs, if enabled, while the classes are being processed.
+     */
+    volatile AnnotationScanIndex annotationScanIndex = null;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -1347,6 +1352,8 @@ public class ContextConfig implements LifecycleListener {
             javaClassCache = new HashMap<>();
         }
 
+        annotationScanIndex = loadAnnotationScanIndex();
+
         if (ok) {
             WebResource[] webResources = context.getResources().listResources("/WEB-INF/classes");
 
@@ -1370,6 +1377,25 @@ public class ContextConfig implements LifecycleListener {
 
         // Cache, if used, is no longer required so clear it
         javaClassCache.clear();
+
+        if (annotationScanIndex != null) {
+            if (ok) {
+                annotationScanIndex.save();
+            }
+            annotationScanIndex = null;
+        }
+    }
+
+
+    private AnnotationScanIndex loadAnnotationScanIndex() {
+        if (!(context instanceof StandardContext standardContext) || !standardContext.getAnnotationScanIndex()) {
+            return null;
+        }
+        File workDir = (File) context.getServletContext().getAttribute(ServletContext.TEMPDIR);
+        if (workDir == null || !workDir.isDirectory()) {
+            return null;
+        }
+        return AnnotationScanIndex.load(new File(workDir, Constants.AnnotationScanIndexFile));
     }
 
 
@@ -2177,6 +2203,17 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotationsJar(URL url, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
+        AnnotationScanIndex index = annotationScanIndex;
+        File jarFile = (index == null) ? null : getLocalJarFile(url);
+        if (jarFile != null) {
+            List<AnnotationScanIndex.ClassEntry> classes = index.get(jarFile);
+            if (classes != null) {
+                processAnnotationsIndex(url, classes, fragment, handlesTypesOnly, javaClassCache);
+                return;
+            }
+        }
+        List<AnnotationScanIndex.ClassEntry> classes = (jarFile == null) ? null : new ArrayList<>();
+
         try (Jar jar = JarFactory.newInstance(url)) {
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("contextConfig.processAnnotationsJar.debug", url));
@@ -2187,9 +2224,18 @@ public class ContextConfig implements LifecycleListener {
             while (entryName != null) {
                 if (entryName.endsWith(".class")) {
                     try (InputStream is = jar.getEntryInputStream()) {
-                        processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        if (classes == null) {
+                            processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        } else {
+                            ClassParser parser = new ClassParser(is);
+                            JavaClass clazz = parser.parse();
+                            classes.add(AnnotationScanIndex.ClassEntry.create(entryName, clazz));
+                            processJavaClass(clazz, fragment, handlesTypesOnly, javaClassCache);
+                        }
                     } catch (IOException | ClassFormatException e) {
                         log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                        // Don't index the JAR so the error is reported each time it is scanned
+                        classes = null;
                     }
                 }
                 jar.nextEntry();
@@ -2197,10 +2243,77 @@ public class ContextConfig implements LifecycleListener {
             }
         } catch (IOException ioe) {
             log.error(sm.getString("contextConfig.jarFile", url), ioe);
+            classes = null;
+        }
+
+        if (classes != null) {
+            index.put(jarFile, classes);
+        }
+    }
+
+
+    /**
+     * Process the classes of a JAR using the information recorded in the annotation scan index rather than parsing
+     * every class. Only the classes with Servlet annotations are parsed, and only if those annotations are required.
+     *
+     * @param url              The URL of the JAR
+     * @param classes          The classes in the JAR recorded in the index
+     * @param fragment         The fragment to which any annotations should be added
+     * @param handlesTypesOnly {@code true} if only {@link HandlesTypes} matches are required
+     * @param javaClassCache   The class cache
+     */
+    protected void processAnnotationsIndex(URL url, List<AnnotationScanIndex.ClassEntry> classes, WebXml fragment,
+            boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("contextConfig.processAnnotationsIndex.debug", url));
+        }
+
+        Jar jar = null;
+        try {
+            for (AnnotationScanIndex.ClassEntry entry : classes) {
+                if (!typeInitializerMap.isEmpty() && !entry.annotation()) {
+                    checkHandlesTypes(entry.className(), new JavaClassCacheEntry(entry.superclassName(),
+                            entry.interfaceNames()), entry.annotationTypes(), javaClassCache);
+                }
+                if (!handlesTypesOnly && entry.servletAnnotations()) {
+                    if (jar == null) {
+                        jar = JarFactory.newInstance(url);
+                    }
+                    try (InputStream is = jar.getInputStream(entry.entryName())) {
+                        ClassParser parser = new ClassParser(is);
+                        processClass(fragment, parser.parse());
+                    } catch (IOException | ClassFormatException e) {
+                        log.error(sm.getString("contextConfig.inputStreamJar", entry.entryName(), url), e);
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            log.error(sm.getString("contextConfig.jarFile", url), ioe);
+        } finally {
+            if (jar != null) {
+                jar.close();
+            }
         }
     }
 
 
+    private static File getLocalJarFile(URL url) {
+        String urlString = url.toString();
+        try {
+            if (urlString.startsWith("jar:file:") && urlString.endsWith("!/") &&
+                    urlString.indexOf("!/") == urlString.length() - 2) {
+                return new File(new URI(urlString.substring(4, urlString.length() - 2)));
+            } else if (urlString.startsWith("file:") && urlString.endsWith(".jar")) {
+                return new File(url.toURI());
+            }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            // Not a local file
+        }
+        return null;
+    }
+
+
     protected void processAnnotationsFile(File file, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
@@ -2230,6 +2343,12 @@ public class ContextConfig implements LifecycleListener {
 
         ClassParser parser = new ClassParser(is);
         JavaClass clazz = parser.parse();
+        processJavaClass(clazz, fragment, handlesTypesOnly, javaClassCache);
+    }
+
+
+    private void processJavaClass(JavaClass clazz, WebXml fragment, boolean handlesTypesOnly,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
         checkHandlesTypes(clazz, javaClassCache);
 
         if (handlesTypesOnly) {
@@ -2280,12 +2399,29 @@ public class ContextConfig implements LifecycleListener {
             return;
         }
 
-        String className = javaClass.getClassName();
+        String[] annotationTypes = null;
+        if (handlesTypesAnnotations) {
+            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
+            if (annotationEntries != null) {
+                annotationTypes = new String[annotationEntries.length];
+                for (int i = 0; i < annotationEntries.length; i++) {
+                    annotationTypes[i] = annotationEntries[i].getAnnotationType();
+                }
+            }
+        }
+
+        checkHandlesTypes(javaClass.getClassName(), new JavaClassCacheEntry(javaClass), annotationTypes,
+                javaClassCache);
+    }
+
+
+    private void checkHandlesTypes(String className, JavaClassCacheEntry cacheEntry, String[] annotationTypes,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
 
         Class<?> clazz = null;
         if (handlesTypesNonAnnotations) {
             // This *might* be match for a HandlesType.
-            populateJavaClassCache(className, javaClass, javaClassCache);
+            populateJavaClassCache(className, cacheEntry, javaClassCache);
             JavaClassCacheEntry entry = javaClassCache.get(className);
             if (entry.getSciSet() == null) {
                 try {
@@ -2310,27 +2446,24 @@ public class ContextConfig implements LifecycleListener {
             }
         }
 
-        if (handlesTypesAnnotations) {
-            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
-            if (annotationEntries != null) {
-                for (Map.Entry<Class<?>,Set<ServletContainerInitializer>> entry : typeInitializerMap.entrySet()) {
-                    if (entry.getKey().isAnnotation()) {
-                        String entryClassName = entry.getKey().getName();
-                        for (AnnotationEntry annotationEntry : annotationEntries) {
-                            if (entryClassName.equals(getClassName(annotationEntry.getAnnotationType()))) {
+        if (handlesTypesAnnotations && annotationTypes != null) {
+            for (Map.Entry<Class<?>,Set<ServletContainerInitializer>> entry : typeInitializerMap.entrySet()) {
+                if (entry.getKey().isAnnotation()) {
+                    String entryClassName = entry.getKey().getName();
+                    for (String annotationType : annotationTypes) {
+                        if (entryClassName.equals(getClassName(annotationType))) {
+                            if (clazz == null) {
+                                clazz = Introspection.loadClass(context, className);
                                 if (clazz == null) {
-                                    clazz = Introspection.loadClass(context, className);
-                                    if (clazz == null) {
-                                        // Can't load the class so no point
-                                        // continuing
-                                        return;
-                                    }
+                                    // Can't load the class so no point
+                                    // continuing
+                                    return;
                                 }
-                                for (ServletContainerInitializer sci : entry.getValue()) {
-                                    initializerClassMap.get(sci).add(clazz);
-                                }
-                                break;
                             }
+                            for (ServletContainerInitializer sci : entry.getValue()) {
+                                initializerClassMap.get(sci).add(clazz);
+                            }
+                            break;
                         }
                     }
                 }
@@ -2362,18 +2495,18 @@ public class ContextConfig implements LifecycleListener {
         return msg.toString();
     }
 
-    private void populateJavaClassCache(String className, JavaClass javaClass,
+    private void populateJavaClassCache(String className, JavaClassCacheEntry cacheEntry,
             Map<String,JavaClassCacheEntry> javaClassCache) {
         if (javaClassCache.containsKey(className)) {
             return;
         }
 
         // Add this class to the cache
-        javaClassCache.put(className, new JavaClassCacheEntry(javaClass));
+        javaClassCache.put(className, cacheEntry);
 
-        populateJavaClassCache(javaClass.getSuperclassName(), javaClassCache);
+        populateJavaClassCache(cacheEntry.getSuperclassName(), javaClassCache);
 
-        for (String interfaceName : javaClass.getInterfaceNames()) {
+        for (String interfaceName : cacheEntry.getInterfaceNames()) {
             populateJavaClassCache(interfaceName, javaClassCache);
         }
     }
@@ -2387,7 +2520,7 @@ public class ContextConfig implements LifecycleListener {
                 }
                 ClassParser parser = new ClassParser(is);
                 JavaClass clazz = parser.parse();
-                populateJavaClassCache(clazz.getClassName(), clazz, javaClassCache);
+                populateJavaClassCache(clazz.getClassName(), new JavaClassCacheEntry(clazz), javaClassCache);
             } catch (ClassFormatException | IOException e) {
                 log.debug(sm.getString("contextConfig.invalidSciHandlesTypes", className), e);
             }
@@ -2769,8 +2902,12 @@ public class ContextConfig implements LifecycleListener {
         private Set<ServletContainerInitializer> sciSet = null;
 
         JavaClassCacheEntry(JavaClass javaClass) {
-            superclassName = javaClass.getSuperclassName();
-            interfaceNames = javaClass.getInterfaceNames();
+            this(javaClass.getSuperclassName(), javaClass.getInterfaceNames());
+        }
+
+        JavaClassCacheEntry(String superclassName, String[] interfaceNames) {
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
         }
 
         public String getSuperclassName() {
@@ -340,6 +340,15 @@ public abstract class AbstractArchiveResourceSet extends AbstractResourceSet {
         }
     }
 
+    /**
+     * Should the map of archive entries be retained when the archive is closed?
+     *
+     * @return {@code true} if the map of entries should be retained, otherwise {@code false}
+     */
+    protected boolean getRetainArchiveEntries() {
+        return false;
+    }
+
     protected void closeJarFile() {
         synchronized (archiveLock) {
             archiveUseCount--;
@@ -356,7 +365,9 @@ public abstract class AbstractArchiveResourceSet extends AbstractResourceSet {
                     log.warn(sm.getString("abstractArchiveResourceSet.archiveCloseFailed"), ioe);
                 }
                 archive = null;
-                archiveEntries = null;
+                if (!getRetainArchiveEntries()) {
+                    archiveEntries = null;
+                }
                 if (!retainBloomFilterForArchives) {
                     jarContents = null;
                 }
@@ -16,16 +16,33 @@
  */
 package org.apache.catalina.webresources;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.servlet.ServletOutputStream;
 
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot.CacheStrategy;
+import org.apache.catalina.WebResourceRoot.ContentEncoder;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.res.StringManager;
@@ -52,8 +69,55 @@ public class Cache {
     private final LongAdder lookupCount = new LongAdder();
     private final LongAdder hitCount = new LongAdder();
 
+    private final LongAdder evictionCount = new LongAdder();
+
     private final ConcurrentMap<String,CachedResource> resourceCache = new ConcurrentHashMap<>();
 
+    /*
+     * Cached resources are evicted using a segmented LRU policy. New entries are added to the probation segment. An
+     * entry that is accessed again while in the probation segment is promoted to the protected segment which is
+     * limited to PROTECTED_PERCENT of maxSize. Entries demoted from the protected segment return to the probation
+     * segment. Entries are evicted from the least recently used end of the probation segment so resources that are
+     * only requested once, e.g. by a crawler, do not displace resources that are requested frequently.
+     *
+     * The segments are guarded by evictionLock. Request processing threads never wait for the lock. Additions to and
+     * removals from resourceCache are queued in writeBuffer and accesses are recorded in the lossy readBuffer. Both
+     * are drained, and any eviction required is performed, by whichever thread obtains the lock. Each addition,
+     * access, removal and eviction is O(1).
+     */
+    private static final int PROTECTED_PERCENT = 80;
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_INTERVAL_MASK = 32 - 1;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Queue<CachedResource> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<CachedResource> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readBufferWriteCount = new AtomicLong(0);
+    // Guarded by evictionLock
+    private long readBufferReadCount = 0;
+    private final PolicySegment probationSegment = new PolicySegment();
+    private final PolicySegment protectedSegment = new PolicySegment();
+
+    /*
+     * Compressed representations of resources have their own budget so that generating them does not evict the
+     * uncompressed resources they were generated from.
+     */
+    private final AtomicLong compressedSize = new AtomicLong(0);
+    private long compressedMaxSize = 10 * 1024 * 1024;
+    private final ConcurrentMap<CompressedResourceKey,CompressedResource> compressedResourceCache =
+            new ConcurrentHashMap<>();
+
+    /*
+     * The content of file resources that are too large to cache on the heap may be cached as read-only memory
+     * mappings. The mappings are held outside of the heap so they have their own budget. The budget is zero by
+     * default which disables this tier.
+     */
+    private final AtomicLong mappedSize = new AtomicLong(0);
+    private long mappedMaxSize = 0;
+    private final ConcurrentMap<String,MappedContent> mappedContentCache = new ConcurrentHashMap<>();
+    private static final int MAPPED_WRITE_SIZE = 256 * 1024;
+
     public Cache(StandardRoot root) {
         this.root = root;
     }
@@ -98,27 +162,7 @@ public class Cache {
                 // Even if the resource content larger than objectMaxSizeBytes
                 // there is still benefit in caching the resource metadata
 
-                long delta = cacheEntry.getSize();
-                long result = size.addAndGet(delta);
-                if (log.isDebugEnabled()) {
-                    log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
-                            Long.toString(result)));
-                }
-
-                if (size.get() > maxSize) {
-                    // Process resources unordered for speed. Trades cache
-                    // efficiency (younger entries may be evicted before older
-                    // ones) for speed since this is on the critical path for
-                    // request processing
-                    long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
-                    long newSize = evict(targetSize, resourceCache.values().iterator());
-                    if (newSize > maxSize) {
-                        // Unable to create sufficient space for this resource
-                        // Remove it from the cache
-                        removeCacheEntry(path);
-                        log.warn(sm.getString("cache.addFail", path, root.getContext().getName()));
-                    }
-                }
+                addCacheEntry(path, cacheEntry);
             } else {
                 // Another thread added the entry to the cache
                 if (cacheEntry.usesClassLoaderResources() != useClassLoaderResources) {
@@ -144,6 +188,7 @@ public class Cache {
             }
         } else {
             hitCount.increment();
+            recordAccess(cacheEntry);
         }
 
         return cacheEntry;
@@ -178,27 +223,7 @@ public class Cache {
                 cacheEntry.validateResources(useClassLoaderResources);
 
                 // Content will not be cached but we still need metadata size
-                long delta = cacheEntry.getSize();
-                long result = size.addAndGet(delta);
-                if (log.isDebugEnabled()) {
-                    log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
-                            Long.toString(result)));
-                }
-
-                if (size.get() > maxSize) {
-                    // Process resources unordered for speed. Trades cache
-                    // efficiency (younger entries may be evicted before older
-                    // ones) for speed since this is on the critical path for
-                    // request processing
-                    long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
-                    long newSize = evict(targetSize, resourceCache.values().iterator());
-                    if (newSize > maxSize) {
-                        // Unable to create sufficient space for this resource
-                        // Remove it from the cache
-                        removeCacheEntry(path);
-                        log.warn(sm.getString("cache.addFail", path));
-                    }
-                }
+                addCacheEntry(path, cacheEntry);
             } else {
                 // Another thread added the entry to the cache
                 // Make sure it is validated
@@ -206,70 +231,393 @@ public class Cache {
             }
         } else {
             hitCount.increment();
+            recordAccess(cacheEntry);
         }
 
         return cacheEntry.getWebResources();
     }
 
     protected void backgroundProcess() {
-        // Create an ordered set of all cached resources with the least recently
-        // used first. This is a background process so we can afford to take the
-        // time to order the elements first
-        TreeSet<CachedResource> orderedResources =
-                new TreeSet<>(Comparator.comparingLong(CachedResource::getNextCheck));
-        orderedResources.addAll(resourceCache.values());
+        // Create some free space so eviction is less likely to be required
+        // while processing requests
+        evictionLock.lock();
+        try {
+            maintenance(maxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100);
+        } finally {
+            evictionLock.unlock();
+        }
+
+        // Compressed representations do not expire so they are only evicted,
+        // least recently used first, when the budget is nearly exhausted
+        long compressedTargetSize = compressedMaxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100;
+        if (compressedSize.get() > compressedTargetSize) {
+            List<Map.Entry<CompressedResourceKey,CompressedResource>> orderedCompressed =
+                    new ArrayList<>(compressedResourceCache.entrySet());
+            orderedCompressed.sort(Comparator.comparingLong(entry -> entry.getValue().getLastAccess()));
+            evictCompressed(compressedTargetSize, orderedCompressed.iterator(), null);
+        }
+
+        long mappedTargetSize = mappedMaxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100;
+        if (mappedSize.get() > mappedTargetSize) {
+            List<Map.Entry<String,MappedContent>> orderedMapped = new ArrayList<>(mappedContentCache.entrySet());
+            orderedMapped.sort(Comparator.comparingLong(entry -> entry.getValue().getLastAccess()));
+            evictMapped(mappedTargetSize, orderedMapped.iterator(), null);
+        }
+    }
+
+    protected WebResource getCompressedResource(WebResource resource, String encoding, ContentEncoder encoder) {
+        if (compressedMaxSize <= 0 || !resource.isFile()) {
+            return null;
+        }
+        long contentLength = resource.getContentLength();
+        if (contentLength <= 0 || contentLength > getObjectMaxSizeBytes()) {
+            return null;
+        }
 
-        Iterator<CachedResource> iter = orderedResources.iterator();
+        CompressedResourceKey key = new CompressedResourceKey(resource.getWebappPath(), encoding);
+        CompressedResource cacheEntry = compressedResourceCache.get(key);
+        if (cacheEntry != null) {
+            if (cacheEntry.isValidFor(resource)) {
+                cacheEntry.access();
+                return cacheEntry.isCompressed() ? cacheEntry : null;
+            }
+            removeCompressedCacheEntry(key, cacheEntry);
+        }
 
-        long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100;
-        long newSize = evict(targetSize, iter);
+        // Concurrent callers may compress the same resource. The last one to
+        // complete will replace the entries created by the others.
+        byte[] compressed = compress(resource, encoding, encoder);
+        if (compressed != null && compressed.length >= contentLength) {
+            // Record that compression is not beneficial so the resource is not
+            // compressed again on the next request
+            compressed = null;
+        }
+        CompressedResource newCacheEntry = new CompressedResource(resource, encoding, compressed);
+
+        long delta = newCacheEntry.getSize();
+        CompressedResource previous = compressedResourceCache.put(key, newCacheEntry);
+        if (previous != null) {
+            delta -= previous.getSize();
+        }
+        long result = compressedSize.addAndGet(delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.compressedSizeTracking.add", Long.toString(delta), newCacheEntry,
+                    Long.toString(result)));
+        }
 
-        if (newSize > targetSize) {
-            log.info(sm.getString("cache.backgroundEvictFail", Long.valueOf(TARGET_FREE_PERCENT_BACKGROUND),
-                    root.getContext().getName(), Long.valueOf(newSize / 1024)));
+        if (result > compressedMaxSize) {
+            // Unordered for speed as this is on the critical path for request
+            // processing. Ordered eviction takes place in the background.
+            long targetSize = compressedMaxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
+            long newSize = evictCompressed(targetSize, compressedResourceCache.entrySet().iterator(), key);
+            if (newSize > compressedMaxSize) {
+                removeCompressedCacheEntry(key, newCacheEntry);
+                log.warn(sm.getString("cache.compressedAddFail", resource.getWebappPath(), encoding,
+                        root.getContext().getName()));
+            }
         }
+
+        return newCacheEntry.isCompressed() ? newCacheEntry : null;
     }
 
-    private boolean noCache(String path) {
-        // Don't cache classes. The class loader handles this.
-        // Don't cache JARs. The ResourceSet handles this.
-        return (path.endsWith(".class") && (path.startsWith("/WEB-INF/classes/") || path.startsWith("/WEB-INF/lib/"))) ||
-            (path.startsWith("/WEB-INF/lib/") && path.endsWith(".jar"));
+    private byte[] compress(WebResource resource, String encoding, ContentEncoder encoder) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(resource.getContentLength(), 8192));
+        try {
+            byte[] content = resource.getContent();
+            try (OutputStream os = encoder.createOutputStream(baos)) {
+                if (content == null) {
+                    try (InputStream is = resource.getInputStream()) {
+                        if (is == null) {
+                            return null;
+                        }
+                        is.transferTo(os);
+                    }
+                } else {
+                    os.write(content);
+                }
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("cache.compressFail", resource.getWebappPath(), encoding), ioe);
+            return null;
+        }
+        return baos.toByteArray();
+    }
+
+    private long evictCompressed(long targetSize, Iterator<Map.Entry<CompressedResourceKey,CompressedResource>> iter,
+            CompressedResourceKey skip) {
+        long newSize = compressedSize.get();
+        while (newSize > targetSize && iter.hasNext()) {
+            Map.Entry<CompressedResourceKey,CompressedResource> entry = iter.next();
+            if (entry.getKey().equals(skip)) {
+                continue;
+            }
+            removeCompressedCacheEntry(entry.getKey(), entry.getValue());
+            newSize = compressedSize.get();
+        }
+        return newSize;
     }
 
-    private long evict(long targetSize, Iterator<CachedResource> iter) {
+    private void removeCompressedCacheEntry(CompressedResourceKey key, CompressedResource entry) {
+        // Only remove the given entry so a concurrently added replacement is
+        // retained and the size is only updated once
+        if (compressedResourceCache.remove(key, entry)) {
+            long delta = entry.getSize();
+            long result = compressedSize.addAndGet(-delta);
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("cache.compressedSizeTracking.remove", Long.toString(delta), entry,
+                        Long.toString(result)));
+            }
+        }
+    }
 
-        long now = System.currentTimeMillis();
+    protected boolean writeMappedContent(WebResource resource, long start, long end, ServletOutputStream out)
+            throws IOException {
+        MappedContent mappedContent = getMappedContent(resource);
+        if (mappedContent == null) {
+            return false;
+        }
+        try {
+            // Write in chunks so a wrapped stream that does not override
+            // write(ByteBuffer) does not copy all the content onto the heap
+            for (long position = start; position < end; position += MAPPED_WRITE_SIZE) {
+                out.write(mappedContent.getContent(position, Math.min(end, position + MAPPED_WRITE_SIZE)));
+            }
+        } finally {
+            mappedContent.release();
+        }
+        return true;
+    }
 
-        long newSize = size.get();
+    /*
+     * If a mapping is returned, the caller holds a reference to it and must release it.
+     */
+    private MappedContent getMappedContent(WebResource resource) {
+        if (mappedMaxSize <= 0 || !resource.isFile()) {
+            return null;
+        }
+        // Smaller resources are cached on the heap. A single mapping is
+        // limited to Integer.MAX_VALUE bytes.
+        long contentLength = resource.getContentLength();
+        if (contentLength <= getObjectMaxSizeBytes() || contentLength > Integer.MAX_VALUE ||
+                contentLength > mappedMaxSize) {
+            return null;
+        }
+        String canonicalPath = resource.getCanonicalPath();
+        if (canonicalPath == null) {
+            return null;
+        }
 
-        while (newSize > targetSize && iter.hasNext()) {
-            CachedResource resource = iter.next();
+        String path = resource.getWebappPath();
+        MappedContent cacheEntry = mappedContentCache.get(path);
+        if (cacheEntry != null) {
+            if (cacheEntry.isValidFor(resource) && cacheEntry.acquire()) {
+                return cacheEntry;
+            }
+            removeMappedCacheEntry(path, cacheEntry);
+        }
 
-            // Don't expire anything that has been checked within the TTL
-            if (resource.getNextCheck() > now) {
-                continue;
+        MappedContent newCacheEntry = map(resource, canonicalPath);
+        if (newCacheEntry == null) {
+            return null;
+        }
+        // The reference for the caller
+        newCacheEntry.acquire();
+
+        // Concurrent callers may map the same resource. The last one to
+        // complete will replace the entries created by the others.
+        long delta = newCacheEntry.getSize();
+        MappedContent previous = mappedContentCache.put(path, newCacheEntry);
+        if (previous != null) {
+            delta -= previous.getSize();
+            previous.release();
+        }
+        long result = mappedSize.addAndGet(delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.mappedSizeTracking.add", Long.toString(delta), newCacheEntry,
+                    Long.toString(result)));
+        }
+
+        if (result > mappedMaxSize) {
+            // Unordered for speed as this is on the critical path for request
+            // processing. Ordered eviction takes place in the background.
+            long targetSize = mappedMaxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
+            long newSize = evictMapped(targetSize, mappedContentCache.entrySet().iterator(), path);
+            if (newSize > mappedMaxSize) {
+                // The caller's reference remains valid
+                removeMappedCacheEntry(path, newCacheEntry);
+                log.warn(sm.getString("cache.mappedAddFail", path, root.getContext().getName()));
             }
+        }
 
-            // Remove the entry from the cache
-            removeCacheEntry(resource.getWebappPath());
+        return newCacheEntry;
+    }
 
-            newSize = size.get();
+    private MappedContent map(WebResource resource, String canonicalPath) {
+        try (FileChannel channel = FileChannel.open(Path.of(canonicalPath), StandardOpenOption.READ)) {
+            long contentLength = channel.size();
+            if (contentLength != resource.getContentLength()) {
+                // The file has changed since the resource was last validated
+                return null;
+            }
+            return new MappedContent(resource, canonicalPath, channel.map(MapMode.READ_ONLY, 0, contentLength));
+        } catch (IOException ioe) {
+            log.warn(sm.getString("cache.mapFail", resource.getWebappPath()), ioe);
+            return null;
         }
+    }
 
+    private long evictMapped(long targetSize, Iterator<Map.Entry<String,MappedContent>> iter, String skip) {
+        long newSize = mappedSize.get();
+        while (newSize > targetSize && iter.hasNext()) {
+            Map.Entry<String,MappedContent> entry = iter.next();
+            if (entry.getKey().equals(skip)) {
+                continue;
+            }
+            removeMappedCacheEntry(entry.getKey(), entry.getValue());
+            newSize = mappedSize.get();
+        }
         return newSize;
     }
 
+    private void removeMappedCacheEntry(String path, MappedContent entry) {
+        // Only remove the given entry so a concurrently added replacement is
+        // retained and the mapping is only released once
+        if (mappedContentCache.remove(path, entry)) {
+            long delta = entry.getSize();
+            long result = mappedSize.addAndGet(-delta);
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("cache.mappedSizeTracking.remove", Long.toString(delta), entry,
+                        Long.toString(result)));
+            }
+            entry.release();
+        }
+    }
+
+    private boolean noCache(String path) {
+        // Don't cache classes. The class loader handles this.
+        // Don't cache JARs. The ResourceSet handles this.
+        return (path.endsWith(".class") && (path.startsWith("/WEB-INF/classes/") || path.startsWith("/WEB-INF/lib/"))) ||
+            (path.startsWith("/WEB-INF/lib/") && path.endsWith(".jar"));
+    }
+
+    private void addCacheEntry(String path, CachedResource cacheEntry) {
+        long delta = cacheEntry.getSize();
+        long result = size.addAndGet(delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
+                    Long.toString(result)));
+        }
+        writeBuffer.add(cacheEntry);
+        tryMaintenance();
+    }
+
     void removeCacheEntry(String path) {
         // With concurrent calls for the same path, the entry is only removed
         // once and the cache size is only updated (if required) once.
         CachedResource cachedResource = resourceCache.remove(path);
         if (cachedResource != null) {
-            long delta = cachedResource.getSize();
-            long result = size.addAndGet(-delta);
-            if (log.isDebugEnabled()) {
-                log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource, path,
-                        Long.toString(result)));
+            reduceSize(cachedResource);
+            // Remove it from the eviction policy
+            writeBuffer.add(cachedResource);
+        }
+        // The resource has changed or been removed so any mapping of the
+        // previous content is no longer required
+        MappedContent mappedContent = mappedContentCache.get(path);
+        if (mappedContent != null) {
+            removeMappedCacheEntry(path, mappedContent);
+        }
+    }
+
+    private void reduceSize(CachedResource cachedResource) {
+        long delta = cachedResource.getSize();
+        long result = size.addAndGet(-delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource,
+                    cachedResource.getWebappPath(), Long.toString(result)));
+        }
+    }
+
+    private void recordAccess(CachedResource cacheEntry) {
+        long index = readBufferWriteCount.getAndIncrement();
+        readBuffer.lazySet((int) (index & READ_BUFFER_MASK), cacheEntry);
+        if ((index & READ_BUFFER_DRAIN_INTERVAL_MASK) == READ_BUFFER_DRAIN_INTERVAL_MASK) {
+            tryMaintenance();
+        }
+    }
+
+    private void tryMaintenance() {
+        // If another thread holds the lock, it will process anything this
+        // thread has added to the write buffer once it releases the lock
+        while (evictionLock.tryLock()) {
+            try {
+                long targetSize = maxSize;
+                if (size.get() > targetSize) {
+                    targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
+                }
+                maintenance(targetSize);
+            } finally {
+                evictionLock.unlock();
+            }
+            if (writeBuffer.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Must be called while holding evictionLock.
+     */
+    private void maintenance(long targetSize) {
+        // Additions and removals
+        CachedResource cachedResource;
+        while ((cachedResource = writeBuffer.poll()) != null) {
+            boolean cached = resourceCache.get(cachedResource.getWebappPath()) == cachedResource;
+            if (cached && cachedResource.policySegment == null) {
+                cachedResource.policyWeight = cachedResource.getSize();
+                probationSegment.addFirst(cachedResource);
+            } else if (!cached && cachedResource.policySegment != null) {
+                cachedResource.policySegment.remove(cachedResource);
+            }
+        }
+
+        // Accesses. Skip any that have been overwritten.
+        long writeCount = readBufferWriteCount.get();
+        if (writeCount - readBufferReadCount > READ_BUFFER_SIZE) {
+            readBufferReadCount = writeCount - READ_BUFFER_SIZE;
+        }
+        while (readBufferReadCount < writeCount) {
+            cachedResource = readBuffer.getAndSet((int) (readBufferReadCount & READ_BUFFER_MASK), null);
+            if (cachedResource != null && cachedResource.policySegment != null) {
+                if (cachedResource.policySegment == probationSegment) {
+                    probationSegment.remove(cachedResource);
+                    protectedSegment.addFirst(cachedResource);
+                    long protectedMaxSize = maxSize * PROTECTED_PERCENT / 100;
+                    while (protectedSegment.size > protectedMaxSize) {
+                        CachedResource demoted = protectedSegment.tail;
+                        protectedSegment.remove(demoted);
+                        probationSegment.addFirst(demoted);
+                    }
+                } else {
+                    protectedSegment.remove(cachedResource);
+                    protectedSegment.addFirst(cachedResource);
+                }
+            }
+            readBufferReadCount++;
+        }
+
+        // Eviction
+        while (size.get() > targetSize) {
+            CachedResource victim = probationSegment.tail;
+            if (victim == null) {
+                victim = protectedSegment.tail;
+                if (victim == null) {
+                    break;
+                }
+            }
+            victim.policySegment.remove(victim);
+            if (resourceCache.remove(victim.getWebappPath(), victim)) {
+                reduceSize(victim);
+                evictionCount.increment();
             }
         }
     }
@@ -290,6 +638,34 @@ public class Cache {
         this.ttl = ttl;
     }
 
+    public long getCompressedMaxSize() {
+        // Internally bytes, externally kilobytes
+        return compressedMaxSize / 1024;
+    }
+
+    public void setCompressedMaxSize(long compressedMaxSize) {
+        // Internally bytes, externally kilobytes
+        this.compressedMaxSize = compressedMaxSize * 1024;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize.get() / 1024;
+    }
+
+    public long getMappedMaxSize() {
+        // Internally bytes, externally kilobytes
+        return mappedMaxSize / 1024;
+    }
+
+    public void setMappedMaxSize(long mappedMaxSize) {
+        // Internally bytes, externally kilobytes
+        this.mappedMaxSize = mappedMaxSize * 1024;
+    }
+
+    public long getMappedSize() {
+        return mappedSize.get() / 1024;
+    }
+
     public long getMaxSize() {
         // Internally bytes, externally kilobytes
         return maxSize / 1024;
@@ -339,12 +715,90 @@ public class Cache {
         }
     }
 
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getProtectedSize() {
+        return protectedSegment.size / 1024;
+    }
+
     public void clear() {
-        resourceCache.clear();
-        size.set(0);
+        evictionLock.lock();
+        try {
+            resourceCache.clear();
+            size.set(0);
+            probationSegment.clear();
+            protectedSegment.clear();
+            writeBuffer.clear();
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                readBuffer.set(i, null);
+            }
+            readBufferReadCount = readBufferWriteCount.get();
+        } finally {
+            evictionLock.unlock();
+        }
+        compressedResourceCache.clear();
+        compressedSize.set(0);
+        // Release the mappings rather than waiting for them to be garbage
+        // collected as, on some platforms, a mapped file is locked
+        for (Map.Entry<String,MappedContent> entry : mappedContentCache.entrySet()) {
+            removeMappedCacheEntry(entry.getKey(), entry.getValue());
+        }
     }
 
     public long getSize() {
         return size.get() / 1024;
     }
+
+
+    private record CompressedResourceKey(String path, String encoding) {
+    }
+
+
+    /*
+     * A doubly linked list of cached resources, most recently used first. Guarded by evictionLock.
+     */
+    static final class PolicySegment {
+
+        private CachedResource head;
+        private CachedResource tail;
+        private volatile long size;
+
+        private void addFirst(CachedResource cachedResource) {
+            cachedResource.policySegment = this;
+            cachedResource.policyPrevious = null;
+            cachedResource.policyNext = head;
+            if (head == null) {
+                tail = cachedResource;
+            } else {
+                head.policyPrevious = cachedResource;
+            }
+            head = cachedResource;
+            size += cachedResource.policyWeight;
+        }
+
+        private void remove(CachedResource cachedResource) {
+            if (cachedResource.policyPrevious == null) {
+                head = cachedResource.policyNext;
+            } else {
+                cachedResource.policyPrevious.policyNext = cachedResource.policyNext;
+            }
+            if (cachedResource.policyNext == null) {
+                tail = cachedResource.policyPrevious;
+            } else {
+                cachedResource.policyNext.policyPrevious = cachedResource.policyPrevious;
+            }
+            cachedResource.policySegment = null;
+            cachedResource.policyPrevious = null;
+            cachedResource.policyNext = null;
+            size -= cachedResource.policyWeight;
+        }
+
+        private void clear() {
+            while (head != null) {
+                remove(head);
+            }
+        }
+    }
 }
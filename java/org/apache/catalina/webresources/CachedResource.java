@@ -78,6 +78,12 @@ public class CachedResource implements WebResource {
     private volatile Long cachedContentLength = null;
     private volatile String cachedStrongETag = null;
 
+    // Used by the eviction policy of the Cache. Guarded by the Cache's lock.
+    Cache.PolicySegment policySegment = null;
+    CachedResource policyPrevious = null;
+    CachedResource policyNext = null;
+    long policyWeight = 0;
+
 
     public CachedResource(Cache cache, StandardRoot root, String path, long ttl, int objectMaxSizeBytes,
             boolean usesClassLoaderResources) {
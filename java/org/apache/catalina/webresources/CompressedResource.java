@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.util.jar.Manifest;
+
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceRoot;
+
+/**
+ * An in-memory, compressed representation of a file resource held by the {@link Cache}. The metadata of the original
+ * resource is copied rather than referenced so that a compressed entry does not keep the original content in memory
+ * after the original has been evicted from the cache.
+ */
+public class CompressedResource implements WebResource {
+
+    // Estimate (on high side to be safe) of average size excluding content
+    private static final long CACHE_ENTRY_SIZE = 300;
+
+    private final WebResourceRoot root;
+    private final String webAppPath;
+    private final String name;
+    private final String encoding;
+    private final String sourceETag;
+    private final long lastModified;
+    private final String lastModifiedHttp;
+    private final long creation;
+    private final byte[] content;
+
+    private volatile String mimeType;
+    private volatile long lastAccess;
+
+
+    /**
+     * Create a compressed representation of a resource.
+     *
+     * @param source   The original resource
+     * @param encoding The content coding used to compress the content
+     * @param content  The compressed content or {@code null} if compressing the original resource did not reduce its
+     *                     size
+     */
+    public CompressedResource(WebResource source, String encoding, byte[] content) {
+        this.root = source.getWebResourceRoot();
+        this.webAppPath = source.getWebappPath();
+        this.name = source.getName();
+        this.encoding = encoding;
+        this.sourceETag = source.getETag();
+        this.lastModified = source.getLastModified();
+        this.lastModifiedHttp = source.getLastModifiedHttp();
+        this.creation = source.getCreation();
+        this.mimeType = source.getMimeType();
+        this.content = content;
+        lastAccess = System.currentTimeMillis();
+    }
+
+
+    /**
+     * @return The content coding used to compress the content of this resource
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+
+    /**
+     * Is this compressed representation still valid for the given resource?
+     *
+     * @param source The current version of the original resource
+     *
+     * @return {@code true} if the original resource has not changed since this representation was created
+     */
+    protected boolean isValidFor(WebResource source) {
+        return sourceETag != null && sourceETag.equals(source.getETag());
+    }
+
+
+    /**
+     * @return {@code true} if compressing the original resource reduced its size and the compressed content is
+     *             available
+     */
+    protected boolean isCompressed() {
+        return content != null;
+    }
+
+
+    protected long getLastAccess() {
+        return lastAccess;
+    }
+
+
+    protected void access() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+
+    long getSize() {
+        long result = CACHE_ENTRY_SIZE;
+        result += webAppPath.length() * 2L;
+        if (content != null) {
+            result += content.length;
+        }
+        return result;
+    }
+
+
+    @Override
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getLastModifiedHttp() {
+        return lastModifiedHttp;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isFile() {
+        return true;
+    }
+
+    @Override
+    public boolean delete() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getContentLength() {
+        if (content == null) {
+            return -1;
+        }
+        return content.length;
+    }
+
+    @Override
+    public String getCanonicalPath() {
+        // Only exists in memory
+        return null;
+    }
+
+    @Override
+    public boolean canRead() {
+        return true;
+    }
+
+    @Override
+    public String getWebappPath() {
+        return webAppPath;
+    }
+
+    @Override
+    public String getETag() {
+        // The representation varies with the original resource
+        return sourceETag;
+    }
+
+    @Override
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    @Override
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        if (content == null) {
+            return null;
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public byte[] getContent() {
+        return content;
+    }
+
+    @Override
+    public long getCreation() {
+        return creation;
+    }
+
+    @Override
+    public URL getURL() {
+        return null;
+    }
+
+    @Override
+    public Certificate[] getCertificates() {
+        return null;
+    }
+
+    @Override
+    public Manifest getManifest() {
+        return null;
+    }
+
+    @Override
+    public WebResourceRoot getWebResourceRoot() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return webAppPath + " (" + encoding + ")";
+    }
+}
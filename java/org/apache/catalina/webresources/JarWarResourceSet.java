@@ -130,6 +130,11 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
                     if (multiRelease) {
                         processArchivesEntriesForMultiRelease();
                     }
+                    WebResourceRoot root = getRoot();
+                    if (root.getArchiveIndexStrategyEnum().getUsesBloom()) {
+                        jarContents = new JarContents(archiveEntries.values());
+                        retainBloomFilterForArchives = root.getArchiveIndexStrategyEnum().getRetain();
+                    }
                 } catch (IOException ioe) {
                     // Should never happen
                     archiveEntries = null;
@@ -147,11 +152,6 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
                     }
                 }
             }
-            WebResourceRoot root = getRoot();
-            if (root.getArchiveIndexStrategyEnum().getUsesBloom()) {
-                jarContents = new JarContents(archiveEntries.values());
-                retainBloomFilterForArchives = root.getArchiveIndexStrategyEnum().getRetain();
-            }
             return archiveEntries;
         }
     }
@@ -233,6 +233,18 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The entries can only be obtained by reading the whole of the inner JAR so they are retained when the archives
+     * are indexed by a merged index.
+     */
+    @Override
+    protected boolean getRetainArchiveEntries() {
+        return getRoot().getArchiveIndexStrategyEnum() == WebResourceRoot.ArchiveIndexStrategy.MERGED;
+    }
+
+
     @Override
     protected boolean isMultiRelease() {
         // This always returns false otherwise the superclass will call
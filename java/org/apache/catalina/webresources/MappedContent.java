@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.WebResource;
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+
+/**
+ * The content of a file resource held by the {@link Cache} as a read-only memory mapping rather than on the heap. The
+ * mapping is reference counted. The cache holds one reference for as long as the entry is cached and each write of
+ * the content holds another so the mapping is only released once it has been evicted and any writes in progress have
+ * completed.
+ */
+final class MappedContent {
+
+    private final String webAppPath;
+    private final String canonicalPath;
+    private final long lastModified;
+    private final MappedByteBuffer content;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private volatile long lastAccess;
+
+
+    MappedContent(WebResource source, String canonicalPath, MappedByteBuffer content) {
+        this.webAppPath = source.getWebappPath();
+        this.canonicalPath = canonicalPath;
+        this.lastModified = source.getLastModified();
+        this.content = content;
+        lastAccess = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Is this mapping still valid for the given resource?
+     *
+     * @param source The current version of the resource
+     *
+     * @return {@code true} if the resource is the same file and has not changed since it was mapped
+     */
+    boolean isValidFor(WebResource source) {
+        return lastModified == source.getLastModified() && content.capacity() == source.getContentLength() &&
+                canonicalPath.equals(source.getCanonicalPath());
+    }
+
+
+    /**
+     * Obtain a reference to the mapping. Each successful call must be matched by a call to {@link #release()}.
+     *
+     * @return {@code true} if a reference was obtained or {@code false} if the mapping has already been released
+     */
+    boolean acquire() {
+        int count;
+        do {
+            count = references.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        lastAccess = System.currentTimeMillis();
+        return true;
+    }
+
+
+    /**
+     * Release a reference to the mapping. The mapping is unmapped when the last reference is released.
+     */
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            ByteBufferUtils.cleanDirectBuffer(content);
+        }
+    }
+
+
+    /**
+     * Obtain a view of part of the content. The caller must hold a reference to the mapping for as long as the view is
+     * used.
+     *
+     * @param start The offset of the first byte
+     * @param end   The offset of the byte after the last byte
+     *
+     * @return A read-only view of the requested part of the content
+     */
+    ByteBuffer getContent(long start, long end) {
+        return content.slice((int) start, (int) (end - start));
+    }
+
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+
+    long getSize() {
+        return content.capacity();
+    }
+
+
+    @Override
+    public String toString() {
+        return webAppPath;
+    }
+}
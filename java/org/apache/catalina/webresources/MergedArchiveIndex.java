@@ -0,0 +1,188 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+
+import org.apache.catalina.WebResourceSet;
+
+/**
+ * A single index, for a web application, of the paths provided by its archive based resource sets. Each indexed path
+ * is mapped to the resource sets, in lookup order, that need to be examined to find the resource at that path. Those
+ * are the resource sets that are not indexed, such as directories and the main resource set, and the indexed resource
+ * sets that contain the path. Any path that is not indexed is mapped to just the resource sets that are not indexed so
+ * a look-up for a path that is not provided by any archive is answered with a single hash table probe regardless of
+ * the number of archives.
+ * <p>
+ * The index may include paths that an archive does not provide, such as parent directories that do not have an entry
+ * of their own, but it will always include every path that an archive does provide. If archives are not indexed, every
+ * path is mapped to all the resource sets.
+ */
+final class MergedArchiveIndex {
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private final WebResourceSet[] unindexedResourceSets;
+    private final Map<String,WebResourceSet[]> index = new HashMap<>();
+    private final int indexedCount;
+
+
+    /**
+     * Create an index of the given resource sets.
+     *
+     * @param resourceSets  The resource sets of the web application in lookup order
+     * @param main          The main resource set which is never indexed
+     * @param indexArchives {@code true} if the archive based resource sets should be indexed
+     */
+    MergedArchiveIndex(WebResourceSet[] resourceSets, WebResourceSet main, boolean indexArchives) {
+        Map<WebResourceSet,Integer> positions = new IdentityHashMap<>();
+        List<WebResourceSet> unindexed = new ArrayList<>();
+        Map<WebResourceSet,Set<String>> indexedPaths = new IdentityHashMap<>();
+        for (int i = 0; i < resourceSets.length; i++) {
+            WebResourceSet resourceSet = resourceSets[i];
+            positions.put(resourceSet, Integer.valueOf(i));
+            Set<String> paths = null;
+            if (indexArchives && resourceSet != main &&
+                    resourceSet instanceof AbstractArchiveResourceSet archiveResourceSet) {
+                paths = getPaths(archiveResourceSet);
+            }
+            if (paths == null) {
+                unindexed.add(resourceSet);
+            } else {
+                indexedPaths.put(resourceSet, paths);
+            }
+        }
+        unindexedResourceSets = unindexed.toArray(new WebResourceSet[0]);
+        indexedCount = indexedPaths.size();
+
+        Comparator<WebResourceSet> lookupOrder = Comparator.comparing(positions::get);
+        for (Map.Entry<WebResourceSet,Set<String>> entry : indexedPaths.entrySet()) {
+            WebResourceSet resourceSet = entry.getKey();
+            // Most paths are provided by a single archive so share the result
+            // for those paths
+            WebResourceSet[] single = merge(unindexedResourceSets, resourceSet, lookupOrder);
+            for (String path : entry.getValue()) {
+                WebResourceSet[] existing = index.get(path);
+                index.put(path, existing == null ? single : merge(existing, resourceSet, lookupOrder));
+            }
+        }
+    }
+
+
+    /**
+     * Obtain the resource sets that need to be examined to find the resource at the given path.
+     *
+     * @param path The path of the resource
+     *
+     * @return The resource sets, in lookup order, that need to be examined. The caller must not modify the array.
+     */
+    WebResourceSet[] getResourceSets(String path) {
+        if (indexedCount == 0) {
+            return unindexedResourceSets;
+        }
+        return index.getOrDefault(path, unindexedResourceSets);
+    }
+
+
+    /**
+     * @return The number of archive based resource sets included in this index
+     */
+    int getIndexedCount() {
+        return indexedCount;
+    }
+
+
+    /**
+     * @return The number of paths in this index
+     */
+    int getPathCount() {
+        return index.size();
+    }
+
+
+    private static WebResourceSet[] merge(WebResourceSet[] resourceSets, WebResourceSet resourceSet,
+            Comparator<WebResourceSet> lookupOrder) {
+        WebResourceSet[] result = Arrays.copyOf(resourceSets, resourceSets.length + 1);
+        result[resourceSets.length] = resourceSet;
+        Arrays.sort(result, lookupOrder);
+        return result;
+    }
+
+
+    private static Set<String> getPaths(AbstractArchiveResourceSet resourceSet) {
+        Map<String,JarEntry> entries = resourceSet.getArchiveEntries(false);
+        if (entries == null) {
+            return null;
+        }
+        String webAppMount = resourceSet.getWebAppMount();
+        String internalPath = resourceSet.getInternalPath();
+        String prefix = internalPath.isEmpty() ? "" : internalPath.substring(1) + "/";
+
+        Set<String> paths = new HashSet<>();
+        addPath(paths, webAppMount + "/", webAppMount);
+        for (String name : entries.keySet()) {
+            addEntry(paths, webAppMount, prefix, name);
+            // Multi-release JARs may provide a versioned entry under the base
+            // name. Include it whichever version it targets.
+            if (name.startsWith(VERSIONS_PREFIX)) {
+                int i = name.indexOf('/', VERSIONS_PREFIX.length());
+                if (i > 0) {
+                    addEntry(paths, webAppMount, prefix, name.substring(i + 1));
+                }
+            }
+        }
+        return paths;
+    }
+
+
+    private static void addEntry(Set<String> paths, String webAppMount, String prefix, String name) {
+        if (name.startsWith(prefix)) {
+            addPath(paths, webAppMount + "/" + name.substring(prefix.length()), webAppMount);
+        }
+    }
+
+
+    /*
+     * Adds the path and all of its parent directories up to the mount point. Directories are added with and without
+     * the trailing '/' as they may be requested in either form.
+     */
+    private static void addPath(Set<String> paths, String path, String webAppMount) {
+        String current = path;
+        while (paths.add(current)) {
+            int end = current.length() - 1;
+            if (current.charAt(end) == '/') {
+                if (end > 0) {
+                    paths.add(current.substring(0, end));
+                }
+                if (end <= webAppMount.length()) {
+                    return;
+                }
+                end--;
+            }
+            current = current.substring(0, current.lastIndexOf('/', end) + 1);
+        }
+    }
+}
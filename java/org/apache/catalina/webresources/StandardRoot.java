@@ -33,6 +33,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.ObjectName;
 
+import jakarta.servlet.ServletOutputStream;
+
 import org.apache.catalina.Context;
 import org.apache.catalina.Host;
 import org.apache.catalina.LifecycleException;
@@ -94,6 +96,10 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         allResources.add(postResources);
     }
 
+    // Built when first required after the resource sets change
+    private final Object archiveIndexLock = new Object();
+    private volatile MergedArchiveIndex archiveIndex = null;
+
 
     /**
      * Creates a new standard implementation of {@link WebResourceRoot}. A no argument constructor is required for this
@@ -266,20 +272,18 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         WebResource result;
         WebResource virtual = null;
         WebResource mainEmpty = null;
-        for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
-                if (!useClassLoaderResources && !webResourceSet.getClassLoaderOnly() ||
-                        useClassLoaderResources && !webResourceSet.getStaticOnly()) {
-                    result = webResourceSet.getResource(path);
-                    if (result.exists()) {
-                        return result;
-                    }
-                    if (virtual == null) {
-                        if (result.isVirtual()) {
-                            virtual = result;
-                        } else if (main.equals(webResourceSet)) {
-                            mainEmpty = result;
-                        }
+        for (WebResourceSet webResourceSet : getArchiveIndex().getResourceSets(path)) {
+            if (!useClassLoaderResources && !webResourceSet.getClassLoaderOnly() ||
+                    useClassLoaderResources && !webResourceSet.getStaticOnly()) {
+                result = webResourceSet.getResource(path);
+                if (result.exists()) {
+                    return result;
+                }
+                if (virtual == null) {
+                    if (result.isVirtual()) {
+                        virtual = result;
+                    } else if (main.equals(webResourceSet)) {
+                        mainEmpty = result;
                     }
                 }
             }
@@ -311,13 +315,11 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
 
     protected WebResource[] getResourcesInternal(String path, boolean useClassLoaderResources) {
         List<WebResource> result = new ArrayList<>();
-        for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
-                if (useClassLoaderResources || !webResourceSet.getClassLoaderOnly()) {
-                    WebResource webResource = webResourceSet.getResource(path);
-                    if (webResource.exists()) {
-                        result.add(webResource);
-                    }
+        for (WebResourceSet webResourceSet : getArchiveIndex().getResourceSets(path)) {
+            if (useClassLoaderResources || !webResourceSet.getClassLoaderOnly()) {
+                WebResource webResource = webResourceSet.getResource(path);
+                if (webResource.exists()) {
+                    result.add(webResource);
                 }
             }
         }
@@ -401,12 +403,14 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         }
 
         resourceList.add(resourceSet);
+        resourceSetsChanged();
     }
 
     @Override
     public void addPreResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         preResources.add(webResourceSet);
+        resourceSetsChanged();
     }
 
     @Override
@@ -418,6 +422,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     public void addJarResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         jarResources.add(webResourceSet);
+        resourceSetsChanged();
     }
 
     @Override
@@ -429,6 +434,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     public void addPostResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         postResources.add(webResourceSet);
+        resourceSetsChanged();
     }
 
     @Override
@@ -503,6 +509,43 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         cache.setMaxSize(cacheMaxSize);
     }
 
+    @Override
+    public long getCompressedCacheMaxSize() {
+        return cache.getCompressedMaxSize();
+    }
+
+    @Override
+    public void setCompressedCacheMaxSize(long compressedCacheMaxSize) {
+        cache.setCompressedMaxSize(compressedCacheMaxSize);
+    }
+
+    @Override
+    public WebResource getCompressedResource(WebResource resource, String encoding, ContentEncoder encoder) {
+        if (!isCachingAllowed()) {
+            return null;
+        }
+        return cache.getCompressedResource(resource, encoding, encoder);
+    }
+
+    @Override
+    public long getMappedCacheMaxSize() {
+        return cache.getMappedMaxSize();
+    }
+
+    @Override
+    public void setMappedCacheMaxSize(long mappedCacheMaxSize) {
+        cache.setMappedMaxSize(mappedCacheMaxSize);
+    }
+
+    @Override
+    public boolean writeMappedContent(WebResource resource, long start, long end, ServletOutputStream out)
+            throws IOException {
+        if (!isCachingAllowed()) {
+            return false;
+        }
+        return cache.writeMappedContent(resource, start, end, out);
+    }
+
     @Override
     public void setCacheObjectMaxSize(int cacheObjectMaxSize) {
         cache.setObjectMaxSize(cacheObjectMaxSize);
@@ -534,6 +577,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     @Override
     public void setArchiveIndexStrategy(String archiveIndexStrategy) {
         this.archiveIndexStrategy = ArchiveIndexStrategy.valueOf(archiveIndexStrategy.toUpperCase(Locale.ENGLISH));
+        resourceSetsChanged();
     }
 
     @Override
@@ -592,6 +636,44 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         this.main = main;
         mainResources.clear();
         mainResources.add(main);
+        resourceSetsChanged();
+    }
+
+
+    /*
+     * Obtain the index used to determine which resource sets need to be examined for a given path. The index is built
+     * on first use after the resource sets change.
+     */
+    private MergedArchiveIndex getArchiveIndex() {
+        MergedArchiveIndex result = archiveIndex;
+        if (result == null) {
+            synchronized (archiveIndexLock) {
+                result = archiveIndex;
+                if (result == null) {
+                    List<WebResourceSet> resourceSets = new ArrayList<>();
+                    for (List<WebResourceSet> list : allResources) {
+                        resourceSets.addAll(list);
+                    }
+                    long start = System.nanoTime();
+                    result = new MergedArchiveIndex(resourceSets.toArray(new WebResourceSet[0]), main,
+                            archiveIndexStrategy == ArchiveIndexStrategy.MERGED);
+                    if (log.isDebugEnabled() && result.getIndexedCount() > 0) {
+                        log.debug(sm.getString("standardRoot.archiveIndex", context.getName(),
+                                Integer.valueOf(result.getPathCount()), Integer.valueOf(result.getIndexedCount()),
+                                Long.valueOf((System.nanoTime() - start) / 1000000)));
+                    }
+                    archiveIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private void resourceSetsChanged() {
+        synchronized (archiveIndexLock) {
+            archiveIndex = null;
+        }
     }
 
 
@@ -706,6 +788,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         main = createMainResourceSet();
 
         mainResources.add(main);
+        resourceSetsChanged();
 
         for (List<WebResourceSet> list : allResources) {
             // Skip class resources since they are started below
@@ -775,6 +858,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
             webResourceSet.destroy();
         }
         classResources.clear();
+        resourceSetsChanged();
 
         for (TrackedWebResource trackedResource : trackedResources) {
             log.error(sm.getString("standardRoot.lockedFile", context.getName(), trackedResource.getName()),
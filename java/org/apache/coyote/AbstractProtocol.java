@@ -283,6 +283,14 @@ public abstract class AbstractProtocol<S> implements ProtocolHandler, MBeanRegis
         endpoint.setMaxQueueSize(maxQueueSize);
     }
 
+    public long getTargetQueueDelay() {
+        return endpoint.getTargetQueueDelay();
+    }
+
+    public void setTargetQueueDelay(long targetQueueDelay) {
+        endpoint.setTargetQueueDelay(targetQueueDelay);
+    }
+
     public int getAcceptCount() {
         return endpoint.getAcceptCount();
     }
@@ -535,6 +543,20 @@ public abstract class AbstractProtocol<S> implements ProtocolHandler, MBeanRegis
     protected abstract Processor createUpgradeProcessor(SocketWrapperBase<?> socket, UpgradeToken upgradeToken);
 
 
+    /**
+     * Reject a new request on the given connection, without processing it, because the server is overloaded. The
+     * connection will be closed once this method returns. The default implementation does nothing so the connection is
+     * simply closed.
+     *
+     * @param socketWrapper The connection on which the request was received
+     *
+     * @throws IOException If an I/O error occurs sending a response
+     */
+    protected void shed(SocketWrapperBase<?> socketWrapper) throws IOException {
+        // NO-OP
+    }
+
+
     // ----------------------------------------------------- JMX related methods
 
     protected String domain;
@@ -1126,6 +1148,22 @@ public abstract class AbstractProtocol<S> implements ProtocolHandler, MBeanRegis
         }
 
 
+        @Override
+        public void shed(SocketWrapperBase<S> socketWrapper) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug(sm.getString("abstractConnectionHandler.shed", socketWrapper));
+            }
+            try {
+                getProtocol().shed(socketWrapper);
+            } catch (IOException ioe) {
+                // IOExceptions are normal
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug(sm.getString("abstractConnectionHandler.ioexception.debug"), ioe);
+                }
+            }
+        }
+
+
         protected void register(Processor processor) {
             if (getProtocol().getDomain() != null) {
                 synchronized (this) {
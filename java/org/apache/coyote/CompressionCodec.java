@@ -0,0 +1,56 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A content coding that may be used to compress HTTP responses. Implementations are negotiated by
+ * {@link CompressionConfig} based on the codings accepted by the user agent and are then applied to the response body
+ * by {@link org.apache.coyote.http11.filters.CompressionOutputFilter}.
+ * <p>
+ * Implementations must be thread safe since a single instance is shared by all the responses of a connector.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return the content coding token, as registered with IANA, for this codec e.g. <code>gzip</code>
+     */
+    String getEncoding();
+
+
+    /**
+     * @return the compression level used by this codec. The range of valid values is codec specific.
+     */
+    int getLevel();
+
+
+    /**
+     * Create a new compression stream that writes the compressed form of the data written to it to the provided
+     * stream. A call to {@link OutputStream#flush()} on the returned stream must write all of the data written so far
+     * in a form that can be decompressed by the user agent. A call to {@link OutputStream#close()} must complete the
+     * compressed stream and release any resources associated with it.
+     *
+     * @param out The stream to which compressed data should be written
+     *
+     * @return The compression stream
+     *
+     * @throws IOException If the compression stream could not be created
+     */
+    OutputStream createOutputStream(OutputStream out) throws IOException;
+}
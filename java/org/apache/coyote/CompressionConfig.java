@@ -22,9 +22,11 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
@@ -47,6 +49,11 @@ public class CompressionConfig {
             "text/javascript,application/javascript,application/json,application/xml";
     private String[] compressibleMimeTypes = null;
     private int compressionMinSize = 2048;
+    private String compressionEncodings = GzipCompressionCodec.ENCODING;
+    private int gzipCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int brotliCompressionLevel = 4;
+    private int zstdCompressionLevel = 3;
+    private volatile CompressionCodec[] compressionCodecs = null;
 
 
     /**
@@ -173,6 +180,131 @@ public class CompressionConfig {
     }
 
 
+    /**
+     * Obtain the content codings that may be used to compress responses in order of server preference.
+     *
+     * @return The comma separated list of content codings
+     */
+    public String getCompressionEncodings() {
+        return compressionEncodings;
+    }
+
+
+    /**
+     * Set the content codings that may be used to compress responses. The coding used for a given response is the one
+     * with the highest quality value in the user agent's <code>Accept-Encoding</code> header. If more than one coding
+     * has the same quality value, the coding that appears first in this list is used. Supported values are
+     * <code>gzip</code>, <code>br</code> and <code>zstd</code>. The <code>br</code> and <code>zstd</code> codings
+     * require the FFM API and the Brotli and Zstandard native libraries respectively. Codings that are not available
+     * are ignored.
+     *
+     * @param compressionEncodings The comma separated list of content codings
+     */
+    public void setCompressionEncodings(String compressionEncodings) {
+        this.compressionEncodings = compressionEncodings;
+        compressionCodecs = null;
+    }
+
+
+    public int getGzipCompressionLevel() {
+        return gzipCompressionLevel;
+    }
+
+
+    /**
+     * Set the compression level used for the <code>gzip</code> content coding.
+     *
+     * @param gzipCompressionLevel The compression level, from 0 to 9, or -1 for the JRE default
+     */
+    public void setGzipCompressionLevel(int gzipCompressionLevel) {
+        this.gzipCompressionLevel = gzipCompressionLevel;
+        compressionCodecs = null;
+    }
+
+
+    public int getBrotliCompressionLevel() {
+        return brotliCompressionLevel;
+    }
+
+
+    /**
+     * Set the compression level (quality) used for the <code>br</code> content coding.
+     *
+     * @param brotliCompressionLevel The compression level, from 0 to 11
+     */
+    public void setBrotliCompressionLevel(int brotliCompressionLevel) {
+        this.brotliCompressionLevel = brotliCompressionLevel;
+        compressionCodecs = null;
+    }
+
+
+    public int getZstdCompressionLevel() {
+        return zstdCompressionLevel;
+    }
+
+
+    /**
+     * Set the compression level used for the <code>zstd</code> content coding.
+     *
+     * @param zstdCompressionLevel The compression level, as defined by the Zstandard library
+     */
+    public void setZstdCompressionLevel(int zstdCompressionLevel) {
+        this.zstdCompressionLevel = zstdCompressionLevel;
+        compressionCodecs = null;
+    }
+
+
+    /**
+     * Obtain the codecs that are available to compress responses in order of server preference.
+     *
+     * @return The available codecs
+     */
+    public CompressionCodec[] getCompressionCodecs() {
+        CompressionCodec[] result = compressionCodecs;
+        if (result != null) {
+            return result;
+        }
+        List<CompressionCodec> codecs = new ArrayList<>();
+        StringTokenizer tokens = new StringTokenizer(compressionEncodings, ",");
+        while (tokens.hasMoreTokens()) {
+            String token = tokens.nextToken().trim().toLowerCase(Locale.ENGLISH);
+            if (token.isEmpty()) {
+                continue;
+            }
+            CompressionCodec codec = createCompressionCodec(token);
+            if (codec == null) {
+                log.warn(sm.getString("compressionConfig.encodingUnavailable", token));
+            } else {
+                codecs.add(codec);
+            }
+        }
+        result = codecs.toArray(new CompressionCodec[0]);
+        compressionCodecs = result;
+        return result;
+    }
+
+
+    /**
+     * Create the codec for the given content coding.
+     *
+     * @param encoding The content coding, in lower case
+     *
+     * @return The codec or {@code null} if the content coding is not supported or not available
+     */
+    protected CompressionCodec createCompressionCodec(String encoding) {
+        return switch (encoding) {
+            case GzipCompressionCodec.ENCODING -> new GzipCompressionCodec(gzipCompressionLevel);
+            case NativeCompressionCodec.BROTLI_ENCODING -> NativeCompressionCodec.create(
+                    NativeCompressionCodec.BROTLI_ENCODING, brotliCompressionLevel,
+                    NativeCompressionCodec.BROTLI_STREAM_CLASS);
+            case NativeCompressionCodec.ZSTD_ENCODING -> NativeCompressionCodec.create(
+                    NativeCompressionCodec.ZSTD_ENCODING, zstdCompressionLevel,
+                    NativeCompressionCodec.ZSTD_STREAM_CLASS);
+            default -> null;
+        };
+    }
+
+
     /**
      * Determines if compression should be enabled for the given response and if it is, sets any necessary headers to
      * mark it as such.
@@ -183,9 +315,28 @@ public class CompressionConfig {
      * @return {@code true} if compression was enabled for the given response, otherwise {@code false}
      */
     public boolean useCompression(Request request, Response response) {
+        return negotiateCompression(request, response) != null;
+    }
+
+
+    /**
+     * Determines if compression should be enabled for the given response and, if it is, selects the codec to use and
+     * sets any necessary headers to mark the response as compressed.
+     *
+     * @param request  The request that triggered the response
+     * @param response The response to consider compressing
+     *
+     * @return The codec to use to compress the response or {@code null} if the response should not be compressed
+     */
+    public CompressionCodec negotiateCompression(Request request, Response response) {
         // Check if compression is enabled
         if (compressionLevel == 0) {
-            return false;
+            return null;
+        }
+
+        CompressionCodec[] codecs = getCompressionCodecs();
+        if (codecs.length == 0) {
+            return null;
         }
 
         boolean useTransferEncoding = false;
@@ -205,7 +356,7 @@ public class CompressionConfig {
                 // Because we are using StringReader, any exception here is a
                 // Tomcat bug.
                 log.warn(sm.getString("compressionConfig.ContentEncodingParseFail"), ioe);
-                return false;
+                return null;
             }
             if (tokens.contains("identity")) {
                 // If identity, do not do content modifications
@@ -214,7 +365,7 @@ public class CompressionConfig {
                     || tokens.contains("dcz") || tokens.contains("deflate") || tokens.contains("gzip")
                     || tokens.contains("pack200-gzip") || tokens.contains("zstd")) {
                 // Content should not be compressed twice
-                return false;
+                return null;
             }
         }
 
@@ -223,33 +374,42 @@ public class CompressionConfig {
             // Check if the response is of sufficient length to trigger the compression
             long contentLength = response.getContentLengthLong();
             if (contentLength != -1 && contentLength < compressionMinSize) {
-                return false;
+                return null;
             }
 
             // Check for compatible MIME-TYPE
             String[] compressibleMimeTypes = getCompressibleMimeTypes();
             if (compressibleMimeTypes != null &&
                     !startsWithStringArray(compressibleMimeTypes, response.getContentType())) {
-                return false;
+                return null;
             }
         }
 
+        CompressionCodec selected = null;
+
+        // Transfer encoding is only supported for gzip
+        CompressionCodec gzipCodec = null;
+        for (CompressionCodec codec : codecs) {
+            if (GzipCompressionCodec.ENCODING.equals(codec.getEncoding())) {
+                gzipCodec = codec;
+                break;
+            }
+        }
         Enumeration<String> headerValues = request.getMimeHeaders().values("TE");
-        boolean foundGzip = false;
         // TE and accept-encoding seem to have equivalent syntax
-        while (!foundGzip && headerValues.hasMoreElements()) {
+        while (gzipCodec != null && selected == null && headerValues.hasMoreElements()) {
             List<TE> tes;
             try {
                 tes = TE.parse(new StringReader(headerValues.nextElement()));
             } catch (IOException ioe) {
                 // If there is a problem reading the header, disable compression
-                return false;
+                return null;
             }
 
             for (TE te : tes) {
-                if ("gzip".equalsIgnoreCase(te.getEncoding())) {
+                if (GzipCompressionCodec.ENCODING.equalsIgnoreCase(te.getEncoding())) {
                     useTransferEncoding = true;
-                    foundGzip = true;
+                    selected = gzipCodec;
                     break;
                 }
             }
@@ -260,7 +420,7 @@ public class CompressionConfig {
         if (!useTransferEncoding && eTag != null && !eTag.trim().startsWith("W/")) {
             // Has an ETag that doesn't start with "W/..." so it must be a
             // strong ETag
-            return false;
+            return null;
         }
 
         if (useContentEncoding && !useTransferEncoding) {
@@ -268,30 +428,30 @@ public class CompressionConfig {
             // Therefore, set the Vary header to keep proxies happy
             ResponseUtil.addVaryFieldName(responseHeaders, "accept-encoding");
 
-            // Check if user-agent supports gzip encoding
-            // Only interested in whether gzip encoding is supported. Other
-            // encodings and weights can be ignored.
+            // Select the supported coding with the highest quality. Ties are
+            // resolved in favour of the coding the server prefers.
+            List<AcceptEncoding> acceptEncodings = new ArrayList<>();
             headerValues = request.getMimeHeaders().values("accept-encoding");
-            while (!foundGzip && headerValues.hasMoreElements()) {
-                List<AcceptEncoding> acceptEncodings;
+            while (headerValues.hasMoreElements()) {
                 try {
-                    acceptEncodings = AcceptEncoding.parse(new StringReader(headerValues.nextElement()));
+                    acceptEncodings.addAll(AcceptEncoding.parse(new StringReader(headerValues.nextElement())));
                 } catch (IOException ioe) {
                     // If there is a problem reading the header, disable compression
-                    return false;
+                    return null;
                 }
-
-                for (AcceptEncoding acceptEncoding : acceptEncodings) {
-                    if ("gzip".equalsIgnoreCase(acceptEncoding.getEncoding())) {
-                        foundGzip = true;
-                        break;
-                    }
+            }
+            double selectedQuality = 0;
+            for (CompressionCodec codec : codecs) {
+                double quality = getQuality(acceptEncodings, codec.getEncoding());
+                if (quality > selectedQuality) {
+                    selected = codec;
+                    selectedQuality = quality;
                 }
             }
         }
 
-        if (!foundGzip) {
-            return false;
+        if (selected == null) {
+            return null;
         }
 
         // If force mode, the browser checks are skipped
@@ -303,7 +463,7 @@ public class CompressionConfig {
                 if (userAgentValueMB != null) {
                     String userAgentValue = userAgentValueMB.toString();
                     if (noCompressionUserAgents.matcher(userAgentValue).matches()) {
-                        return false;
+                        return null;
                     }
                 }
             }
@@ -315,13 +475,28 @@ public class CompressionConfig {
         response.setContentLength(-1);
         if (useTransferEncoding) {
             // Configure the transfer encoding for compressed content
-            responseHeaders.addValue("Transfer-Encoding").setString("gzip");
+            responseHeaders.addValue("Transfer-Encoding").setString(selected.getEncoding());
         } else {
             // Configure the content encoding for compressed content
-            responseHeaders.addValue("Content-Encoding").setString("gzip");
+            responseHeaders.addValue("Content-Encoding").setString(selected.getEncoding());
         }
 
-        return true;
+        return selected;
+    }
+
+
+    /*
+     * Obtain the quality the user agent assigned to the given coding. The parser drops codings with a quality of zero
+     * so a coding that is not listed is not acceptable.
+     */
+    private static double getQuality(List<AcceptEncoding> acceptEncodings, String encoding) {
+        double result = 0;
+        for (AcceptEncoding acceptEncoding : acceptEncodings) {
+            if (encoding.equalsIgnoreCase(acceptEncoding.getEncoding()) && acceptEncoding.getQuality() > result) {
+                result = acceptEncoding.getQuality();
+            }
+        }
+        return result;
     }
 
 
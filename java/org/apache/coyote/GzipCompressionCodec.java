@@ -0,0 +1,80 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * The <code>gzip</code> content coding, implemented using the JRE's {@link Deflater}.
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+
+    private static final StringManager sm = StringManager.getManager(GzipCompressionCodec.class);
+
+    public static final String ENCODING = "gzip";
+
+    private final int level;
+
+
+    public GzipCompressionCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+
+    /**
+     * @param level The compression level to use. Either {@link Deflater#DEFAULT_COMPRESSION} or a value in the range
+     *                  {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}.
+     */
+    public GzipCompressionCodec(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(
+                    sm.getString("compressionCodec.invalidLevel", ENCODING, Integer.toString(level)));
+        }
+        this.level = level;
+    }
+
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out) throws IOException {
+        if (level == Deflater.DEFAULT_COMPRESSION) {
+            return new GZIPOutputStream(out, true);
+        }
+        return new GZIPOutputStream(out, true) {
+            {
+                // The Deflater is always created with the default level
+                def.setLevel(level);
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A content coding implemented by a native library. The compression stream implementations use the FFM API and are
+ * therefore loaded by name so that this class may be used on Java versions where those implementations are not
+ * available. A compression stream class must provide a public static <code>isAvailable()</code> method that returns
+ * <code>true</code> if the native library has been loaded and a public constructor that accepts the target
+ * {@link OutputStream} and the compression level.
+ */
+public class NativeCompressionCodec implements CompressionCodec {
+
+    private static final Log log = LogFactory.getLog(NativeCompressionCodec.class);
+    private static final StringManager sm = StringManager.getManager(NativeCompressionCodec.class);
+
+    public static final String BROTLI_ENCODING = "br";
+    public static final String BROTLI_STREAM_CLASS = "org.apache.tomcat.util.compression.panama.BrotliOutputStream";
+    public static final String ZSTD_ENCODING = "zstd";
+    public static final String ZSTD_STREAM_CLASS = "org.apache.tomcat.util.compression.panama.ZstdOutputStream";
+
+    private final String encoding;
+    private final int level;
+    private final MethodHandle constructor;
+
+
+    private NativeCompressionCodec(String encoding, int level, MethodHandle constructor) {
+        this.encoding = encoding;
+        this.level = level;
+        this.constructor = constructor;
+    }
+
+
+    /**
+     * Create a codec for the given content coding.
+     *
+     * @param encoding    The content coding
+     * @param level       The compression level
+     * @param streamClass The name of the class that implements the compression stream
+     *
+     * @return The codec or {@code null} if the compression stream implementation or the native library it requires
+     *             is not available
+     */
+    public static NativeCompressionCodec create(String encoding, int level, String streamClass) {
+        try {
+            Class<?> clazz = Class.forName(streamClass);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodHandle isAvailable = lookup.findStatic(clazz, "isAvailable", MethodType.methodType(boolean.class));
+            if (!(boolean) isAvailable.invokeExact()) {
+                return null;
+            }
+            MethodHandle constructor = lookup.findConstructor(clazz,
+                    MethodType.methodType(void.class, OutputStream.class, int.class))
+                    .asType(MethodType.methodType(OutputStream.class, OutputStream.class, int.class));
+            return new NativeCompressionCodec(encoding, level, constructor);
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("nativeCompressionCodec.loadFail", encoding, streamClass), t);
+            }
+            return null;
+        }
+    }
+
+
+    @Override
+    public String getEncoding() {
+        return encoding;
+    }
+
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out) throws IOException {
+        try {
+            return (OutputStream) constructor.invokeExact(out, level);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+}
@@ -20,7 +20,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.net.SSLHostConfig;
+import org.apache.tomcat.util.res.StringManager;
 
 /**
  * Abstract the protocol implementation, including threading, etc. This is the main interface to be implemented by a
@@ -246,6 +248,20 @@ public interface ProtocolHandler {
         } else if ("AJP/1.3".equals(protocol) ||
                 org.apache.coyote.ajp.AjpNioProtocol.class.getName().equals(protocol)) {
             return new org.apache.coyote.ajp.AjpNioProtocol();
+        } else if ("org.apache.coyote.http11.Http11IoUringProtocol".equals(protocol)) {
+            // Only available on Linux with a JRE that provides the FFM API so fall back to NIO if not available
+            try {
+                Class<?> clazz = Class.forName(protocol);
+                if (((Boolean) clazz.getMethod("isAvailable").invoke(null)).booleanValue()) {
+                    return (ProtocolHandler) clazz.getConstructor().newInstance();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Ignore
+            }
+            LogFactory.getLog(ProtocolHandler.class).warn(
+                    StringManager.getManager(ProtocolHandler.class).getString("protocolHandler.ioUringUnavailable",
+                            protocol));
+            return new org.apache.coyote.http11.Http11NioProtocol();
         } else {
             // Instantiate protocol handler
             Class<?> clazz = Class.forName(protocol);
@@ -16,6 +16,8 @@
  */
 package org.apache.coyote.http11;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +35,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpUpgradeHandler;
 
 import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.CompressionConfig;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
@@ -340,11 +343,52 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    public String getCompressionEncodings() {
+        return compressionConfig.getCompressionEncodings();
+    }
+
+    public void setCompressionEncodings(String compressionEncodings) {
+        compressionConfig.setCompressionEncodings(compressionEncodings);
+    }
+
+
+    public int getGzipCompressionLevel() {
+        return compressionConfig.getGzipCompressionLevel();
+    }
+
+    public void setGzipCompressionLevel(int gzipCompressionLevel) {
+        compressionConfig.setGzipCompressionLevel(gzipCompressionLevel);
+    }
+
+
+    public int getBrotliCompressionLevel() {
+        return compressionConfig.getBrotliCompressionLevel();
+    }
+
+    public void setBrotliCompressionLevel(int brotliCompressionLevel) {
+        compressionConfig.setBrotliCompressionLevel(brotliCompressionLevel);
+    }
+
+
+    public int getZstdCompressionLevel() {
+        return compressionConfig.getZstdCompressionLevel();
+    }
+
+    public void setZstdCompressionLevel(int zstdCompressionLevel) {
+        compressionConfig.setZstdCompressionLevel(zstdCompressionLevel);
+    }
+
+
     public boolean useCompression(Request request, Response response) {
         return compressionConfig.useCompression(request, response);
     }
 
 
+    public CompressionCodec negotiateCompression(Request request, Response response) {
+        return compressionConfig.negotiateCompression(request, response);
+    }
+
+
     private Pattern restrictedUserAgents = null;
 
     /**
@@ -761,6 +805,33 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
 
     // ------------------------------------------------------------- Common code
 
+    private static final byte[] SHED_RESPONSE =
+            "HTTP/1.1 503 \r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sends a 503 response. The request data that has already been received is read first so closing the connection
+     * does not reset it before the client receives the response.
+     */
+    @Override
+    protected void shed(SocketWrapperBase<?> socketWrapper) throws IOException {
+        String negotiatedProtocol = socketWrapper.getNegotiatedProtocol();
+        if (negotiatedProtocol != null && !negotiatedProtocol.equals("http/1.1")) {
+            // Not HTTP/1.1 so just close the connection
+            return;
+        }
+        byte[] buf = new byte[8192];
+        int swallowed = 0;
+        int read;
+        while (swallowed < getMaxSwallowSize() && (read = socketWrapper.read(false, buf, 0, buf.length)) > 0) {
+            swallowed += read;
+        }
+        socketWrapper.write(true, SHED_RESPONSE, 0, SHED_RESPONSE.length);
+        socketWrapper.flush(true);
+    }
+
+
     @Override
     protected Processor createProcessor() {
         return new Http11Processor(this, adapter);
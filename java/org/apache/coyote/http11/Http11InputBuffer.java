@@ -32,6 +32,7 @@ import org.apache.tomcat.util.http.parser.HttpHeaderParser;
 import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderDataSource;
 import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderParseStatus;
 import org.apache.tomcat.util.http.parser.HttpParser;
+import org.apache.tomcat.util.http.parser.SwarScanner;
 import org.apache.tomcat.util.net.ApplicationBufferHandler;
 import org.apache.tomcat.util.net.SocketWrapperBase;
 import org.apache.tomcat.util.res.StringManager;
@@ -421,6 +422,8 @@ public class Http11InputBuffer implements InputBuffer, ApplicationBufferHandler,
             // Reading the URI
             //
             boolean space = false;
+            // Use the fast path when starting and after the start of the query string
+            boolean scan = chr != Constants.CR;
             while (!space) {
                 // Read new bytes if needed
                 if (byteBuffer.position() >= byteBuffer.limit()) {
@@ -428,6 +431,16 @@ public class Http11InputBuffer implements InputBuffer, ApplicationBufferHandler,
                         return false;
                     }
                 }
+                if (scan) {
+                    scan = false;
+                    int pos = byteBuffer.position();
+                    int scanned = SwarScanner.scanRequestTarget(byteBuffer.array(), pos, byteBuffer.limit());
+                    if (scanned > pos) {
+                        chr = byteBuffer.get(scanned - 1);
+                        byteBuffer.position(scanned);
+                        continue;
+                    }
+                }
                 int pos = byteBuffer.position();
                 prevChr = chr;
                 chr = byteBuffer.get();
@@ -459,6 +472,7 @@ public class Http11InputBuffer implements InputBuffer, ApplicationBufferHandler,
                     }
                 } else if (chr == Constants.QUESTION && parsingRequestLineQPos == -1) {
                     parsingRequestLineQPos = pos;
+                    scan = true;
                 } else if (parsingRequestLineQPos != -1 && !httpParser.isQueryRelaxed(chr)) {
                     // Avoid unknown protocol triggering an additional error
                     request.protocol().setString(Constants.HTTP_11);
@@ -720,7 +734,7 @@ public class Http11InputBuffer implements InputBuffer, ApplicationBufferHandler,
         wrapper = socketWrapper;
         wrapper.setAppReadBufHandler(this);
 
-        int bufLength = headerBufferSize + wrapper.getSocketBufferHandler().getReadBuffer().capacity();
+        int bufLength = headerBufferSize + wrapper.getSocketBufferHandler().getReadBufferCapacity();
         if (byteBuffer == null || byteBuffer.capacity() < bufLength) {
             byteBuffer = ByteBuffer.allocate(bufLength);
             byteBuffer.position(0).limit(0);
@@ -0,0 +1,96 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.net.iouring.IoUringEndpoint;
+
+
+/**
+ * HTTP/1.1 protocol implementation using io_uring. Only available on Linux when running on a JRE that provides the FFM
+ * API. TLS is not supported.
+ */
+public class Http11IoUringProtocol extends AbstractHttp11Protocol<Integer> {
+
+    private static final Log log = LogFactory.getLog(Http11IoUringProtocol.class);
+
+
+    public Http11IoUringProtocol() {
+        this(new IoUringEndpoint());
+    }
+
+
+    public Http11IoUringProtocol(IoUringEndpoint endpoint) {
+        super(endpoint);
+    }
+
+
+    /**
+     * @return {@code true} if io_uring is available on the current platform
+     */
+    public static boolean isAvailable() {
+        return IoUringEndpoint.isAvailable();
+    }
+
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+
+
+    // -------------------- Pool setup --------------------
+
+    public void setSelectorTimeout(long timeout) {
+        ((IoUringEndpoint) getEndpoint()).setSelectorTimeout(timeout);
+    }
+
+    public long getSelectorTimeout() {
+        return ((IoUringEndpoint) getEndpoint()).getSelectorTimeout();
+    }
+
+    public void setPollerThreadPriority(int threadPriority) {
+        ((IoUringEndpoint) getEndpoint()).setPollerThreadPriority(threadPriority);
+    }
+
+    public int getPollerThreadPriority() {
+        return ((IoUringEndpoint) getEndpoint()).getPollerThreadPriority();
+    }
+
+    public void setRingEntries(int ringEntries) {
+        ((IoUringEndpoint) getEndpoint()).setRingEntries(ringEntries);
+    }
+
+    public int getRingEntries() {
+        return ((IoUringEndpoint) getEndpoint()).getRingEntries();
+    }
+
+    public void setRegisteredBufferCount(int registeredBufferCount) {
+        ((IoUringEndpoint) getEndpoint()).setRegisteredBufferCount(registeredBufferCount);
+    }
+
+    public int getRegisteredBufferCount() {
+        return ((IoUringEndpoint) getEndpoint()).getRegisteredBufferCount();
+    }
+
+
+    @Override
+    protected String getNamePrefix() {
+        return "http-iouring";
+    }
+}
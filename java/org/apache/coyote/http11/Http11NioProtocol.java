@@ -64,6 +64,22 @@ public class Http11NioProtocol extends AbstractHttp11Protocol<NioChannel> {
         return ((NioEndpoint) getEndpoint()).getPollerThreadPriority();
     }
 
+    public void setPollerThreadCount(int pollerThreadCount) {
+        ((NioEndpoint) getEndpoint()).setPollerThreadCount(pollerThreadCount);
+    }
+
+    public int getPollerThreadCount() {
+        return ((NioEndpoint) getEndpoint()).getPollerThreadCount();
+    }
+
+    public void setAcceptorThreadCount(int acceptorThreadCount) {
+        ((NioEndpoint) getEndpoint()).setAcceptorThreadCount(acceptorThreadCount);
+    }
+
+    public int getAcceptorThreadCount() {
+        return ((NioEndpoint) getEndpoint()).getAcceptorThreadCount();
+    }
+
 
     @Override
     protected String getNamePrefix() {
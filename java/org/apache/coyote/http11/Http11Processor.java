@@ -32,6 +32,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.AbstractProcessor;
 import org.apache.coyote.ActionCode;
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.ErrorState;
 import org.apache.coyote.Request;
@@ -41,7 +42,7 @@ import org.apache.coyote.UpgradeToken;
 import org.apache.coyote.http11.filters.BufferedInputFilter;
 import org.apache.coyote.http11.filters.ChunkedInputFilter;
 import org.apache.coyote.http11.filters.ChunkedOutputFilter;
-import org.apache.coyote.http11.filters.GzipOutputFilter;
+import org.apache.coyote.http11.filters.CompressionOutputFilter;
 import org.apache.coyote.http11.filters.IdentityInputFilter;
 import org.apache.coyote.http11.filters.IdentityOutputFilter;
 import org.apache.coyote.http11.filters.SavedRequestInputFilter;
@@ -187,9 +188,9 @@ public class Http11Processor extends AbstractProcessor {
         // Create and add buffered input filter
         inputBuffer.addFilter(new BufferedInputFilter(protocol.getMaxSwallowSize()));
 
-        // Create and add the gzip filters.
+        // Create and add the compression filters.
         // inputBuffer.addFilter(new GzipInputFilter());
-        outputBuffer.addFilter(new GzipOutputFilter());
+        outputBuffer.addFilter(new CompressionOutputFilter());
 
         pluggableFilterIndex = inputBuffer.getFilters().length;
     }
@@ -903,9 +904,9 @@ public class Http11Processor extends AbstractProcessor {
         }
 
         // Check for compression
-        boolean useCompression = false;
+        CompressionCodec compressionCodec = null;
         if (entityBody && sendfileData == null) {
-            useCompression = protocol.useCompression(request, response);
+            compressionCodec = protocol.negotiateCompression(request, response);
         }
 
         MimeHeaders headers = response.getMimeHeaders();
@@ -951,8 +952,11 @@ public class Http11Processor extends AbstractProcessor {
             }
         }
 
-        if (useCompression) {
-            outputBuffer.addActiveFilter(outputFilters[Constants.GZIP_FILTER]);
+        if (compressionCodec != null) {
+            CompressionOutputFilter compressionFilter =
+                    (CompressionOutputFilter) outputFilters[Constants.COMPRESSION_FILTER];
+            compressionFilter.setCodec(compressionCodec);
+            outputBuffer.addActiveFilter(compressionFilter);
         }
 
         // Add date header unless application has already set one (e.g. in a
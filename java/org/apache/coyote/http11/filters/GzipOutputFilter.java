@@ -32,7 +32,10 @@ import org.apache.tomcat.util.res.StringManager;
  * Gzip output filter.
  *
  * @author Remy Maucherat
+ *
+ * @deprecated Use {@link CompressionOutputFilter}. This class will be removed in Tomcat 13.
  */
+@Deprecated
 public class GzipOutputFilter implements OutputFilter {
 
     protected static final Log log = LogFactory.getLog(GzipOutputFilter.class);
@@ -19,9 +19,6 @@ package org.apache.coyote.http2;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -329,13 +326,8 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
     protected SendfileState processSendfile(SendfileData sendfile) {
         if (sendfile != null) {
             try {
-                try (FileChannel channel = FileChannel.open(sendfile.path, StandardOpenOption.READ)) {
-                    sendfile.mappedBuffer = channel.map(MapMode.READ_ONLY, sendfile.pos, sendfile.end - sendfile.pos);
-                }
-                // Reserve as much as possible right away
-                int reservation = (sendfile.end - sendfile.pos > Integer.MAX_VALUE) ? Integer.MAX_VALUE :
-                        (int) (sendfile.end - sendfile.pos);
-                sendfile.streamReservation = sendfile.stream.reserveWindowSize(reservation, true);
+                mapSendfile(sendfile);
+                sendfile.streamReservation = sendfile.stream.reserveWindowSize(getSendfileReservation(sendfile), true);
                 sendfile.connectionReservation = reserveWindowSize(sendfile.stream, sendfile.streamReservation, true);
             } catch (IOException ioe) {
                 return SendfileState.ERROR;
@@ -410,9 +402,8 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
                 try {
                     if (sendfile.connectionReservation == 0) {
                         if (sendfile.streamReservation == 0) {
-                            int reservation = (sendfile.end - sendfile.pos > Integer.MAX_VALUE) ? Integer.MAX_VALUE :
-                                    (int) (sendfile.end - sendfile.pos);
-                            sendfile.streamReservation = sendfile.stream.reserveWindowSize(reservation, true);
+                            sendfile.streamReservation =
+                                    sendfile.stream.reserveWindowSize(getSendfileReservation(sendfile), true);
                         }
                         sendfile.connectionReservation =
                                 reserveWindowSize(sendfile.stream, sendfile.streamReservation, true);
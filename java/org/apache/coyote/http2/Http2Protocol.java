@@ -22,6 +22,7 @@ import java.util.Enumeration;
 import javax.management.ObjectName;
 
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
 import org.apache.coyote.Request;
@@ -358,6 +359,11 @@ public class Http2Protocol implements UpgradeProtocol {
     }
 
 
+    public CompressionCodec negotiateCompression(Request request, Response response) {
+        return http11Protocol.negotiateCompression(request, response);
+    }
+
+
     public ContinueResponseTiming getContinueResponseTimingInternal() {
         return http11Protocol.getContinueResponseTimingInternal();
     }
@@ -19,7 +19,10 @@ package org.apache.coyote.http2;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Base64;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -1076,10 +1079,63 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
      * @return The result of the send file processing
      */
     protected SendfileState processSendfile(SendfileData sendfileData) {
+        if (sendfileData == null) {
+            return SendfileState.DONE;
+        }
+        Stream stream = sendfileData.stream;
+        try {
+            mapSendfile(sendfileData);
+            boolean trailers = stream.getCoyoteResponse().getTrailerFields() != null;
+            while (sendfileData.left > 0) {
+                if (sendfileData.streamReservation == 0) {
+                    sendfileData.streamReservation =
+                            stream.reserveWindowSize(getSendfileReservation(sendfileData), true);
+                }
+                sendfileData.connectionReservation =
+                        reserveWindowSize(stream, sendfileData.streamReservation, true);
+                while (sendfileData.connectionReservation > 0) {
+                    int frameSize = Integer.min(getMaxFrameSize(), sendfileData.connectionReservation);
+                    // The frame is written directly from the mapped file
+                    int position = sendfileData.mappedBuffer.position();
+                    writeBody(stream, sendfileData.mappedBuffer, frameSize,
+                            frameSize == sendfileData.left && !trailers);
+                    sendfileData.mappedBuffer.position(position + frameSize);
+                    sendfileData.left -= frameSize;
+                    sendfileData.pos += frameSize;
+                    sendfileData.streamReservation -= frameSize;
+                    sendfileData.connectionReservation -= frameSize;
+                }
+            }
+        } catch (IOException ioe) {
+            return SendfileState.ERROR;
+        }
         return SendfileState.DONE;
     }
 
 
+    /*
+     * Map the part of the file to send so DATA frames can be written to the socket directly from the file, without
+     * copying the content to the stream output buffer.
+     */
+    void mapSendfile(SendfileData sendfileData) throws IOException {
+        try (FileChannel channel = FileChannel.open(sendfileData.path, StandardOpenOption.READ)) {
+            sendfileData.mappedBuffer =
+                    channel.map(MapMode.READ_ONLY, sendfileData.pos, sendfileData.end - sendfileData.pos);
+        }
+    }
+
+
+    /*
+     * Each window reservation made for sendfile is limited to a single frame. That way, when the connection window is
+     * exhausted, a stream using sendfile requests allocations from the backlog of a similar size to the other streams
+     * and the connection window is shared between them according to their priorities, rather than being claimed by
+     * the stream using sendfile until the whole file has been sent.
+     */
+    int getSendfileReservation(SendfileData sendfileData) {
+        return (int) Math.min(getMaxFrameSize(), sendfileData.end - sendfileData.pos);
+    }
+
+
     private Set<AbstractStream> releaseBackLog(int increment) throws Http2Exception {
         windowAllocationLock.lock();
         try {
@@ -156,7 +156,7 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
             // Request body, if any, has been read and buffered
             state.receivedEndOfStream();
         }
-        this.coyoteRequest.setSendfile(handler.hasAsyncIO() && handler.getProtocol().getUseSendfile());
+        this.coyoteRequest.setSendfile(handler.getProtocol().getUseSendfile());
         http2OutputBuffer = new Http2OutputBuffer(this.coyoteResponse, streamOutputBuffer);
         this.coyoteResponse.setOutputBuffer(http2OutputBuffer);
         this.coyoteRequest.setResponse(coyoteResponse);
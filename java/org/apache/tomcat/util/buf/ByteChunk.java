@@ -518,14 +518,50 @@ public final class ByteChunk extends AbstractChunk {
     }
 
 
+    /**
+     * Converts the current content of the byte buffer to a String using the configured character set and the String
+     * cache of the given site.
+     *
+     * @param site The use site of the String
+     *
+     * @return The result of converting the bytes to a String
+     */
+    public String toString(StringCache.Site site) {
+        try {
+            return toString(CodingErrorAction.REPLACE, CodingErrorAction.REPLACE, site);
+        } catch (CharacterCodingException e) {
+            // Unreachable code. Use of REPLACE above means the exception will never be thrown.
+            throw new IllegalStateException(e);
+        }
+    }
+
+
     public String toString(CodingErrorAction malformedInputAction, CodingErrorAction unmappableCharacterAction)
             throws CharacterCodingException {
+        return toString(malformedInputAction, unmappableCharacterAction, StringCache.Site.GENERIC);
+    }
+
+
+    /**
+     * Converts the current content of the byte buffer to a String using the configured character set and the String
+     * cache of the given site.
+     *
+     * @param malformedInputAction      Action to take if the input is malformed
+     * @param unmappableCharacterAction Action to take if a byte sequence can't be mapped to a character
+     * @param site                      The use site of the String
+     *
+     * @return The result of converting the bytes to a String
+     *
+     * @throws CharacterCodingException If an error occurs during the conversion
+     */
+    public String toString(CodingErrorAction malformedInputAction, CodingErrorAction unmappableCharacterAction,
+            StringCache.Site site) throws CharacterCodingException {
         if (isNull()) {
             return null;
         } else if (end - start == 0) {
             return "";
         }
-        return StringCache.toString(this, malformedInputAction, unmappableCharacterAction);
+        return StringCache.toString(this, malformedInputAction, unmappableCharacterAction, site);
     }
 
 
@@ -389,12 +389,24 @@ public final class CharChunk extends AbstractChunk implements CharSequence {
 
     @Override
     public String toString() {
+        return toString(StringCache.Site.GENERIC);
+    }
+
+
+    /**
+     * Converts the current content of the char buffer to a String using the String cache of the given site.
+     *
+     * @param site The use site of the String
+     *
+     * @return The current content as a String
+     */
+    public String toString(StringCache.Site site) {
         if (isNull()) {
             return null;
         } else if (end - start == 0) {
             return "";
         }
-        return StringCache.toString(this);
+        return StringCache.toString(this, site);
     }
 
 
@@ -165,16 +165,28 @@ public final class MessageBytes implements Cloneable, Serializable {
      */
     @Override
     public String toString() {
+        return toString(StringCache.Site.GENERIC);
+    }
+
+
+    /**
+     * Compute the string value using the String cache of the given site.
+     *
+     * @param site The use site of the String
+     *
+     * @return the string
+     */
+    public String toString(StringCache.Site site) {
         switch (type) {
             case T_NULL:
             case T_STR:
                 // No conversion required
                 break;
             case T_BYTES:
-                strValue = byteC.toString();
+                strValue = byteC.toString(site);
                 break;
             case T_CHARS:
-                strValue = charC.toString();
+                strValue = charC.toString(site);
                 break;
         }
 
@@ -188,16 +200,29 @@ public final class MessageBytes implements Cloneable, Serializable {
      * @return The current value as a String
      */
     public String toStringType() {
+        return toStringType(StringCache.Site.GENERIC);
+    }
+
+
+    /**
+     * Convert to String (if not already of the String type), using the String cache of the given site, and then return
+     * the String value.
+     *
+     * @param site The use site of the String
+     *
+     * @return The current value as a String
+     */
+    public String toStringType(StringCache.Site site) {
         switch (type) {
             case T_NULL:
             case T_STR:
                 // No conversion required
                 break;
             case T_BYTES:
-                setString(byteC.toString());
+                setString(byteC.toString(site));
                 break;
             case T_CHARS:
-                setString(charC.toString());
+                setString(charC.toString(site));
                 break;
         }
 
@@ -19,26 +19,45 @@ package org.apache.tomcat.util.buf;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.TreeMap;
-
-import org.apache.juli.logging.Log;
-import org.apache.juli.logging.LogFactory;
-import org.apache.tomcat.util.res.StringManager;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This class implements a String cache for ByteChunk and CharChunk.
+ * <p>
+ * Each use site (header names, parameter names, etc.) has its own bounded caches so that the Strings used at one site
+ * do not compete for space with the Strings used at another. A cache is a hash table where each hash selects a small
+ * bucket of entries. Entries are immutable and replaced without locking. A String is only admitted into a full bucket
+ * if it is used more frequently than the least frequently used entry of the bucket, the frequencies being estimated
+ * with a small sketch that is periodically aged so that the content of the cache follows changes in the traffic.
  *
  * @author Remy Maucherat
  */
 public class StringCache {
 
 
-    private static final Log log = LogFactory.getLog(StringCache.class);
-    private static final StringManager sm = StringManager.getManager(StringCache.class);
+    /**
+     * The use sites of the cache. Each site has its own caches and statistics.
+     */
+    public enum Site {
+        /**
+         * Any conversion not associated with a more specific site. Caching for this site is controlled by
+         * {@link StringCache#getByteEnabled()} and {@link StringCache#getCharEnabled()}.
+         */
+        GENERIC,
+        /**
+         * HTTP header names.
+         */
+        HEADER_NAME,
+        /**
+         * Request parameter names.
+         */
+        PARAMETER_NAME,
+        /**
+         * Cookie names.
+         */
+        COOKIE_NAME
+    }
 
 
     // ------------------------------------------------------- Static Variables
@@ -53,8 +72,11 @@ public class StringCache {
     protected static boolean charEnabled = Boolean.getBoolean("tomcat.util.buf.StringCache.char.enabled");
 
 
-    protected static int trainThreshold =
-            Integer.getInteger("tomcat.util.buf.StringCache.trainThreshold", 20000).intValue();
+    /**
+     * Is caching enabled for the sites other than {@link Site#GENERIC}?
+     */
+    protected static boolean siteEnabled =
+            Boolean.parseBoolean(System.getProperty("tomcat.util.buf.StringCache.site.enabled", "true"));
 
 
     protected static int cacheSize = Integer.getInteger("tomcat.util.buf.StringCache.cacheSize", 200).intValue();
@@ -65,51 +87,15 @@ public class StringCache {
 
 
     /**
-     * Statistics hash map for byte chunk.
-     */
-    protected static final HashMap<ByteEntry,int[]> bcStats = new HashMap<>(cacheSize);
-
-
-    /**
-     * toString count for byte chunk.
-     */
-    protected static int bcCount = 0;
-
-
-    /**
-     * Cache for byte chunk.
-     */
-    protected static volatile ByteEntry[] bcCache = null;
-
-
-    /**
-     * Statistics hash map for char chunk.
+     * Number of entries in each bucket of a cache.
      */
-    protected static final HashMap<CharEntry,int[]> ccStats = new HashMap<>(cacheSize);
+    private static final int BUCKET_SIZE = 4;
 
 
     /**
-     * toString count for char chunk.
+     * The caches, indexed by site ordinal.
      */
-    protected static int ccCount = 0;
-
-
-    /**
-     * Cache for char chunk.
-     */
-    protected static volatile CharEntry[] ccCache = null;
-
-
-    /**
-     * Access count.
-     */
-    protected static int accessCount = 0;
-
-
-    /**
-     * Hit count.
-     */
-    protected static int hitCount = 0;
+    private static volatile SiteCache[] caches = createCaches(cacheSize);
 
 
     // ------------------------------------------------------------ Properties
@@ -124,10 +110,13 @@ public class StringCache {
 
 
     /**
+     * Set the maximum number of entries of each cache. The current content of the caches is discarded.
+     *
      * @param cacheSize The cacheSize to set.
      */
     public void setCacheSize(int cacheSize) {
         StringCache.cacheSize = cacheSize;
+        caches = createCaches(cacheSize);
     }
 
 
@@ -164,51 +153,98 @@ public class StringCache {
 
 
     /**
-     * @return Returns the trainThreshold.
+     * @return {@code true} if caching is enabled for the sites other than {@link Site#GENERIC}
      */
-    public int getTrainThreshold() {
-        return trainThreshold;
+    public boolean getSiteEnabled() {
+        return siteEnabled;
     }
 
 
     /**
-     * @param trainThreshold The trainThreshold to set.
+     * @param siteEnabled {@code true} to enable caching for the sites other than {@link Site#GENERIC}
      */
-    public void setTrainThreshold(int trainThreshold) {
-        StringCache.trainThreshold = trainThreshold;
+    public void setSiteEnabled(boolean siteEnabled) {
+        StringCache.siteEnabled = siteEnabled;
     }
 
 
     /**
      * @return Returns the accessCount.
      */
-    public int getAccessCount() {
-        return accessCount;
+    public long getAccessCount() {
+        long result = 0;
+        for (SiteCache cache : caches) {
+            result += cache.getAccessCount();
+        }
+        return result;
     }
 
 
     /**
      * @return Returns the hitCount.
      */
-    public int getHitCount() {
-        return hitCount;
+    public long getHitCount() {
+        long result = 0;
+        for (SiteCache cache : caches) {
+            result += cache.getHitCount();
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the ratio of the number of hits to the number of accesses for all sites
+     */
+    public double getHitRatio() {
+        return ratio(getHitCount(), getAccessCount());
+    }
+
+
+    /**
+     * Obtain the number of accesses for a site.
+     *
+     * @param site The name of the site, as returned by {@link Site#name()}
+     *
+     * @return the number of accesses to the caches of the given site
+     */
+    public long getSiteAccessCount(String site) {
+        return caches[Site.valueOf(site).ordinal()].getAccessCount();
+    }
+
+
+    /**
+     * Obtain the number of hits for a site.
+     *
+     * @param site The name of the site, as returned by {@link Site#name()}
+     *
+     * @return the number of hits in the caches of the given site
+     */
+    public long getSiteHitCount(String site) {
+        return caches[Site.valueOf(site).ordinal()].getHitCount();
+    }
+
+
+    /**
+     * Obtain the hit ratio for a site.
+     *
+     * @param site The name of the site, as returned by {@link Site#name()}
+     *
+     * @return the ratio of the number of hits to the number of accesses for the given site
+     */
+    public double getSiteHitRatio(String site) {
+        SiteCache cache = caches[Site.valueOf(site).ordinal()];
+        return ratio(cache.getHitCount(), cache.getAccessCount());
     }
 
 
     // -------------------------------------------------- Public Static Methods
 
 
+    /**
+     * Discard the content and the statistics of all the caches.
+     */
     public void reset() {
-        hitCount = 0;
-        accessCount = 0;
-        synchronized (bcStats) {
-            bcCache = null;
-            bcCount = 0;
-        }
-        synchronized (ccStats) {
-            ccCache = null;
-            ccCount = 0;
-        }
+        caches = createCaches(cacheSize);
     }
 
 
@@ -224,500 +260,333 @@ public class StringCache {
 
     public static String toString(ByteChunk bc, CodingErrorAction malformedInputAction,
             CodingErrorAction unmappableCharacterAction) throws CharacterCodingException {
-
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (bcCache == null) {
-            String value = bc.toStringInternal(malformedInputAction, unmappableCharacterAction);
-            if (byteEnabled && (value.length() < maxStringSize)) {
-                // If training, everything is synced
-                synchronized (bcStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting for the lock, just return the toString
-                    // value we just calculated
-                    if (bcCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in
-                    // which case the cache must be created, or we just update
-                    // the count for the string
-                    if (bcCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer,ArrayList<ByteEntry>> tempMap = new TreeMap<>();
-                        for (Entry<ByteEntry,int[]> item : bcStats.entrySet()) {
-                            ByteEntry entry = item.getKey();
-                            int[] countA = item.getValue();
-                            Integer count = Integer.valueOf(countA[0]);
-                            // Add to the list for that count
-                            tempMap.computeIfAbsent(count, k -> new ArrayList<>()).add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = bcStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        ByteEntry[] tempbcCache = new ByteEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        ByteChunk tempChunk = new ByteChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<ByteEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                ByteEntry entry = list.get(i);
-                                tempChunk.setBytes(entry.name, 0, entry.name.length);
-                                int insertPos = findClosest(tempChunk, tempbcCache, n);
-                                if (insertPos == n) {
-                                    tempbcCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempbcCache, insertPos + 1, tempbcCache, insertPos + 2,
-                                            n - insertPos - 1);
-                                    tempbcCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        bcCount = 0;
-                        bcStats.clear();
-                        bcCache = tempbcCache;
-                        if (log.isDebugEnabled()) {
-                            long t2 = System.currentTimeMillis();
-                            log.debug(sm.getString("stringCache.byteTime", Long.valueOf(t2 - t1)));
-                        }
-                    } else {
-                        bcCount++;
-                        // Allocate new ByteEntry for the lookup
-                        ByteEntry entry = new ByteEntry();
-                        entry.value = value;
-                        int[] count = bcStats.get(entry);
-                        if (count == null) {
-                            int end = bc.getEnd();
-                            int start = bc.getStart();
-                            // Create byte array and copy bytes
-                            entry.name = new byte[bc.getLength()];
-                            System.arraycopy(bc.getBuffer(), start, entry.name, 0, end - start);
-                            // Set encoding
-                            entry.charset = bc.getCharset();
-                            entry.malformedInputAction = malformedInputAction;
-                            entry.unmappableCharacterAction = unmappableCharacterAction;
-                            // Initialize occurrence count to one
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            bcStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
-            }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(bc, malformedInputAction, unmappableCharacterAction);
-            if (result == null) {
-                return bc.toStringInternal(malformedInputAction, unmappableCharacterAction);
-            }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
-        }
-
+        return toString(bc, malformedInputAction, unmappableCharacterAction, Site.GENERIC);
     }
 
 
-    public static String toString(CharChunk cc) {
-
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (ccCache == null) {
-            String value = cc.toStringInternal();
-            if (charEnabled && (value.length() < maxStringSize)) {
-                // If training, everything is synced
-                synchronized (ccStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting for the lock, just return the toString
-                    // value we just calculated
-                    if (ccCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in
-                    // which case the cache must be created, or we just update
-                    // the count for the string
-                    if (ccCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer,ArrayList<CharEntry>> tempMap = new TreeMap<>();
-                        for (Entry<CharEntry,int[]> item : ccStats.entrySet()) {
-                            CharEntry entry = item.getKey();
-                            int[] countA = item.getValue();
-                            Integer count = Integer.valueOf(countA[0]);
-                            // Add to the list for that count
-                            ArrayList<CharEntry> list = tempMap.computeIfAbsent(count, k -> new ArrayList<>());
-                            list.add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = ccStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        CharEntry[] tempccCache = new CharEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        CharChunk tempChunk = new CharChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<CharEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                CharEntry entry = list.get(i);
-                                tempChunk.setChars(entry.name, 0, entry.name.length);
-                                int insertPos = findClosest(tempChunk, tempccCache, n);
-                                if (insertPos == n) {
-                                    tempccCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempccCache, insertPos + 1, tempccCache, insertPos + 2,
-                                            n - insertPos - 1);
-                                    tempccCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        ccCount = 0;
-                        ccStats.clear();
-                        ccCache = tempccCache;
-                        if (log.isDebugEnabled()) {
-                            long t2 = System.currentTimeMillis();
-                            log.debug(sm.getString("stringCache.charTime", Long.valueOf(t2 - t1)));
-                        }
-                    } else {
-                        ccCount++;
-                        // Allocate new CharEntry for the lookup
-                        CharEntry entry = new CharEntry();
-                        entry.value = value;
-                        int[] count = ccStats.get(entry);
-                        if (count == null) {
-                            int end = cc.getEnd();
-                            int start = cc.getStart();
-                            // Create char array and copy chars
-                            entry.name = new char[cc.getLength()];
-                            System.arraycopy(cc.getBuffer(), start, entry.name, 0, end - start);
-                            // Initialize occurrence count to one
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            ccStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
-            }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(cc);
-            if (result == null) {
-                return cc.toStringInternal();
-            }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
+    /**
+     * Convert the given byte chunk to a String, using the cache of the given site if it is enabled.
+     *
+     * @param bc                        The bytes to convert
+     * @param malformedInputAction      Action to take if a malformed input is encountered
+     * @param unmappableCharacterAction Action to take if an unmappable character is encountered
+     * @param site                      The use site
+     *
+     * @return the String corresponding to the bytes
+     *
+     * @throws CharacterCodingException If an error occurs during the conversion
+     */
+    public static String toString(ByteChunk bc, CodingErrorAction malformedInputAction,
+            CodingErrorAction unmappableCharacterAction, Site site) throws CharacterCodingException {
+        if (bc.getLength() >= maxStringSize || !(site == Site.GENERIC ? byteEnabled : siteEnabled)) {
+            return bc.toStringInternal(malformedInputAction, unmappableCharacterAction);
         }
-
+        return caches[site.ordinal()].byteCache.get(bc, malformedInputAction, unmappableCharacterAction);
     }
 
 
-    // ----------------------------------------------------- Protected Methods
+    public static String toString(CharChunk cc) {
+        return toString(cc, Site.GENERIC);
+    }
 
 
     /**
-     * Compare given byte chunk with byte array.
+     * Convert the given char chunk to a String, using the cache of the given site if it is enabled.
      *
-     * @param name      The name to compare
-     * @param compareTo The compared to data
+     * @param cc   The chars to convert
+     * @param site The use site
      *
-     * @return -1, 0 or +1 if inferior, equal, or superior to the String.
+     * @return the String corresponding to the chars
      */
-    protected static int compare(ByteChunk name, byte[] compareTo) {
-        int result = 0;
+    public static String toString(CharChunk cc, Site site) {
+        if (cc.getLength() >= maxStringSize || !(site == Site.GENERIC ? charEnabled : siteEnabled)) {
+            return cc.toStringInternal();
+        }
+        return caches[site.ordinal()].charCache.get(cc);
+    }
 
-        byte[] b = name.getBuffer();
-        int start = name.getStart();
-        int end = name.getEnd();
-        int len = compareTo.length;
 
-        if ((end - start) < len) {
-            len = end - start;
-        }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            if (b[i + start] > compareTo[i]) {
-                result = 1;
-            } else if (b[i + start] < compareTo[i]) {
-                result = -1;
-            }
-        }
-        if (result == 0) {
-            if (compareTo.length > (end - start)) {
-                result = -1;
-            } else if (compareTo.length < (end - start)) {
-                result = 1;
-            }
+    // ------------------------------------------------------- Private Methods
+
+
+    private static SiteCache[] createCaches(int cacheSize) {
+        SiteCache[] result = new SiteCache[Site.values().length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new SiteCache(cacheSize);
         }
         return result;
     }
 
 
-    /**
-     * Find an entry given its name in the cache and return the associated String.
-     *
-     * @param name                      The name to find
-     * @param malformedInputAction      Action to take if a malformed input is encountered
-     * @param unmappableCharacterAction Action to take if an unmappable character is encountered
-     *
-     * @return the corresponding value
-     */
-    protected static String find(ByteChunk name, CodingErrorAction malformedInputAction,
-            CodingErrorAction unmappableCharacterAction) {
-        int pos = findClosest(name, bcCache, bcCache.length);
-        if ((pos < 0) || (compare(name, bcCache[pos].name) != 0) || !(name.getCharset().equals(bcCache[pos].charset)) ||
-                !malformedInputAction.equals(bcCache[pos].malformedInputAction) ||
-                !unmappableCharacterAction.equals(bcCache[pos].unmappableCharacterAction)) {
-            return null;
-        } else {
-            return bcCache[pos].value;
-        }
+    private static double ratio(long hitCount, long accessCount) {
+        return accessCount == 0 ? 0 : (double) hitCount / accessCount;
     }
 
 
-    /**
-     * Find an entry given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     *
-     * @param name  The name to find
-     * @param array The array in which to look
-     * @param len   The effective length of the array
-     *
-     * @return the position of the best match
-     */
-    protected static int findClosest(ByteChunk name, ByteEntry[] array, int len) {
+    // -------------------------------------------------- SiteCache Inner Class
 
-        int a = 0;
-        int b = len - 1;
 
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
+    private static class SiteCache {
 
-        if (compare(name, array[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
+        private final ByteCache byteCache;
+        private final CharCache charCache;
+
+        SiteCache(int cacheSize) {
+            byteCache = new ByteCache(cacheSize);
+            charCache = new CharCache(cacheSize);
         }
 
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compare(name, array[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = compare(name, array[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
-            }
+        long getAccessCount() {
+            return byteCache.hitCount + byteCache.missCount + charCache.hitCount + charCache.missCount;
         }
 
+        long getHitCount() {
+            return byteCache.hitCount + charCache.hitCount;
+        }
     }
 
 
-    /**
-     * Compare given char chunk with char array.
-     *
-     * @param name      The name to compare
-     * @param compareTo The compared to data
-     *
-     * @return -1, 0 or +1 if inferior, equal, or superior to the String.
-     */
-    protected static int compare(CharChunk name, char[] compareTo) {
-        int result = 0;
+    // ------------------------------------------------------ Cache Inner Class
 
-        char[] c = name.getBuffer();
-        int start = name.getStart();
-        int end = name.getEnd();
-        int len = compareTo.length;
 
-        if ((end - start) < len) {
-            len = end - start;
+    /*
+     * A bounded hash table where each hash selects a bucket of BUCKET_SIZE entries. Lookups and updates do not lock:
+     * entries are immutable and a new entry simply replaces the entry chosen by the admission policy. Concurrent
+     * updates of the same slot may overwrite each other which only means that one of the Strings is not cached.
+     */
+    private abstract static class Cache<E extends Entry> {
+
+        protected final AtomicReferenceArray<E> entries;
+        protected final FrequencySketch sketch;
+        // Note: We don't care about safety for the stats
+        protected long hitCount = 0;
+        protected long missCount = 0;
+        private final int bucketMask;
+
+        Cache(int cacheSize) {
+            int bucketCount = Integer.highestOneBit(Math.max(1, (cacheSize + BUCKET_SIZE - 1) / BUCKET_SIZE) * 2 - 1);
+            bucketMask = bucketCount - 1;
+            entries = new AtomicReferenceArray<>(bucketCount * BUCKET_SIZE);
+            sketch = new FrequencySketch(bucketCount * BUCKET_SIZE);
         }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            if (c[i + start] > compareTo[i]) {
-                result = 1;
-            } else if (c[i + start] < compareTo[i]) {
-                result = -1;
-            }
+
+        /*
+         * Record an access for the given hash and return the index of the first entry of the associated bucket.
+         */
+        protected int access(int hash) {
+            sketch.increment(hash);
+            return ((hash ^ (hash >>> 16)) & bucketMask) * BUCKET_SIZE;
         }
-        if (result == 0) {
-            if (compareTo.length > (end - start)) {
-                result = -1;
-            } else if (compareTo.length < (end - start)) {
-                result = 1;
+
+        /*
+         * TinyLFU admission: use a free slot if there is one, otherwise replace the least frequently used entry of the
+         * bucket if the candidate is used more frequently. Returns -1 if the candidate should not be cached.
+         */
+        protected int findSlot(int bucket, int hash) {
+            int result = -1;
+            int minFrequency = sketch.frequency(hash);
+            for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+                E entry = entries.get(i);
+                if (entry == null) {
+                    return i;
+                }
+                int frequency = sketch.frequency(entry.hash);
+                if (frequency < minFrequency) {
+                    minFrequency = frequency;
+                    result = i;
+                }
             }
+            return result;
         }
-        return result;
     }
 
 
-    /**
-     * Find an entry given its name in the cache and return the associated String.
-     *
-     * @param name The name to find
-     *
-     * @return the corresponding value
-     */
-    protected static String find(CharChunk name) {
-        int pos = findClosest(name, ccCache, ccCache.length);
-        if ((pos < 0) || (compare(name, ccCache[pos].name) != 0)) {
-            return null;
-        } else {
-            return ccCache[pos].value;
-        }
-    }
+    private static final class ByteCache extends Cache<ByteEntry> {
 
+        ByteCache(int cacheSize) {
+            super(cacheSize);
+        }
 
-    /**
-     * Find an entry given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     *
-     * @param name  The name to find
-     * @param array The array in which to look
-     * @param len   The effective length of the array
-     *
-     * @return the position of the best match
-     */
-    protected static int findClosest(CharChunk name, CharEntry[] array, int len) {
+        String get(ByteChunk bc, CodingErrorAction malformedInputAction, CodingErrorAction unmappableCharacterAction)
+                throws CharacterCodingException {
+            byte[] buffer = bc.getBuffer();
+            int start = bc.getStart();
+            int end = bc.getEnd();
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int bucket = access(hash);
+            for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+                ByteEntry entry = entries.get(i);
+                if (entry != null && entry.hash == hash && entry.matches(bc, malformedInputAction,
+                        unmappableCharacterAction)) {
+                    hitCount++;
+                    return entry.value;
+                }
+            }
+            String value = bc.toStringInternal(malformedInputAction, unmappableCharacterAction);
+            missCount++;
+            int slot = findSlot(bucket, hash);
+            if (slot >= 0) {
+                entries.set(slot, new ByteEntry(hash, value, bc, malformedInputAction, unmappableCharacterAction));
+            }
+            return value;
+        }
+    }
 
-        int a = 0;
-        int b = len - 1;
 
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
+    private static final class CharCache extends Cache<CharEntry> {
 
-        if (compare(name, array[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
+        CharCache(int cacheSize) {
+            super(cacheSize);
         }
 
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compare(name, array[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
+        String get(CharChunk cc) {
+            char[] buffer = cc.getBuffer();
+            int start = cc.getStart();
+            int end = cc.getEnd();
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer[i];
             }
-            if ((b - a) == 1) {
-                int result2 = compare(name, array[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
+            int bucket = access(hash);
+            for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+                CharEntry entry = entries.get(i);
+                if (entry != null && entry.hash == hash && entry.matches(cc)) {
+                    hitCount++;
+                    return entry.value;
                 }
             }
+            String value = cc.toStringInternal();
+            missCount++;
+            int slot = findSlot(bucket, hash);
+            if (slot >= 0) {
+                entries.set(slot, new CharEntry(hash, value, cc));
+            }
+            return value;
         }
-
     }
 
 
-    // -------------------------------------------------- ByteEntry Inner Class
+    // --------------------------------------------- FrequencySketch Inner Class
 
-    protected static class ByteEntry {
 
-        private byte[] name = null;
-        private Charset charset = null;
-        private CodingErrorAction malformedInputAction = null;
-        private CodingErrorAction unmappableCharacterAction = null;
-        private String value = null;
+    /*
+     * A count-min sketch of 4-bit counters that estimates how often each hash has been seen. Once the number of
+     * increments reaches ten times the capacity of the cache, all counters are halved so that past popularity fades
+     * and the cache adapts to changes in the traffic. Updates are not synchronized: a lost update only makes an
+     * estimate slightly less accurate.
+     */
+    private static final class FrequencySketch {
 
-        @Override
-        public String toString() {
-            return value;
-        }
+        private static final int[] SEEDS = { 0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F };
+        private static final int MAX_COUNT = 15;
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(malformedInputAction, unmappableCharacterAction, value);
+        private final byte[] counters;
+        private final int rowMask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity * 2) * 2 - 1);
+            counters = new byte[width * SEEDS.length];
+            rowMask = width - 1;
+            sampleSize = 10 * capacity;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
             }
-            if (obj == null) {
-                return false;
+            if (added && ++additions >= sampleSize) {
+                additions = 0;
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (byte) (counters[i] >>> 1);
+                }
             }
-            if (getClass() != obj.getClass()) {
-                return false;
+        }
+
+        int frequency(int hash) {
+            int result = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                result = Math.min(result, counters[index(hash, row)]);
             }
-            ByteEntry other = (ByteEntry) obj;
-            return Objects.equals(malformedInputAction, other.malformedInputAction) &&
-                    Objects.equals(unmappableCharacterAction, other.unmappableCharacterAction) &&
-                    Objects.equals(value, other.value);
+            return result;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 15;
+            return row * (rowMask + 1) + (h & rowMask);
         }
     }
 
 
-    // -------------------------------------------------- CharEntry Inner Class
+    // ------------------------------------------------------ Entry Inner Classes
+
 
+    private abstract static class Entry {
 
-    protected static class CharEntry {
+        protected final int hash;
+        protected final String value;
 
-        private char[] name = null;
-        private String value = null;
+        Entry(int hash, String value) {
+            this.hash = hash;
+            this.value = value;
+        }
 
         @Override
         public String toString() {
             return value;
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return value.hashCode();
-        }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj instanceof CharEntry) {
-                return value.equals(((CharEntry) obj).value);
-            }
-            return false;
+    private static final class ByteEntry extends Entry {
+
+        private final byte[] name;
+        private final Charset charset;
+        private final CodingErrorAction malformedInputAction;
+        private final CodingErrorAction unmappableCharacterAction;
+
+        ByteEntry(int hash, String value, ByteChunk bc, CodingErrorAction malformedInputAction,
+                CodingErrorAction unmappableCharacterAction) {
+            super(hash, value);
+            name = new byte[bc.getLength()];
+            System.arraycopy(bc.getBuffer(), bc.getStart(), name, 0, name.length);
+            charset = bc.getCharset();
+            this.malformedInputAction = malformedInputAction;
+            this.unmappableCharacterAction = unmappableCharacterAction;
         }
 
+        boolean matches(ByteChunk bc, CodingErrorAction malformedInputAction,
+                CodingErrorAction unmappableCharacterAction) {
+            return Arrays.equals(name, 0, name.length, bc.getBuffer(), bc.getStart(), bc.getEnd()) &&
+                    (charset == bc.getCharset() || charset.equals(bc.getCharset())) &&
+                    this.malformedInputAction.equals(malformedInputAction) &&
+                    this.unmappableCharacterAction.equals(unmappableCharacterAction);
+        }
     }
 
 
+    private static final class CharEntry extends Entry {
+
+        private final char[] name;
+
+        CharEntry(int hash, String value, CharChunk cc) {
+            super(hash, value);
+            name = new char[cc.getLength()];
+            System.arraycopy(cc.getBuffer(), cc.getStart(), name, 0, name.length);
+        }
+
+        boolean matches(CharChunk cc) {
+            return Arrays.equals(name, 0, name.length, cc.getBuffer(), cc.getStart(), cc.getEnd());
+        }
+    }
 }
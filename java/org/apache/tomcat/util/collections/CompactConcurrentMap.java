@@ -0,0 +1,432 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link ConcurrentMap} optimised for memory usage when it holds only a few entries, as is typical for the
+ * attributes and notes of an HTTP session.
+ * <p>
+ * Up to {@link #MAX_INLINE_SIZE} entries are held in a single array of alternating keys and values that is replaced
+ * (copy on write) whenever the map is modified. An empty map does not allocate any storage. Reads never block. Writes
+ * are serialized by locking the map. When an entry is added to a map that already holds {@link #MAX_INLINE_SIZE}
+ * entries, the entries are moved to a {@link ConcurrentHashMap} which is then used for the lifetime of this map.
+ * <p>
+ * As with {@link ConcurrentHashMap}, <code>null</code> keys and values are not permitted and the iterators are weakly
+ * consistent. Whilst the entries are held in the array, iterators return the entries present when the iterator was
+ * created.
+ *
+ * @param <K> Type of keys placed in this Map.
+ * @param <V> Type of values placed in this Map.
+ */
+public class CompactConcurrentMap<K, V> extends AbstractMap<K,V> implements ConcurrentMap<K,V>, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of entries held in the inline array.
+     */
+    public static final int MAX_INLINE_SIZE = 8;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /*
+     * Either an Object[] of alternating keys and values or, once the map has grown beyond MAX_INLINE_SIZE entries, a
+     * ConcurrentHashMap. The transition from the array to the ConcurrentHashMap happens at most once.
+     */
+    private volatile Object state = EMPTY;
+
+
+    @Override
+    public V get(Object key) {
+        Object s = state;
+        if (s instanceof Object[] entries) {
+            int index = indexOf(entries, key);
+            return index < 0 ? null : valueAt(entries, index);
+        }
+        return asMap(s).get(key);
+    }
+
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+
+    @Override
+    public int size() {
+        Object s = state;
+        if (s instanceof Object[] entries) {
+            return entries.length / 2;
+        }
+        return asMap(s).size();
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    @Override
+    public V put(K key, V value) {
+        checkNotNull(key, value);
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0) {
+                        add(entries, key, value);
+                        return null;
+                    }
+                    V oldValue = valueAt(entries, index);
+                    set(entries, index, value);
+                    return oldValue;
+                }
+            }
+        }
+        return map.put(key, value);
+    }
+
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkNotNull(key, value);
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0) {
+                        add(entries, key, value);
+                        return null;
+                    }
+                    return valueAt(entries, index);
+                }
+            }
+        }
+        return map.putIfAbsent(key, value);
+    }
+
+
+    @Override
+    public V remove(Object key) {
+        checkNotNull(key);
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0) {
+                        return null;
+                    }
+                    V oldValue = valueAt(entries, index);
+                    removeAt(entries, index);
+                    return oldValue;
+                }
+            }
+        }
+        return map.remove(key);
+    }
+
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        checkNotNull(key);
+        if (value == null) {
+            return false;
+        }
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0 || !value.equals(entries[index + 1])) {
+                        return false;
+                    }
+                    removeAt(entries, index);
+                    return true;
+                }
+            }
+        }
+        return map.remove(key, value);
+    }
+
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(key, value);
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0) {
+                        return null;
+                    }
+                    V oldValue = valueAt(entries, index);
+                    set(entries, index, value);
+                    return oldValue;
+                }
+            }
+        }
+        return map.replace(key, value);
+    }
+
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, oldValue);
+        checkNotNull(newValue);
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    Object[] entries = (Object[]) state;
+                    int index = indexOf(entries, key);
+                    if (index < 0 || !oldValue.equals(entries[index + 1])) {
+                        return false;
+                    }
+                    set(entries, index, newValue);
+                    return true;
+                }
+            }
+        }
+        return map.replace(key, oldValue, newValue);
+    }
+
+
+    @Override
+    public void clear() {
+        ConcurrentHashMap<K,V> map = getMap();
+        if (map == null) {
+            synchronized (this) {
+                map = getMap();
+                if (map == null) {
+                    state = EMPTY;
+                    return;
+                }
+            }
+        }
+        map.clear();
+    }
+
+
+    @Override
+    public Set<Entry<K,V>> entrySet() {
+        return new EntrySet();
+    }
+
+
+    /*
+     * Package private so the tests can check when the entries are moved to a ConcurrentHashMap.
+     */
+    boolean isInline() {
+        return state instanceof Object[];
+    }
+
+
+    private ConcurrentHashMap<K,V> getMap() {
+        Object s = state;
+        if (s instanceof Object[]) {
+            return null;
+        }
+        return asMap(s);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentHashMap<K,V> asMap(Object s) {
+        return (ConcurrentHashMap<K,V>) s;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(Object[] entries, int index) {
+        return (V) entries[index + 1];
+    }
+
+
+    /*
+     * The following methods must only be called while holding the lock with entries being the current state.
+     */
+
+    private void add(Object[] entries, K key, V value) {
+        if (entries.length < MAX_INLINE_SIZE * 2) {
+            Object[] newEntries = Arrays.copyOf(entries, entries.length + 2);
+            newEntries[entries.length] = key;
+            newEntries[entries.length + 1] = value;
+            state = newEntries;
+        } else {
+            ConcurrentHashMap<K,V> map = new ConcurrentHashMap<>();
+            for (int i = 0; i < entries.length; i += 2) {
+                @SuppressWarnings("unchecked")
+                K k = (K) entries[i];
+                map.put(k, valueAt(entries, i));
+            }
+            map.put(key, value);
+            state = map;
+        }
+    }
+
+
+    private void set(Object[] entries, int index, V value) {
+        Object[] newEntries = entries.clone();
+        newEntries[index + 1] = value;
+        state = newEntries;
+    }
+
+
+    private void removeAt(Object[] entries, int index) {
+        if (entries.length == 2) {
+            state = EMPTY;
+        } else {
+            Object[] newEntries = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 2, newEntries, index, entries.length - index - 2);
+            state = newEntries;
+        }
+    }
+
+
+    private static int indexOf(Object[] entries, Object key) {
+        checkNotNull(key);
+        for (int i = 0; i < entries.length; i += 2) {
+            if (key.equals(entries[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private static void checkNotNull(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+    }
+
+
+    private static void checkNotNull(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+    }
+
+
+    private class EntrySet extends AbstractSet<Entry<K,V>> {
+
+        @Override
+        public Iterator<Entry<K,V>> iterator() {
+            Object s = state;
+            if (s instanceof Object[] entries) {
+                return new EntryIterator(entries);
+            }
+            return asMap(s).entrySet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactConcurrentMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactConcurrentMap.this.clear();
+        }
+    }
+
+
+    private class EntryIterator implements Iterator<Entry<K,V>> {
+
+        private final Object[] entries;
+        private int index = 0;
+        private Entry<K,V> last = null;
+
+        EntryIterator(Object[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < entries.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Entry<K,V> next() {
+            if (index >= entries.length) {
+                throw new NoSuchElementException();
+            }
+            last = new MapEntry((K) entries[index], (V) entries[index + 1]);
+            index += 2;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            CompactConcurrentMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+
+    private class MapEntry extends SimpleEntry<K,V> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            checkNotNull(value);
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.compression.panama;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Compression stream for the <code>br</code> content coding that uses the Brotli encoder library via the FFM API. The
+ * name of the library may be set with the
+ * <code>org.apache.tomcat.util.compression.panama.BROTLI_LIBRARY_NAME</code> system property.
+ */
+public class BrotliOutputStream extends OutputStream {
+
+    private static final Log log = LogFactory.getLog(BrotliOutputStream.class);
+    private static final StringManager sm = StringManager.getManager(BrotliOutputStream.class);
+
+    public static final String LIBRARY_NAME =
+            System.getProperty("org.apache.tomcat.util.compression.panama.BROTLI_LIBRARY_NAME", "brotlienc");
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // BrotliEncoderParameter
+    private static final int BROTLI_PARAM_QUALITY = 1;
+    private static final int BROTLI_MIN_QUALITY = 0;
+    private static final int BROTLI_MAX_QUALITY = 11;
+    // BrotliEncoderOperation
+    private static final int BROTLI_OPERATION_PROCESS = 0;
+    private static final int BROTLI_OPERATION_FLUSH = 1;
+    private static final int BROTLI_OPERATION_FINISH = 2;
+
+    // Layout of the in/out parameters of BrotliEncoderCompressStream
+    private static final long AVAILABLE_IN_OFFSET = 0;
+    private static final long NEXT_IN_OFFSET = 8;
+    private static final long AVAILABLE_OUT_OFFSET = 16;
+    private static final long NEXT_OUT_OFFSET = 24;
+    private static final long PARAMETERS_SIZE = 32;
+
+    private static final MethodHandle BrotliEncoderCreateInstance;
+    private static final MethodHandle BrotliEncoderDestroyInstance;
+    private static final MethodHandle BrotliEncoderSetParameter;
+    private static final MethodHandle BrotliEncoderCompressStream;
+    private static final MethodHandle BrotliEncoderHasMoreOutput;
+    private static final MethodHandle BrotliEncoderIsFinished;
+
+    static {
+        MethodHandle createInstance = null;
+        MethodHandle destroyInstance = null;
+        MethodHandle setParameter = null;
+        MethodHandle compressStream = null;
+        MethodHandle hasMoreOutput = null;
+        MethodHandle isFinished = null;
+        try {
+            SymbolLookup lookup = NativeLibraries.lookup(LIBRARY_NAME);
+            createInstance = NativeLibraries.downcall(lookup, "BrotliEncoderCreateInstance",
+                    FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+                            ValueLayout.ADDRESS));
+            destroyInstance = NativeLibraries.downcall(lookup, "BrotliEncoderDestroyInstance",
+                    FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+            setParameter = NativeLibraries.downcall(lookup, "BrotliEncoderSetParameter",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
+                            ValueLayout.JAVA_INT));
+            compressStream = NativeLibraries.downcall(lookup, "BrotliEncoderCompressStream",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
+                            ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+                            ValueLayout.ADDRESS));
+            hasMoreOutput = NativeLibraries.downcall(lookup, "BrotliEncoderHasMoreOutput",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+            isFinished = NativeLibraries.downcall(lookup, "BrotliEncoderIsFinished",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        } catch (Throwable t) {
+            log.debug(sm.getString("brotliOutputStream.noLibrary", LIBRARY_NAME), t);
+            createInstance = null;
+        }
+        BrotliEncoderCreateInstance = createInstance;
+        BrotliEncoderDestroyInstance = destroyInstance;
+        BrotliEncoderSetParameter = setParameter;
+        BrotliEncoderCompressStream = compressStream;
+        BrotliEncoderHasMoreOutput = hasMoreOutput;
+        BrotliEncoderIsFinished = isFinished;
+    }
+
+
+    /**
+     * @return {@code true} if the Brotli encoder library has been loaded
+     */
+    public static boolean isAvailable() {
+        return BrotliEncoderCreateInstance != null;
+    }
+
+
+    private final OutputStream out;
+    private final State state;
+    private final Cleanable cleanable;
+    private final MemorySegment inBuffer;
+    private final MemorySegment outBuffer;
+    private final MemorySegment parameters;
+    private final byte[] heapBuffer = new byte[BUFFER_SIZE];
+    private boolean closed = false;
+
+
+    public BrotliOutputStream(OutputStream out, int level) throws IOException {
+        if (!isAvailable()) {
+            throw new IOException(sm.getString("brotliOutputStream.noLibrary", LIBRARY_NAME));
+        }
+        if (level < BROTLI_MIN_QUALITY || level > BROTLI_MAX_QUALITY) {
+            throw new IllegalArgumentException(sm.getString("brotliOutputStream.invalidLevel", Integer.toString(level)));
+        }
+        this.out = out;
+        Arena arena = Arena.ofShared();
+        MemorySegment encoder;
+        try {
+            encoder = (MemorySegment) BrotliEncoderCreateInstance.invokeExact(MemorySegment.NULL, MemorySegment.NULL,
+                    MemorySegment.NULL);
+        } catch (Throwable t) {
+            arena.close();
+            throw new IOException(t);
+        }
+        state = new State(arena, encoder);
+        cleanable = cleaner.register(this, state);
+        if (MemorySegment.NULL.equals(encoder)) {
+            cleanable.clean();
+            throw new IOException(sm.getString("brotliOutputStream.createFail"));
+        }
+        inBuffer = arena.allocate(BUFFER_SIZE);
+        outBuffer = arena.allocate(BUFFER_SIZE);
+        parameters = arena.allocate(PARAMETERS_SIZE, 8);
+        try {
+            int result = (int) BrotliEncoderSetParameter.invokeExact(encoder, BROTLI_PARAM_QUALITY, level);
+            if (result == 0) {
+                throw new IOException(sm.getString("brotliOutputStream.error"));
+            }
+        } catch (IOException ioe) {
+            cleanable.clean();
+            throw ioe;
+        } catch (Throwable t) {
+            cleanable.clean();
+            throw new IOException(t);
+        }
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, BUFFER_SIZE);
+            MemorySegment.copy(b, off, inBuffer, ValueLayout.JAVA_BYTE, 0, chunk);
+            parameters.set(ValueLayout.JAVA_LONG, AVAILABLE_IN_OFFSET, chunk);
+            parameters.set(ValueLayout.ADDRESS, NEXT_IN_OFFSET, inBuffer);
+            while (parameters.get(ValueLayout.JAVA_LONG, AVAILABLE_IN_OFFSET) > 0) {
+                compress(BROTLI_OPERATION_PROCESS);
+            }
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        clearInput();
+        do {
+            compress(BROTLI_OPERATION_FLUSH);
+        } while (hasMoreOutput());
+        out.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            clearInput();
+            do {
+                compress(BROTLI_OPERATION_FINISH);
+            } while (!isFinished());
+        } finally {
+            closed = true;
+            cleanable.clean();
+        }
+    }
+
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(sm.getString("brotliOutputStream.closed"));
+        }
+    }
+
+
+    private void clearInput() {
+        parameters.set(ValueLayout.JAVA_LONG, AVAILABLE_IN_OFFSET, 0);
+        parameters.set(ValueLayout.ADDRESS, NEXT_IN_OFFSET, inBuffer);
+    }
+
+
+    private void compress(int operation) throws IOException {
+        parameters.set(ValueLayout.JAVA_LONG, AVAILABLE_OUT_OFFSET, BUFFER_SIZE);
+        parameters.set(ValueLayout.ADDRESS, NEXT_OUT_OFFSET, outBuffer);
+        int result;
+        try {
+            result = (int) BrotliEncoderCompressStream.invokeExact(state.encoder, operation,
+                    parameters.asSlice(AVAILABLE_IN_OFFSET), parameters.asSlice(NEXT_IN_OFFSET),
+                    parameters.asSlice(AVAILABLE_OUT_OFFSET), parameters.asSlice(NEXT_OUT_OFFSET),
+                    MemorySegment.NULL);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result == 0) {
+            throw new IOException(sm.getString("brotliOutputStream.error"));
+        }
+        int produced = BUFFER_SIZE - (int) parameters.get(ValueLayout.JAVA_LONG, AVAILABLE_OUT_OFFSET);
+        if (produced > 0) {
+            MemorySegment.copy(outBuffer, ValueLayout.JAVA_BYTE, 0, heapBuffer, 0, produced);
+            out.write(heapBuffer, 0, produced);
+        }
+    }
+
+
+    private boolean hasMoreOutput() throws IOException {
+        try {
+            return (int) BrotliEncoderHasMoreOutput.invokeExact(state.encoder) != 0;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+
+    private boolean isFinished() throws IOException {
+        try {
+            return (int) BrotliEncoderIsFinished.invokeExact(state.encoder) != 0;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+
+    private static class State implements Runnable {
+
+        private final Arena arena;
+        private final MemorySegment encoder;
+
+        private State(Arena arena, MemorySegment encoder) {
+            this.arena = arena;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!MemorySegment.NULL.equals(encoder)) {
+                    BrotliEncoderDestroyInstance.invokeExact(encoder);
+                }
+            } catch (Throwable t) {
+                log.warn(sm.getString("brotliOutputStream.freeFail"), t);
+            } finally {
+                arena.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.compression.panama;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+import org.apache.tomcat.util.compat.JrePlatform;
+
+/**
+ * Helpers to locate the native compression libraries.
+ */
+final class NativeLibraries {
+
+    private static final Arena LIBRARY_ARENA = Arena.ofAuto();
+
+    private NativeLibraries() {
+        // Utility class
+    }
+
+
+    /*
+     * Look up the library with the given name. Many Linux distributions only install the unversioned shared library
+     * name with the development package so fall back to the major version the runtime package provides.
+     */
+    static SymbolLookup lookup(String libraryName) {
+        String mappedName = System.mapLibraryName(libraryName);
+        try {
+            return SymbolLookup.libraryLookup(mappedName, LIBRARY_ARENA);
+        } catch (IllegalArgumentException iae) {
+            if (JrePlatform.IS_WINDOWS || JrePlatform.IS_MAC_OS) {
+                throw iae;
+            }
+            return SymbolLookup.libraryLookup(mappedName + ".1", LIBRARY_ARENA);
+        }
+    }
+
+
+    static MethodHandle downcall(SymbolLookup lookup, String name, FunctionDescriptor descriptor) {
+        return Linker.nativeLinker().downcallHandle(
+                lookup.find(name).orElseThrow(() -> new UnsatisfiedLinkError(name)), descriptor);
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.compression.panama;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Compression stream for the <code>zstd</code> content coding that uses the Zstandard library via the FFM API. The
+ * name of the library may be set with the
+ * <code>org.apache.tomcat.util.compression.panama.ZSTD_LIBRARY_NAME</code> system property.
+ */
+public class ZstdOutputStream extends OutputStream {
+
+    private static final Log log = LogFactory.getLog(ZstdOutputStream.class);
+    private static final StringManager sm = StringManager.getManager(ZstdOutputStream.class);
+
+    public static final String LIBRARY_NAME =
+            System.getProperty("org.apache.tomcat.util.compression.panama.ZSTD_LIBRARY_NAME", "zstd");
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // ZSTD_cParameter
+    private static final int ZSTD_c_compressionLevel = 100;
+    // ZSTD_EndDirective
+    private static final int ZSTD_e_continue = 0;
+    private static final int ZSTD_e_flush = 1;
+    private static final int ZSTD_e_end = 2;
+
+    // ZSTD_inBuffer and ZSTD_outBuffer are both { void*, size_t size, size_t pos }
+    private static final long BUFFER_STRUCT_SIZE = 24;
+    private static final long BUFFER_STRUCT_SIZE_OFFSET = 8;
+    private static final long BUFFER_STRUCT_POS_OFFSET = 16;
+
+    private static final MethodHandle ZSTD_createCCtx;
+    private static final MethodHandle ZSTD_freeCCtx;
+    private static final MethodHandle ZSTD_CCtx_setParameter;
+    private static final MethodHandle ZSTD_compressStream2;
+    private static final MethodHandle ZSTD_isError;
+
+    static {
+        MethodHandle createCCtx = null;
+        MethodHandle freeCCtx = null;
+        MethodHandle setParameter = null;
+        MethodHandle compressStream2 = null;
+        MethodHandle isError = null;
+        try {
+            SymbolLookup lookup = NativeLibraries.lookup(LIBRARY_NAME);
+            createCCtx = NativeLibraries.downcall(lookup, "ZSTD_createCCtx",
+                    FunctionDescriptor.of(ValueLayout.ADDRESS));
+            freeCCtx = NativeLibraries.downcall(lookup, "ZSTD_freeCCtx",
+                    FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+            setParameter = NativeLibraries.downcall(lookup, "ZSTD_CCtx_setParameter",
+                    FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
+                            ValueLayout.JAVA_INT));
+            compressStream2 = NativeLibraries.downcall(lookup, "ZSTD_compressStream2",
+                    FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+                            ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            isError = NativeLibraries.downcall(lookup, "ZSTD_isError",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG));
+        } catch (Throwable t) {
+            log.debug(sm.getString("zstdOutputStream.noLibrary", LIBRARY_NAME), t);
+            createCCtx = null;
+        }
+        ZSTD_createCCtx = createCCtx;
+        ZSTD_freeCCtx = freeCCtx;
+        ZSTD_CCtx_setParameter = setParameter;
+        ZSTD_compressStream2 = compressStream2;
+        ZSTD_isError = isError;
+    }
+
+
+    /**
+     * @return {@code true} if the Zstandard library has been loaded
+     */
+    public static boolean isAvailable() {
+        return ZSTD_createCCtx != null;
+    }
+
+
+    private final OutputStream out;
+    private final State state;
+    private final Cleanable cleanable;
+    private final MemorySegment inBuffer;
+    private final MemorySegment outBuffer;
+    private final MemorySegment inStruct;
+    private final MemorySegment outStruct;
+    private final byte[] heapBuffer = new byte[BUFFER_SIZE];
+    private boolean closed = false;
+
+
+    public ZstdOutputStream(OutputStream out, int level) throws IOException {
+        if (!isAvailable()) {
+            throw new IOException(sm.getString("zstdOutputStream.noLibrary", LIBRARY_NAME));
+        }
+        this.out = out;
+        Arena arena = Arena.ofShared();
+        MemorySegment cctx = createCCtx();
+        state = new State(arena, cctx);
+        cleanable = cleaner.register(this, state);
+        if (MemorySegment.NULL.equals(cctx)) {
+            cleanable.clean();
+            throw new IOException(sm.getString("zstdOutputStream.createFail"));
+        }
+        inBuffer = arena.allocate(BUFFER_SIZE);
+        outBuffer = arena.allocate(BUFFER_SIZE);
+        inStruct = arena.allocate(BUFFER_STRUCT_SIZE, 8);
+        outStruct = arena.allocate(BUFFER_STRUCT_SIZE, 8);
+        inStruct.set(ValueLayout.ADDRESS, 0, inBuffer);
+        outStruct.set(ValueLayout.ADDRESS, 0, outBuffer);
+        outStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_SIZE_OFFSET, BUFFER_SIZE);
+        try {
+            checkError((long) ZSTD_CCtx_setParameter.invokeExact(cctx, ZSTD_c_compressionLevel, level));
+        } catch (IOException ioe) {
+            cleanable.clean();
+            throw ioe;
+        } catch (Throwable t) {
+            cleanable.clean();
+            throw new IOException(t);
+        }
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, BUFFER_SIZE);
+            MemorySegment.copy(b, off, inBuffer, ValueLayout.JAVA_BYTE, 0, chunk);
+            inStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_SIZE_OFFSET, chunk);
+            inStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_POS_OFFSET, 0);
+            while (inStruct.get(ValueLayout.JAVA_LONG, BUFFER_STRUCT_POS_OFFSET) < chunk) {
+                compress(ZSTD_e_continue);
+            }
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        clearInput();
+        while (compress(ZSTD_e_flush) != 0) {
+            // Keep going until the internal buffers have been flushed
+        }
+        out.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            clearInput();
+            while (compress(ZSTD_e_end) != 0) {
+                // Keep going until the frame is complete
+            }
+        } finally {
+            closed = true;
+            cleanable.clean();
+        }
+    }
+
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(sm.getString("zstdOutputStream.closed"));
+        }
+    }
+
+
+    private void clearInput() {
+        inStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_SIZE_OFFSET, 0);
+        inStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_POS_OFFSET, 0);
+    }
+
+
+    /*
+     * Returns the number of bytes the library still has to flush for the given directive.
+     */
+    private long compress(int directive) throws IOException {
+        outStruct.set(ValueLayout.JAVA_LONG, BUFFER_STRUCT_POS_OFFSET, 0);
+        long remaining;
+        try {
+            remaining = (long) ZSTD_compressStream2.invokeExact(state.cctx, outStruct, inStruct, directive);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        checkError(remaining);
+        int produced = (int) outStruct.get(ValueLayout.JAVA_LONG, BUFFER_STRUCT_POS_OFFSET);
+        if (produced > 0) {
+            MemorySegment.copy(outBuffer, ValueLayout.JAVA_BYTE, 0, heapBuffer, 0, produced);
+            out.write(heapBuffer, 0, produced);
+        }
+        return remaining;
+    }
+
+
+    private static void checkError(long result) throws IOException {
+        int error;
+        try {
+            error = (int) ZSTD_isError.invokeExact(result);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (error != 0) {
+            throw new IOException(sm.getString("zstdOutputStream.error", Long.toString(-result)));
+        }
+    }
+
+
+    private static MemorySegment createCCtx() throws IOException {
+        try {
+            return (MemorySegment) ZSTD_createCCtx.invokeExact();
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+
+    private static class State implements Runnable {
+
+        private final Arena arena;
+        private final MemorySegment cctx;
+
+        private State(Arena arena, MemorySegment cctx) {
+            this.arena = arena;
+            this.cctx = cctx;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!MemorySegment.NULL.equals(cctx)) {
+                    long result = (long) ZSTD_freeCCtx.invokeExact(cctx);
+                    if (log.isDebugEnabled() && result != 0) {
+                        log.debug(sm.getString("zstdOutputStream.freeFail", Long.toString(result)));
+                    }
+                }
+            } catch (Throwable t) {
+                log.warn(sm.getString("zstdOutputStream.freeFail", t.toString()), t);
+            } finally {
+                arena.close();
+            }
+        }
+    }
+}
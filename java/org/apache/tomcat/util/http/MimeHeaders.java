@@ -19,13 +19,18 @@ package org.apache.tomcat.util.http;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.tomcat.util.buf.Ascii;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.CharChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.buf.StringCache.Site;
 import org.apache.tomcat.util.buf.StringUtils;
 import org.apache.tomcat.util.res.StringManager;
 
@@ -55,8 +60,9 @@ import org.apache.tomcat.util.res.StringManager;
  * or by name (returning an array of string values).
  * <p>
  * Headers are first parsed and stored in the order they are received. This is based on the fact that most servlets will
- * not directly access all headers, and most headers are single-valued. (the alternative - a hash or similar data
- * structure - will add an overhead that is not needed in most cases)
+ * not directly access all headers, and most headers are single-valued. Lookups by name use a linear scan while there are
+ * few headers. Once there are more, a hash index of the header names is built on the first lookup and reused until the
+ * headers are recycled, so that requests with many headers do not pay for a full scan on every lookup.
  * <p>
  * Apache seems to be using a similar method for storing and manipulating headers.
  *
@@ -72,6 +78,17 @@ public class MimeHeaders {
      */
     public static final int DEFAULT_HEADER_SIZE = 8;
 
+    /**
+     * Number of header fields from which lookups by name use a hash index rather than a linear scan.
+     */
+    private static final int INDEX_THRESHOLD = 16;
+
+    /**
+     * Hash of a name with characters used by the hash that are not US-ASCII. Such names can't be indexed since they may
+     * be equal, ignoring case, to names with a different case-folded hash.
+     */
+    private static final int NOT_INDEXABLE = -1;
+
     private static final StringManager sm = StringManager.getManager("org.apache.tomcat.util.http");
 
     /**
@@ -89,6 +106,17 @@ public class MimeHeaders {
      */
     private int limit = -1;
 
+    /*
+     * Index of the header fields by name, built on the first lookup once there are enough fields. It is an open
+     * addressing table of the first field for each case-folded name hash with the other fields that have the same hash
+     * linked, in order, using nextField.
+     */
+    private boolean indexed = false;
+    private boolean indexDisabled = false;
+    private int[] indexTable;
+    private int[] nameHashes;
+    private int[] nextField;
+
     /**
      * Creates a new MimeHeaders object using a default buffer size.
      */
@@ -119,6 +147,8 @@ public class MimeHeaders {
             headers[i].recycle();
         }
         count = 0;
+        indexed = false;
+        indexDisabled = false;
     }
 
     @Override
@@ -147,7 +177,7 @@ public class MimeHeaders {
         Map<String,String> result = new HashMap<>();
 
         for (int i = 0; i < count; i++) {
-            String name = headers[i].getName().toStringType();
+            String name = headers[i].getName().toStringType(Site.HEADER_NAME);
             String value = headers[i].getValue().toStringType();
             result.merge(name, value, StringUtils::join);
         }
@@ -158,7 +188,7 @@ public class MimeHeaders {
     public void filter(Set<String> allowedHeaders) {
         int j = -1;
         for (int i = 0; i < count; i++) {
-            String name = headers[i].getName().toStringType();
+            String name = headers[i].getName().toStringType(Site.HEADER_NAME);
             if (allowedHeaders.contains(name)) {
                 ++j;
                 if (j != i) {
@@ -167,6 +197,7 @@ public class MimeHeaders {
             }
         }
         count = ++j;
+        indexed = false;
     }
 
 
@@ -175,6 +206,7 @@ public class MimeHeaders {
             MimeHeaderField mhf = createHeader();
             mhf.getName().duplicate(source.getName(i));
             mhf.getValue().duplicate(source.getValue(i));
+            addToIndex(count - 1);
         }
     }
 
@@ -217,13 +249,19 @@ public class MimeHeaders {
      * @return the header index
      */
     public int findHeader(String name, int starting) {
-        // We can use a hash - but it's not clear how much
-        // benefit you can get - there is an overhead
-        // and the number of headers is small (4-5 ?)
-        // Another problem is that we'll pay the overhead
-        // of constructing the hashtable
-
-        // A custom search tree may be better
+        // Most requests have few headers and a linear scan is faster for
+        // those. Larger sets of headers use the index.
+        if (useIndex()) {
+            int hash = hash(name);
+            if (hash != NOT_INDEXABLE) {
+                for (int i = findFirst(hash); i >= 0; i = nextField[i]) {
+                    if (i >= starting && headers[i].getName().equalsIgnoreCase(name)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
         for (int i = starting; i < count; i++) {
             if (headers[i].getName().equalsIgnoreCase(name)) {
                 return i;
@@ -287,6 +325,7 @@ public class MimeHeaders {
     public MessageBytes addValue(String name) {
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        addToIndex(count - 1);
         return mh.getValue();
     }
 
@@ -303,6 +342,7 @@ public class MimeHeaders {
     public MessageBytes addValue(byte[] b, int startN, int len) {
         MimeHeaderField mhf = createHeader();
         mhf.getName().setBytes(b, startN, len);
+        addToIndex(count - 1);
         return mhf.getValue();
     }
 
@@ -314,19 +354,16 @@ public class MimeHeaders {
      * @return the message bytes container for the value
      */
     public MessageBytes setValue(String name) {
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCase(name)) {
-                        removeHeader(j--);
-                    }
+        int i = findHeader(name, 0);
+        if (i >= 0) {
+            for (int j = i + 1; j < count; j++) {
+                if (headers[j].getName().equalsIgnoreCase(name)) {
+                    removeHeader(j--);
                 }
-                return headers[i].getValue();
             }
+            return headers[i].getValue();
         }
-        MimeHeaderField mh = createHeader();
-        mh.getName().setString(name);
-        return mh.getValue();
+        return addValue(name);
     }
 
     // -------------------- Getting headers --------------------
@@ -340,12 +377,8 @@ public class MimeHeaders {
      * @return the value
      */
     public MessageBytes getValue(String name) {
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        int i = findHeader(name, 0);
+        return i >= 0 ? headers[i].getValue() : null;
     }
 
     /**
@@ -359,17 +392,14 @@ public class MimeHeaders {
      * @throws IllegalArgumentException if the header has multiple values
      */
     public MessageBytes getUniqueValue(String name) {
-        MessageBytes result = null;
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                if (result == null) {
-                    result = headers[i].getValue();
-                } else {
-                    throw new IllegalArgumentException();
-                }
-            }
+        int i = findHeader(name, 0);
+        if (i < 0) {
+            return null;
         }
-        return result;
+        if (findHeader(name, i + 1) >= 0) {
+            throw new IllegalArgumentException();
+        }
+        return headers[i].getValue();
     }
 
     public String getHeader(String name) {
@@ -385,7 +415,7 @@ public class MimeHeaders {
      * @param name the name of the header field to be removed
      */
     public void removeHeader(String name) {
-        for (int i = 0; i < count; i++) {
+        for (int i = findHeader(name, 0); i >= 0 && i < count; i++) {
             if (headers[i].getName().equalsIgnoreCase(name)) {
                 removeHeader(i--);
             }
@@ -416,6 +446,164 @@ public class MimeHeaders {
 
         // Reduce the count
         count--;
+
+        // The remaining headers have moved
+        indexed = false;
+    }
+
+
+    // -------------------- Index --------------------
+
+    private boolean useIndex() {
+        if (!indexed && !indexDisabled && count >= INDEX_THRESHOLD) {
+            buildIndex();
+        }
+        return indexed;
+    }
+
+
+    private void buildIndex() {
+        int tableSize = Integer.highestOneBit(headers.length * 4 - 1);
+        if (indexTable == null || indexTable.length != tableSize) {
+            indexTable = new int[tableSize];
+        } else {
+            Arrays.fill(indexTable, 0);
+        }
+        if (nameHashes == null || nameHashes.length < headers.length) {
+            nameHashes = new int[headers.length];
+            nextField = new int[headers.length];
+        }
+        for (int i = 0; i < count; i++) {
+            int hash = hash(headers[i].getName());
+            if (hash == NOT_INDEXABLE) {
+                indexed = false;
+                indexDisabled = true;
+                return;
+            }
+            insert(i, hash);
+        }
+        indexed = true;
+    }
+
+
+    /*
+     * Add the header field that has just been created to the index, if the index has been built.
+     */
+    private void addToIndex(int i) {
+        if (!indexed) {
+            return;
+        }
+        if (i >= nameHashes.length || count * 2 > indexTable.length) {
+            // The header fields array has grown - rebuild at the new size
+            buildIndex();
+            return;
+        }
+        int hash = hash(headers[i].getName());
+        if (hash == NOT_INDEXABLE) {
+            indexed = false;
+            indexDisabled = true;
+        } else {
+            insert(i, hash);
+        }
+    }
+
+
+    private void insert(int i, int hash) {
+        nameHashes[i] = hash;
+        nextField[i] = -1;
+        int mask = indexTable.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            int first = indexTable[slot] - 1;
+            if (first < 0) {
+                indexTable[slot] = i + 1;
+                return;
+            }
+            if (nameHashes[first] == hash) {
+                // Append to the fields with the same hash
+                int last = first;
+                while (nextField[last] >= 0) {
+                    last = nextField[last];
+                }
+                nextField[last] = i;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    private int findFirst(int hash) {
+        int mask = indexTable.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            int first = indexTable[slot] - 1;
+            if (first < 0 || nameHashes[first] == hash) {
+                return first;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /*
+     * The hash only uses the length and a few characters of the name so that it is cheap to compute for every header
+     * field. Names that only differ elsewhere share a hash and are told apart when the names are compared.
+     */
+    private static int hash(String name) {
+        if (name == null) {
+            return 0;
+        }
+        int len = name.length();
+        if (len == 0) {
+            return 0;
+        }
+        return hash(len, name.charAt(0), name.charAt(len >> 1), name.charAt(len - 1));
+    }
+
+
+    private static int hash(MessageBytes name) {
+        switch (name.getType()) {
+            case MessageBytes.T_BYTES: {
+                ByteChunk bc = name.getByteChunk();
+                int len = bc.getLength();
+                if (len == 0) {
+                    return 0;
+                }
+                byte[] b = bc.getBuffer();
+                int start = bc.getStart();
+                return hash(len, b[start] & 0xFF, b[start + (len >> 1)] & 0xFF, b[start + len - 1] & 0xFF);
+            }
+            case MessageBytes.T_CHARS: {
+                CharChunk cc = name.getCharChunk();
+                int len = cc.getLength();
+                if (len == 0) {
+                    return 0;
+                }
+                char[] c = cc.getBuffer();
+                int start = cc.getStart();
+                return hash(len, c[start], c[start + (len >> 1)], c[start + len - 1]);
+            }
+            default:
+                return hash(name.getString());
+        }
+    }
+
+
+    private static int hash(int len, int first, int middle, int last) {
+        if ((first | middle | last) > 127) {
+            return NOT_INDEXABLE;
+        }
+        int result = len;
+        result = 31 * result + Ascii.toLower(first);
+        result = 31 * result + Ascii.toLower(middle);
+        result = 31 * result + Ascii.toLower(last);
+        return result & Integer.MAX_VALUE;
     }
 
 }
@@ -440,7 +628,7 @@ class NamesEnumerator implements Enumeration<String> {
     private void findNext() {
         next = null;
         for (; pos < size; pos++) {
-            next = headers.getName(pos).toStringType();
+            next = headers.getName(pos).toStringType(Site.HEADER_NAME);
             for (int j = 0; j < pos; j++) {
                 if (headers.getName(j).equalsIgnoreCase(next)) {
                     // duplicate.
@@ -20,27 +20,60 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
-import org.apache.tomcat.util.buf.StringUtils;
+import org.apache.tomcat.util.buf.StringCache.Site;
 import org.apache.tomcat.util.buf.UDecoder;
 import org.apache.tomcat.util.res.StringManager;
 
+/**
+ * The request parameters obtained from the query string and, for form posts, the request body.
+ * <p>
+ * Parameter values are held in arrays indexed in the order the values were added and retained, like the arrays of
+ * {@link MimeHeaders}, across requests. The values of each name are chained through these arrays. When lazy decoding
+ * is enabled, values parsed from bytes are not decoded as they are parsed. Only the location of the raw value in the
+ * source bytes is recorded and the value is decoded the first time it is accessed. Values that are never accessed,
+ * which is common for large forms where an application only needs some of the fields, are never converted to
+ * {@link String}s. As a consequence, any bytes passed to {@link #processParameters(byte[], int, int)} must not be
+ * modified until this object is recycled and a value that cannot be decoded is only reported when it is accessed.
+ */
 public final class Parameters {
 
     private static final Log log = LogFactory.getLog(Parameters.class);
 
     private static final StringManager sm = StringManager.getManager("org.apache.tomcat.util.http");
 
-    private final Map<String,ArrayList<String>> paramHashValues = new LinkedHashMap<>();
+    private static final int INITIAL_SIZE = 16;
+    // Larger arrays are discarded on recycle so a single large form does not increase memory use permanently
+    private static final int MAX_RETAINED_SIZE = 1024;
+
+    // States of a parameter value
+    private static final byte VALUE_DECODED = 0;
+    private static final byte VALUE_RAW = 1;
+    private static final byte VALUE_RAW_URL_ENCODED = 2;
+    private static final byte VALUE_INVALID = 3;
+
+    private final Map<String,NameIndex> paramNames = new LinkedHashMap<>();
+
+    private String[] valueNames = new String[INITIAL_SIZE];
+    private String[] values = new String[INITIAL_SIZE];
+    private byte[] valueStates = new byte[INITIAL_SIZE];
+    private byte[][] valueSources = new byte[INITIAL_SIZE][];
+    private int[] valueStarts = new int[INITIAL_SIZE];
+    private int[] valueEnds = new int[INITIAL_SIZE];
+    private Charset[] valueCharsets = new Charset[INITIAL_SIZE];
+    private int[] nextValues = new int[INITIAL_SIZE];
+
+    private boolean lazyDecoding = false;
     private boolean didQueryParameters = false;
 
     private MessageBytes queryMB;
@@ -66,6 +99,25 @@ public final class Parameters {
         this.limit = limit;
     }
 
+    /**
+     * @return {@code true} if the decoding of parameter values is deferred until the values are accessed
+     */
+    public boolean getLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Configure whether the decoding of parameter values parsed from bytes should be deferred until the values are
+     * accessed. When enabled, the bytes passed to {@link #processParameters(byte[], int, int)} must not be modified
+     * until this object is recycled and values that cannot be decoded trigger an {@link InvalidParameterException}
+     * when they are accessed rather than when they are parsed.
+     *
+     * @param lazyDecoding {@code true} to decode values when they are first accessed
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
     public Charset getCharset() {
         return charset;
     }
@@ -98,8 +150,16 @@ public final class Parameters {
 
 
     public void recycle() {
+        if (valueNames.length > MAX_RETAINED_SIZE) {
+            allocate(INITIAL_SIZE);
+        } else {
+            Arrays.fill(valueNames, 0, parameterCount, null);
+            Arrays.fill(values, 0, parameterCount, null);
+            Arrays.fill(valueSources, 0, parameterCount, null);
+            Arrays.fill(valueCharsets, 0, parameterCount, null);
+        }
         parameterCount = 0;
-        paramHashValues.clear();
+        paramNames.clear();
         didQueryParameters = false;
         charset = DEFAULT_BODY_CHARSET;
         decodedQuery.recycle();
@@ -113,31 +173,50 @@ public final class Parameters {
     public String[] getParameterValues(String name) {
         handleQueryParameters();
         // no "facade"
-        ArrayList<String> values = paramHashValues.get(name);
-        if (values == null) {
+        NameIndex nameIndex = paramNames.get(name);
+        if (nameIndex == null) {
             return null;
         }
-        return values.toArray(new String[0]);
+        String[] result = new String[nameIndex.count];
+        int index = nameIndex.first;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getValue(index, true);
+            index = nextValues[index];
+        }
+        return result;
     }
 
     public Enumeration<String> getParameterNames() {
         handleQueryParameters();
-        return Collections.enumeration(paramHashValues.keySet());
+        return Collections.enumeration(paramNames.keySet());
     }
 
     public String getParameter(String name) {
         handleQueryParameters();
-        ArrayList<String> values = paramHashValues.get(name);
-        if (values != null) {
-            if (values.isEmpty()) {
-                return "";
-            }
-            return values.getFirst();
+        NameIndex nameIndex = paramNames.get(name);
+        if (nameIndex != null) {
+            return getValue(nameIndex.first, true);
         } else {
             return null;
         }
     }
 
+    /**
+     * Pass every parameter to the given action, in the order the parameters were added. Unlike the other methods that
+     * provide access to the values, this method does not retain the values it decodes so it is the most efficient way
+     * to process each parameter once when lazy decoding is enabled.
+     *
+     * @param action The action to perform for each parameter name and value
+     *
+     * @throws InvalidParameterException if a value cannot be decoded
+     */
+    public void forEach(BiConsumer<String,String> action) {
+        handleQueryParameters();
+        for (int i = 0; i < parameterCount; i++) {
+            action.accept(valueNames[i], getValue(i, false));
+        }
+    }
+
     // -------------------- Processing --------------------
     /**
      * Process the query string into parameters
@@ -173,13 +252,118 @@ public final class Parameters {
             return;
         }
 
+        int index = addValue(key);
+        values[index] = value;
+        valueStates[index] = VALUE_DECODED;
+    }
+
+    private void addRawParameter(String key, byte[] bytes, int start, int end, boolean urlEncoded, Charset charset) {
+        int index = addValue(key);
+        valueStates[index] = urlEncoded ? VALUE_RAW_URL_ENCODED : VALUE_RAW;
+        valueSources[index] = bytes;
+        valueStarts[index] = start;
+        valueEnds[index] = end;
+        valueCharsets[index] = charset;
+    }
+
+    private int addValue(String key) {
         if (limit > -1 && parameterCount >= limit) {
             // Processing this parameter will push us over the limit.
             throw new InvalidParameterException(sm.getString("parameters.maxCountFail", Integer.valueOf(limit)));
         }
-        parameterCount++;
+        int index = parameterCount++;
+        if (index == valueNames.length) {
+            expand();
+        }
+        valueNames[index] = key;
+        nextValues[index] = -1;
+
+        NameIndex nameIndex = paramNames.get(key);
+        if (nameIndex == null) {
+            paramNames.put(key, new NameIndex(index));
+        } else {
+            nextValues[nameIndex.last] = index;
+            nameIndex.last = index;
+            nameIndex.count++;
+        }
+        return index;
+    }
+
+    private String getValue(int index, boolean retain) {
+        byte state = valueStates[index];
+        if (state == VALUE_DECODED) {
+            return values[index];
+        }
+        if (state == VALUE_INVALID) {
+            throw new InvalidParameterException(sm.getString("parameters.decodeFail.lazy", valueNames[index]));
+        }
+
+        int start = valueStarts[index];
+        int end = valueEnds[index];
+        tmpValue.setBytes(valueSources[index], start, end - start);
+        // See processParameters() for why a copy is taken
+        if (log.isDebugEnabled()) {
+            try {
+                origValue.append(valueSources[index], start, end - start);
+            } catch (IOException ioe) {
+                // Should never happen...
+                log.error(sm.getString("parameters.copyFail"), ioe);
+            }
+        }
+        try {
+            if (state == VALUE_RAW_URL_ENCODED) {
+                // Decoding takes place in place so it must only happen once
+                urlDecode(tmpValue);
+                valueEnds[index] = tmpValue.getEnd();
+                valueStates[index] = VALUE_RAW;
+            }
+            tmpValue.setCharset(valueCharsets[index]);
+            String value = tmpValue.toString(CodingErrorAction.REPORT, CodingErrorAction.REPORT);
+            if (retain) {
+                values[index] = value;
+                valueStates[index] = VALUE_DECODED;
+                valueSources[index] = null;
+                valueCharsets[index] = null;
+            }
+            return value;
+        } catch (IOException ioe) {
+            valueStates[index] = VALUE_INVALID;
+            String message;
+            if (log.isDebugEnabled()) {
+                message = sm.getString("parameters.decodeFail.debug", valueNames[index], origValue.toString());
+            } else {
+                message = sm.getString("parameters.decodeFail.info", valueNames[index], tmpValue.toString());
+            }
+            throw new InvalidParameterException(message, ioe);
+        } finally {
+            tmpValue.recycle();
+            if (log.isDebugEnabled()) {
+                origValue.recycle();
+            }
+        }
+    }
+
+    private void expand() {
+        int size = valueNames.length * 2;
+        valueNames = Arrays.copyOf(valueNames, size);
+        values = Arrays.copyOf(values, size);
+        valueStates = Arrays.copyOf(valueStates, size);
+        valueSources = Arrays.copyOf(valueSources, size);
+        valueStarts = Arrays.copyOf(valueStarts, size);
+        valueEnds = Arrays.copyOf(valueEnds, size);
+        valueCharsets = Arrays.copyOf(valueCharsets, size);
+        nextValues = Arrays.copyOf(nextValues, size);
+    }
 
-        paramHashValues.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+    private void allocate(int size) {
+        valueNames = new String[size];
+        values = new String[size];
+        valueStates = new byte[size];
+        valueSources = new byte[size][];
+        valueStarts = new int[size];
+        valueEnds = new int[size];
+        valueCharsets = new Charset[size];
+        nextValues = new int[size];
     }
 
     public void setURLDecoder(UDecoder u) {
@@ -197,6 +381,14 @@ public final class Parameters {
     private static final Charset DEFAULT_URI_CHARSET = StandardCharsets.UTF_8;
 
 
+    /**
+     * Process the given bytes, encoded using the current body character set, into parameters.
+     *
+     * @param bytes The bytes to process. If lazy decoding is enabled, they must not be modified until this object is
+     *                  recycled.
+     * @param start The offset of the first byte to process
+     * @param len   The number of bytes to process
+     */
     public void processParameters(byte[] bytes, int start, int len) {
         processParameters(bytes, start, len, charset);
     }
@@ -327,9 +519,12 @@ public final class Parameters {
                     urlDecode(tmpName);
                 }
                 tmpName.setCharset(charset);
-                name = tmpName.toString(CodingErrorAction.REPORT, CodingErrorAction.REPORT);
+                name = tmpName.toString(CodingErrorAction.REPORT, CodingErrorAction.REPORT, Site.PARAMETER_NAME);
 
-                if (valueStart >= 0) {
+                if (valueStart >= 0 && lazyDecoding) {
+                    addRawParameter(name, bytes, valueStart, valueEnd, decodeValue, charset);
+                    continue;
+                } else if (valueStart >= 0) {
                     if (decodeValue) {
                         urlDecode(tmpValue);
                     }
@@ -385,11 +580,37 @@ public final class Parameters {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String,ArrayList<String>> e : paramHashValues.entrySet()) {
+        for (Map.Entry<String,NameIndex> e : paramNames.entrySet()) {
             sb.append(e.getKey()).append('=');
-            StringUtils.join(e.getValue(), ',', sb);
+            int index = e.getValue().first;
+            while (index > -1) {
+                if (valueStates[index] == VALUE_DECODED) {
+                    sb.append(values[index]);
+                } else if (valueStates[index] != VALUE_INVALID) {
+                    // Not decoded yet
+                    sb.append(new String(valueSources[index], valueStarts[index],
+                            valueEnds[index] - valueStarts[index], valueCharsets[index]));
+                }
+                index = nextValues[index];
+                if (index > -1) {
+                    sb.append(',');
+                }
+            }
             sb.append('\n');
         }
         return sb.toString();
     }
+
+
+    private static final class NameIndex {
+        private final int first;
+        private int last;
+        private int count;
+
+        NameIndex(int first) {
+            this.first = first;
+            this.last = first;
+            this.count = 1;
+        }
+    }
 }
@@ -60,12 +60,39 @@ public class Rfc6265CookieProcessor extends CookieProcessorBase {
     }
 
 
+    private boolean lazyParsing = false;
+
+
     @Override
     public Charset getCharset() {
         return StandardCharsets.UTF_8;
     }
 
 
+    /**
+     * Are the values of cookies parsed only when the cookies are used?
+     *
+     * @return {@code true} if only the cookie names are parsed when the Cookie headers are processed, otherwise
+     *             {@code false}
+     */
+    public boolean getLazyParsing() {
+        return lazyParsing;
+    }
+
+
+    /**
+     * Configure whether the Cookie headers are fully parsed when they are processed or whether only the cookie names
+     * are parsed, leaving the values to be parsed when the cookies are used. With lazy parsing, looking up the session
+     * cookie does not parse the other cookies of the request but invalid cookies are only logged if the application
+     * accesses all the cookies.
+     *
+     * @param lazyParsing {@code true} to parse only the cookie names when the Cookie headers are processed
+     */
+    public void setLazyParsing(boolean lazyParsing) {
+        this.lazyParsing = lazyParsing;
+    }
+
+
     @Override
     public void parseCookieHeader(MimeHeaders headers, ServerCookies serverCookies) {
 
@@ -92,8 +119,13 @@ public class Rfc6265CookieProcessor extends CookieProcessorBase {
                 }
                 ByteChunk bc = cookieValue.getByteChunk();
 
-                Cookie.parseCookie(bc.getBytes(), bc.getStart(), bc.getLength(), serverCookies,
-                        getCookiesWithoutEqualsInternal());
+                if (lazyParsing) {
+                    Cookie.indexCookie(bc.getBytes(), bc.getStart(), bc.getLength(), serverCookies,
+                            getCookiesWithoutEqualsInternal());
+                } else {
+                    Cookie.parseCookie(bc.getBytes(), bc.getStart(), bc.getLength(), serverCookies,
+                            getCookiesWithoutEqualsInternal());
+                }
             }
 
             // search from the next position
@@ -38,6 +38,9 @@ public class ServerCookie implements Serializable {
     private final MessageBytes name = MessageBytes.newInstance();
     private final MessageBytes value = MessageBytes.newInstance();
 
+    // Set while the value holds the unparsed remainder of the cookie-pair
+    private transient boolean unparsed = false;
+
     public ServerCookie() {
         // NOOP
     }
@@ -45,6 +48,7 @@ public class ServerCookie implements Serializable {
     public void recycle() {
         name.recycle();
         value.recycle();
+        unparsed = false;
     }
 
     public MessageBytes getName() {
@@ -56,6 +60,15 @@ public class ServerCookie implements Serializable {
     }
 
 
+    boolean isUnparsed() {
+        return unparsed;
+    }
+
+    void setUnparsed(boolean unparsed) {
+        this.unparsed = unparsed;
+    }
+
+
     // -------------------- utils --------------------
 
     @Override
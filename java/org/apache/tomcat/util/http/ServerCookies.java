@@ -16,9 +16,15 @@
  */
 package org.apache.tomcat.util.http;
 
+import org.apache.tomcat.util.http.parser.Cookie;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
+ * The cookies of a request. Cookies may be registered with their value fully parsed or, to avoid parsing the cookies
+ * that are never used, with only their name parsed. In the latter case, the value of a cookie is parsed when the cookie
+ * is found with {@link #findCookie(String, int)} and the values of all the remaining cookies are parsed, dropping any
+ * invalid cookies, when {@link #getCookieCount()} is called.
+ * <p>
  * This class is not thread-safe.
  */
 public class ServerCookies {
@@ -30,6 +36,9 @@ public class ServerCookies {
     private int cookieCount = 0;
     private int limit = 200;
 
+    private int unparsedCount = 0;
+    private CookiesWithoutEquals cookiesWithoutEquals = CookiesWithoutEquals.IGNORE;
+
 
     public ServerCookies(int initialSize) {
         serverCookies = new ServerCookie[initialSize];
@@ -64,16 +73,73 @@ public class ServerCookies {
     }
 
 
+    /**
+     * Register a new cookie for which only the name has been parsed. The caller must set the name and set the value to
+     * the unparsed remainder of the cookie-pair following the name.
+     *
+     * @param cookiesWithoutEquals How to handle the cookie if the unparsed value does not contain an equals character
+     *
+     * @return the new cookie
+     *
+     * @see Cookie#parseCookieValue(org.apache.tomcat.util.buf.MessageBytes, CookiesWithoutEquals)
+     */
+    public ServerCookie addUnparsedCookie(CookiesWithoutEquals cookiesWithoutEquals) {
+        ServerCookie c = addCookie();
+        c.setUnparsed(true);
+        unparsedCount++;
+        this.cookiesWithoutEquals = cookiesWithoutEquals;
+        return c;
+    }
+
+
+    /**
+     * Obtain a cookie.
+     *
+     * @param idx The index of the cookie. Either less than the value returned by the last call to
+     *                {@link #getCookieCount()} or a value returned by {@link #findCookie(String, int)} since that
+     *                call.
+     *
+     * @return the cookie
+     */
     public ServerCookie getCookie(int idx) {
         return serverCookies[idx];
     }
 
 
+    /**
+     * Obtain the number of cookies, parsing the values of any cookies that have only been indexed so far.
+     *
+     * @return the number of valid cookies
+     */
     public int getCookieCount() {
+        if (unparsedCount > 0) {
+            parseValues();
+        }
         return cookieCount;
     }
 
 
+    /**
+     * Find the next valid cookie with the given name. Only the value of cookies with the given name is parsed, if
+     * required. This method does not allocate any object.
+     *
+     * @param name  The name of the cookie
+     * @param start The index from which to search
+     *
+     * @return the index of the cookie or {@code -1} if there is no such cookie. The index remains valid until the next
+     *             call to {@link #getCookieCount()}.
+     */
+    public int findCookie(String name, int start) {
+        for (int i = start; i < cookieCount; i++) {
+            ServerCookie c = serverCookies[i];
+            if (c.getName().equals(name) && (!c.isUnparsed() || parseValue(c))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
     public void setLimit(int limit) {
         this.limit = limit;
         if (limit > -1 && serverCookies.length > limit && cookieCount <= limit) {
@@ -90,5 +156,37 @@ public class ServerCookies {
             serverCookies[i].recycle();
         }
         cookieCount = 0;
+        unparsedCount = 0;
+    }
+
+
+    /*
+     * Returns false and recycles the cookie, so it no longer matches any name, if the cookie is invalid.
+     */
+    private boolean parseValue(ServerCookie c) {
+        c.setUnparsed(false);
+        unparsedCount--;
+        if (Cookie.parseCookieValue(c.getValue(), cookiesWithoutEquals)) {
+            return true;
+        }
+        c.recycle();
+        return false;
+    }
+
+
+    private void parseValues() {
+        int valid = 0;
+        for (int i = 0; i < cookieCount; i++) {
+            ServerCookie c = serverCookies[i];
+            if (c.isUnparsed()) {
+                parseValue(c);
+            }
+            if (!c.getName().isNull()) {
+                // Retain the cookie, keeping the ServerCookie it replaces for reuse
+                serverCookies[i] = serverCookies[valid];
+                serverCookies[valid++] = c;
+            }
+        }
+        cookieCount = valid;
     }
 }
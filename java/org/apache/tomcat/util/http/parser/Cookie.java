@@ -20,6 +20,8 @@ import java.nio.charset.StandardCharsets;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
 import org.apache.tomcat.util.http.CookiesWithoutEquals;
 import org.apache.tomcat.util.http.ServerCookie;
 import org.apache.tomcat.util.http.ServerCookies;
@@ -159,6 +161,101 @@ public class Cookie {
     }
 
 
+    /**
+     * Index byte array as cookie header. Only the cookie names are parsed. The remainder of each cookie-pair is parsed
+     * by {@link #parseCookieValue(MessageBytes, CookiesWithoutEquals)} when the cookie is first accessed via the
+     * {@link ServerCookies} structure.
+     *
+     * @param bytes                Source
+     * @param offset               Start point in array
+     * @param len                  Number of bytes to read
+     * @param serverCookies        Structure to store results
+     * @param cookiesWithoutEquals How to handle a cookie name-value-pair that does not contain an equals character
+     */
+    public static void indexCookie(byte[] bytes, int offset, int len, ServerCookies serverCookies,
+            CookiesWithoutEquals cookiesWithoutEquals) {
+
+        // Each cookie-pair, valid or not, ends at the next semicolon
+        int limit = offset + len;
+        int pos = offset;
+        while (pos < limit) {
+            int nameStart = pos;
+            while (nameStart < limit && (bytes[nameStart] == TAB_BYTE || bytes[nameStart] == SPACE_BYTE)) {
+                nameStart++;
+            }
+            int nameEnd = nameStart;
+            while (nameEnd < limit && HttpParser.isToken(bytes[nameEnd])) {
+                nameEnd++;
+            }
+            int end = nameEnd;
+            while (end < limit && bytes[end] != SEMICOLON_BYTE) {
+                end++;
+            }
+            if (nameEnd > nameStart) {
+                ServerCookie sc = serverCookies.addUnparsedCookie(cookiesWithoutEquals);
+                sc.getName().setBytes(bytes, nameStart, nameEnd - nameStart);
+                sc.getValue().setBytes(bytes, nameEnd, end - nameEnd);
+            }
+            pos = end + 1;
+        }
+    }
+
+
+    /**
+     * Parse the value of a cookie indexed by {@link #indexCookie(byte[], int, int, ServerCookies,
+     * CookiesWithoutEquals)}.
+     *
+     * @param value                On entry, the unparsed remainder of the cookie-pair following the name. On exit, the
+     *                                 value of the cookie if it is valid.
+     * @param cookiesWithoutEquals How to handle a cookie name-value-pair that does not contain an equals character
+     *
+     * @return {@code true} if the cookie is valid and should be retained, otherwise {@code false}
+     */
+    public static boolean parseCookieValue(MessageBytes value, CookiesWithoutEquals cookiesWithoutEquals) {
+        ByteChunk bc = value.getByteChunk();
+        ByteBuffer bb = new ByteBuffer(bc.getBytes(), bc.getStart(), bc.getLength());
+        int start = bb.position();
+        ByteBuffer result = null;
+
+        skipLWS(bb);
+
+        if (skipByte(bb, EQUALS_BYTE) == SkipResult.FOUND) {
+            skipLWS(bb);
+            result = readCookieValueRfc6265(bb);
+            if (result == null) {
+                // Invalid cookie value
+                bb.position(bb.limit());
+                logInvalidHeader(start, bb);
+                return false;
+            }
+            skipLWS(bb);
+        }
+
+        if (bb.hasRemaining()) {
+            // Invalid cookie
+            bb.position(bb.limit());
+            logInvalidHeader(start, bb);
+            return false;
+        }
+
+        if (result == null) {
+            switch (cookiesWithoutEquals) {
+                case IGNORE: {
+                    // This name-value-pair is a NO-OP
+                    return false;
+                }
+                case NAME: {
+                    value.setBytes(EMPTY_BYTES, 0, EMPTY_BYTES.length);
+                    return true;
+                }
+            }
+            return false;
+        }
+        value.setBytes(result.array(), result.position(), result.remaining());
+        return true;
+    }
+
+
     private static void skipLWS(ByteBuffer bb) {
         while (bb.hasRemaining()) {
             byte b = bb.get();
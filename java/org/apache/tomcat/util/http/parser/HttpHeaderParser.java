@@ -116,6 +116,12 @@ public class HttpHeaderParser {
         // Header name is always US-ASCII
         //
 
+        if (headerParsePos == HeaderParsePosition.HEADER_NAME) {
+            // Fast path for the common characters, lower cased in place
+            ByteBuffer buffer = source.getHeaderByteBuffer();
+            buffer.position(SwarScanner.scanHeaderName(buffer.array(), buffer.position(), buffer.limit()));
+        }
+
         while (headerParsePos == HeaderParsePosition.HEADER_NAME) {
 
             // Read new bytes if needed
@@ -194,6 +200,10 @@ public class HttpHeaderParser {
             }
             if (headerParsePos == HeaderParsePosition.HEADER_VALUE) {
 
+                if (chr != CR) {
+                    scanFieldContent();
+                }
+
                 // Reading bytes until the end of the line
                 boolean eol = false;
                 while (!eol) {
@@ -267,6 +277,38 @@ public class HttpHeaderParser {
     }
 
 
+    /*
+     * Fast path for header values that processes the blocks of bytes that do not contain any control character the
+     * same way as the loop in parseHeader() would process them one byte at a time.
+     */
+    private void scanFieldContent() {
+        ByteBuffer buffer = source.getHeaderByteBuffer();
+        byte[] buf = buffer.array();
+        int start = buffer.position();
+        int pos = start;
+        int limit = buffer.limit();
+        while (limit - pos >= SwarScanner.BLOCK_SIZE) {
+            long block = SwarScanner.read(buf, pos);
+            if (!SwarScanner.isFieldContent(block)) {
+                break;
+            }
+            if (headerData.realPos != pos) {
+                System.arraycopy(buf, pos, buf, headerData.realPos, SwarScanner.BLOCK_SIZE);
+            }
+            int lastNonSpace = SwarScanner.lastIndexOfNonSpace(block);
+            if (lastNonSpace >= 0) {
+                headerData.lastSignificantChar = headerData.realPos + lastNonSpace + 1;
+            }
+            headerData.realPos += SwarScanner.BLOCK_SIZE;
+            pos += SwarScanner.BLOCK_SIZE;
+        }
+        if (pos > start) {
+            chr = buf[pos - 1];
+            buffer.position(pos);
+        }
+    }
+
+
     private HeaderParseStatus skipLine() throws IOException {
         // Parse the rest of the invalid header so we can construct a useful
         // exception and/or debug message.
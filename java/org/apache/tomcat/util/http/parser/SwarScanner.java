@@ -0,0 +1,173 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Scans HTTP request bytes eight at a time by reading them as a {@code long} and testing all the bytes of the block
+ * with a few arithmetic operations (SIMD within a register). The methods only recognise the characters that are common
+ * in requests sent by browsers and API clients. Whenever a block contains anything else, such as a delimiter, a line
+ * terminator or an invalid character, scanning stops at the start of that block so that the caller can process the
+ * remaining bytes one at a time with the usual, complete, validation.
+ * <p>
+ * Bytes are read in little endian order so byte {@code i} of a block is held in bits {@code 8i} to {@code 8i+7}. The
+ * byte masks returned by the private methods have the high bit of each byte set when the byte matches.
+ */
+public final class SwarScanner {
+
+    public static final int BLOCK_SIZE = Long.BYTES;
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long CASE_BITS = 0x2020202020202020L;
+
+
+    private SwarScanner() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    /**
+     * Skip the blocks of header name bytes that are ASCII letters, digits or {@code -}, converting upper case letters
+     * to lower case in place.
+     *
+     * @param buf   The buffer containing the header name
+     * @param pos   The position of the first byte to scan
+     * @param limit The position after the last byte that may be scanned
+     *
+     * @return the position of the first byte that has not been scanned
+     */
+    public static int scanHeaderName(byte[] buf, int pos, int limit) {
+        while (limit - pos >= BLOCK_SIZE) {
+            long block = read(buf, pos);
+            long valid = between(block | CASE_BITS, 'a', 'z') | between(block, '0', '9') | equal(block, '-');
+            if (valid != HIGH_BITS) {
+                break;
+            }
+            long upperCase = between(block, 'A', 'Z');
+            if (upperCase != 0) {
+                // The high bit of each upper case byte shifted to the case bit
+                write(buf, pos, block | (upperCase >>> 2));
+            }
+            pos += BLOCK_SIZE;
+        }
+        return pos;
+    }
+
+
+    /**
+     * Skip the blocks of request target bytes that are ASCII letters, digits or one of {@code -./_~%=&}. All of these
+     * characters are valid in both the path and the query string of a request target regardless of the configuration
+     * of the parser.
+     *
+     * @param buf   The buffer containing the request target
+     * @param pos   The position of the first byte to scan
+     * @param limit The position after the last byte that may be scanned
+     *
+     * @return the position of the first byte that has not been scanned
+     */
+    public static int scanRequestTarget(byte[] buf, int pos, int limit) {
+        while (limit - pos >= BLOCK_SIZE) {
+            long block = read(buf, pos);
+            // '-', '.', '/' and the digits are contiguous
+            long valid = between(block | CASE_BITS, 'a', 'z') | between(block, '-', '9') | equal(block, '_') |
+                    equal(block, '~') | equal(block, '%') | equal(block, '=') | equal(block, '&');
+            if (valid != HIGH_BITS) {
+                break;
+            }
+            pos += BLOCK_SIZE;
+        }
+        return pos;
+    }
+
+
+    /**
+     * Read a block of bytes.
+     *
+     * @param buf The buffer
+     * @param pos The position of the first byte of the block
+     *
+     * @return the block
+     */
+    public static long read(byte[] buf, int pos) {
+        return (long) LONG_VIEW.get(buf, pos);
+    }
+
+
+    /**
+     * Is every byte of the block valid in a header value without being a control character? That excludes CR, LF and
+     * HT which all require special handling.
+     *
+     * @param block The block to test
+     *
+     * @return {@code true} if the block does not contain any control character
+     */
+    public static boolean isFieldContent(long block) {
+        return (lessThan(block, ' ') | equal(block, 0x7F)) == 0;
+    }
+
+
+    /**
+     * Find the last byte of the block that is not a space.
+     *
+     * @param block The block to search
+     *
+     * @return the index of the last byte that is not a space or -1 if all the bytes are spaces
+     */
+    public static int lastIndexOfNonSpace(long block) {
+        long nonSpace = ~equal(block, ' ') & HIGH_BITS;
+        return (Long.SIZE - 1 - Long.numberOfLeadingZeros(nonSpace)) >> 3;
+    }
+
+
+    private static void write(byte[] buf, int pos, long block) {
+        LONG_VIEW.set(buf, pos, block);
+    }
+
+
+    /*
+     * Sets the high bit of each byte that is equal to b. This is exact: unlike the usual zero byte test, carries can't
+     * propagate to the next byte.
+     */
+    private static long equal(long block, int b) {
+        long x = block ^ (ONES * b);
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+
+    /*
+     * Sets the high bit of each byte that is less than n, with 0 < n <= 0x80. Bytes that are not ASCII never match.
+     */
+    private static long lessThan(long block, int n) {
+        return ~((block & LOW_BITS) + ONES * (0x80 - n)) & ~block & HIGH_BITS;
+    }
+
+
+    /*
+     * Sets the high bit of each byte that is in the range lo to hi inclusive, with 0 < lo <= hi < 0x80.
+     */
+    private static long between(long block, int lo, int hi) {
+        return lessThan(block, hi + 1) & ~lessThan(block, lo);
+    }
+}
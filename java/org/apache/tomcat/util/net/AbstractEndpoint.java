@@ -26,6 +26,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -39,6 +40,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -124,6 +126,17 @@ public abstract class AbstractEndpoint<S, U> {
         void release(SocketWrapperBase<S> socketWrapper);
 
 
+        /**
+         * Inform the handler that a new request on the provided socket will not be processed because the server is
+         * overloaded. The handler may send a minimal response. The socket will be closed once this method returns.
+         *
+         * @param socketWrapper The socketWrapper for which the request is rejected
+         */
+        default void shed(SocketWrapperBase<S> socketWrapper) {
+            // NO-OP
+        }
+
+
         /**
          * Inform the handler that the endpoint has stopped accepting any new connections. Typically, the endpoint will
          * be stopped shortly afterwards but it is possible that the endpoint will be resumed so the handler should not
@@ -610,6 +623,41 @@ public abstract class AbstractEndpoint<S, U> {
     }
 
 
+    /**
+     * Obtain the session ticket keys from the provider of each SSLHostConfig for which the refresh interval has elapsed
+     * and apply them to the SSL contexts of the SSLHostConfig if they have changed.
+     */
+    protected void refreshSessionTicketKeys() {
+        long now = System.nanoTime();
+        for (SSLHostConfig sslHostConfig : sslHostConfigs.values()) {
+            if (sslHostConfig.getDisableSessionTickets() ||
+                    now - sslHostConfig.getSessionTicketKeysNextRefresh() < 0) {
+                continue;
+            }
+            try {
+                TicketKeyProvider ticketKeyProvider = sslHostConfig.getSessionTicketKeyProvider();
+                if (ticketKeyProvider == null) {
+                    continue;
+                }
+                sslHostConfig.setSessionTicketKeysNextRefresh(
+                        now + TimeUnit.SECONDS.toNanos(sslHostConfig.getSessionTicketKeyRefreshInterval()));
+                byte[] ticketKeys = ticketKeyProvider.getTicketKeys();
+                if (Arrays.equals(ticketKeys, sslHostConfig.getSessionTicketKeys())) {
+                    continue;
+                }
+                for (TicketKeySessionContext sessionContext : sslHostConfig.getTicketKeySessionContexts()) {
+                    sessionContext.setTicketKeys(ticketKeys);
+                }
+                sslHostConfig.setSessionTicketKeys(ticketKeys);
+                getLog().info(sm.getString("endpoint.tls.ticketKeysRotated", getName(), sslHostConfig.getHostName()));
+            } catch (IOException | IllegalArgumentException e) {
+                getLog().warn(sm.getString("endpoint.tls.ticketKeysFailed", getName(), sslHostConfig.getHostName()),
+                        e);
+            }
+        }
+    }
+
+
     /**
      * Release the SSLContext, if any, associated with the SSLHostConfig.
      *
@@ -782,6 +830,8 @@ public abstract class AbstractEndpoint<S, U> {
      */
     private ScheduledExecutorService utilityExecutor = null;
 
+    private ScheduledFuture<?> sessionTicketKeysFuture = null;
+
     public void setUtilityExecutor(ScheduledExecutorService utilityExecutor) {
         this.utilityExecutor = utilityExecutor;
     }
@@ -1055,6 +1105,107 @@ public abstract class AbstractEndpoint<S, U> {
     }
 
 
+    /**
+     * Target for the time in milliseconds new requests wait in the task queue of the internal thread pool. If the
+     * task queue is overloaded, new requests that waited for more than twice this delay are rejected. Zero or less
+     * disables request shedding.
+     */
+    private long targetQueueDelay = 0;
+
+    public void setTargetQueueDelay(long targetQueueDelay) {
+        this.targetQueueDelay = targetQueueDelay;
+        TaskQueue taskQueue = getTaskQueue();
+        if (taskQueue != null) {
+            taskQueue.setTargetDelay(targetQueueDelay);
+        }
+    }
+
+    public long getTargetQueueDelay() {
+        if (internalExecutor) {
+            return targetQueueDelay;
+        } else {
+            return -1;
+        }
+    }
+
+
+    private TaskQueue getTaskQueue() {
+        Executor executor = this.executor;
+        if (internalExecutor && executor instanceof ThreadPoolExecutor tpe &&
+                tpe.getQueue() instanceof TaskQueue taskQueue) {
+            return taskQueue;
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the estimated median of the time in milliseconds new requests waited in the task queue of the internal
+     *             thread pool or -1 if an external executor is used
+     */
+    public double getQueueDelayP50() {
+        return getQueueDelayPercentile(50);
+    }
+
+    /**
+     * @return the estimated 90th percentile of the time in milliseconds new requests waited in the task queue of the
+     *             internal thread pool or -1 if an external executor is used
+     */
+    public double getQueueDelayP90() {
+        return getQueueDelayPercentile(90);
+    }
+
+    /**
+     * @return the estimated 99th percentile of the time in milliseconds new requests waited in the task queue of the
+     *             internal thread pool or -1 if an external executor is used
+     */
+    public double getQueueDelayP99() {
+        return getQueueDelayPercentile(99);
+    }
+
+    private double getQueueDelayPercentile(double percentile) {
+        TaskQueue taskQueue = getTaskQueue();
+        if (taskQueue == null) {
+            return -1;
+        }
+        return taskQueue.getDelayPercentile(percentile);
+    }
+
+    /**
+     * @return the maximum time in milliseconds a request waited in the task queue of the internal thread pool or -1 if
+     *             an external executor is used
+     */
+    public double getQueueDelayMax() {
+        TaskQueue taskQueue = getTaskQueue();
+        if (taskQueue == null) {
+            return -1;
+        }
+        return taskQueue.getMaxDelay();
+    }
+
+    /**
+     * @return the number of requests rejected because the task queue of the internal thread pool was overloaded or -1
+     *             if an external executor is used
+     */
+    public long getShedCount() {
+        TaskQueue taskQueue = getTaskQueue();
+        if (taskQueue == null) {
+            return -1;
+        }
+        return taskQueue.getShedCount();
+    }
+
+    /**
+     * Reset the queue delay statistics and the shed count of the internal thread pool.
+     */
+    public void resetQueueDelayStatistics() {
+        TaskQueue taskQueue = getTaskQueue();
+        if (taskQueue != null) {
+            taskQueue.resetDelayStatistics();
+        }
+    }
+
+
     /**
      * Amount of time in milliseconds before the internal thread pool stops any idle threads if the amount of thread is
      * greater than the minimum amount of spare threads.
@@ -1329,6 +1480,7 @@ public abstract class AbstractEndpoint<S, U> {
             executor = new VirtualThreadExecutor(getName() + "-virt-");
         } else {
             TaskQueue taskqueue = new TaskQueue(maxQueueSize);
+            taskqueue.setTargetDelay(targetQueueDelay);
             TaskThreadFactory tf = new TaskThreadFactory(getName() + "-exec-", daemon, getThreadPriority());
             executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), getThreadsMaxIdleTime(),
                     TimeUnit.MILLISECONDS, taskqueue, tf);
@@ -1638,6 +1790,10 @@ public abstract class AbstractEndpoint<S, U> {
             bindState = BindState.BOUND_ON_START;
         }
         startInternal();
+        if (isSSLEnabled()) {
+            sessionTicketKeysFuture =
+                    getUtilityExecutor().scheduleWithFixedDelay(this::refreshSessionTicketKeys, 1, 1, TimeUnit.SECONDS);
+        }
     }
 
 
@@ -1674,6 +1830,10 @@ public abstract class AbstractEndpoint<S, U> {
     }
 
     public final void stop() throws Exception {
+        if (sessionTicketKeysFuture != null) {
+            sessionTicketKeysFuture.cancel(false);
+            sessionTicketKeysFuture = null;
+        }
         stopInternal();
         if (bindState == BindState.BOUND_ON_START || bindState == BindState.SOCKET_CLOSED_ON_STOP) {
             unbind();
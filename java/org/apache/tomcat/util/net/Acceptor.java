@@ -124,7 +124,7 @@ public class Acceptor<U> implements Runnable {
                     try {
                         // Accept the next incoming connection from the server
                         // socket
-                        socket = endpoint.serverSocketAccept();
+                        socket = serverSocketAccept();
                     } catch (Exception e) {
                         // We didn't get a socket
                         endpoint.countDownConnection();
@@ -140,6 +140,12 @@ public class Acceptor<U> implements Runnable {
                     // Successful accept, reset the error delay
                     errorDelay = 0;
 
+                    if (socket == null) {
+                        // No connection was accepted as the acceptor was woken up to check the endpoint state
+                        endpoint.countDownConnection();
+                        continue;
+                    }
+
                     // Configure the socket
                     if (!stopCalled && !endpoint.isPaused()) {
                         // setSocketOptions() will hand the socket off to
@@ -162,6 +168,19 @@ public class Acceptor<U> implements Runnable {
     }
 
 
+    /**
+     * Accept the next incoming connection. The default implementation delegates to the endpoint.
+     *
+     * @return The accepted connection or {@code null} if the acceptor should check the state of the endpoint before
+     *             trying again
+     *
+     * @throws Exception If the accept fails
+     */
+    protected U serverSocketAccept() throws Exception {
+        return endpoint.serverSocketAccept();
+    }
+
+
     public void stopMillis(int waitMilliseconds) {
         stopCalled = true;
         if (waitMilliseconds > 0) {
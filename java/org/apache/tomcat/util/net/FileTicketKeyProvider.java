@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+
+import org.apache.tomcat.util.file.ConfigFileLoader;
+import org.apache.tomcat.util.file.ConfigurationSource.Resource;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Reads the session ticket keys from a file containing the 48 bytes of the keys. The file format is the same as the one
+ * used by other servers, so a key file may be generated with {@code openssl rand 48 > ticket.key} and distributed to
+ * all the servers of a cluster. The file is read again each time the keys are requested so replacing the file rotates
+ * the keys.
+ */
+public class FileTicketKeyProvider implements TicketKeyProvider {
+
+    private static final StringManager sm = StringManager.getManager(FileTicketKeyProvider.class);
+
+    static final int TICKET_KEYS_SIZE = 48;
+
+    private final String path;
+
+
+    /**
+     * Create a provider for the given key file.
+     *
+     * @param path The path of the key file, resolved using the configuration source
+     */
+    public FileTicketKeyProvider(String path) {
+        this.path = path;
+    }
+
+
+    public String getPath() {
+        return path;
+    }
+
+
+    @Override
+    public byte[] getTicketKeys() throws IOException {
+        byte[] result;
+        try (Resource resource = ConfigFileLoader.getSource().getResource(path)) {
+            // Read one extra byte so that files which are too long are detected
+            result = resource.getInputStream().readNBytes(TICKET_KEYS_SIZE + 1);
+        }
+        if (result.length != TICKET_KEYS_SIZE) {
+            throw new IOException(
+                    sm.getString("fileTicketKeyProvider.invalidLength", path, Integer.valueOf(TICKET_KEYS_SIZE)));
+        }
+        return result;
+    }
+}
@@ -25,13 +25,16 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.Channel;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.CompletionHandler;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.NetworkChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -44,15 +47,19 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.management.ObjectName;
 import javax.net.ssl.SSLEngine;
 
 import org.apache.juli.logging.Log;
@@ -61,6 +68,7 @@ import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.collections.SynchronizedQueue;
 import org.apache.tomcat.util.collections.SynchronizedStack;
 import org.apache.tomcat.util.compat.JrePlatform;
+import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
 import org.apache.tomcat.util.net.Acceptor.AcceptorState;
 import org.apache.tomcat.util.net.jsse.JSSESupport;
@@ -83,6 +91,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
     public static final int OP_REGISTER = 0x100; // register interest op
 
+    /**
+     * Maximum size of the regions of a file mapped at the same time when sendfile uses memory mapped files.
+     */
+    private static final long MAPPED_SENDFILE_SIZE = 8 * 1024 * 1024;
+
     // ----------------------------------------------------------------- Fields
 
     /**
@@ -105,8 +118,23 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      */
     private SynchronizedStack<NioChannel> nioChannels;
 
-    private SocketAddress previousAcceptedSocketRemoteAddress = null;
-    private long previousAcceptedSocketNanoTime = 0;
+    /**
+     * Shared pool of socket buffers, if enabled.
+     */
+    private volatile SocketBufferPool socketBufferPool = null;
+
+    private final DuplicateAcceptCheck duplicateAcceptCheck = new DuplicateAcceptCheck();
+
+    /**
+     * Server sockets, including the primary server socket, bound with SO_REUSEPORT when more than one acceptor thread
+     * is configured.
+     */
+    private volatile ServerSocketChannel[] reusePortServerSocks = null;
+
+    /**
+     * Acceptors used instead of the single acceptor when the server sockets are bound with SO_REUSEPORT.
+     */
+    private volatile List<ReusePortAcceptor> reusePortAcceptors = null;
 
 
     // ------------------------------------------------------------- Properties
@@ -125,6 +153,20 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * Write the content of files sent with sendfile over TLS directly from memory mapped regions of the file.
+     */
+    private boolean useMappedSendfile = false;
+
+    public void setUseMappedSendfile(boolean useMappedSendfile) {
+        this.useMappedSendfile = useMappedSendfile;
+    }
+
+    public boolean getUseMappedSendfile() {
+        return useMappedSendfile;
+    }
+
+
     /**
      * Path for the Unix domain socket, used to create the socket address.
      */
@@ -177,10 +219,42 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         return this.selectorTimeout;
     }
 
+
     /**
-     * The socket poller.
+     * Number of poller threads. New connections are assigned to the pollers in turn.
      */
-    private Poller poller = null;
+    private int pollerThreadCount = 1;
+
+    public void setPollerThreadCount(int pollerThreadCount) {
+        this.pollerThreadCount = pollerThreadCount;
+    }
+
+    public int getPollerThreadCount() {
+        return pollerThreadCount;
+    }
+
+
+    /**
+     * Number of acceptor threads. If greater than one, each acceptor uses its own server socket bound with
+     * SO_REUSEPORT to the same address and the operating system distributes new connections between them. Only
+     * supported for TCP sockets on platforms that support SO_REUSEPORT.
+     */
+    private int acceptorThreadCount = 1;
+
+    public void setAcceptorThreadCount(int acceptorThreadCount) {
+        this.acceptorThreadCount = acceptorThreadCount;
+    }
+
+    public int getAcceptorThreadCount() {
+        return acceptorThreadCount;
+    }
+
+
+    /**
+     * The socket pollers.
+     */
+    private Poller[] pollers = null;
+    private final AtomicInteger pollerRotater = new AtomicInteger(0);
 
 
     // --------------------------------------------------------- Public Methods
@@ -192,10 +266,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      *             the socket
      */
     public int getKeepAliveCount() {
-        if (poller == null) {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
             return 0;
         } else {
-            return poller.getKeyCount();
+            int sum = 0;
+            for (Poller poller : pollers) {
+                sum += poller.getKeyCount();
+            }
+            return sum;
         }
     }
 
@@ -221,7 +300,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     public void bind() throws Exception {
         initServerSocket();
 
-        setStopLatch(new CountDownLatch(1));
+        if (pollerThreadCount <= 0) {
+            // Minimum one poller thread
+            pollerThreadCount = 1;
+        }
+        setStopLatch(new CountDownLatch(pollerThreadCount));
 
         // Initialize SSL if needed
         initialiseSsl();
@@ -263,13 +346,50 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         } else {
             serverSock = ServerSocketChannel.open();
             socketProperties.setProperties(serverSock.socket());
+            boolean reusePort = false;
+            if (acceptorThreadCount > 1) {
+                reusePort = serverSock.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+                if (reusePort) {
+                    serverSock.setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+                } else {
+                    log.warn(sm.getString("endpoint.nio.reusePortUnsupported", Integer.valueOf(acceptorThreadCount)));
+                }
+            }
             InetSocketAddress addr = new InetSocketAddress(getAddress(), getPortWithOffset());
             serverSock.bind(addr, getAcceptCount());
+            if (reusePort) {
+                initReusePortServerSockets();
+                return;
+            }
         }
         serverSock.configureBlocking(true); // mimic APR behavior
     }
 
 
+    /*
+     * Opens the additional server sockets used by the acceptor threads. The acceptors use non-blocking server sockets
+     * and a selector so they can be unlocked without relying on which server socket the OS selects for an unlock
+     * connection.
+     */
+    private void initReusePortServerSockets() throws IOException {
+        ServerSocketChannel[] serverSocks = new ServerSocketChannel[acceptorThreadCount];
+        serverSocks[0] = serverSock;
+        // Use the port actually bound in case a random port was requested
+        InetSocketAddress addr = new InetSocketAddress(getAddress(),
+                ((InetSocketAddress) serverSock.getLocalAddress()).getPort());
+        reusePortServerSocks = serverSocks;
+        for (int i = 1; i < serverSocks.length; i++) {
+            serverSocks[i] = ServerSocketChannel.open();
+            socketProperties.setProperties(serverSocks[i].socket());
+            serverSocks[i].setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+            serverSocks[i].bind(addr, getAcceptCount());
+        }
+        for (ServerSocketChannel serverSocket : serverSocks) {
+            serverSocket.configureBlocking(false);
+        }
+    }
+
+
     /**
      * Start the NIO endpoint, creating acceptor, poller threads.
      */
@@ -291,6 +411,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             if (actualBufferPool != 0) {
                 nioChannels = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, actualBufferPool);
             }
+            if (socketProperties.getSharedBufferPoolSize() > 0) {
+                socketBufferPool = new SocketBufferPool(socketProperties.getDirectBuffer(),
+                        socketProperties.getSharedBufferPoolSize());
+                registerJmx(socketBufferPool);
+            }
 
             // Create worker collection
             if (getExecutor() == null) {
@@ -299,14 +424,73 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
             initializeConnectionLatch();
 
-            // Start poller thread
-            poller = new Poller();
-            Thread pollerThread = new Thread(poller, getName() + "-Poller");
-            pollerThread.setPriority(threadPriority);
-            pollerThread.setDaemon(true);
-            pollerThread.start();
+            // Start poller threads
+            Poller[] pollers = new Poller[getPollerThreadCount()];
+            for (int i = 0; i < pollers.length; i++) {
+                pollers[i] = new Poller();
+                String threadName = getName() + "-Poller" + (pollers.length > 1 ? "-" + i : "");
+                Thread pollerThread = new Thread(pollers[i], threadName);
+                pollerThread.setPriority(threadPriority);
+                pollerThread.setDaemon(true);
+                pollerThread.start();
+                registerJmx(pollers[i], threadName);
+            }
+            this.pollers = pollers;
+
+            if (reusePortServerSocks == null) {
+                startAcceptorThread();
+            } else {
+                startReusePortAcceptorThreads();
+            }
+        }
+    }
+
+
+    private void startReusePortAcceptorThreads() throws IOException {
+        List<ReusePortAcceptor> acceptors = new ArrayList<>(reusePortServerSocks.length);
+        for (ServerSocketChannel serverSocket : reusePortServerSocks) {
+            acceptors.add(new ReusePortAcceptor(serverSocket));
+        }
+        reusePortAcceptors = acceptors;
+        acceptor = acceptors.get(0);
+        for (int i = 0; i < acceptors.size(); i++) {
+            ReusePortAcceptor reusePortAcceptor = acceptors.get(i);
+            String threadName = getName() + "-Acceptor-" + i;
+            reusePortAcceptor.setThreadName(threadName);
+            Thread t = new Thread(reusePortAcceptor, threadName);
+            t.setPriority(getAcceptorThreadPriority());
+            t.setDaemon(getDaemon());
+            t.start();
+        }
+    }
+
+
+    private void registerJmx(SocketBufferPool socketBufferPool) {
+        if (getDomain() == null) {
+            // Before init the domain is null
+            return;
+        }
+        String poolOname = getDomain() + ":type=SocketBufferPool,name=\"" + getName() + "\"";
+        try {
+            socketBufferPool.setObjectName(new ObjectName(poolOname));
+            Registry.getRegistry(null).registerComponent(socketBufferPool, socketBufferPool.getObjectName(), null);
+        } catch (Exception e) {
+            log.warn(sm.getString("endpoint.jmxRegistrationFailed", poolOname), e);
+        }
+    }
+
 
-            startAcceptorThread();
+    private void registerJmx(Poller poller, String threadName) {
+        if (getDomain() == null) {
+            // Before init the domain is null
+            return;
+        }
+        String pollerOname = getDomain() + ":type=Poller,name=" + ObjectName.quote(threadName);
+        try {
+            poller.setObjectName(new ObjectName(pollerOname));
+            Registry.getRegistry(null).registerComponent(poller, poller.getObjectName(), null);
+        } catch (Exception e) {
+            log.warn(sm.getString("endpoint.jmxRegistrationFailed", pollerOname), e);
         }
     }
 
@@ -326,10 +510,24 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              * plenty of time for the acceptor to unlock without being an excessively long wait if the unlock fails.
              */
             int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
-            acceptor.stopMillis(acceptorWaitMilliSeconds);
-            if (poller != null) {
-                poller.destroy();
-                poller = null;
+            List<ReusePortAcceptor> reusePortAcceptors = this.reusePortAcceptors;
+            if (reusePortAcceptors == null) {
+                acceptor.stopMillis(acceptorWaitMilliSeconds);
+            } else {
+                for (ReusePortAcceptor reusePortAcceptor : reusePortAcceptors) {
+                    reusePortAcceptor.stopMillis(acceptorWaitMilliSeconds);
+                    reusePortAcceptor.close();
+                }
+                this.reusePortAcceptors = null;
+            }
+            if (pollers != null) {
+                for (Poller poller : pollers) {
+                    poller.destroy();
+                    if (poller.getObjectName() != null) {
+                        Registry.getRegistry(null).unregisterComponent(poller.getObjectName());
+                    }
+                }
+                pollers = null;
             }
             try {
                 if (!getStopLatch().await(selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
@@ -350,6 +548,12 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 }
                 nioChannels = null;
             }
+            if (socketBufferPool != null) {
+                if (socketBufferPool.getObjectName() != null) {
+                    Registry.getRegistry(null).unregisterComponent(socketBufferPool.getObjectName());
+                }
+                socketBufferPool = null;
+            }
             if (processorCache != null) {
                 processorCache.clear();
                 processorCache = null;
@@ -393,6 +597,16 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 serverSock.close();
             }
             serverSock = null;
+            ServerSocketChannel[] reusePortServerSocks = this.reusePortServerSocks;
+            if (reusePortServerSocks != null) {
+                // The primary server socket has already been closed
+                for (int i = 1; i < reusePortServerSocks.length; i++) {
+                    if (reusePortServerSocks[i] != null) {
+                        reusePortServerSocks[i].close();
+                    }
+                }
+                this.reusePortServerSocks = null;
+            }
         } finally {
             if (getUnixDomainSocketPath() != null && getBindState().wasBound()) {
                 Files.delete(Paths.get(getUnixDomainSocketPath()));
@@ -406,7 +620,25 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
     @Override
     protected void unlockAccept() {
-        if (getUnixDomainSocketPath() == null) {
+        List<ReusePortAcceptor> reusePortAcceptors = this.reusePortAcceptors;
+        if (reusePortAcceptors != null) {
+            // A connection may be passed to any of the server sockets so wake up each acceptor instead
+            for (ReusePortAcceptor reusePortAcceptor : reusePortAcceptors) {
+                reusePortAcceptor.unlock();
+            }
+            try {
+                // Wait for up to 1000ms for the acceptor threads to unlock
+                long waitLeft = 1000;
+                for (ReusePortAcceptor reusePortAcceptor : reusePortAcceptors) {
+                    while (waitLeft > 0 && reusePortAcceptor.getState() == AcceptorState.RUNNING) {
+                        Thread.sleep(1);
+                        waitLeft--;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+        } else if (getUnixDomainSocketPath() == null) {
             super.unlockAccept();
         } else {
             // Only try to unlock the acceptor if it is necessary
@@ -440,8 +672,17 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * Obtain the poller for a new connection. Connections are assigned to the pollers in turn.
+     *
+     * @return the poller to use or {@code null} if the endpoint is not running
+     */
     protected Poller getPoller() {
-        return poller;
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return null;
+        }
+        return pollers[Math.floorMod(pollerRotater.getAndIncrement(), pollers.length)];
     }
 
 
@@ -473,8 +714,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 channel = nioChannels.pop();
             }
             if (channel == null) {
-                SocketBufferHandler bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
-                        socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                SocketBufferHandler bufhandler;
+                SocketBufferPool socketBufferPool = this.socketBufferPool;
+                if (socketBufferPool == null) {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                } else {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), socketBufferPool);
+                }
                 channel = createChannel(bufhandler);
             }
             NioSocketWrapper newWrapper = new NioSocketWrapper(channel, this);
@@ -492,7 +740,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketWrapper.setReadTimeout(getConnectionTimeout());
             socketWrapper.setWriteTimeout(getConnectionTimeout());
             socketWrapper.setKeepAliveLeft(NioEndpoint.this.getMaxKeepAliveRequests());
-            poller.register(socketWrapper);
+            socketWrapper.getPoller().register(socketWrapper);
             return true;
         } catch (Throwable t) {
             ExceptionUtils.handleThrowable(t);
@@ -535,14 +783,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         // Bug does not affect Windows platform and Unix Domain Socket. Skip the check.
         if (!JrePlatform.IS_WINDOWS && getUnixDomainSocketPath() == null) {
-            SocketAddress currentRemoteAddress = result.getRemoteAddress();
-            long currentNanoTime = System.nanoTime();
-            if (currentRemoteAddress.equals(previousAcceptedSocketRemoteAddress) &&
-                    currentNanoTime - previousAcceptedSocketNanoTime < 1000) {
-                throw new IOException(sm.getString("endpoint.err.duplicateAccept"));
-            }
-            previousAcceptedSocketRemoteAddress = currentRemoteAddress;
-            previousAcceptedSocketNanoTime = currentNanoTime;
+            duplicateAcceptCheck.check(result);
         }
 
         return result;
@@ -575,6 +816,93 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         return new NioChannel(buffer);
     }
 
+    // --------------------------------------------------- Acceptor Inner Classes
+
+    /**
+     * Acceptor for one of a set of server sockets bound to the same address with SO_REUSEPORT. The server socket is
+     * non-blocking and the acceptor waits on a selector so that it can be woken up when the endpoint is paused or
+     * stopped.
+     */
+    protected class ReusePortAcceptor extends Acceptor<SocketChannel> {
+
+        private final ServerSocketChannel serverSocket;
+        private final Selector selector;
+        private final DuplicateAcceptCheck duplicateAcceptCheck = new DuplicateAcceptCheck();
+
+        public ReusePortAcceptor(ServerSocketChannel serverSocket) throws IOException {
+            super(NioEndpoint.this);
+            this.serverSocket = serverSocket;
+            selector = Selector.open();
+            try {
+                serverSocket.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException ioe) {
+                selector.close();
+                throw ioe;
+            }
+        }
+
+        @Override
+        protected SocketChannel serverSocketAccept() throws Exception {
+            while (true) {
+                SocketChannel result = serverSocket.accept();
+                if (result != null) {
+                    if (!JrePlatform.IS_WINDOWS) {
+                        duplicateAcceptCheck.check(result);
+                    }
+                    return result;
+                }
+                if (isPaused() || !isRunning()) {
+                    return null;
+                }
+                selector.select();
+                selector.selectedKeys().clear();
+            }
+        }
+
+        /**
+         * Wake up the acceptor if it is waiting for a new connection so it checks the state of the endpoint.
+         */
+        public void unlock() {
+            selector.wakeup();
+        }
+
+        /**
+         * Release the resources associated with this acceptor. The server socket is not closed.
+         */
+        public void close() {
+            try {
+                selector.close();
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.nio.acceptorSelectorCloseFail", getThreadName()), ioe);
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Some JREs return the same connection twice from accept(). Tracks the previously accepted connection for an
+     * acceptor so this can be detected.
+     */
+    private static class DuplicateAcceptCheck {
+
+        private SocketAddress previousAcceptedSocketRemoteAddress = null;
+        private long previousAcceptedSocketNanoTime = 0;
+
+        private void check(SocketChannel socket) throws IOException {
+            SocketAddress currentRemoteAddress = socket.getRemoteAddress();
+            long currentNanoTime = System.nanoTime();
+            if (currentRemoteAddress.equals(previousAcceptedSocketRemoteAddress) &&
+                    currentNanoTime - previousAcceptedSocketNanoTime < 1000) {
+                throw new IOException(sm.getString("endpoint.err.duplicateAccept"));
+            }
+            previousAcceptedSocketRemoteAddress = currentRemoteAddress;
+            previousAcceptedSocketNanoTime = currentNanoTime;
+        }
+    }
+
+
     // ----------------------------------------------------- Poller Inner Classes
 
     /**
@@ -629,6 +957,13 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         private volatile int keyCount = 0;
 
+        // Statistics exposed via JMX
+        private final AtomicLong selectCount = new AtomicLong(0);
+        private final AtomicLong readyKeyCount = new AtomicLong(0);
+        private final AtomicLong eventCount = new AtomicLong(0);
+        private final AtomicLong wakeupCount = new AtomicLong(0);
+        private volatile ObjectName oname = null;
+
         public Poller() throws IOException {
             this.selector = Selector.open();
         }
@@ -637,6 +972,42 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             return selector.keys().size();
         }
 
+        /**
+         * @return the number of times the selector has been polled for ready keys
+         */
+        public long getSelectCount() {
+            return selectCount.get();
+        }
+
+        /**
+         * @return the number of ready keys that have been processed
+         */
+        public long getReadyKeyCount() {
+            return readyKeyCount.get();
+        }
+
+        /**
+         * @return the number of registration and interest events that have been processed
+         */
+        public long getEventCount() {
+            return eventCount.get();
+        }
+
+        /**
+         * @return the number of times the selector has been woken up to process new events
+         */
+        public long getWakeupCount() {
+            return wakeupCount.get();
+        }
+
+        void setObjectName(ObjectName oname) {
+            this.oname = oname;
+        }
+
+        ObjectName getObjectName() {
+            return oname;
+        }
+
         public Selector getSelector() {
             return selector;
         }
@@ -655,6 +1026,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         private void addEvent(PollerEvent event) {
             events.offer(event);
             if (wakeupCounter.incrementAndGet() == 0) {
+                wakeupCount.incrementAndGet();
                 selector.wakeup();
             }
         }
@@ -699,6 +1071,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             PollerEvent pe;
             for (int i = 0, size = events.size(); i < size && (pe = events.poll()) != null; i++) {
                 result = true;
+                eventCount.incrementAndGet();
                 NioSocketWrapper socketWrapper = pe.getSocketWrapper();
                 SocketChannel sc = socketWrapper.getSocket().getIOChannel();
                 int interestOps = pe.getInterestOps();
@@ -780,6 +1153,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                             keyCount = selector.select(selectorTimeout);
                         }
                         wakeupCounter.set(0);
+                        selectCount.incrementAndGet();
                     }
                     if (close) {
                         events();
@@ -811,6 +1185,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                     // Attachment may be null if another thread has called
                     // cancelledKey()
                     if (socketWrapper != null) {
+                        readyKeyCount.incrementAndGet();
                         processKey(sk, socketWrapper);
                     }
                 }
@@ -909,7 +1284,12 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                         socketWrapper.updateLastWrite();
                     }
                 } else {
-                    long written = sd.fchannel.transferTo(sd.pos, sd.length, wc);
+                    long written;
+                    if (useMappedSendfile && sc instanceof SecureNioChannel) {
+                        written = transferMapped(sd, sc);
+                    } else {
+                        written = sd.fchannel.transferTo(sd.pos, sd.length, wc);
+                    }
                     if (written > 0) {
                         sd.pos += written;
                         sd.length -= written;
@@ -927,6 +1307,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                         log.trace("Send file complete for: " + sd.fileName);
                     }
                     socketWrapper.setSendfileData(null);
+                    sd.mappedBuffer = null;
                     try {
                         sd.fchannel.close();
                     } catch (Exception ignore) {
@@ -991,6 +1372,26 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             }
         }
 
+
+        /*
+         * With TLS, FileChannel.transferTo() copies the file content through a small temporary buffer before it is
+         * encrypted. Instead, map the file and let the SSLEngine encrypt full size records directly from the mapped
+         * region. The file is mapped in regions of limited size so a large file does not require a large mapping.
+         */
+        private long transferMapped(SendfileData sd, NioChannel sc) throws IOException {
+            long written = 0;
+            int n;
+            do {
+                if (sd.mappedBuffer == null || !sd.mappedBuffer.hasRemaining()) {
+                    long size = Math.min(sd.length - written, MAPPED_SENDFILE_SIZE);
+                    sd.mappedBuffer = sd.fchannel.map(MapMode.READ_ONLY, sd.pos + written, size);
+                }
+                n = sc.write(sd.mappedBuffer);
+                written += n;
+            } while (n > 0 && written < sd.length);
+            return written;
+        }
+
         protected void unreg(SelectionKey sk, NioSocketWrapper socketWrapper, int readyOps) {
             // This is a must, so that we don't have multiple threads messing with the socket
             reg(sk, socketWrapper, sk.interestOps() & (~readyOps));
@@ -1094,6 +1495,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     public static class NioSocketWrapper extends SocketWrapperBase<NioChannel> {
 
         private final SynchronizedStack<NioChannel> nioChannels;
+        private final SocketBufferPool socketBufferPool;
         private final Poller poller;
 
         private int interestOps = 0;
@@ -1118,6 +1520,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 remotePort = 0;
             }
             nioChannels = endpoint.getNioChannels();
+            socketBufferPool = endpoint.socketBufferPool;
             poller = endpoint.getPoller();
             socketBufferHandler = channel.getBufHandler();
             readLock = (readPending == null) ? new Object() : readPending;
@@ -1219,7 +1622,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             }
 
             // The socket read buffer capacity is socket.appReadBufSize
-            int limit = socketBufferHandler.getReadBuffer().capacity();
+            int limit = socketBufferHandler.getReadBufferCapacity();
             if (to.remaining() >= limit) {
                 to.limit(to.position() + limit);
                 nRead = fillReadBuffer(block, to);
@@ -1256,6 +1659,10 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                     getSocket().close(true);
                 }
                 if (getEndpoint().running) {
+                    if (socketBufferPool != null) {
+                        // Return the buffers to the shared pool before the channel is cached for re-use
+                        getSocket().getBufHandler().reset();
+                    }
                     if (nioChannels == null || !nioChannels.push(getSocket())) {
                         getSocket().free();
                     }
@@ -1735,8 +2142,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              * connection. That can result in a stale cached value which in turn can result in unintentionally closing
              * currently active connections.
              */
-            Poller poller = NioEndpoint.this.poller;
-            if (poller == null) {
+            if (pollers == null) {
                 socketWrapper.close();
                 return;
             }
@@ -1781,6 +2187,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                             Objects.requireNonNullElse(event, SocketEvent.OPEN_READ));
                     if (state == SocketState.CLOSED) {
                         socketWrapper.close();
+                    } else if (state == SocketState.OPEN && socketBufferPool != null) {
+                        // The connection is idle between requests. Any further processing for this connection will
+                        // wait for this thread to release the socket lock so the buffers can be returned to the
+                        // shared pool.
+                        socketWrapper.getSocketBufferHandler().release();
                     }
                 } else if (handshake == -1) {
                     getHandler().process(socketWrapper, SocketEvent.CONNECT_FAIL);
@@ -1807,6 +2218,24 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             }
         }
 
+        @Override
+        protected void doShed() {
+            try {
+                if (socketWrapper.getSocket().isHandshakeComplete()) {
+                    super.doShed();
+                } else {
+                    // No response can be sent before the TLS handshake completes
+                    socketWrapper.close();
+                }
+            } finally {
+                socketWrapper = null;
+                event = null;
+                // return to cache
+                if (running && processorCache != null) {
+                    processorCache.push(this);
+                }
+            }
+        }
     }
 
 
@@ -1822,5 +2251,6 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         }
 
         protected volatile FileChannel fchannel;
+        protected volatile MappedByteBuffer mappedBuffer;
     }
 }
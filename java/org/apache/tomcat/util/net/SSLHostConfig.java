@@ -24,8 +24,10 @@ import java.io.Serializable;
 import java.security.KeyStore;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -128,6 +130,13 @@ public class SSLHostConfig implements Serializable {
     private boolean disableCompression = true;
     private boolean disableSessionTickets = false;
     private boolean insecureRenegotiation = false;
+    private String sessionTicketKeyFile;
+    private String sessionTicketKeyProviderClassName;
+    private int sessionTicketKeyRefreshInterval = 60;
+    private transient TicketKeyProvider sessionTicketKeyProvider = null;
+    // The keys currently used by the SSL contexts and when the provider should next be checked for new keys
+    private transient volatile byte[] sessionTicketKeys = null;
+    private transient long sessionTicketKeysNextRefresh = 0;
     private OpenSSLConf openSslConf = null;
 
     public SSLHostConfig() {
@@ -755,8 +764,155 @@ public class SSLHostConfig implements Serializable {
     }
 
 
+    public void setSessionTicketKeyFile(String sessionTicketKeyFile) {
+        setProperty("sessionTicketKeyFile", Type.OPENSSL);
+        this.sessionTicketKeyFile = sessionTicketKeyFile;
+        sessionTicketKeyProvider = null;
+    }
+
+
+    public String getSessionTicketKeyFile() {
+        return sessionTicketKeyFile;
+    }
+
+
+    public void setSessionTicketKeyProviderClassName(String sessionTicketKeyProviderClassName) {
+        setProperty("sessionTicketKeyProviderClassName", Type.OPENSSL);
+        this.sessionTicketKeyProviderClassName = sessionTicketKeyProviderClassName;
+        sessionTicketKeyProvider = null;
+    }
+
+
+    public String getSessionTicketKeyProviderClassName() {
+        return sessionTicketKeyProviderClassName;
+    }
+
+
+    /**
+     * Set the interval between two checks of the session ticket key provider for new keys.
+     *
+     * @param sessionTicketKeyRefreshInterval The interval in seconds
+     */
+    public void setSessionTicketKeyRefreshInterval(int sessionTicketKeyRefreshInterval) {
+        setProperty("sessionTicketKeyRefreshInterval", Type.OPENSSL);
+        this.sessionTicketKeyRefreshInterval = sessionTicketKeyRefreshInterval;
+    }
+
+
+    public int getSessionTicketKeyRefreshInterval() {
+        return sessionTicketKeyRefreshInterval;
+    }
+
+
+    /**
+     * Set the provider of the session ticket keys. This takes precedence over the sessionTicketKeyFile and
+     * sessionTicketKeyProviderClassName attributes.
+     *
+     * @param sessionTicketKeyProvider The provider of the session ticket keys
+     */
+    public void setSessionTicketKeyProvider(TicketKeyProvider sessionTicketKeyProvider) {
+        this.sessionTicketKeyProvider = sessionTicketKeyProvider;
+    }
+
+
+    /**
+     * Obtain the provider of the session ticket keys, creating it from the configuration if required.
+     *
+     * @return the provider of the session ticket keys or {@code null} if the keys are generated by the SSL
+     *             implementation
+     *
+     * @throws IllegalArgumentException If the configured provider class cannot be instantiated
+     */
+    public TicketKeyProvider getSessionTicketKeyProvider() {
+        TicketKeyProvider result = sessionTicketKeyProvider;
+        if (result == null) {
+            if (sessionTicketKeyProviderClassName != null) {
+                Object provider;
+                try {
+                    Class<?> clazz = Class.forName(sessionTicketKeyProviderClassName);
+                    provider = clazz.getConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalArgumentException(
+                            sm.getString("sslHostConfig.invalidTicketKeyProvider", sessionTicketKeyProviderClassName),
+                            e);
+                }
+                if (!(provider instanceof TicketKeyProvider)) {
+                    throw new IllegalArgumentException(
+                            sm.getString("sslHostConfig.invalidTicketKeyProvider", sessionTicketKeyProviderClassName));
+                }
+                result = (TicketKeyProvider) provider;
+            } else if (sessionTicketKeyFile != null) {
+                result = new FileTicketKeyProvider(sessionTicketKeyFile);
+            }
+            sessionTicketKeyProvider = result;
+        }
+        return result;
+    }
+
+
+    byte[] getSessionTicketKeys() {
+        return sessionTicketKeys;
+    }
+
+
+    void setSessionTicketKeys(byte[] sessionTicketKeys) {
+        this.sessionTicketKeys = sessionTicketKeys;
+    }
+
+
+    long getSessionTicketKeysNextRefresh() {
+        return sessionTicketKeysNextRefresh;
+    }
+
+
+    void setSessionTicketKeysNextRefresh(long sessionTicketKeysNextRefresh) {
+        this.sessionTicketKeysNextRefresh = sessionTicketKeysNextRefresh;
+    }
+
+
     // --------------------------------------------------------- Support methods
 
+    /**
+     * @return the number of TLS handshakes completed using the SSL contexts of this host, including handshakes that
+     *             resumed an existing session, or -1 if the SSL implementation does not provide this information
+     */
+    public long getHandshakeCount() {
+        long result = -1;
+        for (TicketKeySessionContext sessionContext : getTicketKeySessionContexts()) {
+            result = Math.max(result, 0) + sessionContext.getHandshakeCount();
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the number of TLS handshakes completed using the SSL contexts of this host that resumed an existing
+     *             session rather than performing a full handshake, or -1 if the SSL implementation does not provide
+     *             this information
+     */
+    public long getResumedHandshakeCount() {
+        long result = -1;
+        for (TicketKeySessionContext sessionContext : getTicketKeySessionContexts()) {
+            result = Math.max(result, 0) + sessionContext.getResumedHandshakeCount();
+        }
+        return result;
+    }
+
+
+    Set<TicketKeySessionContext> getTicketKeySessionContexts() {
+        // Certificates may share an SSL context so avoid duplicates
+        Set<TicketKeySessionContext> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SSLHostConfigCertificate sslHostConfigCertificate : getCertificates()) {
+            SSLContext sslContext = sslHostConfigCertificate.getSslContext();
+            if (sslContext != null &&
+                    sslContext.getServerSessionContext() instanceof TicketKeySessionContext sessionContext) {
+                result.add(sessionContext);
+            }
+        }
+        return result;
+    }
+
+
     public Set<X509Certificate> certificatesExpiringBefore(Date date) {
         Set<X509Certificate> result = new HashSet<>();
         Set<SSLHostConfigCertificate> sslHostConfigCertificates = getCertificates();
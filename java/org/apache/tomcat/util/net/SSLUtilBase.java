@@ -280,6 +280,23 @@ public abstract class SSLUtilBase implements SSLUtil {
         if (sslHostConfig.getSessionTimeout() >= 0) {
             sslSessionContext.setSessionTimeout(sslHostConfig.getSessionTimeout());
         }
+
+        TicketKeyProvider ticketKeyProvider = sslHostConfig.getSessionTicketKeyProvider();
+        if (ticketKeyProvider != null && !sslHostConfig.getDisableSessionTickets()) {
+            if (sslSessionContext instanceof TicketKeySessionContext ticketKeySessionContext) {
+                byte[] ticketKeys;
+                try {
+                    ticketKeys = ticketKeyProvider.getTicketKeys();
+                } catch (IOException ioe) {
+                    throw new IllegalArgumentException(
+                            sm.getString("sslUtilBase.ticketKeysFailed", sslHostConfig.getHostName()), ioe);
+                }
+                ticketKeySessionContext.setTicketKeys(ticketKeys);
+                sslHostConfig.setSessionTicketKeys(ticketKeys);
+            } else {
+                log.warn(sm.getString("sslUtilBase.ticketKeysNotSupported", sslHostConfig.getHostName()));
+            }
+        }
     }
 
 
@@ -47,8 +47,20 @@ public class SocketBufferHandler {
 
     private final boolean direct;
 
+    /*
+     * Used when the buffers are borrowed from a shared pool. The buffers are only borrowed when they are first used and
+     * are returned to the pool when the connection is idle. The pooled buffers may be larger than the configured sizes
+     * so the read and write buffers are slices of the pooled buffers.
+     */
+    private final SocketBufferPool pool;
+    private int readBufferSize;
+    private int writeBufferSize;
+    private ByteBuffer pooledReadBuffer;
+    private ByteBuffer pooledWriteBuffer;
+
     public SocketBufferHandler(int readBufferSize, int writeBufferSize, boolean direct) {
         this.direct = direct;
+        this.pool = null;
         if (direct) {
             readBuffer = ByteBuffer.allocateDirect(readBufferSize);
             writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
@@ -59,6 +71,38 @@ public class SocketBufferHandler {
     }
 
 
+    /**
+     * Create a buffer handler that uses the provided buffers. This allows endpoints to manage the memory backing the
+     * buffers themselves, for example when the read buffer is a slice of a region registered with the kernel.
+     *
+     * @param readBuffer  The buffer to use to read from the network
+     * @param writeBuffer The buffer to use to write to the network
+     */
+    public SocketBufferHandler(ByteBuffer readBuffer, ByteBuffer writeBuffer) {
+        this.direct = readBuffer.isDirect() && writeBuffer.isDirect();
+        this.pool = null;
+        this.readBuffer = readBuffer;
+        this.writeBuffer = writeBuffer;
+    }
+
+
+    /**
+     * Create a buffer handler that borrows its buffers from a shared pool when they are first used. The buffers are
+     * returned to the pool by {@link #release()} once they are empty. If the pool has reached its maximum size,
+     * dedicated buffers are allocated instead.
+     *
+     * @param readBufferSize  The size of the buffer used to read from the network
+     * @param writeBufferSize The size of the buffer used to write to the network
+     * @param pool            The pool from which the buffers are borrowed
+     */
+    public SocketBufferHandler(int readBufferSize, int writeBufferSize, SocketBufferPool pool) {
+        this.direct = pool.isDirect();
+        this.pool = pool;
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+    }
+
+
     public void configureReadBufferForWrite() {
         setReadBufferConfiguredForWrite(true);
     }
@@ -72,6 +116,7 @@ public class SocketBufferHandler {
     private void setReadBufferConfiguredForWrite(boolean readBufferConFiguredForWrite) {
         // NO-OP if buffer is already in correct state
         if (this.readBufferConfiguredForWrite != readBufferConFiguredForWrite) {
+            ByteBuffer readBuffer = getReadBuffer();
             if (readBufferConFiguredForWrite) {
                 // Switching to write
                 int remaining = readBuffer.remaining();
@@ -90,12 +135,34 @@ public class SocketBufferHandler {
 
 
     public ByteBuffer getReadBuffer() {
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer == null) {
+            readBuffer = borrowReadBuffer();
+        }
         return readBuffer;
     }
 
 
+    /**
+     * Obtain the capacity of the read buffer. If the buffers are borrowed from a shared pool, this does not borrow the
+     * read buffer if it is not currently in use.
+     *
+     * @return the capacity of the read buffer
+     */
+    public int getReadBufferCapacity() {
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer == null) {
+            return readBufferSize;
+        }
+        return readBuffer.capacity();
+    }
+
+
     public boolean isReadBufferEmpty() {
-        if (readBufferConfiguredForWrite) {
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer == null) {
+            return true;
+        } else if (readBufferConfiguredForWrite) {
             return readBuffer.position() == 0;
         } else {
             return readBuffer.remaining() == 0;
@@ -106,8 +173,9 @@ public class SocketBufferHandler {
     public void unReadReadBuffer(ByteBuffer returnedData) {
         if (isReadBufferEmpty()) {
             configureReadBufferForWrite();
-            readBuffer.put(returnedData);
+            getReadBuffer().put(returnedData);
         } else {
+            ByteBuffer readBuffer = getReadBuffer();
             int bytesReturned = returnedData.remaining();
             if (readBufferConfiguredForWrite) {
                 // Writes always start at position zero
@@ -165,6 +233,7 @@ public class SocketBufferHandler {
     private void setWriteBufferConfiguredForWrite(boolean writeBufferConfiguredForWrite) {
         // NO-OP if buffer is already in correct state
         if (this.writeBufferConfiguredForWrite != writeBufferConfiguredForWrite) {
+            ByteBuffer writeBuffer = getWriteBuffer();
             if (writeBufferConfiguredForWrite) {
                 // Switching to write
                 int remaining = writeBuffer.remaining();
@@ -185,7 +254,10 @@ public class SocketBufferHandler {
 
 
     public boolean isWriteBufferWritable() {
-        if (writeBufferConfiguredForWrite) {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            return true;
+        } else if (writeBufferConfiguredForWrite) {
             return writeBuffer.hasRemaining();
         } else {
             return writeBuffer.remaining() == 0;
@@ -194,12 +266,19 @@ public class SocketBufferHandler {
 
 
     public ByteBuffer getWriteBuffer() {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            writeBuffer = borrowWriteBuffer();
+        }
         return writeBuffer;
     }
 
 
     public boolean isWriteBufferEmpty() {
-        if (writeBufferConfiguredForWrite) {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            return true;
+        } else if (writeBufferConfiguredForWrite) {
             return writeBuffer.position() == 0;
         } else {
             return writeBuffer.remaining() == 0;
@@ -208,6 +287,11 @@ public class SocketBufferHandler {
 
 
     public void reset() {
+        if (pool != null) {
+            releaseReadBuffer();
+            releaseWriteBuffer();
+            return;
+        }
         readBuffer.clear();
         readBufferConfiguredForWrite = true;
         writeBuffer.clear();
@@ -216,6 +300,10 @@ public class SocketBufferHandler {
 
 
     public void expand(int newSize) {
+        if (pool != null) {
+            expandPooled(newSize);
+            return;
+        }
         configureReadBufferForWrite();
         readBuffer = ByteBufferUtils.expand(readBuffer, newSize);
         configureWriteBufferForWrite();
@@ -223,10 +311,124 @@ public class SocketBufferHandler {
     }
 
     public void free() {
-        if (direct) {
+        if (pool != null) {
+            releaseReadBuffer();
+            releaseWriteBuffer();
+        } else if (direct) {
             ByteBufferUtils.cleanDirectBuffer(readBuffer);
             ByteBufferUtils.cleanDirectBuffer(writeBuffer);
         }
     }
 
+
+    /**
+     * Return the buffers to the shared pool, if this handler uses one and the buffers do not contain any data. The
+     * caller must ensure that no other thread is using the buffers. The buffers will be borrowed again from the pool
+     * when they are next used.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        if (isReadBufferEmpty()) {
+            releaseReadBuffer();
+        }
+        if (isWriteBufferEmpty()) {
+            releaseWriteBuffer();
+        }
+    }
+
+
+    private synchronized ByteBuffer borrowReadBuffer() {
+        if (readBuffer == null) {
+            pooledReadBuffer = pool.borrow(readBufferSize);
+            readBuffer = slice(pooledReadBuffer, readBufferSize);
+            readBufferConfiguredForWrite = true;
+        }
+        return readBuffer;
+    }
+
+
+    private synchronized ByteBuffer borrowWriteBuffer() {
+        if (writeBuffer == null) {
+            pooledWriteBuffer = pool.borrow(writeBufferSize);
+            writeBuffer = slice(pooledWriteBuffer, writeBufferSize);
+            writeBufferConfiguredForWrite = true;
+        }
+        return writeBuffer;
+    }
+
+
+    private ByteBuffer slice(ByteBuffer pooledBuffer, int size) {
+        if (pooledBuffer == null) {
+            // The pool is full, use a dedicated buffer
+            return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+        return pooledBuffer.slice(0, size);
+    }
+
+
+    private synchronized void releaseReadBuffer() {
+        if (readBuffer != null) {
+            release(readBuffer, pooledReadBuffer);
+            readBuffer = null;
+            pooledReadBuffer = null;
+        }
+        readBufferConfiguredForWrite = true;
+    }
+
+
+    private synchronized void releaseWriteBuffer() {
+        if (writeBuffer != null) {
+            release(writeBuffer, pooledWriteBuffer);
+            writeBuffer = null;
+            pooledWriteBuffer = null;
+        }
+        writeBufferConfiguredForWrite = true;
+    }
+
+
+    private void release(ByteBuffer buffer, ByteBuffer pooledBuffer) {
+        if (pooledBuffer == null) {
+            if (direct) {
+                ByteBufferUtils.cleanDirectBuffer(buffer);
+            }
+        } else {
+            pool.release(pooledBuffer);
+        }
+    }
+
+
+    /*
+     * Expanding pooled buffers borrows larger buffers from the pool, copies any data and returns the original buffers.
+     */
+    private synchronized void expandPooled(int newSize) {
+        if (newSize > readBufferSize) {
+            readBufferSize = newSize;
+            if (readBuffer != null) {
+                configureReadBufferForWrite();
+                ByteBuffer oldBuffer = readBuffer;
+                ByteBuffer oldPooledBuffer = pooledReadBuffer;
+                readBuffer = null;
+                borrowReadBuffer();
+                oldBuffer.flip();
+                readBuffer.put(oldBuffer);
+                release(oldBuffer, oldPooledBuffer);
+            }
+        }
+        if (newSize > writeBufferSize) {
+            writeBufferSize = newSize;
+            if (writeBuffer != null) {
+                configureWriteBufferForWrite();
+                ByteBuffer oldBuffer = writeBuffer;
+                ByteBuffer oldPooledBuffer = pooledWriteBuffer;
+                writeBuffer = null;
+                borrowWriteBuffer();
+                oldBuffer.flip();
+                writeBuffer.put(oldBuffer);
+                release(oldBuffer, oldPooledBuffer);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,243 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.ObjectName;
+
+import org.apache.tomcat.util.collections.SynchronizedStack;
+
+/**
+ * A pool of socket buffers shared by all the connections of an endpoint. Connections borrow buffers from the pool
+ * while they are reading or writing and return them when they are idle so that the memory used by idle connections is
+ * limited to the connection objects themselves.
+ * <p>
+ * Buffers are organised in size classes that are powers of two. The buffers of a size class are carved from larger
+ * slabs which are allocated on demand until the configured maximum memory is reached. Once the maximum is reached,
+ * {@link #borrow(int)} returns {@code null} and the caller is expected to allocate a dedicated buffer instead. The free
+ * buffers of each size class are spread over several stacks, selected using the current thread, to limit contention
+ * between threads. Slabs are never released while the pool is in use.
+ */
+public class SocketBufferPool {
+
+    /**
+     * Size of the smallest size class.
+     */
+    private static final int MIN_SIZE_CLASS_SHIFT = 9;
+
+    /**
+     * Size of the slabs from which buffers are carved, unless a single buffer is larger.
+     */
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private final boolean direct;
+    private final long maxMemory;
+    private final int stripeCount;
+    private final AtomicReferenceArray<SizeClass> sizeClasses = new AtomicReferenceArray<>(Integer.SIZE);
+
+    // Statistics exposed via JMX
+    private final AtomicLong allocatedMemory = new AtomicLong(0);
+    private final AtomicLong borrowedCount = new AtomicLong(0);
+    private final AtomicLong borrowCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private volatile ObjectName oname = null;
+
+
+    /**
+     * Create a new pool.
+     *
+     * @param direct    {@code true} if the pool should provide direct buffers
+     * @param maxMemory The maximum number of bytes that may be allocated for buffers by this pool
+     */
+    public SocketBufferPool(boolean direct, long maxMemory) {
+        this.direct = direct;
+        this.maxMemory = maxMemory;
+        this.stripeCount = Runtime.getRuntime().availableProcessors();
+    }
+
+
+    /**
+     * Borrow a buffer from the pool. The buffer is cleared and has a capacity that is at least equal to the requested
+     * size. It must be returned to the pool using {@link #release(ByteBuffer)} when no longer needed and must not be
+     * used after that.
+     *
+     * @param size The minimum capacity of the buffer
+     *
+     * @return a buffer or {@code null} if the pool does not have any buffer of the requested size available and the
+     *             maximum memory has been reached
+     */
+    public ByteBuffer borrow(int size) {
+        SizeClass sizeClass = getSizeClass(size);
+        ByteBuffer result = sizeClass.pop();
+        if (result == null) {
+            result = sizeClass.allocate();
+        }
+        if (result == null) {
+            missCount.incrementAndGet();
+        } else {
+            borrowCount.incrementAndGet();
+            borrowedCount.incrementAndGet();
+        }
+        return result;
+    }
+
+
+    /**
+     * Return a buffer, previously obtained from {@link #borrow(int)}, to the pool.
+     *
+     * @param buffer The buffer to return
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        borrowedCount.decrementAndGet();
+        getSizeClass(buffer.capacity()).push(buffer);
+    }
+
+
+    /**
+     * @return {@code true} if the pool provides direct buffers
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+
+    /**
+     * @return the maximum number of bytes that may be allocated for buffers by this pool
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+
+    /**
+     * @return the number of bytes currently allocated for buffers by this pool
+     */
+    public long getAllocatedMemory() {
+        return allocatedMemory.get();
+    }
+
+
+    /**
+     * @return the number of buffers currently borrowed from this pool
+     */
+    public long getBorrowedCount() {
+        return borrowedCount.get();
+    }
+
+
+    /**
+     * @return the number of times a buffer has been borrowed from this pool
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+
+    /**
+     * @return the number of times a buffer could not be provided because the maximum memory had been reached
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    void setObjectName(ObjectName oname) {
+        this.oname = oname;
+    }
+
+
+    ObjectName getObjectName() {
+        return oname;
+    }
+
+
+    private SizeClass getSizeClass(int size) {
+        int shift = Math.max(MIN_SIZE_CLASS_SHIFT, Integer.SIZE - Integer.numberOfLeadingZeros(size - 1));
+        SizeClass result = sizeClasses.get(shift);
+        if (result == null) {
+            sizeClasses.compareAndSet(shift, null, new SizeClass(1 << shift));
+            result = sizeClasses.get(shift);
+        }
+        return result;
+    }
+
+
+    private class SizeClass {
+
+        private final int bufferSize;
+        private final SynchronizedStack<ByteBuffer>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+            stripes = new SynchronizedStack[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new SynchronizedStack<>();
+            }
+        }
+
+        private int getStripe() {
+            return (int) (Thread.currentThread().threadId() % stripeCount);
+        }
+
+        ByteBuffer pop() {
+            int stripe = getStripe();
+            // Try the stripe of this thread first, then the others
+            for (int i = 0; i < stripeCount; i++) {
+                ByteBuffer result = stripes[(stripe + i) % stripeCount].pop();
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        void push(ByteBuffer buffer) {
+            stripes[getStripe()].push(buffer);
+        }
+
+        /*
+         * Allocate a new slab, keeping the first buffer for the caller and making the others available to other
+         * threads.
+         */
+        ByteBuffer allocate() {
+            long slabBufferCount = Math.max(1, SLAB_SIZE / bufferSize);
+            long memory;
+            long newMemory;
+            do {
+                memory = allocatedMemory.get();
+                slabBufferCount = Math.min(slabBufferCount, (maxMemory - memory) / bufferSize);
+                if (slabBufferCount <= 0) {
+                    return null;
+                }
+                newMemory = memory + slabBufferCount * bufferSize;
+            } while (!allocatedMemory.compareAndSet(memory, newMemory));
+
+            int slabSize = (int) (slabBufferCount * bufferSize);
+            ByteBuffer slab = direct ? ByteBuffer.allocateDirect(slabSize) : ByteBuffer.allocate(slabSize);
+            int stripe = getStripe();
+            for (int i = 1; i < slabBufferCount; i++) {
+                stripes[stripe].push(slab.slice(i * bufferSize, bufferSize));
+            }
+            return slab.slice(0, bufferSize);
+        }
+    }
+}
@@ -19,11 +19,16 @@ package org.apache.tomcat.util.net;
 import java.util.Objects;
 import java.util.concurrent.locks.Lock;
 
-public abstract class SocketProcessorBase<S> implements Runnable {
+import org.apache.tomcat.util.threads.SheddableTask;
+
+public abstract class SocketProcessorBase<S> implements SheddableTask {
 
     protected SocketWrapperBase<S> socketWrapper;
     protected SocketEvent event;
 
+    private long queueTime;
+    private volatile boolean shed;
+
     public SocketProcessorBase(SocketWrapperBase<S> socketWrapper, SocketEvent event) {
         reset(socketWrapper, event);
     }
@@ -33,6 +38,40 @@ public abstract class SocketProcessorBase<S> implements Runnable {
         Objects.requireNonNull(event);
         this.socketWrapper = socketWrapper;
         this.event = event;
+        this.shed = false;
+    }
+
+
+    @Override
+    public void setQueueTime(long queueTime) {
+        this.queueTime = queueTime;
+    }
+
+
+    @Override
+    public long getQueueTime() {
+        return queueTime;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the processing of a new request, i.e. a read event for a connection that is not associated with a
+     * processor, is shed. Other events are part of the processing of a request or a connection that has already
+     * started and are always processed.
+     */
+    @Override
+    public boolean shed() {
+        if (isSheddable()) {
+            shed = true;
+        }
+        return shed;
+    }
+
+
+    private boolean isSheddable() {
+        return event == SocketEvent.OPEN_READ && socketWrapper.getCurrentProcessor() == null;
     }
 
 
@@ -49,7 +88,11 @@ public abstract class SocketProcessorBase<S> implements Runnable {
             if (socketWrapper.isClosed()) {
                 return;
             }
-            doRun();
+            if (shed && isSheddable()) {
+                doShed();
+            } else {
+                doRun();
+            }
         } finally {
             lock.unlock();
         }
@@ -57,4 +100,17 @@ public abstract class SocketProcessorBase<S> implements Runnable {
 
 
     protected abstract void doRun();
+
+
+    /**
+     * Reject the new request for this connection, as the server is overloaded, and close the connection. The handler
+     * is given the opportunity to send a minimal response first.
+     */
+    protected void doShed() {
+        try {
+            socketWrapper.getEndpoint().getHandler().shed(socketWrapper);
+        } finally {
+            socketWrapper.close();
+        }
+    }
 }
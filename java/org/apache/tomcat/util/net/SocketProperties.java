@@ -108,6 +108,15 @@ public class SocketProperties {
      */
     protected int bufferPoolSize = -2;
 
+    /**
+     * Maximum size in bytes of the pool of socket buffers shared by all the connections. If greater than zero, the
+     * read and write buffers of a connection are borrowed from the shared pool when needed and returned when the
+     * connection is idle between requests.
+     * <p>
+     * Default value is 0, each connection has dedicated buffers.
+     */
+    protected long sharedBufferPoolSize = 0;
+
     /**
      * TCP_NO_DELAY option. JVM default used if not set.
      */
@@ -324,6 +333,10 @@ public class SocketProperties {
         return bufferPoolSize;
     }
 
+    public long getSharedBufferPoolSize() {
+        return sharedBufferPoolSize;
+    }
+
     public int getEventCache() {
         return eventCache;
     }
@@ -412,6 +425,10 @@ public class SocketProperties {
         this.bufferPoolSize = bufferPoolSize;
     }
 
+    public void setSharedBufferPoolSize(long sharedBufferPoolSize) {
+        this.sharedBufferPoolSize = sharedBufferPoolSize;
+    }
+
     public void setEventCache(int eventCache) {
         this.eventCache = eventCache;
     }
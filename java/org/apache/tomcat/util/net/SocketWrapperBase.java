@@ -366,6 +366,10 @@ public abstract class SocketWrapperBase<E> {
     public abstract void setAppReadBufHandler(ApplicationBufferHandler handler);
 
     protected int populateReadBuffer(byte[] b, int off, int len) {
+        if (socketBufferHandler.isReadBufferEmpty()) {
+            // Avoid borrowing the read buffer from a shared pool if there is nothing to read
+            return 0;
+        }
         socketBufferHandler.configureReadBufferForRead();
         ByteBuffer readBuffer = socketBufferHandler.getReadBuffer();
         int remaining = readBuffer.remaining();
@@ -385,6 +389,10 @@ public abstract class SocketWrapperBase<E> {
 
 
     protected int populateReadBuffer(ByteBuffer to) {
+        if (socketBufferHandler.isReadBufferEmpty()) {
+            // Avoid borrowing the read buffer from a shared pool if there is nothing to read
+            return 0;
+        }
         // Is there enough data in the read buffer to satisfy this request?
         // Copy what data there is in the read buffer to the byte array
         socketBufferHandler.configureReadBufferForRead();
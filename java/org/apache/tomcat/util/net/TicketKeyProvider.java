@@ -0,0 +1,38 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+
+/**
+ * Provides the keys used to encrypt and decrypt TLS session tickets. When all the servers behind a load balancer use
+ * the same provider, such as a key file distributed to each of them, a client can resume its session on any server
+ * rather than having to perform a full handshake. The keys are obtained again periodically so that they can be rotated
+ * without restarting the connector.
+ */
+public interface TicketKeyProvider {
+
+    /**
+     * Obtain the current session ticket keys. The result is 48 bytes long: a 16 byte key name followed by a 16 byte
+     * HMAC secret and a 16 byte AES key.
+     *
+     * @return the current session ticket keys
+     *
+     * @throws IOException If the keys could not be obtained
+     */
+    byte[] getTicketKeys() throws IOException;
+}
@@ -0,0 +1,44 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * A server {@link SSLSessionContext} for which the session ticket keys can be set and which tracks how many handshakes
+ * resumed an existing session.
+ */
+public interface TicketKeySessionContext extends SSLSessionContext {
+
+    /**
+     * Sets the SSL session ticket keys of this context.
+     *
+     * @param keys The session ticket keys
+     */
+    void setTicketKeys(byte[] keys);
+
+    /**
+     * @return the number of successfully established TLS sessions in server mode, including resumed sessions
+     */
+    long getHandshakeCount();
+
+    /**
+     * @return the number of successfully established TLS sessions in server mode that resumed an existing session
+     *             using either the session cache or a session ticket
+     */
+    long getResumedHandshakeCount();
+}
@@ -41,7 +41,7 @@ public class WriteBuffer {
         this.bufferSize = bufferSize;
     }
 
-    void clear() {
+    public void clear() {
         buffers.clear();
     }
 
@@ -96,7 +96,7 @@ public class WriteBuffer {
     }
 
 
-    boolean write(SocketWrapperBase<?> socketWrapper, boolean blocking) throws IOException {
+    public boolean write(SocketWrapperBase<?> socketWrapper, boolean blocking) throws IOException {
         Iterator<ByteBufferHolder> bufIter = buffers.iterator();
         boolean dataLeft = false;
         while (!dataLeft && bufIter.hasNext()) {
@@ -0,0 +1,309 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Minimal io_uring instance. The submission queue is only accessed by the thread that owns the ring and submissions
+ * are always made with <code>io_uring_enter</code> so no kernel side polling is required.
+ */
+final class IoUring {
+
+    // Opcodes
+    static final byte IORING_OP_READ_FIXED = 4;
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_TIMEOUT = 11;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_RECV = 27;
+
+    // Flags
+    static final short IORING_ACCEPT_MULTISHOT = 1;
+    static final int IORING_CQE_F_MORE = 1 << 1;
+    static final int POLLIN = 0x1;
+    static final int POLLOUT = 0x4;
+
+    private static final int IORING_SETUP_SUBMIT_ALL = 1 << 7;
+    private static final int IORING_SETUP_COOP_TASKRUN = 1 << 8;
+    private static final int IORING_FEAT_SINGLE_MMAP = 1;
+    private static final int IORING_ENTER_GETEVENTS = 1;
+    private static final int IORING_REGISTER_BUFFERS = 0;
+
+    private static final long IORING_OFF_SQ_RING = 0L;
+    private static final long IORING_OFF_CQ_RING = 0x8000000L;
+    private static final long IORING_OFF_SQES = 0x10000000L;
+
+    // struct io_uring_params
+    private static final int PARAMS_SIZE = 120;
+    private static final int PARAMS_SQ_ENTRIES = 0;
+    private static final int PARAMS_CQ_ENTRIES = 4;
+    private static final int PARAMS_FLAGS = 8;
+    private static final int PARAMS_FEATURES = 20;
+    private static final int PARAMS_SQ_OFF = 40;
+    private static final int PARAMS_CQ_OFF = 80;
+    // struct io_sqring_offsets
+    private static final int SQ_OFF_HEAD = 0;
+    private static final int SQ_OFF_TAIL = 4;
+    private static final int SQ_OFF_RING_MASK = 8;
+    private static final int SQ_OFF_ARRAY = 24;
+    // struct io_cqring_offsets
+    private static final int CQ_OFF_HEAD = 0;
+    private static final int CQ_OFF_TAIL = 4;
+    private static final int CQ_OFF_RING_MASK = 8;
+    private static final int CQ_OFF_CQES = 20;
+
+    // struct io_uring_sqe
+    private static final long SQE_SIZE = 64;
+    private static final long SQE_OPCODE = 0;
+    private static final long SQE_IOPRIO = 2;
+    private static final long SQE_FD = 4;
+    private static final long SQE_OFF = 8;
+    private static final long SQE_ADDR = 16;
+    private static final long SQE_LEN = 24;
+    private static final long SQE_OP_FLAGS = 28;
+    private static final long SQE_USER_DATA = 32;
+    private static final long SQE_BUF_INDEX = 40;
+    // struct io_uring_cqe
+    private static final long CQE_SIZE = 16;
+    private static final long CQE_USER_DATA = 0;
+    private static final long CQE_RES = 8;
+    private static final long CQE_FLAGS = 12;
+
+
+    /**
+     * Receives the completions reaped from the completion queue.
+     */
+    @FunctionalInterface
+    interface CompletionConsumer {
+        void accept(long userData, int res, int flags);
+    }
+
+
+    private final int ringFd;
+    private final int sqEntries;
+    private final MemorySegment sqRing;
+    private final MemorySegment cqRing;
+    private final MemorySegment sqes;
+    private final long sqHeadOffset;
+    private final long sqTailOffset;
+    private final int sqMask;
+    private final long cqHeadOffset;
+    private final long cqTailOffset;
+    private final long cqesOffset;
+    private final int cqMask;
+
+    private int sqTail;
+
+
+    IoUring(int entries) throws IOException {
+        long fd;
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment params = arena.allocate(PARAMS_SIZE, 8);
+            params.set(ValueLayout.JAVA_INT, PARAMS_FLAGS, IORING_SETUP_SUBMIT_ALL | IORING_SETUP_COOP_TASKRUN);
+            fd = Syscalls.ioUringSetup(entries, params);
+            if (fd == -Syscalls.EINVAL) {
+                // Older kernel that does not support the optional setup flags
+                params.fill((byte) 0);
+                fd = Syscalls.ioUringSetup(entries, params);
+            }
+            if (fd < 0) {
+                throw Syscalls.newIOException("io_uring_setup", fd);
+            }
+            ringFd = (int) fd;
+
+            sqEntries = params.get(ValueLayout.JAVA_INT, PARAMS_SQ_ENTRIES);
+            int cqEntries = params.get(ValueLayout.JAVA_INT, PARAMS_CQ_ENTRIES);
+            int features = params.get(ValueLayout.JAVA_INT, PARAMS_FEATURES);
+            sqHeadOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_SQ_OFF + SQ_OFF_HEAD));
+            sqTailOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_SQ_OFF + SQ_OFF_TAIL));
+            long sqMaskOffset =
+                    Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_SQ_OFF + SQ_OFF_RING_MASK));
+            long sqArrayOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_SQ_OFF + SQ_OFF_ARRAY));
+            cqHeadOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_CQ_OFF + CQ_OFF_HEAD));
+            cqTailOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_CQ_OFF + CQ_OFF_TAIL));
+            long cqMaskOffset =
+                    Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_CQ_OFF + CQ_OFF_RING_MASK));
+            cqesOffset = Integer.toUnsignedLong(params.get(ValueLayout.JAVA_INT, PARAMS_CQ_OFF + CQ_OFF_CQES));
+
+            long sqRingSize = sqArrayOffset + sqEntries * 4L;
+            long cqRingSize = cqesOffset + cqEntries * CQE_SIZE;
+            MemorySegment sq = null;
+            MemorySegment cq = null;
+            try {
+                if ((features & IORING_FEAT_SINGLE_MMAP) != 0) {
+                    sq = Syscalls.mmap(ringFd, Math.max(sqRingSize, cqRingSize), IORING_OFF_SQ_RING);
+                    cq = sq;
+                } else {
+                    sq = Syscalls.mmap(ringFd, sqRingSize, IORING_OFF_SQ_RING);
+                    cq = Syscalls.mmap(ringFd, cqRingSize, IORING_OFF_CQ_RING);
+                }
+                sqes = Syscalls.mmap(ringFd, sqEntries * SQE_SIZE, IORING_OFF_SQES);
+            } catch (IOException ioe) {
+                if (sq != null) {
+                    Syscalls.munmap(sq);
+                }
+                if (cq != null && cq != sq) {
+                    Syscalls.munmap(cq);
+                }
+                Syscalls.close(ringFd);
+                throw ioe;
+            }
+            sqRing = sq;
+            cqRing = cq;
+            sqMask = sqRing.get(ValueLayout.JAVA_INT, sqMaskOffset);
+            cqMask = cqRing.get(ValueLayout.JAVA_INT, cqMaskOffset);
+            // Use a fixed one to one mapping between the submission queue array and the submission queue entries
+            for (int i = 0; i < sqEntries; i++) {
+                sqRing.set(ValueLayout.JAVA_INT, sqArrayOffset + i * 4L, i);
+            }
+            sqTail = sqRing.get(ValueLayout.JAVA_INT, sqTailOffset);
+        }
+    }
+
+
+    /**
+     * Registers a single region of memory with the kernel so that reads into it can use
+     * {@link #IORING_OP_READ_FIXED} which avoids mapping the pages for every operation.
+     *
+     * @param region The memory region to register
+     *
+     * @return {@code 0} on success or the negated errno value on failure
+     */
+    long registerBuffer(MemorySegment region) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment iovec = arena.allocate(16, 8);
+            iovec.set(ValueLayout.JAVA_LONG, 0, region.address());
+            iovec.set(ValueLayout.JAVA_LONG, 8, region.byteSize());
+            return Syscalls.ioUringRegister(ringFd, IORING_REGISTER_BUFFERS, iovec, 1);
+        }
+    }
+
+
+    /**
+     * Adds an entry to the submission queue. The entry is not visible to the kernel until {@link #submit(boolean)} is
+     * called.
+     *
+     * @return {@code false} if the submission queue is full
+     */
+    boolean prepare(byte opcode, int fd, long addr, int len, long off, int opFlags, short ioprio, long userData,
+            short bufIndex) {
+        int head = sqRing.get(ValueLayout.JAVA_INT, sqHeadOffset);
+        VarHandle.acquireFence();
+        if (sqTail - head >= sqEntries) {
+            return false;
+        }
+        long sqe = (sqTail & sqMask) * SQE_SIZE;
+        for (long i = 0; i < SQE_SIZE; i += 8) {
+            sqes.set(ValueLayout.JAVA_LONG, sqe + i, 0L);
+        }
+        sqes.set(ValueLayout.JAVA_BYTE, sqe + SQE_OPCODE, opcode);
+        sqes.set(ValueLayout.JAVA_SHORT, sqe + SQE_IOPRIO, ioprio);
+        sqes.set(ValueLayout.JAVA_INT, sqe + SQE_FD, fd);
+        sqes.set(ValueLayout.JAVA_LONG, sqe + SQE_OFF, off);
+        sqes.set(ValueLayout.JAVA_LONG, sqe + SQE_ADDR, addr);
+        sqes.set(ValueLayout.JAVA_INT, sqe + SQE_LEN, len);
+        sqes.set(ValueLayout.JAVA_INT, sqe + SQE_OP_FLAGS, opFlags);
+        sqes.set(ValueLayout.JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        sqes.set(ValueLayout.JAVA_SHORT, sqe + SQE_BUF_INDEX, bufIndex);
+        sqTail++;
+        return true;
+    }
+
+
+    /**
+     * Submits all prepared entries in a single system call and optionally waits for at least one completion.
+     *
+     * @param wait Should the call block until at least one completion is available
+     *
+     * @return the number of entries submitted or the negated errno value
+     */
+    long submit(boolean wait) {
+        VarHandle.releaseFence();
+        sqRing.set(ValueLayout.JAVA_INT, sqTailOffset, sqTail);
+        VarHandle.fullFence();
+        int toSubmit = sqTail - sqRing.get(ValueLayout.JAVA_INT, sqHeadOffset);
+        if (toSubmit == 0 && !wait) {
+            return 0;
+        }
+        long result = Syscalls.ioUringEnter(ringFd, toSubmit, wait ? 1 : 0, wait ? IORING_ENTER_GETEVENTS : 0);
+        if (result == -Syscalls.EINTR) {
+            return 0;
+        }
+        return result;
+    }
+
+
+    /**
+     * @return {@code true} if there are completions waiting to be reaped
+     */
+    boolean hasCompletions() {
+        int tail = cqRing.get(ValueLayout.JAVA_INT, cqTailOffset);
+        VarHandle.acquireFence();
+        return tail != cqRing.get(ValueLayout.JAVA_INT, cqHeadOffset);
+    }
+
+
+    /**
+     * Passes all the available completions to the given consumer.
+     *
+     * @param consumer The consumer for the completions
+     *
+     * @return the number of completions processed
+     */
+    int reap(CompletionConsumer consumer) {
+        int head = cqRing.get(ValueLayout.JAVA_INT, cqHeadOffset);
+        int tail = cqRing.get(ValueLayout.JAVA_INT, cqTailOffset);
+        VarHandle.acquireFence();
+        int count = 0;
+        while (head != tail) {
+            long cqe = cqesOffset + (head & cqMask) * CQE_SIZE;
+            long userData = cqRing.get(ValueLayout.JAVA_LONG, cqe + CQE_USER_DATA);
+            int res = cqRing.get(ValueLayout.JAVA_INT, cqe + CQE_RES);
+            int flags = cqRing.get(ValueLayout.JAVA_INT, cqe + CQE_FLAGS);
+            head++;
+            count++;
+            // Release the entry before processing it so the kernel can re-use it as soon as possible
+            VarHandle.releaseFence();
+            cqRing.set(ValueLayout.JAVA_INT, cqHeadOffset, head);
+            consumer.accept(userData, res, flags);
+            if (head == tail) {
+                tail = cqRing.get(ValueLayout.JAVA_INT, cqTailOffset);
+                VarHandle.acquireFence();
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Releases the ring. Any operations still in progress are cancelled by the kernel.
+     */
+    void close() {
+        Syscalls.munmap(sqes);
+        if (cqRing != sqRing) {
+            Syscalls.munmap(cqRing);
+        }
+        Syscalls.munmap(sqRing);
+        Syscalls.close(ringFd);
+    }
+}
@@ -0,0 +1,1910 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+import org.apache.tomcat.util.collections.SynchronizedQueue;
+import org.apache.tomcat.util.collections.SynchronizedStack;
+import org.apache.tomcat.util.net.AbstractEndpoint;
+import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
+import org.apache.tomcat.util.net.ApplicationBufferHandler;
+import org.apache.tomcat.util.net.SSLSupport;
+import org.apache.tomcat.util.net.SendfileDataBase;
+import org.apache.tomcat.util.net.SendfileState;
+import org.apache.tomcat.util.net.SocketBufferHandler;
+import org.apache.tomcat.util.net.SocketEvent;
+import org.apache.tomcat.util.net.SocketProcessorBase;
+import org.apache.tomcat.util.net.SocketWrapperBase;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Endpoint that uses the Linux io_uring interface, via the FFM API, for network I/O. A single poller thread owns the
+ * ring. Requests from other threads are queued and submitted to the kernel as a batch that also waits for the next
+ * completions so that one system call both submits and reaps many operations. Connections are accepted with a multishot
+ * accept and data is received directly into the socket read buffers, which are carved out of a region registered with
+ * the kernel where possible, so that a keep-alive request is ready to be parsed when it is dispatched to a worker.
+ * Writes are attempted directly on the worker thread and only fall back to the ring when the socket send buffer is
+ * full.
+ * <p>
+ * TLS and sendfile are not supported. Sockets are identified by their file descriptor.
+ */
+public class IoUringEndpoint extends AbstractEndpoint<Integer,Integer> {
+
+    private static final Log log = LogFactory.getLog(IoUringEndpoint.class);
+    private static final StringManager sm = StringManager.getManager(IoUringEndpoint.class);
+
+    private static final Integer CLOSED_SOCKET = Integer.valueOf(-1);
+
+    private static final int BOUNCE_BUFFER_SIZE = 16 * 1024;
+    private static final ThreadLocal<ByteBuffer> BOUNCE_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BOUNCE_BUFFER_SIZE));
+
+    private static final SocketBufferHandler EMPTY = new SocketBufferHandler(0, 0, false) {
+        @Override
+        public void expand(int newSize) {
+        }
+
+        @Override
+        public void unReadReadBuffer(ByteBuffer returnedData) {
+        }
+    };
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available = false;
+        if (System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH).startsWith("linux")) {
+            try {
+                new IoUring(2).close();
+                available = true;
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.iouring.unavailable"), t);
+                }
+            }
+        }
+        AVAILABLE = available;
+    }
+
+
+    /**
+     * @return {@code true} if the running kernel allows io_uring instances to be created
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+
+    // ----------------------------------------------------------------- Fields
+
+    private volatile int serverSock = -1;
+
+    private volatile CountDownLatch stopLatch = null;
+
+    private volatile Poller poller = null;
+
+    private BlockingQueue<Integer> acceptQueue;
+
+    /**
+     * Cache of socket buffer handlers for re-use by new connections.
+     */
+    private SynchronizedStack<SocketBufferHandler> bufferHandlers;
+
+    /**
+     * Read buffers carved out of the registered buffer region that are not currently in use.
+     */
+    private SynchronizedStack<ByteBuffer> registeredReadBuffers;
+    private ByteBuffer registeredRegion;
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Priority of the poller thread.
+     */
+    private int pollerThreadPriority = Thread.NORM_PRIORITY;
+
+    public void setPollerThreadPriority(int pollerThreadPriority) {
+        this.pollerThreadPriority = pollerThreadPriority;
+    }
+
+    public int getPollerThreadPriority() {
+        return pollerThreadPriority;
+    }
+
+
+    /**
+     * Maximum time the poller waits for completions before checking for timeouts.
+     */
+    private long selectorTimeout = 1000;
+
+    public void setSelectorTimeout(long timeout) {
+        this.selectorTimeout = timeout;
+    }
+
+    public long getSelectorTimeout() {
+        return this.selectorTimeout;
+    }
+
+
+    /**
+     * Requested number of submission queue entries.
+     */
+    private int ringEntries = 1024;
+
+    public void setRingEntries(int ringEntries) {
+        this.ringEntries = ringEntries;
+    }
+
+    public int getRingEntries() {
+        return ringEntries;
+    }
+
+
+    /**
+     * Number of socket read buffers to register with the kernel. Each buffer is
+     * {@link org.apache.tomcat.util.net.SocketProperties#getAppReadBufSize()} bytes.
+     */
+    private int registeredBufferCount = 256;
+
+    public void setRegisteredBufferCount(int registeredBufferCount) {
+        this.registeredBufferCount = registeredBufferCount;
+    }
+
+    public int getRegisteredBufferCount() {
+        return registeredBufferCount;
+    }
+
+
+    /**
+     * Sendfile requires a file channel and is not supported by this endpoint.
+     */
+    @Override
+    public boolean getUseSendfile() {
+        return false;
+    }
+
+
+    // ----------------------------------------------- Public Lifecycle Methods
+
+    @Override
+    public void bind() throws Exception {
+        if (!isAvailable()) {
+            throw new IllegalStateException(sm.getString("endpoint.iouring.unavailable"));
+        }
+        if (isSSLEnabled()) {
+            throw new IllegalArgumentException(sm.getString("endpoint.iouring.noSsl"));
+        }
+        initServerSocket();
+        setStopLatch(new CountDownLatch(1));
+    }
+
+
+    protected void initServerSocket() throws Exception {
+        InetAddress address = getAddress();
+        int family = (address instanceof Inet4Address) ? Syscalls.AF_INET : Syscalls.AF_INET6;
+        int fd;
+        try {
+            fd = Syscalls.socket(family);
+        } catch (IOException ioe) {
+            if (address != null) {
+                throw ioe;
+            }
+            // IPv6 is not available so listen on all IPv4 addresses
+            family = Syscalls.AF_INET;
+            fd = Syscalls.socket(family);
+        }
+        try {
+            Syscalls.setIntOption(fd, Syscalls.SOL_SOCKET, Syscalls.SO_REUSEADDR, 1);
+            if (family == Syscalls.AF_INET6 && address == null) {
+                Syscalls.setIntOption(fd, Syscalls.IPPROTO_IPV6, Syscalls.IPV6_V6ONLY, 0);
+            }
+            Syscalls.bind(fd, family, address, getPortWithOffset());
+            Syscalls.listen(fd, getAcceptCount());
+        } catch (IOException ioe) {
+            Syscalls.close(fd);
+            throw ioe;
+        }
+        serverSock = fd;
+    }
+
+
+    @Override
+    public void startInternal() throws Exception {
+
+        if (!running) {
+            running = true;
+            paused = false;
+
+            if (socketProperties.getProcessorCache() != 0) {
+                processorCache =
+                        new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getProcessorCache());
+            }
+            int actualBufferPool = socketProperties.getActualBufferPool(0);
+            if (actualBufferPool != 0) {
+                bufferHandlers = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, actualBufferPool);
+            }
+            acceptQueue = new LinkedBlockingQueue<>();
+
+            // Create worker collection
+            if (getExecutor() == null) {
+                createExecutor();
+            }
+
+            initializeConnectionLatch();
+
+            // Start poller thread
+            poller = new Poller();
+            Thread pollerThread = new Thread(poller, getName() + "-Poller");
+            pollerThread.setPriority(pollerThreadPriority);
+            pollerThread.setDaemon(true);
+            pollerThread.start();
+
+            startAcceptorThread();
+        }
+    }
+
+
+    @Override
+    public void stopInternal() {
+        if (!paused) {
+            pause();
+        }
+        if (running) {
+            running = false;
+            int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
+            acceptor.stopMillis(acceptorWaitMilliSeconds);
+            Poller poller = this.poller;
+            if (poller != null) {
+                poller.destroy();
+            }
+            try {
+                // Allow time for the poller to wait for in progress operations to complete
+                if (!getStopLatch().await(2 * selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
+                    log.warn(sm.getString("endpoint.iouring.stopLatchAwaitFail"));
+                }
+            } catch (InterruptedException e) {
+                log.warn(sm.getString("endpoint.iouring.stopLatchAwaitInterrupted"), e);
+            }
+            shutdownExecutor();
+            if (poller != null) {
+                poller.closeEventFd();
+                this.poller = null;
+            }
+            Integer socket;
+            while ((socket = acceptQueue.poll()) != null) {
+                Syscalls.close(socket.intValue());
+            }
+            if (bufferHandlers != null) {
+                SocketBufferHandler handler;
+                while ((handler = bufferHandlers.pop()) != null) {
+                    freeBufferHandler(handler);
+                }
+                bufferHandlers = null;
+            }
+            registeredReadBuffers = null;
+            registeredRegion = null;
+            if (processorCache != null) {
+                processorCache.clear();
+                processorCache = null;
+            }
+        }
+    }
+
+
+    @Override
+    public void unbind() throws Exception {
+        if (running) {
+            stop();
+        }
+        try {
+            doCloseServerSocket();
+        } catch (IOException ioe) {
+            getLog().warn(sm.getString("endpoint.iouring.serverSocketCloseFailed", getName()), ioe);
+        }
+        super.unbind();
+        if (getHandler() != null) {
+            getHandler().recycle();
+        }
+    }
+
+
+    @Override
+    protected void doCloseServerSocket() throws IOException {
+        int fd = serverSock;
+        serverSock = -1;
+        if (fd >= 0) {
+            // A pending accept holds a reference to the socket so closing it is not enough to stop listening
+            Syscalls.shutdown(fd);
+            long result = Syscalls.close(fd);
+            if (result < 0) {
+                throw Syscalls.newIOException("close", result);
+            }
+        }
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    @Override
+    protected InetSocketAddress getLocalAddress() throws IOException {
+        int fd = serverSock;
+        if (fd < 0) {
+            return null;
+        }
+        return Syscalls.getLocalAddress(fd);
+    }
+
+
+    protected CountDownLatch getStopLatch() {
+        return stopLatch;
+    }
+
+
+    protected void setStopLatch(CountDownLatch stopLatch) {
+        this.stopLatch = stopLatch;
+    }
+
+
+    protected Poller getPoller() {
+        return poller;
+    }
+
+
+    @Override
+    protected boolean setSocketOptions(Integer socket) {
+        IoUringSocketWrapper socketWrapper = null;
+        try {
+            SocketBufferHandler bufferHandler = null;
+            if (bufferHandlers != null) {
+                bufferHandler = bufferHandlers.pop();
+            }
+            if (bufferHandler == null) {
+                bufferHandler = createBufferHandler();
+            } else {
+                bufferHandler.reset();
+            }
+            IoUringSocketWrapper newWrapper = new IoUringSocketWrapper(socket, bufferHandler, this);
+            connections.put(socket, newWrapper);
+            socketWrapper = newWrapper;
+
+            Syscalls.setIntOption(socket.intValue(), Syscalls.IPPROTO_TCP, Syscalls.TCP_NODELAY,
+                    socketProperties.getTcpNoDelay() ? 1 : 0);
+
+            socketWrapper.setReadTimeout(getConnectionTimeout());
+            socketWrapper.setWriteTimeout(getConnectionTimeout());
+            socketWrapper.setKeepAliveLeft(getMaxKeepAliveRequests());
+            socketWrapper.registerReadInterest();
+            return true;
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            try {
+                log.error(sm.getString("endpoint.iouring.socketOptionsError"), t);
+            } catch (Throwable tt) {
+                ExceptionUtils.handleThrowable(tt);
+            }
+            if (socketWrapper == null) {
+                destroySocket(socket);
+            }
+        }
+        // Tell to close the socket if needed
+        return false;
+    }
+
+
+    @Override
+    protected void destroySocket(Integer socket) {
+        countDownConnection();
+        long result = Syscalls.close(socket.intValue());
+        if (result < 0 && log.isDebugEnabled()) {
+            log.debug(sm.getString("endpoint.iouring.closeFail"), Syscalls.newIOException("close", result));
+        }
+    }
+
+
+    @Override
+    protected Integer serverSocketAccept() throws Exception {
+        while (true) {
+            Integer socket = acceptQueue.poll(selectorTimeout, TimeUnit.MILLISECONDS);
+            if (socket != null) {
+                Poller poller = this.poller;
+                if (poller != null) {
+                    poller.acceptQueueTaken();
+                }
+                return socket;
+            }
+            if (!running || serverSock < 0) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+
+
+    @Override
+    protected SocketProcessorBase<Integer> createSocketProcessor(SocketWrapperBase<Integer> socketWrapper,
+            SocketEvent event) {
+        return new SocketProcessor(socketWrapper, event);
+    }
+
+
+    private SocketBufferHandler createBufferHandler() {
+        ByteBuffer readBuffer = null;
+        if (registeredReadBuffers != null) {
+            readBuffer = registeredReadBuffers.pop();
+        }
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocateDirect(socketProperties.getAppReadBufSize());
+        }
+        return new SocketBufferHandler(readBuffer, ByteBuffer.allocateDirect(socketProperties.getAppWriteBufSize()));
+    }
+
+
+    private void releaseBufferHandler(SocketBufferHandler handler) {
+        if (running && bufferHandlers != null && bufferHandlers.push(handler)) {
+            return;
+        }
+        freeBufferHandler(handler);
+    }
+
+
+    private void freeBufferHandler(SocketBufferHandler handler) {
+        ByteBuffer readBuffer = handler.getReadBuffer();
+        SynchronizedStack<ByteBuffer> registeredReadBuffers = this.registeredReadBuffers;
+        if (registeredReadBuffers != null && isRegistered(readBuffer)) {
+            readBuffer.clear();
+            registeredReadBuffers.push(readBuffer);
+            // Only the write buffer was allocated for this handler
+            ByteBufferUtils.cleanDirectBuffer(handler.getWriteBuffer());
+        } else {
+            handler.free();
+        }
+    }
+
+
+    private boolean isRegistered(ByteBuffer buffer) {
+        ByteBuffer region = registeredRegion;
+        if (region == null || !buffer.isDirect()) {
+            return false;
+        }
+        long regionAddress = MemorySegment.ofBuffer(region).address();
+        long address = MemorySegment.ofBuffer(buffer.duplicate().clear()).address();
+        return address >= regionAddress && address + buffer.capacity() <= regionAddress + region.capacity();
+    }
+
+
+    // ----------------------------------------------------- Poller Inner Class
+
+    /**
+     * Owns the io_uring instance. Submits the operations requested by other threads, reaps the completions and
+     * dispatches the associated sockets for processing.
+     */
+    public class Poller implements Runnable {
+
+        private static final int OP_READ = 1;
+        private static final int OP_POLL_READ = 2;
+        private static final int OP_WRITE = 3;
+        private static final int OP_CLOSE = 4;
+
+        private static final long USER_DATA_WAKEUP = 1;
+        private static final long USER_DATA_TIMEOUT = 2;
+        private static final long USER_DATA_ACCEPT = 3;
+        private static final long USER_DATA_CANCEL = 4;
+        private static final long USER_DATA_FIRST_OPERATION = 16;
+
+        private final IoUring ring;
+        private final boolean registeredBuffers;
+        private final SynchronizedQueue<PollerEvent> events = new SynchronizedQueue<>();
+        private final AtomicLong wakeupCounter = new AtomicLong(0);
+        private final Arena arena = Arena.ofShared();
+        private final int eventFd;
+        private final MemorySegment wakeupValue;
+        private final MemorySegment wakeupBuffer;
+        private final MemorySegment timeoutSpec;
+
+        // The following fields are only accessed by the poller thread
+        private final Map<Long,Operation> operations = new HashMap<>();
+        private long nextUserData = USER_DATA_FIRST_OPERATION;
+        private boolean multishotAccept = true;
+        private boolean acceptCancelled = false;
+        private boolean acceptFailed = false;
+        private boolean timeoutArmed = false;
+        private long nextExpiration = 0;
+
+        private volatile boolean acceptArmed = false;
+        private volatile boolean close = false;
+        private volatile boolean stopped = false;
+        private final AtomicBoolean eventFdClosed = new AtomicBoolean(false);
+
+        public Poller() throws IOException {
+            ring = new IoUring(ringEntries);
+            try {
+                eventFd = Syscalls.eventfd();
+            } catch (IOException ioe) {
+                ring.close();
+                throw ioe;
+            }
+            wakeupValue = arena.allocate(8, 8);
+            wakeupValue.set(ValueLayout.JAVA_LONG, 0, 1L);
+            wakeupBuffer = arena.allocate(8, 8);
+            timeoutSpec = arena.allocate(16, 8);
+            timeoutSpec.set(ValueLayout.JAVA_LONG, 0, selectorTimeout / 1000);
+            timeoutSpec.set(ValueLayout.JAVA_LONG, 8, (selectorTimeout % 1000) * 1_000_000L);
+
+            boolean registered = false;
+            int bufferSize = socketProperties.getAppReadBufSize();
+            if (registeredBufferCount > 0 && bufferSize > 0) {
+                ByteBuffer region = ByteBuffer.allocateDirect(registeredBufferCount * bufferSize);
+                long result = ring.registerBuffer(MemorySegment.ofBuffer(region));
+                if (result < 0) {
+                    log.warn(sm.getString("endpoint.iouring.registerBuffersFail",
+                            Integer.valueOf(registeredBufferCount), Syscalls.strerror((int) -result)));
+                } else {
+                    SynchronizedStack<ByteBuffer> buffers =
+                            new SynchronizedStack<>(registeredBufferCount, registeredBufferCount);
+                    for (int i = 0; i < registeredBufferCount; i++) {
+                        buffers.push(region.slice(i * bufferSize, bufferSize));
+                    }
+                    registeredRegion = region;
+                    registeredReadBuffers = buffers;
+                    registered = true;
+                }
+            }
+            registeredBuffers = registered;
+        }
+
+
+        /**
+         * Stop the poller. Any open connections will be closed.
+         */
+        protected void destroy() {
+            close = true;
+            wakeup();
+        }
+
+
+        private void closeEventFd() {
+            if (eventFdClosed.compareAndSet(false, true)) {
+                Syscalls.close(eventFd);
+            }
+        }
+
+
+        private void wakeup() {
+            if (!eventFdClosed.get()) {
+                Syscalls.write(eventFd, wakeupValue);
+            }
+        }
+
+
+        private void addEvent(PollerEvent event) {
+            events.offer(event);
+            if (wakeupCounter.incrementAndGet() == 0) {
+                wakeup();
+            }
+        }
+
+
+        /**
+         * Add the specified socket to the poller.
+         *
+         * @param socketWrapper The socket
+         * @param type          The type of operation required
+         */
+        private void add(IoUringSocketWrapper socketWrapper, int type) {
+            addEvent(new PollerEvent(socketWrapper, type));
+            if (close) {
+                if (type == OP_CLOSE) {
+                    if (stopped) {
+                        // The poller has stopped so close the socket on this thread
+                        PollerEvent pe;
+                        while ((pe = events.poll()) != null) {
+                            if (pe.type == OP_CLOSE) {
+                                closeSocket(pe.socketWrapper);
+                            }
+                        }
+                    }
+                } else {
+                    processSocket(socketWrapper, SocketEvent.STOP, false);
+                }
+            }
+        }
+
+
+        /*
+         * Called when the acceptor removes a socket from the accept queue.
+         */
+        private void acceptQueueTaken() {
+            if (!acceptArmed) {
+                // The poller re-arms the accept if there is now space in the queue
+                if (wakeupCounter.incrementAndGet() == 0) {
+                    wakeup();
+                }
+            }
+        }
+
+
+        /**
+         * Processes events in the event queue of the Poller.
+         *
+         * @return <code>true</code> if some events were processed, <code>false</code> if queue was empty
+         */
+        private boolean events() {
+            boolean result = false;
+            PollerEvent pe;
+            for (int i = 0, size = events.size(); i < size && (pe = events.poll()) != null; i++) {
+                result = true;
+                IoUringSocketWrapper socketWrapper = pe.socketWrapper;
+                if (pe.type == OP_CLOSE) {
+                    closeSocket(socketWrapper);
+                    continue;
+                }
+                if (socketWrapper.isClosed()) {
+                    continue;
+                }
+                switch (pe.type) {
+                    case OP_READ:
+                        if (!socketWrapper.recvPending && !socketWrapper.pollInPending) {
+                            if (!prepareReceive(socketWrapper)) {
+                                preparePoll(socketWrapper, IoUring.POLLIN);
+                            }
+                        }
+                        break;
+                    case OP_POLL_READ:
+                        if (!socketWrapper.recvPending && !socketWrapper.pollInPending) {
+                            preparePoll(socketWrapper, IoUring.POLLIN);
+                        }
+                        break;
+                    case OP_WRITE:
+                        if (!socketWrapper.pollOutPending) {
+                            preparePoll(socketWrapper, IoUring.POLLOUT);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return result;
+        }
+
+
+        /*
+         * Receive directly into the socket read buffer if it is empty. Returns false if the buffer cannot be used.
+         */
+        private boolean prepareReceive(IoUringSocketWrapper socketWrapper) {
+            SocketBufferHandler bufferHandler = socketWrapper.getSocketBufferHandler();
+            if (!bufferHandler.isReadBufferEmpty() || !bufferHandler.getReadBuffer().isDirect()) {
+                return false;
+            }
+            bufferHandler.configureReadBufferForWrite();
+            ByteBuffer buffer = bufferHandler.getReadBuffer();
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+            long userData = nextUserData++;
+            MemorySegment target = MemorySegment.ofBuffer(buffer);
+            Operation operation = new Operation(Operation.RECEIVE, socketWrapper, buffer, buffer.position());
+            operations.put(Long.valueOf(userData), operation);
+            socketWrapper.recvPending = true;
+            socketWrapper.readUserData = userData;
+            if (registeredBuffers && isRegistered(buffer)) {
+                prepare(IoUring.IORING_OP_READ_FIXED, socketWrapper.fd, target.address(), (int) target.byteSize(), 0,
+                        0, (short) 0, userData);
+            } else {
+                prepare(IoUring.IORING_OP_RECV, socketWrapper.fd, target.address(), (int) target.byteSize(), 0, 0,
+                        (short) 0, userData);
+            }
+            return true;
+        }
+
+
+        private void preparePoll(IoUringSocketWrapper socketWrapper, int events) {
+            long userData = nextUserData++;
+            if (events == IoUring.POLLIN) {
+                operations.put(Long.valueOf(userData), new Operation(Operation.POLL_IN, socketWrapper, null, 0));
+                socketWrapper.pollInPending = true;
+                socketWrapper.readUserData = userData;
+            } else {
+                operations.put(Long.valueOf(userData), new Operation(Operation.POLL_OUT, socketWrapper, null, 0));
+                socketWrapper.pollOutPending = true;
+                socketWrapper.writeUserData = userData;
+            }
+            prepare(IoUring.IORING_OP_POLL_ADD, socketWrapper.fd, 0, 0, 0, events, (short) 0, userData);
+        }
+
+
+        private void prepareCancel(long userData) {
+            prepare(IoUring.IORING_OP_ASYNC_CANCEL, -1, userData, 0, 0, 0, (short) 0, USER_DATA_CANCEL);
+        }
+
+
+        private void prepare(byte opcode, int fd, long addr, int len, long off, int opFlags, short ioprio,
+                long userData) {
+            while (!ring.prepare(opcode, fd, addr, len, off, opFlags, ioprio, userData, (short) 0)) {
+                // Submission queue is full. Submit what is there and make space in the completion queue if required.
+                if (ring.submit(false) <= 0) {
+                    ring.reap(this::complete);
+                }
+            }
+        }
+
+
+        private void armAccept() {
+            int fd = serverSock;
+            if (acceptArmed || acceptFailed || close || fd < 0 || acceptQueue.size() >= getAcceptCount()) {
+                return;
+            }
+            acceptArmed = true;
+            acceptCancelled = false;
+            prepare(IoUring.IORING_OP_ACCEPT, fd, 0, 0, 0, Syscalls.SOCK_CLOEXEC,
+                    multishotAccept ? IoUring.IORING_ACCEPT_MULTISHOT : 0, USER_DATA_ACCEPT);
+        }
+
+
+        private void armWakeup() {
+            prepare(IoUring.IORING_OP_READ, eventFd, wakeupBuffer.address(), 8, 0, 0, (short) 0, USER_DATA_WAKEUP);
+        }
+
+
+        private void armTimeout() {
+            if (!timeoutArmed) {
+                timeoutArmed = true;
+                prepare(IoUring.IORING_OP_TIMEOUT, -1, timeoutSpec.address(), 1, 0, 0, (short) 0,
+                        USER_DATA_TIMEOUT);
+            }
+        }
+
+
+        /*
+         * Handles a single completion. Only called by the poller thread.
+         */
+        private void complete(long userData, int res, int flags) {
+            if (userData == USER_DATA_WAKEUP) {
+                if (!close) {
+                    armWakeup();
+                }
+            } else if (userData == USER_DATA_TIMEOUT) {
+                timeoutArmed = false;
+            } else if (userData == USER_DATA_ACCEPT) {
+                accepted(res, flags);
+            } else if (userData != USER_DATA_CANCEL) {
+                Operation operation = operations.remove(Long.valueOf(userData));
+                if (operation != null) {
+                    switch (operation.type) {
+                        case Operation.RECEIVE:
+                            received(operation, res);
+                            break;
+                        case Operation.POLL_IN:
+                            operation.socketWrapper.pollInPending = false;
+                            if (!operation.socketWrapper.isClosed() && res != -Syscalls.ECANCELED) {
+                                readReady(operation.socketWrapper);
+                            }
+                            break;
+                        case Operation.POLL_OUT:
+                            operation.socketWrapper.pollOutPending = false;
+                            if (!operation.socketWrapper.isClosed() && res != -Syscalls.ECANCELED) {
+                                writeReady(operation.socketWrapper);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+
+
+        private void accepted(int res, int flags) {
+            if ((flags & IoUring.IORING_CQE_F_MORE) == 0) {
+                acceptArmed = false;
+            }
+            if (res >= 0) {
+                acceptQueue.offer(Integer.valueOf(res));
+                if (acceptArmed && !acceptCancelled && acceptQueue.size() >= getAcceptCount()) {
+                    // Let the kernel queue new connections until the acceptor catches up
+                    acceptCancelled = true;
+                    prepareCancel(USER_DATA_ACCEPT);
+                }
+            } else if (res == -Syscalls.EINVAL && multishotAccept && serverSock >= 0) {
+                // Multishot accept requires Linux 5.19
+                multishotAccept = false;
+            } else if (res != -Syscalls.ECANCELED && serverSock >= 0 && !close) {
+                // Avoid a tight loop if, for example, the file descriptor limit has been reached
+                acceptFailed = true;
+                log.error(sm.getString("endpoint.iouring.acceptFail"), Syscalls.newIOException("accept", res));
+            }
+        }
+
+
+        private void received(Operation operation, int res) {
+            IoUringSocketWrapper socketWrapper = operation.socketWrapper;
+            synchronized (socketWrapper.readLock) {
+                socketWrapper.recvPending = false;
+                if (socketWrapper.isClosed()) {
+                    if (socketWrapper.fdClosed.get()) {
+                        releaseBufferHandler(socketWrapper.closedBufferHandler);
+                    }
+                    return;
+                }
+                if (res > 0 && socketWrapper.getSocketBufferHandler().getReadBuffer() == operation.buffer) {
+                    operation.buffer.position(operation.position + res);
+                    socketWrapper.updateLastRead();
+                }
+                if (socketWrapper.recvWaiting) {
+                    socketWrapper.recvWaiting = false;
+                    socketWrapper.readLock.notifyAll();
+                    return;
+                }
+            }
+            if (res != -Syscalls.ECANCELED) {
+                // End of stream and errors will be seen by the next read
+                readReady(socketWrapper);
+            }
+        }
+
+
+        private void readReady(IoUringSocketWrapper socketWrapper) {
+            if (socketWrapper.continueOperation(true)) {
+                return;
+            } else if (socketWrapper.readBlocking) {
+                synchronized (socketWrapper.readLock) {
+                    socketWrapper.readBlocking = false;
+                    socketWrapper.readLock.notify();
+                }
+            } else if (!processSocket(socketWrapper, SocketEvent.OPEN_READ, true)) {
+                socketWrapper.close();
+            }
+        }
+
+
+        private void writeReady(IoUringSocketWrapper socketWrapper) {
+            if (socketWrapper.continueOperation(false)) {
+                return;
+            } else if (socketWrapper.writeBlocking) {
+                synchronized (socketWrapper.writeLock) {
+                    socketWrapper.writeBlocking = false;
+                    socketWrapper.writeLock.notify();
+                }
+            } else if (!processSocket(socketWrapper, SocketEvent.OPEN_WRITE, true)) {
+                socketWrapper.close();
+            }
+        }
+
+
+        /*
+         * Closing the file descriptor is always performed by the poller (unless it has stopped) so that a file
+         * descriptor that has been re-used for a new connection is never passed to the kernel for an old one.
+         */
+        private void closeSocket(IoUringSocketWrapper socketWrapper) {
+            if (socketWrapper.fdClosed.compareAndSet(false, true)) {
+                Syscalls.close(socketWrapper.fd);
+                if (!socketWrapper.recvPending || stopped) {
+                    releaseBufferHandler(socketWrapper.closedBufferHandler);
+                }
+            }
+        }
+
+
+        @Override
+        public void run() {
+            armWakeup();
+            while (true) {
+
+                boolean hasEvents = false;
+
+                try {
+                    if (!close) {
+                        hasEvents = events();
+                        armAccept();
+                        armTimeout();
+                        boolean wait = wakeupCounter.getAndSet(-1) <= 0 && !ring.hasCompletions();
+                        long result = ring.submit(wait);
+                        wakeupCounter.set(0);
+                        if (result < 0 && result != -Syscalls.EAGAIN) {
+                            log.error(sm.getString("endpoint.iouring.submitFail"),
+                                    Syscalls.newIOException("io_uring_enter", result));
+                        }
+                    }
+                    if (close) {
+                        shutdown();
+                        break;
+                    }
+                    if (ring.reap(this::complete) > 0) {
+                        hasEvents = true;
+                    }
+                } catch (Throwable x) {
+                    ExceptionUtils.handleThrowable(x);
+                    log.error(sm.getString("endpoint.iouring.pollerLoopError"), x);
+                    continue;
+                }
+
+                // Process timeouts
+                timeout(hasEvents);
+            }
+
+            getStopLatch().countDown();
+        }
+
+
+        private void shutdown() {
+            try {
+                for (SocketWrapperBase<Integer> socketWrapper : connections.values()) {
+                    socketWrapper.close();
+                }
+                events();
+                if (acceptArmed) {
+                    prepareCancel(USER_DATA_ACCEPT);
+                }
+                // Wait for operations that reference socket buffers to complete before releasing the ring
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(selectorTimeout);
+                while (!operations.isEmpty() && System.nanoTime() < end) {
+                    armTimeout();
+                    ring.submit(true);
+                    ring.reap(this::complete);
+                    events();
+                }
+                if (!operations.isEmpty()) {
+                    log.warn(sm.getString("endpoint.iouring.pendingOperations", Integer.valueOf(operations.size())));
+                }
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                log.error(sm.getString("endpoint.iouring.pollerLoopError"), t);
+            } finally {
+                stopped = true;
+                ring.close();
+                // Sockets closed after the last call to events() have not been processed
+                PollerEvent pe;
+                while ((pe = events.poll()) != null) {
+                    if (pe.type == OP_CLOSE) {
+                        closeSocket(pe.socketWrapper);
+                    }
+                }
+            }
+        }
+
+
+        private void timeout(boolean hasEvents) {
+            long now = System.currentTimeMillis();
+            // Only check every timeoutInterval unless the poller is idle
+            if (nextExpiration > 0 && hasEvents && now < nextExpiration) {
+                return;
+            }
+            acceptFailed = false;
+            for (SocketWrapperBase<Integer> wrapper : connections.values()) {
+                IoUringSocketWrapper socketWrapper = (IoUringSocketWrapper) wrapper;
+                boolean readTimeout = false;
+                boolean writeTimeout = false;
+                if (socketWrapper.readUserData != 0 && (socketWrapper.recvPending || socketWrapper.pollInPending)) {
+                    long delta = now - socketWrapper.getLastRead();
+                    long timeout = socketWrapper.getReadTimeout();
+                    readTimeout = timeout > 0 && delta > timeout;
+                }
+                if (!readTimeout && socketWrapper.writeUserData != 0 && socketWrapper.pollOutPending) {
+                    long delta = now - socketWrapper.getLastWrite();
+                    long timeout = socketWrapper.getWriteTimeout();
+                    writeTimeout = timeout > 0 && delta > timeout;
+                }
+                if (readTimeout || writeTimeout) {
+                    // Cancel the operations to avoid duplicate timeout calls
+                    if (socketWrapper.readUserData != 0) {
+                        prepareCancel(socketWrapper.readUserData);
+                        socketWrapper.readUserData = 0;
+                    }
+                    if (socketWrapper.writeUserData != 0) {
+                        prepareCancel(socketWrapper.writeUserData);
+                        socketWrapper.writeUserData = 0;
+                    }
+                    socketWrapper.setError(new SocketTimeoutException());
+                    if (readTimeout && socketWrapper.continueOperation(true)) {
+                        continue;
+                    } else if (writeTimeout && socketWrapper.continueOperation(false)) {
+                        continue;
+                    } else if (!processSocket(socketWrapper, SocketEvent.ERROR, true)) {
+                        socketWrapper.close();
+                    }
+                }
+            }
+            nextExpiration = System.currentTimeMillis() + socketProperties.getTimeoutInterval();
+        }
+    }
+
+
+    private static class PollerEvent {
+
+        private final IoUringSocketWrapper socketWrapper;
+        private final int type;
+
+        private PollerEvent(IoUringSocketWrapper socketWrapper, int type) {
+            this.socketWrapper = socketWrapper;
+            this.type = type;
+        }
+    }
+
+
+    /**
+     * An operation submitted to the ring that has not yet completed.
+     */
+    private static class Operation {
+
+        private static final int RECEIVE = 1;
+        private static final int POLL_IN = 2;
+        private static final int POLL_OUT = 3;
+
+        private final int type;
+        private final IoUringSocketWrapper socketWrapper;
+        private final ByteBuffer buffer;
+        private final int position;
+
+        private Operation(int type, IoUringSocketWrapper socketWrapper, ByteBuffer buffer, int position) {
+            this.type = type;
+            this.socketWrapper = socketWrapper;
+            this.buffer = buffer;
+            this.position = position;
+        }
+    }
+
+
+    // --------------------------------------------------- Socket Wrapper Class
+
+    public static class IoUringSocketWrapper extends SocketWrapperBase<Integer> {
+
+        private final IoUringEndpoint endpoint;
+        private final Poller poller;
+        private final int fd;
+
+        /*
+         * Direct reads and writes hold the read lock. Closing the socket holds the write lock so that once a socket
+         * has been shut down no further system calls are made using its file descriptor.
+         */
+        private final ReentrantReadWriteLock fdLock = new ReentrantReadWriteLock();
+        private boolean fdShutdown = false;
+        private final AtomicBoolean fdClosed = new AtomicBoolean(false);
+        private volatile SocketBufferHandler closedBufferHandler = null;
+
+        // Ring operations
+        private volatile boolean recvPending = false;
+        private volatile boolean recvWaiting = false;
+        private volatile boolean pollInPending = false;
+        private volatile boolean pollOutPending = false;
+        private long readUserData = 0;
+        private long writeUserData = 0;
+
+        private volatile long lastRead = System.currentTimeMillis();
+        private volatile long lastWrite = lastRead;
+
+        private final Object readLock;
+        private volatile boolean readBlocking = false;
+        private final Object writeLock;
+        private volatile boolean writeBlocking = false;
+
+        private volatile InetSocketAddress remoteAddress = null;
+        private volatile InetSocketAddress localAddress = null;
+
+        public IoUringSocketWrapper(Integer socket, SocketBufferHandler bufferHandler, IoUringEndpoint endpoint) {
+            super(socket, endpoint);
+            this.endpoint = endpoint;
+            this.poller = endpoint.getPoller();
+            this.fd = socket.intValue();
+            socketBufferHandler = bufferHandler;
+            readLock = (readPending == null) ? new Object() : readPending;
+            writeLock = (writePending == null) ? new Object() : writePending;
+        }
+
+        public void updateLastWrite() {
+            lastWrite = System.currentTimeMillis();
+        }
+
+        public long getLastWrite() {
+            return lastWrite;
+        }
+
+        public void updateLastRead() {
+            lastRead = System.currentTimeMillis();
+        }
+
+        public long getLastRead() {
+            return lastRead;
+        }
+
+
+        /*
+         * Reads from the socket without blocking. Returns the number of bytes read, zero if no data is available or -1
+         * for end of stream.
+         */
+        private int recv(ByteBuffer to) throws IOException {
+            if (!to.hasRemaining()) {
+                return 0;
+            }
+            long n;
+            Lock lock = fdLock.readLock();
+            lock.lock();
+            try {
+                if (fdShutdown) {
+                    throw new ClosedChannelException();
+                }
+                if (to.isDirect()) {
+                    do {
+                        n = Syscalls.recv(fd, MemorySegment.ofBuffer(to), Syscalls.MSG_DONTWAIT);
+                    } while (n == -Syscalls.EINTR);
+                    if (n > 0) {
+                        to.position(to.position() + (int) n);
+                    }
+                } else {
+                    ByteBuffer bounce = BOUNCE_BUFFER.get();
+                    bounce.clear();
+                    bounce.limit(Math.min(to.remaining(), bounce.capacity()));
+                    do {
+                        n = Syscalls.recv(fd, MemorySegment.ofBuffer(bounce), Syscalls.MSG_DONTWAIT);
+                    } while (n == -Syscalls.EINTR);
+                    if (n > 0) {
+                        bounce.limit((int) n);
+                        to.put(bounce);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (n > 0) {
+                return (int) n;
+            } else if (n == 0) {
+                return -1;
+            } else if (n == -Syscalls.EAGAIN) {
+                return 0;
+            }
+            throw Syscalls.newIOException("recv", n);
+        }
+
+
+        private long recv(ByteBuffer[] buffers, int offset, int length) throws IOException {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                ByteBuffer buffer = buffers[i];
+                int remaining = buffer.remaining();
+                if (remaining == 0) {
+                    continue;
+                }
+                int n = recv(buffer);
+                if (n < 0) {
+                    return total > 0 ? total : -1;
+                }
+                total += n;
+                if (n < remaining) {
+                    break;
+                }
+            }
+            return total;
+        }
+
+
+        /*
+         * Writes to the socket without blocking. Returns the number of bytes written.
+         */
+        private int send(ByteBuffer from) throws IOException {
+            if (!from.hasRemaining()) {
+                return 0;
+            }
+            long n;
+            Lock lock = fdLock.readLock();
+            lock.lock();
+            try {
+                if (fdShutdown) {
+                    throw new ClosedChannelException();
+                }
+                if (from.isDirect()) {
+                    do {
+                        n = Syscalls.send(fd, MemorySegment.ofBuffer(from),
+                                Syscalls.MSG_DONTWAIT | Syscalls.MSG_NOSIGNAL);
+                    } while (n == -Syscalls.EINTR);
+                    if (n > 0) {
+                        from.position(from.position() + (int) n);
+                    }
+                } else {
+                    ByteBuffer bounce = BOUNCE_BUFFER.get();
+                    bounce.clear();
+                    int length = Math.min(from.remaining(), bounce.capacity());
+                    bounce.put(from.duplicate().limit(from.position() + length));
+                    bounce.flip();
+                    do {
+                        n = Syscalls.send(fd, MemorySegment.ofBuffer(bounce),
+                                Syscalls.MSG_DONTWAIT | Syscalls.MSG_NOSIGNAL);
+                    } while (n == -Syscalls.EINTR);
+                    if (n > 0) {
+                        from.position(from.position() + (int) n);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (n >= 0) {
+                return (int) n;
+            } else if (n == -Syscalls.EAGAIN) {
+                return 0;
+            }
+            throw Syscalls.newIOException("send", n);
+        }
+
+
+        private long send(ByteBuffer[] buffers, int offset, int length) throws IOException {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                ByteBuffer buffer = buffers[i];
+                int remaining = buffer.remaining();
+                if (remaining == 0) {
+                    continue;
+                }
+                int n = send(buffer);
+                total += n;
+                if (n < remaining) {
+                    break;
+                }
+            }
+            return total;
+        }
+
+
+        /*
+         * Waits for a receive submitted to the ring to complete. Returns true if the receive is still pending.
+         */
+        private boolean awaitReceive(boolean block) throws IOException {
+            if (!recvPending) {
+                return false;
+            }
+            if (!block) {
+                return true;
+            }
+            long timeout = getReadTimeout();
+            synchronized (readLock) {
+                long startNanos = System.nanoTime();
+                while (recvPending) {
+                    recvWaiting = true;
+                    long remaining = timeout;
+                    if (timeout > 0) {
+                        remaining -= TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                        if (remaining <= 0) {
+                            throw new SocketTimeoutException();
+                        }
+                    }
+                    try {
+                        readLock.wait(Math.max(remaining, 0));
+                    } catch (InterruptedException ignore) {
+                        // Check status and proceed accordingly
+                    }
+                }
+            }
+            return false;
+        }
+
+
+        /*
+         * Continues the pending asynchronous read or write operation, if any, closing the socket if that fails.
+         * Returns false if there is no such operation.
+         */
+        private boolean continueOperation(boolean read) {
+            OperationState<?> operation = read ? readOperation : writeOperation;
+            if (operation == null) {
+                return false;
+            }
+            if (!((IoUringOperationState<?>) operation).resume()) {
+                close();
+            }
+            return true;
+        }
+
+
+        @Override
+        public boolean isReadyForRead() throws IOException {
+            if (recvPending) {
+                return false;
+            }
+
+            socketBufferHandler.configureReadBufferForRead();
+
+            if (socketBufferHandler.getReadBuffer().remaining() > 0) {
+                return true;
+            }
+
+            fillReadBuffer(false);
+
+            return socketBufferHandler.getReadBuffer().position() > 0;
+        }
+
+
+        @Override
+        public int read(boolean block, byte[] b, int off, int len) throws IOException {
+            if (awaitReceive(block)) {
+                return 0;
+            }
+            int nRead = populateReadBuffer(b, off, len);
+            if (nRead > 0) {
+                return nRead;
+            }
+
+            // Fill the read buffer as best we can.
+            nRead = fillReadBuffer(block);
+            updateLastRead();
+
+            // Fill as much of the remaining byte array as possible with the
+            // data that was just read
+            if (nRead > 0) {
+                socketBufferHandler.configureReadBufferForRead();
+                nRead = Math.min(nRead, len);
+                socketBufferHandler.getReadBuffer().get(b, off, nRead);
+            }
+            return nRead;
+        }
+
+
+        @Override
+        public int read(boolean block, ByteBuffer to) throws IOException {
+            if (awaitReceive(block)) {
+                return 0;
+            }
+            int nRead = populateReadBuffer(to);
+            if (nRead > 0) {
+                return nRead;
+            }
+
+            // The socket read buffer capacity is socket.appReadBufSize
+            int limit = socketBufferHandler.getReadBuffer().capacity();
+            if (to.isDirect() && to.remaining() >= limit) {
+                to.limit(to.position() + limit);
+                nRead = fillReadBuffer(block, to);
+                if (log.isTraceEnabled()) {
+                    log.trace("Socket: [" + this + "], Read direct from socket: [" + nRead + "]");
+                }
+                updateLastRead();
+            } else {
+                // Fill the read buffer as best we can.
+                nRead = fillReadBuffer(block);
+                if (log.isTraceEnabled()) {
+                    log.trace("Socket: [" + this + "], Read into buffer: [" + nRead + "]");
+                }
+                updateLastRead();
+
+                // Fill as much of the remaining byte array as possible with the
+                // data that was just read
+                if (nRead > 0) {
+                    nRead = populateReadBuffer(to);
+                }
+            }
+            return nRead;
+        }
+
+
+        private int fillReadBuffer(boolean block) throws IOException {
+            socketBufferHandler.configureReadBufferForWrite();
+            return fillReadBuffer(block, socketBufferHandler.getReadBuffer());
+        }
+
+
+        private int fillReadBuffer(boolean block, ByteBuffer buffer) throws IOException {
+            int n;
+            if (block) {
+                long timeout = getReadTimeout();
+                long startNanos = 0;
+                do {
+                    if (startNanos > 0) {
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                        if (elapsedMillis == 0) {
+                            elapsedMillis = 1;
+                        }
+                        timeout -= elapsedMillis;
+                        if (timeout <= 0) {
+                            throw new SocketTimeoutException();
+                        }
+                    }
+                    synchronized (readLock) {
+                        n = recv(buffer);
+                        if (n == -1) {
+                            throw new EOFException();
+                        } else if (n == 0) {
+                            // Ensure a spurious wake-up doesn't trigger a duplicate registration
+                            if (!readBlocking) {
+                                readBlocking = true;
+                                registerReadInterest();
+                            }
+                            try {
+                                if (timeout > 0) {
+                                    startNanos = System.nanoTime();
+                                    readLock.wait(timeout);
+                                } else {
+                                    readLock.wait();
+                                }
+                            } catch (InterruptedException ignore) {
+                                /*
+                                 * Most likely the Poller signalling there is data to read but could be spurious. Exit
+                                 * the wait, check status and proceed accordingly.
+                                 */
+                            }
+                        }
+                    }
+                } while (n == 0);
+            } else {
+                n = recv(buffer);
+                if (n == -1) {
+                    throw new EOFException();
+                }
+            }
+            return n;
+        }
+
+
+        @Override
+        public void setAppReadBufHandler(ApplicationBufferHandler handler) {
+            // NO-OP. The socket read buffer is never resized by this endpoint.
+        }
+
+
+        @Override
+        protected void doClose() {
+            if (log.isTraceEnabled()) {
+                log.trace("Calling [" + getEndpoint() + "].closeSocket([" + this + "])");
+            }
+            SocketBufferHandler bufferHandler = socketBufferHandler;
+            try {
+                endpoint.connections.remove(getSocket());
+                Lock lock = fdLock.writeLock();
+                lock.lock();
+                try {
+                    if (!fdShutdown) {
+                        fdShutdown = true;
+                        // Completes any operations the ring has in progress for this socket
+                        Syscalls.shutdown(fd);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                if (log.isDebugEnabled()) {
+                    log.error(sm.getString("endpoint.iouring.closeFail"), t);
+                }
+            } finally {
+                socketBufferHandler = EMPTY;
+                nonBlockingWriteBuffer.clear();
+                reset(CLOSED_SOCKET);
+                closedBufferHandler = bufferHandler;
+                if (poller != null) {
+                    poller.add(this, Poller.OP_CLOSE);
+                } else if (fdClosed.compareAndSet(false, true)) {
+                    Syscalls.close(fd);
+                }
+            }
+        }
+
+
+        @Override
+        protected boolean flushNonBlocking() throws IOException {
+            boolean dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+
+            // Write to the socket, if there is anything to write
+            if (dataLeft) {
+                doWrite(false);
+                dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+            }
+
+            if (!dataLeft && !nonBlockingWriteBuffer.isEmpty()) {
+                dataLeft = nonBlockingWriteBuffer.write(this, false);
+
+                if (!dataLeft && !socketBufferHandler.isWriteBufferEmpty()) {
+                    doWrite(false);
+                    dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+                }
+            }
+
+            return dataLeft;
+        }
+
+
+        @Override
+        protected void doWrite(boolean block, ByteBuffer buffer) throws IOException {
+            int n;
+            if (block) {
+                if (previousIOException != null) {
+                    /*
+                     * Socket has previously timed out. See NioEndpoint for why subsequent writes are not attempted.
+                     */
+                    throw new IOException(previousIOException);
+                }
+                long timeout = getWriteTimeout();
+                long startNanos = 0;
+                do {
+                    if (startNanos > 0) {
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                        if (elapsedMillis == 0) {
+                            elapsedMillis = 1;
+                        }
+                        timeout -= elapsedMillis;
+                        if (timeout <= 0) {
+                            previousIOException = new SocketTimeoutException();
+                            throw previousIOException;
+                        }
+                    }
+                    synchronized (writeLock) {
+                        n = send(buffer);
+                        if (n == 0 && buffer.hasRemaining()) {
+                            // Ensure a spurious wake-up doesn't trigger a duplicate registration
+                            if (!writeBlocking) {
+                                writeBlocking = true;
+                                registerWriteInterest();
+                            }
+                            try {
+                                if (timeout > 0) {
+                                    startNanos = System.nanoTime();
+                                    writeLock.wait(timeout);
+                                } else {
+                                    writeLock.wait();
+                                }
+                            } catch (InterruptedException ignore) {
+                                /*
+                                 * Most likely the Poller signalling that data can be written but could be spurious.
+                                 * Exit the wait, check status and proceed accordingly.
+                                 */
+                            }
+                        } else if (startNanos > 0) {
+                            // If something was written, reset timeout
+                            timeout = getWriteTimeout();
+                            startNanos = 0;
+                        }
+                    }
+                } while (buffer.hasRemaining());
+            } else {
+                do {
+                    n = send(buffer);
+                } while (n > 0 && buffer.hasRemaining());
+                // If there is data left in the buffer the socket will be registered for
+                // write further up the stack.
+            }
+            updateLastWrite();
+        }
+
+
+        @Override
+        public void registerReadInterest() {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("endpoint.iouring.registerRead", this));
+            }
+            poller.add(this, readBlocking ? Poller.OP_POLL_READ : Poller.OP_READ);
+        }
+
+
+        @Override
+        public void registerWriteInterest() {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("endpoint.iouring.registerWrite", this));
+            }
+            poller.add(this, Poller.OP_WRITE);
+        }
+
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Sendfile is not supported by this endpoint so this method always returns {@code null}.
+         */
+        @Override
+        public SendfileDataBase createSendfileData(String filename, long pos, long length) {
+            return null;
+        }
+
+
+        @Override
+        public SendfileState processSendfile(SendfileDataBase sendfileData) {
+            return SendfileState.ERROR;
+        }
+
+
+        private InetSocketAddress getRemoteAddress() {
+            InetSocketAddress result = remoteAddress;
+            if (result == null) {
+                result = getAddress(true);
+                remoteAddress = result;
+            }
+            return result;
+        }
+
+
+        private InetSocketAddress getLocalAddress() {
+            InetSocketAddress result = localAddress;
+            if (result == null) {
+                result = getAddress(false);
+                localAddress = result;
+            }
+            return result;
+        }
+
+
+        private InetSocketAddress getAddress(boolean remote) {
+            Lock lock = fdLock.readLock();
+            lock.lock();
+            try {
+                if (fdShutdown) {
+                    return null;
+                }
+                return remote ? Syscalls.getRemoteAddress(fd) : Syscalls.getLocalAddress(fd);
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.iouring.addressFail"), ioe);
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        @Override
+        protected void populateRemoteAddr() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remoteAddr = address.getAddress().getHostAddress();
+            }
+        }
+
+
+        @Override
+        protected void populateRemoteHost() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remoteHost = address.getAddress().getHostName();
+                if (remoteAddr == null) {
+                    remoteAddr = address.getAddress().getHostAddress();
+                }
+            }
+        }
+
+
+        @Override
+        protected void populateRemotePort() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remotePort = address.getPort();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalName() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localName = address.getAddress().getHostName();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalAddr() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localAddr = address.getAddress().getHostAddress();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalPort() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localPort = address.getPort();
+            }
+        }
+
+
+        @Override
+        public SSLSupport getSslSupport() {
+            return null;
+        }
+
+
+        @Override
+        public void doClientAuth(SSLSupport sslSupport) throws IOException {
+            // NO-OP. TLS is not supported.
+        }
+
+
+        @Override
+        protected <A> OperationState<A> newOperationState(boolean read, ByteBuffer[] buffers, int offset, int length,
+                BlockingMode block, long timeout, TimeUnit unit, A attachment, CompletionCheck check,
+                CompletionHandler<Long,? super A> handler, Semaphore semaphore,
+                VectoredIOCompletionHandler<A> completion) {
+            return new IoUringOperationState<>(read, buffers, offset, length, block, timeout, unit, attachment, check,
+                    handler, semaphore, completion);
+        }
+
+        private class IoUringOperationState<A> extends OperationState<A> {
+            private volatile boolean inline = true;
+
+            private IoUringOperationState(boolean read, ByteBuffer[] buffers, int offset, int length,
+                    BlockingMode block, long timeout, TimeUnit unit, A attachment, CompletionCheck check,
+                    CompletionHandler<Long,? super A> handler, Semaphore semaphore,
+                    VectoredIOCompletionHandler<A> completion) {
+                super(read, buffers, offset, length, block, timeout, unit, attachment, check, handler, semaphore,
+                        completion);
+            }
+
+            @Override
+            protected boolean isInline() {
+                return inline;
+            }
+
+            private boolean resume() {
+                return process();
+            }
+
+            @Override
+            public void run() {
+                // Perform the IO operation
+                // Called from the poller to continue the IO operation
+                long nBytes = 0;
+                if (getError() == null) {
+                    try {
+                        synchronized (this) {
+                            if (!completionDone) {
+                                // This filters out same notification until processing
+                                // of the current one is done
+                                if (log.isTraceEnabled()) {
+                                    log.trace("Skip concurrent " + (read ? "read" : "write") + " notification");
+                                }
+                                return;
+                            }
+                            if (read) {
+                                // Read from main buffer first
+                                if (!socketBufferHandler.isReadBufferEmpty()) {
+                                    // There is still data inside the main read buffer, it needs to be read first
+                                    socketBufferHandler.configureReadBufferForRead();
+                                    for (int i = 0; i < length && !socketBufferHandler.isReadBufferEmpty(); i++) {
+                                        nBytes += transfer(socketBufferHandler.getReadBuffer(), buffers[offset + i]);
+                                    }
+                                }
+                                // The ring may be receiving into the main buffer
+                                if (nBytes == 0 && !recvPending) {
+                                    nBytes = recv(buffers, offset, length);
+                                    updateLastRead();
+                                }
+                            } else {
+                                boolean doWrite = true;
+                                // Write from main buffer first
+                                if (!socketBufferHandler.isWriteBufferEmpty()) {
+                                    // There is still data inside the main write buffer, it needs to be written first
+                                    socketBufferHandler.configureWriteBufferForRead();
+                                    do {
+                                        nBytes = send(socketBufferHandler.getWriteBuffer());
+                                    } while (!socketBufferHandler.isWriteBufferEmpty() && nBytes > 0);
+                                    if (!socketBufferHandler.isWriteBufferEmpty()) {
+                                        doWrite = false;
+                                    }
+                                    // Preserve a negative value since it is an error
+                                    if (nBytes > 0) {
+                                        nBytes = 0;
+                                    }
+                                }
+                                if (doWrite) {
+                                    long n;
+                                    do {
+                                        n = send(buffers, offset, length);
+                                        nBytes += n;
+                                    } while (n > 0);
+                                    updateLastWrite();
+                                }
+                            }
+                            if (nBytes != 0 || (!buffersArrayHasRemaining(buffers, offset, length) &&
+                                    (read || socketBufferHandler.isWriteBufferEmpty()))) {
+                                completionDone = false;
+                            }
+                        }
+                    } catch (IOException ioe) {
+                        setError(ioe);
+                    }
+                }
+                if (nBytes > 0 || (nBytes == 0 && !buffersArrayHasRemaining(buffers, offset, length) &&
+                        (read || socketBufferHandler.isWriteBufferEmpty()))) {
+                    // The bytes processed are only updated in the completion handler
+                    completion.completed(Long.valueOf(nBytes), this);
+                } else if (nBytes < 0 || getError() != null) {
+                    IOException error = getError();
+                    if (error == null) {
+                        error = new EOFException();
+                    }
+                    completion.failed(error, this);
+                } else {
+                    // As soon as the operation uses the poller, it is no longer inline
+                    inline = false;
+                    if (read) {
+                        registerReadInterest();
+                    } else {
+                        registerWriteInterest();
+                    }
+                }
+            }
+        }
+    }
+
+
+    // ---------------------------------------------- SocketProcessor Inner Class
+
+    /**
+     * This class is the equivalent of the Worker, but will simply use in an external Executor thread pool.
+     */
+    protected class SocketProcessor extends SocketProcessorBase<Integer> {
+
+        public SocketProcessor(SocketWrapperBase<Integer> socketWrapper, SocketEvent event) {
+            super(socketWrapper, event);
+        }
+
+        @Override
+        protected void doRun() {
+            try {
+                if (poller == null) {
+                    socketWrapper.close();
+                    return;
+                }
+                SocketState state =
+                        getHandler().process(socketWrapper, Objects.requireNonNullElse(event, SocketEvent.OPEN_READ));
+                if (state == SocketState.CLOSED) {
+                    socketWrapper.close();
+                }
+            } catch (VirtualMachineError vme) {
+                ExceptionUtils.handleThrowable(vme);
+            } catch (Throwable t) {
+                log.error(sm.getString("endpoint.iouring.processingFail"), t);
+                socketWrapper.close();
+            } finally {
+                socketWrapper = null;
+                event = null;
+                // return to cache
+                if (running && processorCache != null) {
+                    processorCache.push(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bindings for the Linux system calls and C library functions used by the io_uring endpoint. Calls that may fail
+ * return the negated value of <code>errno</code> rather than throwing so that the expected failures on the hot path
+ * (such as <code>EAGAIN</code>) do not require exceptions to be created.
+ */
+final class Syscalls {
+
+    // errno values
+    static final int EINTR = 4;
+    static final int EAGAIN = 11;
+    static final int EINVAL = 22;
+    static final int ETIME = 62;
+    static final int ECANCELED = 125;
+
+    // Socket constants
+    static final int AF_INET = 2;
+    static final int AF_INET6 = 10;
+    static final int SOCK_STREAM = 1;
+    static final int SOCK_CLOEXEC = 0x80000;
+    static final int SOCK_NONBLOCK = 0x800;
+    static final int SOL_SOCKET = 1;
+    static final int SO_REUSEADDR = 2;
+    static final int IPPROTO_TCP = 6;
+    static final int IPPROTO_IPV6 = 41;
+    static final int TCP_NODELAY = 1;
+    static final int IPV6_V6ONLY = 26;
+    static final int MSG_DONTWAIT = 0x40;
+    static final int MSG_NOSIGNAL = 0x4000;
+    static final int SHUT_RDWR = 2;
+    static final int EFD_CLOEXEC = 0x80000;
+
+    // Memory mapping constants
+    static final int PROT_READ_WRITE = 0x3;
+    static final int MAP_SHARED_POPULATE = 0x1 | 0x8000;
+
+    // io_uring system call numbers are the same for all architectures that use the generic system call table
+    private static final long SYS_IO_URING_SETUP = 425;
+    private static final long SYS_IO_URING_ENTER = 426;
+    private static final long SYS_IO_URING_REGISTER = 427;
+
+    private static final int SOCKADDR_IN_SIZE = 16;
+    private static final int SOCKADDR_IN6_SIZE = 28;
+    private static final int SOCKADDR_STORAGE_SIZE = 128;
+
+    private static final StructLayout CAPTURE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final long ERRNO_OFFSET =
+            CAPTURE_LAYOUT.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+    private static final ThreadLocal<MemorySegment> CAPTURE_STATE =
+            ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(CAPTURE_LAYOUT));
+    private static final ThreadLocal<MemorySegment> SOCKADDR =
+            ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(SOCKADDR_STORAGE_SIZE + 8, 8));
+
+    private static final MethodHandle ioUringSetup;
+    private static final MethodHandle ioUringEnter;
+    private static final MethodHandle ioUringRegister;
+    private static final MethodHandle mmap;
+    private static final MethodHandle munmap;
+    private static final MethodHandle socket;
+    private static final MethodHandle setsockopt;
+    private static final MethodHandle bind;
+    private static final MethodHandle listen;
+    private static final MethodHandle getsockname;
+    private static final MethodHandle getpeername;
+    private static final MethodHandle recv;
+    private static final MethodHandle send;
+    private static final MethodHandle shutdown;
+    private static final MethodHandle close;
+    private static final MethodHandle eventfd;
+    private static final MethodHandle write;
+    private static final MethodHandle strerror;
+
+    static {
+        Linker linker = Linker.nativeLinker();
+        SymbolLookup libc = linker.defaultLookup();
+        Linker.Option errno = Linker.Option.captureCallState("errno");
+
+        ioUringSetup = downcall(linker, libc, "syscall",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                        ValueLayout.ADDRESS),
+                errno, Linker.Option.firstVariadicArg(1));
+        ioUringEnter = downcall(linker, libc, "syscall",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG),
+                errno, Linker.Option.firstVariadicArg(1));
+        ioUringRegister = downcall(linker, libc, "syscall",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                        ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
+                errno, Linker.Option.firstVariadicArg(1));
+        mmap = downcall(linker, libc, "mmap",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG,
+                        ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG),
+                errno);
+        munmap = downcall(linker, libc, "munmap",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        socket = downcall(linker, libc, "socket",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT,
+                        ValueLayout.JAVA_INT),
+                errno);
+        setsockopt = downcall(linker, libc, "setsockopt",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT,
+                        ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT),
+                errno);
+        bind = downcall(linker, libc, "bind",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_INT),
+                errno);
+        listen = downcall(linker, libc, "listen",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+        getsockname = downcall(linker, libc, "getsockname",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.ADDRESS),
+                errno);
+        getpeername = downcall(linker, libc, "getpeername",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.ADDRESS),
+                errno);
+        recv = downcall(linker, libc, "recv",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT),
+                errno);
+        send = downcall(linker, libc, "send",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT),
+                errno);
+        shutdown = downcall(linker, libc, "shutdown",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+        close = downcall(linker, libc, "close", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT),
+                errno);
+        eventfd = downcall(linker, libc, "eventfd",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+        write = downcall(linker, libc, "write",
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG),
+                errno);
+        strerror = downcall(linker, libc, "strerror",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+    }
+
+
+    private Syscalls() {
+        // Utility class
+    }
+
+
+    private static MethodHandle downcall(Linker linker, SymbolLookup lookup, String name,
+            FunctionDescriptor descriptor, Linker.Option... options) {
+        return linker.downcallHandle(lookup.find(name).orElseThrow(() -> new UnsatisfiedLinkError(name)),
+                descriptor, options);
+    }
+
+
+    private static int errno(MemorySegment captureState) {
+        return captureState.get(ValueLayout.JAVA_INT, ERRNO_OFFSET);
+    }
+
+
+    /*
+     * Converts the C library convention of returning -1 and setting errno to the kernel convention of returning the
+     * negated errno value.
+     */
+    private static long result(long result, MemorySegment captureState) {
+        if (result == -1) {
+            return -errno(captureState);
+        }
+        return result;
+    }
+
+
+    static IOException newIOException(String operation, long negatedErrno) {
+        return new IOException(operation + ": " + strerror((int) -negatedErrno));
+    }
+
+
+    static String strerror(int errno) {
+        try {
+            MemorySegment message = ((MemorySegment) strerror.invokeExact(errno)).reinterpret(1024);
+            int length = 0;
+            while (length < 1024 && message.get(ValueLayout.JAVA_BYTE, length) != 0) {
+                length++;
+            }
+            byte[] bytes = new byte[length];
+            MemorySegment.copy(message, ValueLayout.JAVA_BYTE, 0, bytes, 0, length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Throwable t) {
+            return "errno " + errno;
+        }
+    }
+
+
+    // --------------------------------------------------------------- io_uring
+
+    static long ioUringSetup(int entries, MemorySegment params) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) ioUringSetup.invokeExact(captureState, SYS_IO_URING_SETUP, (long) entries, params),
+                    captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static long ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) ioUringEnter.invokeExact(captureState, SYS_IO_URING_ENTER, (long) ringFd,
+                    (long) toSubmit, (long) minComplete, (long) flags, MemorySegment.NULL, 0L), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static long ioUringRegister(int ringFd, int opcode, MemorySegment arg, int count) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) ioUringRegister.invokeExact(captureState, SYS_IO_URING_REGISTER, (long) ringFd,
+                    (long) opcode, arg, (long) count), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static MemorySegment mmap(int fd, long size, long offset) throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        MemorySegment result;
+        try {
+            result = (MemorySegment) mmap.invokeExact(captureState, MemorySegment.NULL, size, PROT_READ_WRITE,
+                    MAP_SHARED_POPULATE, fd, offset);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        // MAP_FAILED is (void *) -1
+        if (result.address() == -1L) {
+            throw newIOException("mmap", -errno(captureState));
+        }
+        return result.reinterpret(size);
+    }
+
+
+    static void munmap(MemorySegment segment) {
+        try {
+            int result = (int) munmap.invokeExact(segment, segment.byteSize());
+            assert result == 0;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    // ---------------------------------------------------------------- Sockets
+
+    static int socket(int family) throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        long result;
+        try {
+            result = result((int) socket.invokeExact(captureState, family, SOCK_STREAM | SOCK_CLOEXEC, 0),
+                    captureState);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result < 0) {
+            throw newIOException("socket", result);
+        }
+        return (int) result;
+    }
+
+
+    static long setIntOption(int fd, int level, int option, int value) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        MemorySegment buffer = SOCKADDR.get();
+        buffer.set(ValueLayout.JAVA_INT, 0, value);
+        try {
+            return result((int) setsockopt.invokeExact(captureState, fd, level, option, buffer, 4), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static void bind(int fd, int family, InetAddress address, int port) throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        MemorySegment sockaddr = SOCKADDR.get();
+        int length = toSockaddr(family, address, port, sockaddr);
+        long result;
+        try {
+            result = result((int) bind.invokeExact(captureState, fd, sockaddr, length), captureState);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result < 0) {
+            throw newIOException("bind " + new InetSocketAddress(address, port), result);
+        }
+    }
+
+
+    static void listen(int fd, int backlog) throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        long result;
+        try {
+            result = result((int) listen.invokeExact(captureState, fd, backlog), captureState);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result < 0) {
+            throw newIOException("listen", result);
+        }
+    }
+
+
+    static InetSocketAddress getLocalAddress(int fd) throws IOException {
+        return getAddress(getsockname, "getsockname", fd);
+    }
+
+
+    static InetSocketAddress getRemoteAddress(int fd) throws IOException {
+        return getAddress(getpeername, "getpeername", fd);
+    }
+
+
+    private static InetSocketAddress getAddress(MethodHandle function, String name, int fd) throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        MemorySegment sockaddr = SOCKADDR.get();
+        // The length is placed after the largest possible socket address
+        MemorySegment length = sockaddr.asSlice(SOCKADDR_STORAGE_SIZE, 4);
+        length.set(ValueLayout.JAVA_INT, 0, SOCKADDR_STORAGE_SIZE);
+        long result;
+        try {
+            result = result((int) function.invokeExact(captureState, fd, sockaddr, length), captureState);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result < 0) {
+            throw newIOException(name, result);
+        }
+        return fromSockaddr(sockaddr);
+    }
+
+
+    static long recv(int fd, MemorySegment buffer, int flags) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) recv.invokeExact(captureState, fd, buffer, buffer.byteSize(), flags), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static long send(int fd, MemorySegment buffer, int flags) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) send.invokeExact(captureState, fd, buffer, buffer.byteSize(), flags), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static long shutdown(int fd) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((int) shutdown.invokeExact(captureState, fd, SHUT_RDWR), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static long close(int fd) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((int) close.invokeExact(captureState, fd), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    static int eventfd() throws IOException {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        long result;
+        try {
+            result = result((int) eventfd.invokeExact(captureState, 0, EFD_CLOEXEC), captureState);
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+        if (result < 0) {
+            throw newIOException("eventfd", result);
+        }
+        return (int) result;
+    }
+
+
+    static long write(int fd, MemorySegment buffer) {
+        MemorySegment captureState = CAPTURE_STATE.get();
+        try {
+            return result((long) write.invokeExact(captureState, fd, buffer, buffer.byteSize()), captureState);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    // ------------------------------------------------------ Socket addresses
+
+    private static int toSockaddr(int family, InetAddress address, int port, MemorySegment sockaddr) {
+        sockaddr.fill((byte) 0);
+        // sin_port and sin6_port are in network byte order
+        short networkPort = Short.reverseBytes((short) port);
+        sockaddr.set(ValueLayout.JAVA_SHORT, 0, (short) family);
+        sockaddr.set(ValueLayout.JAVA_SHORT, 2, networkPort);
+        if (family == AF_INET) {
+            if (address != null) {
+                MemorySegment.copy(address.getAddress(), 0, sockaddr, ValueLayout.JAVA_BYTE, 4, 4);
+            }
+            return SOCKADDR_IN_SIZE;
+        }
+        if (address instanceof Inet6Address inet6Address) {
+            MemorySegment.copy(address.getAddress(), 0, sockaddr, ValueLayout.JAVA_BYTE, 8, 16);
+            sockaddr.set(ValueLayout.JAVA_INT, 24, inet6Address.getScopeId());
+        } else if (address instanceof Inet4Address && !address.isAnyLocalAddress()) {
+            // IPv4 mapped IPv6 address
+            sockaddr.set(ValueLayout.JAVA_SHORT, 18, (short) -1);
+            MemorySegment.copy(address.getAddress(), 0, sockaddr, ValueLayout.JAVA_BYTE, 20, 4);
+        }
+        return SOCKADDR_IN6_SIZE;
+    }
+
+
+    private static InetSocketAddress fromSockaddr(MemorySegment sockaddr) throws UnknownHostException {
+        int family = sockaddr.get(ValueLayout.JAVA_SHORT, 0);
+        int port = Short.toUnsignedInt(Short.reverseBytes(sockaddr.get(ValueLayout.JAVA_SHORT, 2)));
+        if (family == AF_INET) {
+            byte[] address = new byte[4];
+            MemorySegment.copy(sockaddr, ValueLayout.JAVA_BYTE, 4, address, 0, 4);
+            return new InetSocketAddress(InetAddress.getByAddress(address), port);
+        } else if (family == AF_INET6) {
+            byte[] address = new byte[16];
+            MemorySegment.copy(sockaddr, ValueLayout.JAVA_BYTE, 8, address, 0, 16);
+            int scopeId = sockaddr.get(ValueLayout.JAVA_INT, 24);
+            InetAddress inetAddress;
+            if (scopeId != 0) {
+                inetAddress = Inet6Address.getByAddress(null, address, scopeId);
+            } else {
+                // Converts IPv4 mapped addresses to the equivalent IPv4 address
+                inetAddress = InetAddress.getByAddress(address);
+            }
+            return new InetSocketAddress(inetAddress, port);
+        }
+        return null;
+    }
+}
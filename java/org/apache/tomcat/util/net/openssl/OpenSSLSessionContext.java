@@ -24,12 +24,13 @@ import javax.net.ssl.SSLSessionContext;
 
 import org.apache.tomcat.jni.SSL;
 import org.apache.tomcat.jni.SSLContext;
+import org.apache.tomcat.util.net.TicketKeySessionContext;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
  * OpenSSL specific {@link SSLSessionContext} implementation.
  */
-public class OpenSSLSessionContext implements SSLSessionContext {
+public class OpenSSLSessionContext implements TicketKeySessionContext {
     private static final StringManager sm = StringManager.getManager(OpenSSLSessionContext.class);
     private static final Enumeration<byte[]> EMPTY = new EmptyEnumeration();
 
@@ -58,11 +59,7 @@ public class OpenSSLSessionContext implements SSLSessionContext {
         return EMPTY;
     }
 
-    /**
-     * Sets the SSL session ticket keys of this context.
-     *
-     * @param keys The session ticket keys
-     */
+    @Override
     public void setTicketKeys(byte[] keys) {
         if (keys == null) {
             throw new IllegalArgumentException(sm.getString("sessionContext.nullTicketKeys"));
@@ -94,6 +91,16 @@ public class OpenSSLSessionContext implements SSLSessionContext {
         return stats;
     }
 
+    @Override
+    public long getHandshakeCount() {
+        return stats.acceptGood();
+    }
+
+    @Override
+    public long getResumedHandshakeCount() {
+        return stats.hits();
+    }
+
     @Override
     public void setSessionTimeout(int seconds) {
         if (seconds < 0) {
@@ -26,12 +26,13 @@ import javax.net.ssl.SSLSessionContext;
 
 import static org.apache.tomcat.util.openssl.openssl_h.*;
 import static org.apache.tomcat.util.openssl.openssl_h_Macros.*;
+import org.apache.tomcat.util.net.TicketKeySessionContext;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
  * OpenSSL specific {@link SSLSessionContext} implementation.
  */
-public class OpenSSLSessionContext implements SSLSessionContext {
+public class OpenSSLSessionContext implements TicketKeySessionContext {
     private static final StringManager sm = StringManager.getManager(OpenSSLSessionContext.class);
     private static final Enumeration<byte[]> EMPTY = new EmptyEnumeration();
 
@@ -55,11 +56,7 @@ public class OpenSSLSessionContext implements SSLSessionContext {
         return EMPTY;
     }
 
-    /**
-     * Sets the SSL session ticket keys of this context.
-     *
-     * @param keys The session ticket keys
-     */
+    @Override
     public void setTicketKeys(byte[] keys) {
         if (keys == null) {
             throw new IllegalArgumentException(sm.getString("sessionContext.nullTicketKeys"));
@@ -98,6 +95,16 @@ public class OpenSSLSessionContext implements SSLSessionContext {
         return stats;
     }
 
+    @Override
+    public long getHandshakeCount() {
+        return stats.acceptGood();
+    }
+
+    @Override
+    public long getResumedHandshakeCount() {
+        return stats.hits();
+    }
+
     @Override
     public void setSessionTimeout(int seconds) {
         if (seconds < 0) {
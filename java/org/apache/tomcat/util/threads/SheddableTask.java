@@ -0,0 +1,46 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+/**
+ * A task for which {@link TaskQueue} tracks the time spent in the queue and which may be shed, rather than fully
+ * processed, when the queue is overloaded.
+ */
+public interface SheddableTask extends Runnable {
+
+    /**
+     * Record the time at which the task was added to the queue.
+     *
+     * @param queueTime The value of {@link System#nanoTime()} when the task was added to the queue
+     */
+    void setQueueTime(long queueTime);
+
+
+    /**
+     * @return the value of {@link System#nanoTime()} when the task was added to the queue
+     */
+    long getQueueTime();
+
+
+    /**
+     * Request that the task is shed. If the task accepts, it must complete as quickly as possible when it is run, for
+     * example by rejecting the work it represents. The task is still run by the executor.
+     *
+     * @return {@code true} if the task will be shed, {@code false} if the task must be processed normally
+     */
+    boolean shed();
+}
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.tomcat.util.res.StringManager;
 
@@ -30,6 +31,12 @@ import org.apache.tomcat.util.res.StringManager;
  * executor. If you use a normal queue, the executor will spawn threads when
  * there are idle threads and you won't be able to force items onto the queue
  * itself.
+ * <p>
+ * The queue tracks the time spent in the queue by {@link SheddableTask}s. If a target delay is configured, the queue
+ * uses an adaptation of the CoDel (controlled delay) algorithm to detect overload: if the minimum delay observed
+ * during an interval of 100ms exceeded the target, the queue is considered overloaded and, until an interval with a
+ * minimum delay below the target is observed, tasks that spent more than twice the target delay in the queue are shed
+ * rather than processed. This bounds the time requests wait for a thread when the executor is saturated.
  */
 public class TaskQueue extends LinkedBlockingQueue<Runnable> implements RetryableQueue<Runnable> {
 
@@ -37,8 +44,18 @@ public class TaskQueue extends LinkedBlockingQueue<Runnable> implements Retryabl
     private static final long serialVersionUID = 1L;
     protected static final StringManager sm = StringManager.getManager(TaskQueue.class);
 
+    private static final long DELAY_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
     private transient volatile ThreadPoolExecutor parent = null;
 
+    private volatile long targetDelay = 0;
+    private final transient Object delayLock = new Object();
+    private transient long delayIntervalStart = System.nanoTime();
+    private transient long minDelay = Long.MAX_VALUE;
+    private transient boolean overloaded = false;
+    private final transient DelayHistogram delays = new DelayHistogram();
+    private final transient AtomicLong shedCount = new AtomicLong(0);
+
     public TaskQueue() {
         super();
     }
@@ -56,17 +73,75 @@ public class TaskQueue extends LinkedBlockingQueue<Runnable> implements Retryabl
     }
 
 
+    /**
+     * Set the target for the time tasks spend in the queue. If the queue is overloaded, tasks that exceed twice this
+     * delay are shed.
+     *
+     * @param targetDelay The target delay in milliseconds, zero or less disables shedding
+     */
+    public void setTargetDelay(long targetDelay) {
+        this.targetDelay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, targetDelay));
+    }
+
+
+    /**
+     * @return the target delay in milliseconds, zero if shedding is disabled
+     */
+    public long getTargetDelay() {
+        return TimeUnit.NANOSECONDS.toMillis(targetDelay);
+    }
+
+
+    /**
+     * @return the number of tasks that have been shed
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+
+    /**
+     * Estimate a percentile of the time tasks spent in the queue.
+     *
+     * @param percentile The percentile, between 0 and 100
+     *
+     * @return the estimated delay in milliseconds
+     */
+    public double getDelayPercentile(double percentile) {
+        return delays.getPercentile(percentile);
+    }
+
+
+    /**
+     * @return the maximum time a task spent in the queue in milliseconds
+     */
+    public double getMaxDelay() {
+        return delays.getMax();
+    }
+
+
+    /**
+     * Reset the statistics of the time tasks spent in the queue and the shed count.
+     */
+    public void resetDelayStatistics() {
+        delays.reset();
+        shedCount.set(0);
+    }
+
+
     @Override
     public boolean force(Runnable o) {
         if (parent == null || parent.isShutdown()) {
             throw new RejectedExecutionException(sm.getString("taskQueue.notRunning"));
         }
+        setQueueTime(o);
         return super.offer(o); //forces the item onto the queue, to be used if the task is rejected
     }
 
 
     @Override
     public boolean offer(Runnable o) {
+        setQueueTime(o);
       //we can't do any checks
         if (parent==null) {
             return super.offer(o);
@@ -97,6 +172,7 @@ public class TaskQueue extends LinkedBlockingQueue<Runnable> implements Retryabl
             // thread if needed to avoid memory leaks.
             parent.stopCurrentThreadIfNeeded();
         }
+        dequeued(runnable);
         return runnable;
     }
 
@@ -109,6 +185,50 @@ public class TaskQueue extends LinkedBlockingQueue<Runnable> implements Retryabl
             // does not occur with take()
             // but the ThreadPoolExecutor implementation allows this
         }
-        return super.take();
+        Runnable runnable = super.take();
+        dequeued(runnable);
+        return runnable;
+    }
+
+
+    private void setQueueTime(Runnable o) {
+        if (o instanceof SheddableTask task) {
+            task.setQueueTime(System.nanoTime());
+        }
+    }
+
+
+    /*
+     * Records the time the task spent in the queue and, if the queue is overloaded, sheds tasks that have been in the
+     * queue for too long.
+     */
+    private void dequeued(Runnable o) {
+        if (!(o instanceof SheddableTask task)) {
+            return;
+        }
+        long now = System.nanoTime();
+        long delay = now - task.getQueueTime();
+        delays.record(delay);
+
+        long targetDelay = this.targetDelay;
+        if (targetDelay <= 0) {
+            return;
+        }
+        boolean overloaded;
+        synchronized (delayLock) {
+            if (now - delayIntervalStart > DELAY_INTERVAL) {
+                // The queue is overloaded if even the fastest task of the last interval exceeded the target. An
+                // interval without any task, such as the first one, never indicates an overload.
+                this.overloaded = minDelay != Long.MAX_VALUE && minDelay > targetDelay;
+                minDelay = delay;
+                delayIntervalStart = now;
+            } else if (delay < minDelay) {
+                minDelay = delay;
+            }
+            overloaded = this.overloaded;
+        }
+        if (overloaded && delay > 2 * targetDelay && task.shed()) {
+            shedCount.incrementAndGet();
+        }
     }
 }
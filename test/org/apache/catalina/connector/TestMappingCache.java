@@ -0,0 +1,177 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.connector;
+
+import java.io.IOException;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestMappingCache extends TomcatBaseTest {
+
+    private static final String HOST = "localhost";
+
+
+    @Test
+    public void testHit() throws Exception {
+        start(16);
+        Connector connector = getTomcatInstance().getConnector();
+
+        String expected = "path:/foo|info:/a b|match:PATH";
+        Assert.assertEquals(expected, request("/foo/a%20b"));
+        Assert.assertEquals(0, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(1, connector.getMappingCacheMissCount(HOST));
+
+        Assert.assertEquals(expected, request("/foo/a%20b"));
+        Assert.assertEquals(1, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(1, connector.getMappingCacheMissCount(HOST));
+
+        // Non-normalized URIs are cached separately
+        Assert.assertEquals(expected, request("/foo/x/../a%20b"));
+        Assert.assertEquals(1, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(2, connector.getMappingCacheMissCount(HOST));
+        Assert.assertEquals(expected, request("/foo/x/../a%20b"));
+        Assert.assertEquals(2, connector.getMappingCacheHitCount(HOST));
+
+        Assert.assertEquals("path:/bar.txt|info:null|match:EXTENSION", request("/bar.txt"));
+        Assert.assertEquals("path:/bar.txt|info:null|match:EXTENSION", request("/bar.txt"));
+        Assert.assertEquals(3, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(3, connector.getMappingCacheMissCount(HOST));
+
+        // Directory redirects are disabled so the default servlet mappings are cached
+        Assert.assertEquals("path:/other|info:null|match:DEFAULT", request("/other"));
+        Assert.assertEquals("path:/other|info:null|match:DEFAULT", request("/other"));
+        Assert.assertEquals(4, connector.getMappingCacheHitCount(HOST));
+
+        Assert.assertEquals(0, connector.getMappingCacheHitCount("unknown"));
+    }
+
+
+    @Test
+    public void testInvalidation() throws Exception {
+        Context ctx = start(16);
+        Connector connector = getTomcatInstance().getConnector();
+
+        Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar"));
+        Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar"));
+        Assert.assertEquals(1, connector.getMappingCacheHitCount(HOST));
+
+        // A new mapping must be visible immediately
+        ctx.addServletMappingDecoded("/foo/bar", "mapping");
+        Assert.assertEquals("path:/foo/bar|info:null|match:EXACT", request("/foo/bar"));
+        Assert.assertEquals(1, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals("path:/foo/bar|info:null|match:EXACT", request("/foo/bar"));
+        Assert.assertEquals(2, connector.getMappingCacheHitCount(HOST));
+
+        // And the removal of a mapping
+        ctx.removeServletMapping("/foo/bar");
+        Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar"));
+        Assert.assertEquals(2, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(3, connector.getMappingCacheMissCount(HOST));
+    }
+
+
+    @Test
+    public void testNotCached() throws Exception {
+        start(16);
+        Connector connector = getTomcatInstance().getConnector();
+
+        // Path parameters
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar;a=b"));
+        }
+        // Welcome files
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals("path:/|info:null|match:DEFAULT", request("/"));
+        }
+        Assert.assertEquals(0, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(4, connector.getMappingCacheMissCount(HOST));
+    }
+
+
+    @Test
+    public void testDisabled() throws Exception {
+        start(0);
+        Connector connector = getTomcatInstance().getConnector();
+
+        Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar"));
+        Assert.assertEquals("path:/foo|info:/bar|match:PATH", request("/foo/bar"));
+        Assert.assertEquals(0, connector.getMappingCacheHitCount(HOST));
+        Assert.assertEquals(0, connector.getMappingCacheMissCount(HOST));
+    }
+
+
+    @Test
+    public void testEviction() throws Exception {
+        start(4);
+        Connector connector = getTomcatInstance().getConnector();
+
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("path:/foo|info:/" + i + "|match:PATH", request("/foo/" + i));
+        }
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("path:/foo|info:/" + i + "|match:PATH", request("/foo/" + i));
+        }
+        Assert.assertTrue(connector.getMappingCacheHitCount(HOST) <= 4);
+        Assert.assertEquals(32, connector.getMappingCacheHitCount(HOST) + connector.getMappingCacheMissCount(HOST));
+    }
+
+
+    private Context start(int mappingCacheSize) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        tomcat.getConnector().setMappingCacheSize(mappingCacheSize);
+
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "mapping", new MappingServlet());
+        ctx.addServletMappingDecoded("/foo/*", "mapping");
+        ctx.addServletMappingDecoded("*.txt", "mapping");
+        ctx.addServletMappingDecoded("/", "mapping");
+        tomcat.start();
+        return ctx;
+    }
+
+
+    private String request(String uri) throws IOException {
+        ByteChunk out = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + uri, out, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        return out.toString();
+    }
+
+
+    private static class MappingServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().print("path:" + req.getServletPath() + "|info:" + req.getPathInfo() + "|match:" +
+                    req.getHttpServletMapping().getMappingMatch());
+        }
+    }
+}
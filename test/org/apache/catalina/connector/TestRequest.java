@@ -1060,4 +1060,62 @@ public class TestRequest extends TomcatBaseTest {
             }
         }
     }
+
+
+    @Test
+    public void testLazyParameterDecoding() throws Exception {
+        doTestLazyParameterDecoding(true);
+    }
+
+
+    @Test
+    public void testEagerParameterDecoding() throws Exception {
+        doTestLazyParameterDecoding(false);
+    }
+
+
+    private void doTestLazyParameterDecoding(boolean lazy) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        tomcat.getConnector().setLazyParameterDecoding(lazy);
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "LazyParameter", new LazyParameterServlet());
+        ctx.addServletMappingDecoded("/", "LazyParameter");
+        tomcat.start();
+
+        Map<String,List<String>> reqHead = new HashMap<>();
+        reqHead.put("Content-Type", List.of(Globals.CONTENT_TYPE_FORM_URL_ENCODING));
+        ByteChunk bc = new ByteChunk();
+        int rc = postUrl("bad=%zz&good=a+b%21".getBytes(StandardCharsets.ISO_8859_1),
+                "http://localhost:" + getPort() + "/?query=%41", bc, reqHead, null);
+
+        if (lazy) {
+            Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+            Assert.assertEquals("A,a b!,invalid", bc.toString());
+        } else {
+            // The invalid value fails the parsing of all the parameters
+            Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, rc);
+        }
+    }
+
+
+    private static class LazyParameterServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            resp.setContentType("text/plain");
+            PrintWriter pw = resp.getWriter();
+            pw.print(req.getParameter("query"));
+            pw.print(',');
+            pw.print(req.getParameter("good"));
+            pw.print(',');
+            try {
+                req.getParameter("bad");
+                pw.print("valid");
+            } catch (IllegalStateException ise) {
+                pw.print("invalid");
+            }
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.loader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+public class TestClassPreloader extends TomcatBaseTest {
+
+    private static final String CLASS_NAME = "org.apache.tomcat.Bug58096";
+
+
+    @Test
+    public void testPreloadClasses() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, false);
+        StandardContext ctx = (StandardContext) tomcat.getHost().findChildren()[0];
+        ctx.setPreloadClasses(true);
+        tomcat.start();
+
+        ctx.getLoader().getClassLoader().loadClass(CLASS_NAME);
+
+        ctx.stop();
+
+        File file = new File(ctx.getWorkPath(), ClassPreloader.FILE_NAME);
+        Assert.assertTrue(file.isFile());
+        List<String> classNames = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertTrue(classNames.toString(), classNames.contains(CLASS_NAME));
+
+        // Classes that can no longer be loaded must not prevent the Context from starting
+        classNames.add(0, "org.apache.tomcat.DoesNotExist");
+        Files.write(file.toPath(), classNames, StandardCharsets.UTF_8);
+
+        ctx.start();
+        Assert.assertTrue(ctx.getState().isAvailable());
+
+        // The class has been loaded without being used by the web application
+        WebappClassLoaderBase cl = (WebappClassLoaderBase) ctx.getLoader().getClassLoader();
+        List<String> definedClassNames = cl.getDefinedClassNames();
+        Assert.assertTrue(definedClassNames.toString(), definedClassNames.contains(CLASS_NAME));
+
+        ctx.stop();
+
+        classNames = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertTrue(classNames.toString(), classNames.contains(CLASS_NAME));
+        Assert.assertFalse(classNames.toString(), classNames.contains("org.apache.tomcat.DoesNotExist"));
+    }
+
+
+    /*
+     * Contexts are started on the utility executor, which is also used to preload classes. Starting more Contexts than
+     * there are utility threads must not leave every thread waiting for classes that are queued behind it.
+     */
+    @Test(timeout = 60000)
+    public void testPreloadClassesParallelStart() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        ((StandardHost) tomcat.getHost()).setStartStopThreads(2);
+
+        File appDir = new File("test/webapp");
+        String[] paths = { "/a", "/b", "/c", "/d" };
+        for (String path : paths) {
+            StandardContext ctx = (StandardContext) tomcat.addWebapp(null, path, appDir.getAbsolutePath());
+            File workDir = new File(getTemporaryDirectory(), "work" + path);
+            Assert.assertTrue(workDir.mkdirs());
+            Files.write(new File(workDir, ClassPreloader.FILE_NAME).toPath(), List.of(CLASS_NAME),
+                    StandardCharsets.UTF_8);
+            ctx.setWorkDir(workDir.getAbsolutePath());
+            ctx.setPreloadClasses(true);
+        }
+
+        tomcat.start();
+
+        for (String path : paths) {
+            Context ctx = (Context) tomcat.getHost().findChild(path);
+            Assert.assertTrue(ctx.getState().isAvailable());
+            WebappClassLoaderBase cl = (WebappClassLoaderBase) ctx.getLoader().getClassLoader();
+            Assert.assertTrue(cl.getDefinedClassNames().contains(CLASS_NAME));
+        }
+    }
+
+
+    @Test
+    public void testPreloadClassesDisabled() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
+        StandardContext ctx = (StandardContext) tomcat.getHost().findChildren()[0];
+
+        ctx.getLoader().getClassLoader().loadClass(CLASS_NAME);
+        WebappClassLoaderBase cl = (WebappClassLoaderBase) ctx.getLoader().getClassLoader();
+        Assert.assertTrue(cl.getDefinedClassNames().isEmpty());
+
+        ctx.stop();
+
+        Assert.assertFalse(new File(ctx.getWorkPath(), ClassPreloader.FILE_NAME).exists());
+    }
+}
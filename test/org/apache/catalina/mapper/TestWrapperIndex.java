@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.mapper.Mapper.MappedWrapper;
+
+public class TestWrapperIndex {
+
+    private static final MappedWrapper[] NONE = new MappedWrapper[0];
+
+
+    @Test
+    public void testExact() {
+        WrapperIndex index = new WrapperIndex(wrappers("/", "/a", "/a/b", "/A"), NONE, NONE);
+        assertExact(index, "/", "/");
+        assertExact(index, "/a", "/a");
+        assertExact(index, "/A", "/A");
+        assertExact(index, "/a/b", "/a/b");
+        assertExact(index, "/a/", null);
+        assertExact(index, "/ab", null);
+        assertExact(index, "", null);
+    }
+
+
+    @Test
+    public void testExtension() {
+        WrapperIndex index = new WrapperIndex(NONE, NONE, wrappers("jsp", "do", "tar.gz"));
+        Assert.assertEquals("jsp", find(index, "xjsp", 1, false));
+        Assert.assertEquals("tar.gz", find(index, "xtar.gz", 1, false));
+        Assert.assertNull(find(index, "xgz", 1, false));
+        Assert.assertNull(find(index, "xJSP", 1, false));
+        Assert.assertNull(find(index, "x", 1, false));
+    }
+
+
+    @Test
+    public void testWildcard() {
+        WrapperIndex index = new WrapperIndex(NONE, wrappers("/a", "/a/b/c", "/x/", "/p/q"), NONE);
+        assertWildcard(index, "/a", "/a");
+        assertWildcard(index, "/a/", "/a");
+        assertWildcard(index, "/a/b", "/a");
+        assertWildcard(index, "/a/b/c", "/a/b/c");
+        assertWildcard(index, "/a/b/c/d/e", "/a/b/c");
+        assertWildcard(index, "/a/b/cd", "/a");
+        assertWildcard(index, "/ab", null);
+        assertWildcard(index, "/x", null);
+        assertWildcard(index, "/x/", "/x/");
+        assertWildcard(index, "/x//y", "/x/");
+        assertWildcard(index, "/x/y", null);
+        assertWildcard(index, "/p", null);
+        assertWildcard(index, "/p/q/r", "/p/q");
+        assertWildcard(index, "", null);
+    }
+
+
+    @Test
+    public void testWildcardRoot() {
+        WrapperIndex index = new WrapperIndex(NONE, wrappers("", "/a", "invalid"), NONE);
+        assertWildcard(index, "", "");
+        assertWildcard(index, "/", "");
+        assertWildcard(index, "/b/c", "");
+        assertWildcard(index, "/a/c", "/a");
+        assertWildcard(index, "invalid", null);
+    }
+
+
+    private static MappedWrapper[] wrappers(String... names) {
+        MappedWrapper[] result = new MappedWrapper[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = new MappedWrapper(names[i], null, false, false);
+        }
+        return result;
+    }
+
+
+    private static void assertExact(WrapperIndex index, String path, String expected) {
+        Assert.assertEquals(expected, find(index, path, 0, true));
+    }
+
+
+    private static void assertWildcard(WrapperIndex index, String path, String expected) {
+        // Surround the path with other characters to check that only the given range is used
+        char[] buf = ("/a/b/c" + path + "/a").toCharArray();
+        MappedWrapper wrapper = index.findWildcard(buf, 6, 6 + path.length());
+        Assert.assertEquals(expected, wrapper == null ? null : wrapper.name);
+    }
+
+
+    private static String find(WrapperIndex index, String path, int start, boolean exact) {
+        char[] buf = path.toCharArray();
+        MappedWrapper wrapper = exact ? index.findExact(buf, start, buf.length) :
+                index.findExtension(buf, start, buf.length);
+        return wrapper == null ? null : wrapper.name;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.core.StandardWrapper;
+import org.apache.tomcat.util.buf.MessageBytes;
+
+/*
+ * Maps requests for a web application with a large number of servlet mappings.
+ */
+public class TesterMapperManyWrappersPerformance {
+
+    private static final int MAPPING_COUNT = 2000;
+    private static final int ITERATIONS = 1000000;
+
+
+    @Test
+    public void testManyWrappers() throws Exception {
+        Mapper mapper = new Mapper();
+        Host host = new StandardHost();
+        host.setName("localhost");
+        mapper.addHost("localhost", new String[0], host);
+        mapper.setDefaultHostName("localhost");
+
+        List<WrapperMappingInfo> wrappers = new ArrayList<>();
+        for (int i = 0; i < MAPPING_COUNT; i++) {
+            wrappers.add(new WrapperMappingInfo("/api/v1/resource" + i + "/items", createWrapper("exact" + i), false,
+                    false));
+            wrappers.add(new WrapperMappingInfo("/rest/service" + i + "/*", createWrapper("prefix" + i), false,
+                    false));
+            wrappers.add(new WrapperMappingInfo("/rest/service" + i + "/sub/resource/*",
+                    createWrapper("nested" + i), false, false));
+        }
+        for (int i = 0; i < 50; i++) {
+            wrappers.add(new WrapperMappingInfo("*.ext" + i, createWrapper("extension" + i), false, false));
+        }
+        wrappers.add(new WrapperMappingInfo("/", createWrapper("default"), false, false));
+        Context context = new StandardContext();
+        context.setName("app");
+        mapper.addContextVersion("localhost", host, "/app", "0", context, new String[0], null, wrappers);
+
+        String[] uris = new String[] { "/app/api/v1/resource1234/items", "/app/rest/service1500/a/b/c",
+                "/app/rest/service42/sub/resource/x/y", "/app/static/images/logo.ext25", "/app/unknown/path" };
+        String[] expected = new String[] { "exact1234", "prefix1500", "nested42", "extension25", "default" };
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < uris.length; i++) {
+                MessageBytes hostMB = MessageBytes.newInstance();
+                hostMB.setString("localhost");
+                MessageBytes uri = MessageBytes.newInstance();
+                uri.setString(uris[i]);
+                uri.toChars();
+                uri.getCharChunk().setLimit(-1);
+                MappingData mappingData = new MappingData();
+
+                long start = System.nanoTime();
+                for (int j = 0; j < ITERATIONS; j++) {
+                    mappingData.recycle();
+                    mapper.map(hostMB, uri, null, mappingData);
+                }
+                long time = System.nanoTime() - start;
+                Assert.assertEquals(expected[i], mappingData.wrapper.getName());
+                System.out.println("URI [" + uris[i] + "], Time per mapping [" + (time / ITERATIONS) + "]ns");
+            }
+        }
+    }
+
+
+    private static Wrapper createWrapper(String name) {
+        Wrapper wrapper = new StandardWrapper();
+        wrapper.setName(name);
+        return wrapper;
+    }
+}
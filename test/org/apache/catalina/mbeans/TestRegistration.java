@@ -137,6 +137,8 @@ public class TestRegistration extends TomcatBaseTest {
                 + ObjectName.quote("http-" + type + "-" + ADDRESS + "-" + port),
         "Tomcat:type=SocketProperties,name="
                 + ObjectName.quote("http-" + type + "-" + ADDRESS + "-" + port),
+        "Tomcat:type=Poller,name="
+                + ObjectName.quote("http-" + type + "-" + ADDRESS + "-" + port + "-Poller"),
         };
     }
 
@@ -16,18 +16,24 @@
  */
 package org.apache.catalina.servlets;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -616,6 +622,81 @@ public class TestDefaultServlet extends TomcatBaseTest {
         tomcat.stop();
     }
 
+    /*
+     * Verify serving of compressed resources generated on demand and retained
+     * by the resources cache.
+     */
+    @Test
+    public void testGeneratedCompressedFile() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "compressed");
+        Assert.assertTrue(appDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+
+        File file = new File(appDir, "test.txt");
+        String original = "Hello World. ".repeat(1000);
+        Files.writeString(file.toPath(), original, StandardCharsets.UTF_8);
+
+        Context ctxt = tomcat.addContext("", appDir.getAbsolutePath());
+        Wrapper defaultServlet = Tomcat.addServlet(ctxt, "default",
+                DefaultServlet.class.getName());
+        defaultServlet.addInitParameter("compressResources", "gzip");
+        defaultServlet.addInitParameter("fileEncoding", "UTF-8");
+
+        ctxt.addServletMappingDecoded("/", "default");
+        ctxt.addMimeMapping("txt", "text/plain");
+
+        tomcat.start();
+
+        // Revalidate the cached resource on every request
+        ctxt.getResources().setCacheTtl(0);
+
+        String path = "http://localhost:" + getPort() + "/test.txt";
+        Map<String,List<String>> reqHeaders = new HashMap<>();
+        reqHeaders.put("Accept-Encoding", List.of("gzip"));
+
+        for (int i = 0; i < 2; i++) {
+            ByteChunk out = new ByteChunk();
+            Map<String,List<String>> resHeaders = new HashMap<>();
+            int rc = getUrl(path, out, reqHeaders, resHeaders);
+            Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+            Assert.assertEquals("gzip", resHeaders.get("Content-Encoding").get(0));
+            Assert.assertTrue(out.getLength() < original.length());
+            Assert.assertEquals(Long.toString(out.getLength()), resHeaders.get("Content-Length").get(0));
+            Assert.assertEquals(original, gunzip(out));
+        }
+
+        // Changing the resource must invalidate the compressed version
+        String updated = "Goodbye World. ".repeat(1000);
+        Files.writeString(file.toPath(), updated, StandardCharsets.UTF_8);
+        Assert.assertTrue(file.setLastModified(file.lastModified() + 10000));
+
+        ByteChunk out = new ByteChunk();
+        Map<String,List<String>> resHeaders = new HashMap<>();
+        int rc = getUrl(path, out, reqHeaders, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("gzip", resHeaders.get("Content-Encoding").get(0));
+        Assert.assertEquals(updated, gunzip(out));
+
+        // Clients that do not accept gzip receive the original
+        out.recycle();
+        resHeaders.clear();
+        rc = getUrl(path, out, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertNull(resHeaders.get("Content-Encoding"));
+        Assert.assertEquals(updated, out.toString());
+        Assert.assertTrue(resHeaders.get("vary").get(0).contains("accept-encoding"));
+    }
+
+    private static String gunzip(ByteChunk compressed) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed.getBuffer(),
+                compressed.getStart(), compressed.getLength()))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     public static int getUrl(String path, ByteChunk out,
             Map<String, List<String>> resHead) throws IOException {
         out.recycle();
@@ -720,4 +801,50 @@ public class TestDefaultServlet extends TomcatBaseTest {
         Assert.assertEquals(HttpServletResponse.SC_OK, client.getStatusCode());
 
     }
+
+
+    @Test
+    public void testMappedContent() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "mapped");
+        Assert.assertTrue(appDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        File file = new File(appDir, "large.bin");
+        byte[] content = new byte[1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(file.toPath(), content);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctxt = tomcat.addContext("", appDir.getAbsolutePath());
+        Wrapper defaultServlet = Tomcat.addServlet(ctxt, "default", new DefaultServlet());
+        // Disable sendfile so the content is written from the mapping
+        defaultServlet.addInitParameter("sendfileSize", "0");
+        ctxt.addServletMappingDecoded("/", "default");
+        tomcat.start();
+        ctxt.getResources().setMappedCacheMaxSize(4 * 1024);
+        ctxt.getResources().setCacheTtl(0);
+
+        String path = "http://localhost:" + getPort() + "/large.bin";
+        ByteChunk out = new ByteChunk();
+        int rc = getUrl(path, out, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(content, Arrays.copyOf(out.getBytes(), out.getLength()));
+
+        Map<String,List<String>> reqHeaders = new HashMap<>();
+        reqHeaders.put("Range", List.of("bytes=1000-1999"));
+        out.recycle();
+        rc = getUrl(path, out, reqHeaders, null);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, rc);
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000),
+                Arrays.copyOf(out.getBytes(), out.getLength()));
+
+        // The changed content is served once the resource has been revalidated
+        content = Arrays.copyOf(content, content.length + 1024);
+        Files.write(file.toPath(), content);
+        out.recycle();
+        rc = getUrl(path, out, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(content, Arrays.copyOf(out.getBytes(), out.getLength()));
+    }
 }
@@ -16,6 +16,9 @@
  */
 package org.apache.catalina.session;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -128,6 +131,88 @@ public class TestPersistentManager {
 
     }
 
+    @Test
+    public void testWriteBehind() throws Exception {
+        PersistentManager manager = new PersistentManager();
+        BlockingStore store = new BlockingStore();
+        manager.setStore(store);
+
+        Host host = new TesterHost();
+        Context context = new TesterContext();
+        context.setParent(host);
+
+        manager.setContext(context);
+
+        manager.setMaxIdleBackup(0);
+        manager.setWriteBehind(true);
+        manager.setWriteBehindBatchSize(1);
+
+        manager.start();
+
+        for (int i = 0; i < 3; i++) {
+            manager.createSession(null);
+        }
+
+        // All the sessions are queued and the first batch blocks in the Store
+        manager.processPersistenceChecks();
+        Assert.assertTrue(store.entered.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, manager.getWriteBehindQueueDepth());
+
+        // Queue the other sessions again. The background processing must not wait for the blocked session.
+        for (Session session : manager.findSessions()) {
+            if (!session.getIdInternal().equals(store.blockedId)) {
+                accessSession(session);
+            }
+        }
+        manager.processPersistenceChecks();
+        Assert.assertEquals(2, manager.getWriteBehindQueueDepth());
+        Assert.assertEquals(2, manager.getWriteBehindCoalescedCount());
+        Assert.assertTrue(manager.getWriteBehindLag() > 0);
+
+        store.release.countDown();
+        long maxWaitTime = System.currentTimeMillis() + 10000;
+        while (store.saveCount.get() < 3 && System.currentTimeMillis() < maxWaitTime) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(3, store.saveCount.get());
+        Assert.assertEquals(0, manager.getWriteBehindQueueDepth());
+        Assert.assertEquals(0, manager.getWriteBehindLag());
+
+        manager.stop();
+    }
+
+    private static void accessSession(Session session) throws InterruptedException {
+        // Ensure the last accessed time changes
+        Thread.sleep(20);
+        session.access();
+        session.endAccess();
+    }
+
+    private static class BlockingStore extends TesterStore {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger saveCount = new AtomicInteger();
+        private volatile String blockedId;
+
+        @Override
+        public void save(Session session) throws IOException {
+            if (blockedId == null) {
+                blockedId = session.getIdInternal();
+            }
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (this) {
+                super.save(session);
+            }
+            saveCount.incrementAndGet();
+        }
+    }
+
     private static class RequestCachingSessionListener implements HttpSessionListener {
 
         private HttpServletRequest request;
@@ -20,6 +20,10 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.ServletException;
@@ -144,6 +148,55 @@ public class TestPersistentManagerDataSourceStore extends TomcatBaseTest {
         store.clear();
     }
 
+    @Test
+    public void testDSStoreWriteBehind() throws Exception {
+        // Setup Tomcat instance
+        Tomcat tomcat = getTomcatInstance();
+
+        // No file system docBase required
+        Context ctx = getProgrammaticRootContext();
+        ctx.setDistributable(true);
+
+        Tomcat.addServlet(ctx, "DummyServlet", new DummyServlet());
+        ctx.addServletMappingDecoded("/dummy", "DummyServlet");
+
+        PersistentManager manager = new PersistentManager();
+        DerbyDataSourceStore store = new DerbyDataSourceStore("writebehindtest");
+        store.setSessionTable("tomcatsessions");
+
+        manager.setStore(store);
+        manager.setMaxIdleBackup(0);
+        manager.setWriteBehind(true);
+        ctx.setManager(manager);
+        tomcat.start();
+
+        Set<String> sessionIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            sessionIds.add(getUrl("http://localhost:" + getPort() + "/dummy").toString());
+        }
+
+        // Open the connection before the write-behind thread uses it
+        Assert.assertEquals(0, store.getSize());
+
+        // The sessions are written as a single batch
+        manager.processPersistenceChecks();
+        long maxWaitTime = System.currentTimeMillis() + 10000;
+        while (store.getSize() < 3 && System.currentTimeMillis() < maxWaitTime) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(sessionIds, new HashSet<>(Arrays.asList(store.keys())));
+
+        // Writing a batch again replaces the saved sessions
+        List<Session> sessions = Arrays.asList(manager.findSessions());
+        ((StandardSession) sessions.get(0)).setAttribute("test", "value");
+        store.saveAll(sessions);
+        Assert.assertEquals(3, store.getSize());
+        Session session = store.load(sessions.get(0).getIdInternal());
+        Assert.assertEquals("value", ((StandardSession) session).getAttribute("test"));
+
+        store.clear();
+    }
+
     private static class DummyServlet extends HttpServlet {
 
         private static final long serialVersionUID = -3696433049266123995L;
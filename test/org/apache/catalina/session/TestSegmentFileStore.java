@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.startup.LoggingBaseTest;
+import org.apache.tomcat.unittest.TesterContext;
+import org.apache.tomcat.unittest.TesterServletContext;
+
+public class TestSegmentFileStore extends LoggingBaseTest {
+
+    private StandardManager manager;
+    private File storeDirectory;
+
+
+    @Before
+    public void setupManager() {
+        TesterContext testerContext = new TesterContext();
+        testerContext.setServletContext(new TesterServletContext());
+        manager = new StandardManager();
+        manager.setContext(testerContext);
+        storeDirectory = new File(getTemporaryDirectory(), testName.getMethodName());
+    }
+
+
+    @Test
+    public void testSaveLoadRemove() throws Exception {
+        SegmentFileStore store = createStore();
+
+        store.save(createSession("id1", "value1"));
+        store.save(createSession("id2", "value2"));
+        Assert.assertEquals(2, store.getSize());
+        String[] keys = store.keys();
+        Arrays.sort(keys);
+        Assert.assertArrayEquals(new String[] { "id1", "id2" }, keys);
+
+        Assert.assertEquals("value1", store.load("id1").getSession().getAttribute("name"));
+        Assert.assertNull(store.load("id3"));
+
+        store.save(createSession("id1", "value1-updated"));
+        Assert.assertEquals(2, store.getSize());
+        Assert.assertEquals("value1-updated", store.load("id1").getSession().getAttribute("name"));
+
+        store.remove("id2");
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertNull(store.load("id2"));
+
+        store.clear();
+        Assert.assertEquals(0, store.getSize());
+        Assert.assertEquals(0, store.getSegmentCount());
+
+        store.stop();
+    }
+
+
+    @Test
+    public void testRecovery() throws Exception {
+        SegmentFileStore store = createStore();
+        store.setSegmentSize(4096);
+        for (int i = 0; i < 100; i++) {
+            store.save(createSession("id" + i, "value" + i));
+        }
+        // Superseded and removed copies in earlier segments
+        store.save(createSession("id0", "value0-updated"));
+        store.remove("id1");
+        store.saveAll(List.of(createSession("id2", "value2-updated"), createSession("id3", "value3-updated")));
+        Assert.assertTrue(store.getSegmentCount() > 1);
+        store.stop();
+
+        store = createStore();
+        Assert.assertEquals(99, store.getSize());
+        Assert.assertEquals("value0-updated", store.load("id0").getSession().getAttribute("name"));
+        Assert.assertNull(store.load("id1"));
+        Assert.assertEquals("value2-updated", store.load("id2").getSession().getAttribute("name"));
+        Assert.assertEquals("value3-updated", store.load("id3").getSession().getAttribute("name"));
+        Assert.assertEquals("value99", store.load("id99").getSession().getAttribute("name"));
+
+        // New sessions are appended to a new segment
+        store.save(createSession("id100", "value100"));
+        Assert.assertEquals("value100", store.load("id100").getSession().getAttribute("name"));
+        store.stop();
+    }
+
+
+    @Test
+    public void testRecoveryIncompleteRecord() throws Exception {
+        SegmentFileStore store = createStore();
+        store.save(createSession("id1", "value1"));
+        store.save(createSession("id2", "value2"));
+        store.stop();
+
+        // Corrupt the data of the second session
+        File[] files = storeDirectory.listFiles();
+        Assert.assertNotNull(files);
+        Assert.assertEquals(1, files.length);
+        int length;
+        try (RandomAccessFile raf = new RandomAccessFile(files[0], "rw")) {
+            length = raf.readInt();
+            raf.seek(length + 100);
+            raf.writeLong(-1);
+        }
+
+        store = createStore();
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertEquals("value1", store.load("id1").getSession().getAttribute("name"));
+        Assert.assertNull(store.load("id2"));
+        store.stop();
+    }
+
+
+    @Test
+    public void testCompaction() throws Exception {
+        SegmentFileStore store = createStore();
+        store.setSegmentSize(4096);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                store.save(createSession("id" + i, "value" + i + "-" + round));
+            }
+        }
+        int segmentCount = store.getSegmentCount();
+        Assert.assertTrue(segmentCount > 2);
+
+        store.compact();
+        Assert.assertTrue(store.getSegmentCount() < segmentCount);
+        Assert.assertEquals(store.getSegmentCount(), storeDirectory.listFiles().length);
+        Assert.assertEquals(10, store.getSize());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("value" + i + "-9", store.load("id" + i).getSession().getAttribute("name"));
+        }
+        store.stop();
+
+        store = createStore();
+        Assert.assertEquals(10, store.getSize());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("value" + i + "-9", store.load("id" + i).getSession().getAttribute("name"));
+        }
+        store.stop();
+    }
+
+
+    @Test
+    public void testExpiredKeys() throws Exception {
+        SegmentFileStore store = createStore();
+
+        StandardSession expired = createSession("id1", "value1");
+        expired.setMaxInactiveInterval(1);
+        expired.thisAccessedTime = System.currentTimeMillis() - 5000;
+        store.save(expired);
+        store.save(createSession("id2", "value2"));
+
+        Assert.assertArrayEquals(new String[] { "id1" }, store.expiredKeys());
+        store.stop();
+    }
+
+
+    private SegmentFileStore createStore() throws Exception {
+        SegmentFileStore store = new SegmentFileStore();
+        store.setDirectory(storeDirectory.getAbsolutePath());
+        store.setManager(manager);
+        store.start();
+        return store;
+    }
+
+
+    private StandardSession createSession(String id, String value) {
+        StandardSession session = new StandardSession(manager);
+        session.setValid(true);
+        session.setCreationTime(System.currentTimeMillis());
+        session.setMaxInactiveInterval(1800);
+        session.setId(id, false);
+        session.setAttribute("name", value);
+        return session;
+    }
+}
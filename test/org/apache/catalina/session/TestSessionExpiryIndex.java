@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.util.StandardSessionIdGenerator;
+
+public class TestSessionExpiryIndex {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private long timeNow = START;
+    private final List<StandardSession> examined = new ArrayList<>();
+
+
+    @Test
+    public void testExpiry() {
+        SessionExpiryIndex index = new SessionExpiryIndex(START);
+        StandardSession s1 = createSession(index, 60);
+        StandardSession s2 = createSession(index, 3600);
+        createSession(index, -1);
+
+        process(index, 30_000);
+        Assert.assertEquals(List.of(), examined);
+        process(index, 60_000);
+        Assert.assertEquals(List.of(s1), examined);
+        process(index, 3_599_000);
+        Assert.assertEquals(List.of(s1), examined);
+        process(index, 3_600_000);
+        Assert.assertEquals(List.of(s1, s2), examined);
+        // The session that does not expire is never examined
+        process(index, 365L * 24 * 3_600_000);
+        Assert.assertEquals(List.of(s1, s2), examined);
+    }
+
+
+    @Test
+    public void testAccessed() {
+        SessionExpiryIndex index = new SessionExpiryIndex(START);
+        StandardSession s1 = createSession(index, 60);
+        process(index, 0);
+
+        s1.thisAccessedTime = START + 50_000;
+        process(index, 60_000);
+        // Examined but still active so placed back in the index
+        Assert.assertEquals(List.of(s1), examined);
+        process(index, 109_000);
+        Assert.assertEquals(List.of(s1), examined);
+        process(index, 110_000);
+        Assert.assertEquals(List.of(s1, s1), examined);
+        process(index, 1_000_000);
+        Assert.assertEquals(List.of(s1, s1), examined);
+    }
+
+
+    @Test
+    public void testMaxInactiveIntervalReduced() {
+        SessionExpiryIndex index = new SessionExpiryIndex(START);
+        StandardSession s1 = createSession(index, 3600);
+        process(index, 1_000);
+
+        s1.setMaxInactiveInterval(60);
+        index.schedule(s1);
+        // Scheduling again with a later expiry time does not add an entry
+        index.schedule(s1);
+        process(index, 60_000);
+        Assert.assertEquals(List.of(s1), examined);
+        // The original entry is ignored
+        process(index, 3_600_000);
+        Assert.assertEquals(List.of(s1), examined);
+    }
+
+
+    @Test
+    public void testLongInterval() {
+        SessionExpiryIndex index = new SessionExpiryIndex(START);
+        // Beyond the range of the wheel
+        int interval = 400 * 24 * 3600;
+        StandardSession s1 = createSession(index, interval);
+
+        for (long time = 0; time < interval * 1000L; time += 12 * 3_600_000) {
+            process(index, time);
+        }
+        Assert.assertEquals(List.of(), examined);
+        process(index, interval * 1000L);
+        Assert.assertEquals(List.of(s1), examined);
+    }
+
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(42);
+        SessionExpiryIndex index = new SessionExpiryIndex(START);
+        Map<StandardSession,Long> expiryTimes = new HashMap<>();
+        Set<StandardSession> accessed = new HashSet<>();
+
+        while (timeNow < START + 48 * 3_600_000L) {
+            for (int i = random.nextInt(20); i > 0; i--) {
+                StandardSession session = createSession(index, 1 + random.nextInt(7200));
+                expiryTimes.put(session, Long.valueOf(expiryTime(session)));
+            }
+            // Access some of the sessions
+            for (StandardSession session : expiryTimes.keySet()) {
+                if (random.nextInt(50) == 0) {
+                    session.thisAccessedTime = timeNow;
+                    accessed.add(session);
+                    expiryTimes.put(session, Long.valueOf(expiryTime(session)));
+                }
+            }
+            process(index, timeNow - START + random.nextInt(120_000));
+            for (StandardSession session : examined) {
+                // Sessions that have not been accessed are not examined before their expiry time
+                Assert.assertTrue(accessed.contains(session) || timeNow >= expiryTimes.get(session).longValue());
+                if (timeNow - session.thisAccessedTime >= session.getMaxInactiveInterval() * 1000L) {
+                    expiryTimes.remove(session);
+                }
+            }
+            // Every session that has expired has been examined, with a resolution of one second
+            for (Map.Entry<StandardSession,Long> entry : expiryTimes.entrySet()) {
+                Assert.assertTrue(Math.ceilDiv(entry.getValue().longValue(), 1000) * 1000 > timeNow);
+            }
+            examined.clear();
+        }
+    }
+
+
+    @Test
+    public void testManager() throws Exception {
+        StandardManager manager = new StandardManager();
+        StandardContext context = new StandardContext();
+        context.setSessionTimeout(1);
+        manager.setContext(context);
+        manager.setSessionIdGenerator(new StandardSessionIdGenerator());
+        manager.setSessionExpiryIndex(true);
+
+        Session[] sessions = new Session[100];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = manager.createSession(null);
+        }
+        Assert.assertEquals(100, manager.getCreatedSessions());
+
+        // Builds the index
+        manager.processExpires();
+        Assert.assertEquals(0, manager.getExpiryCheckCount());
+
+        // Make half of the sessions expire
+        for (int i = 0; i < sessions.length; i += 2) {
+            sessions[i].setMaxInactiveInterval(1);
+        }
+        sessions[1].setMaxInactiveInterval(0);
+        Thread.sleep(2100);
+        manager.processExpires();
+        Assert.assertEquals(50, manager.getExpiryCheckCount());
+        Assert.assertEquals(50, manager.getExpiredSessions());
+        Assert.assertEquals(50, manager.getActiveSessions());
+
+        // The other sessions are not examined until their time is reached
+        manager.processExpires();
+        Assert.assertEquals(50, manager.getExpiryCheckCount());
+        Assert.assertEquals(50, manager.getActiveSessions());
+        Assert.assertTrue(sessions[1].isValid());
+    }
+
+
+    private StandardSession createSession(SessionExpiryIndex index, int maxInactiveInterval) {
+        StandardSession session = new StandardSession(null);
+        session.setValid(true);
+        session.setMaxInactiveInterval(maxInactiveInterval);
+        session.thisAccessedTime = timeNow;
+        index.schedule(session);
+        return session;
+    }
+
+
+    private void process(SessionExpiryIndex index, long offset) {
+        timeNow = START + offset;
+        index.process(timeNow, session -> {
+            examined.add(session);
+            return timeNow - session.thisAccessedTime < session.getMaxInactiveInterval() * 1000L;
+        });
+    }
+
+
+    private static long expiryTime(StandardSession session) {
+        return session.thisAccessedTime + session.getMaxInactiveInterval() * 1000L;
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Manager;
+import org.apache.catalina.SessionListener;
 import org.apache.catalina.core.StandardContext;
 
 public class TestStandardSession {
@@ -118,13 +119,69 @@ public class TestStandardSession {
     }
 
 
+    @Test
+    public void testSerializationCompact() throws Exception {
+
+        StandardSession s1 = new CompactSession(TEST_MANAGER);
+        s1.setValid(true);
+        for (int i = 0; i < 10; i++) {
+            s1.setAttribute("attr" + i, "value" + i);
+        }
+        s1.setAttribute("attr99", new NonSerializable());
+
+        // Compact to standard
+        StandardSession s2 = serializeThenDeserialize(s1);
+        validateSame(s1, s2, 10);
+
+        // Standard to compact
+        StandardSession s3 = serializeThenDeserialize(s2, new CompactSession(TEST_MANAGER));
+        validateSame(s2, s3, 10);
+        Assert.assertNull(s3.listeners);
+    }
+
+
+    @Test
+    public void testCompactSessionListeners() throws Exception {
+
+        StandardSession s1 = new CompactSession(TEST_MANAGER);
+        s1.setValid(true);
+        Assert.assertNull(s1.listeners);
+        s1.fireSessionEvent("test", null);
+
+        final StringBuilder events = new StringBuilder();
+        SessionListener listener = event -> events.append(event.getType());
+        s1.addSessionListener(listener);
+        s1.fireSessionEvent("test", null);
+        s1.removeSessionListener(listener);
+        s1.fireSessionEvent("test", null);
+
+        Assert.assertEquals("test", events.toString());
+    }
+
+
+    @Test
+    public void testManagerCompactSessions() throws Exception {
+
+        StandardManager manager = new StandardManager();
+        manager.setContext(new StandardContext());
+        Assert.assertFalse(manager.createEmptySession() instanceof CompactSession);
+        manager.setCompactSessions(true);
+        Assert.assertTrue(manager.createEmptySession() instanceof CompactSession);
+    }
+
+
     private StandardSession serializeThenDeserialize(StandardSession source)
             throws IOException, ClassNotFoundException {
+        return serializeThenDeserialize(source, new StandardSession(TEST_MANAGER));
+    }
+
+
+    private StandardSession serializeThenDeserialize(StandardSession source, StandardSession dest)
+            throws IOException, ClassNotFoundException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ObjectOutputStream oos = new ObjectOutputStream(baos);
         source.writeObjectData(oos);
 
-        StandardSession dest = new StandardSession(TEST_MANAGER);
         ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
         ObjectInputStream ois = new ObjectInputStream(bais);
         dest.readObjectData(ois);
@@ -18,12 +18,19 @@ package org.apache.catalina.startup;
 
 import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Servlet;
@@ -316,6 +323,83 @@ public class TestContextConfigAnnotation {
         Assert.assertEquals(4, config.initializerClassMap.get(sciObject).size());
     }
 
+    @Test
+    public void testAnnotationScanIndex() throws Exception {
+        File dir = Files.createTempDirectory("annotationScanIndex").toFile();
+        try {
+            File jarFile = new File(dir, "test.jar");
+            createJar(jarFile, "org/apache/catalina/startup/ParamServlet", "org/apache/catalina/startup/TesterServlet");
+            URL jarUrl = URI.create("jar:" + jarFile.toURI() + "!/").toURL();
+            File indexFile = new File(dir, Constants.AnnotationScanIndexFile);
+
+            // The first scan parses the JAR and adds it to the index
+            AnnotationScanIndex index = AnnotationScanIndex.load(indexFile);
+            SCI sciServlet = new SCI();
+            ContextConfig config = createHandlesTypesConfig(sciServlet, index);
+            WebXml webxml = new WebXml();
+            config.processAnnotationsJar(jarUrl, webxml, false, new HashMap<>());
+            Assert.assertNotNull(webxml.getServlets().get("param"));
+            Assert.assertEquals(2, config.initializerClassMap.get(sciServlet).size());
+            index.save();
+            Assert.assertTrue(indexFile.isFile());
+
+            // The second scan uses the index
+            index = AnnotationScanIndex.load(indexFile);
+            config = createHandlesTypesConfig(sciServlet, index);
+            webxml = new WebXml();
+            config.processAnnotationsJar(jarUrl, webxml, false, new HashMap<>());
+            Assert.assertNotNull(webxml.getServlets().get("param"));
+            Assert.assertEquals("Hello", webxml.getServlets().get("param").getParameterMap().get("foo"));
+            Assert.assertEquals(2, config.initializerClassMap.get(sciServlet).size());
+
+            // Only the index is used to check for @HandlesTypes matches
+            index.put(jarFile, List.of(new AnnotationScanIndex.ClassEntry(
+                    "org/apache/catalina/startup/TestListener.class", "org.apache.catalina.startup.TestListener",
+                    false, false, "java.lang.Object", new String[] { "jakarta.servlet.Servlet" }, new String[0])));
+            config = createHandlesTypesConfig(sciServlet, index);
+            config.processAnnotationsJar(jarUrl, new WebXml(), false, new HashMap<>());
+            Set<Class<?>> classes = config.initializerClassMap.get(sciServlet);
+            Assert.assertEquals(1, classes.size());
+            Assert.assertEquals(TestListener.class, classes.iterator().next());
+
+            // A JAR that is copied again with the same content remains in the index
+            Assert.assertTrue(jarFile.setLastModified(jarFile.lastModified() - 10000));
+            Assert.assertNotNull(index.get(jarFile));
+
+            // A JAR with different content does not
+            createJar(jarFile, "org/apache/catalina/startup/TesterServlet");
+            Assert.assertNull(index.get(jarFile));
+        } finally {
+            ExpandWar.delete(dir);
+        }
+    }
+
+    private ContextConfig createHandlesTypesConfig(SCI sciServlet, AnnotationScanIndex index) {
+        ContextConfig config = new ContextConfig();
+        config.handlesTypesAnnotations = true;
+        config.handlesTypesNonAnnotations = true;
+        StandardContext context = new StandardContext();
+        context.setLoader(new TesterLoader());
+        config.context = context;
+        config.initializerClassMap.put(sciServlet, new HashSet<>());
+        config.typeInitializerMap.put(Servlet.class, new HashSet<>());
+        config.typeInitializerMap.get(Servlet.class).add(sciServlet);
+        config.annotationScanIndex = index;
+        return config;
+    }
+
+    private void createJar(File jarFile, String... classNames) throws Exception {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (String className : classNames) {
+                jos.putNextEntry(new JarEntry(className + ".class"));
+                try (InputStream is = getClass().getClassLoader().getResourceAsStream(className + ".class")) {
+                    is.transferTo(jos);
+                }
+                jos.closeEntry();
+            }
+        }
+    }
+
     private static final class SCI implements ServletContainerInitializer {
         @Override
         public void onStartup(Set<Class<?>> c, ServletContext ctx)
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.WebResource;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+public class TestCache extends TomcatBaseTest {
+
+    private static final int FILE_COUNT = 200;
+    private static final int FILE_SIZE = 1024;
+
+
+    @Test
+    public void testFrequentlyUsedResourcesRetained() throws Exception {
+        Cache cache = createCache();
+
+        WebResource hot = cache.getResource("/hot.txt", false);
+        Assert.assertSame(hot, cache.getResource("/hot.txt", false));
+
+        // Scan every file once, as a crawler would
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Assert.assertNotNull(cache.getResource("/file" + i + ".txt", false).getContent());
+            if (i % 10 == 0) {
+                Assert.assertSame(hot, cache.getResource("/hot.txt", false));
+            }
+        }
+
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+        Assert.assertTrue(cache.getProtectedSize() > 0);
+        Assert.assertSame(hot, cache.getResource("/hot.txt", false));
+
+        // The first files were only requested once so they have been evicted
+        long hitCount = cache.getHitCount();
+        cache.getResource("/file0.txt", false);
+        Assert.assertEquals(hitCount, cache.getHitCount());
+    }
+
+
+    @Test
+    public void testBackgroundProcess() throws Exception {
+        Cache cache = createCache();
+
+        for (int i = 0; i < FILE_COUNT; i++) {
+            cache.getResource("/file" + i + ".txt", false);
+        }
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+
+        cache.backgroundProcess();
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize() * 9 / 10);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(0, cache.getProtectedSize());
+        Assert.assertNotNull(cache.getResource("/hot.txt", false).getContent());
+    }
+
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        Cache cache = createCache();
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10 * FILE_COUNT; i++) {
+                        String path = (i % 3 == 0) ? "/hot.txt" : "/file" + ((i * 7 + offset) % FILE_COUNT) + ".txt";
+                        WebResource resource = cache.getResource(path, false);
+                        if (resource.getContent() == null) {
+                            failed.set(true);
+                        }
+                        if (i % 100 == 0) {
+                            cache.removeCacheEntry(path);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failed.set(true);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertFalse(failed.get());
+        cache.backgroundProcess();
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+
+    @Test
+    public void testMappedContent() throws Exception {
+        Cache cache = createCache();
+        cache.setMappedMaxSize(64);
+        File docBase = new File(getTemporaryDirectory(), "cache");
+        byte[] large = new byte[20 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        Files.write(new File(docBase, "large0.bin").toPath(), large);
+        Files.write(new File(docBase, "large1.bin").toPath(), large);
+        Files.write(new File(docBase, "large2.bin").toPath(), large);
+        Files.write(new File(docBase, "large3.bin").toPath(), large);
+
+        // Small resources are cached on the heap rather than mapped
+        CapturingOutputStream out = new CapturingOutputStream();
+        Assert.assertFalse(cache.writeMappedContent(cache.getResource("/hot.txt", false), 0, FILE_SIZE, out));
+
+        WebResource resource = cache.getResource("/large0.bin", false);
+        Assert.assertNull(resource.getContent());
+        Assert.assertTrue(cache.writeMappedContent(resource, 0, large.length, out));
+        Assert.assertArrayEquals(large, out.toByteArray());
+        Assert.assertEquals(20, cache.getMappedSize());
+
+        // Range
+        out = new CapturingOutputStream();
+        Assert.assertTrue(cache.writeMappedContent(resource, 100, 200, out));
+        Assert.assertArrayEquals(Arrays.copyOfRange(large, 100, 200), out.toByteArray());
+        Assert.assertEquals(20, cache.getMappedSize());
+
+        // Budget
+        for (int i = 1; i < 4; i++) {
+            resource = cache.getResource("/large" + i + ".bin", false);
+            Assert.assertTrue(cache.writeMappedContent(resource, 0, large.length, new CapturingOutputStream()));
+            Assert.assertTrue(cache.getMappedSize() <= 64);
+        }
+
+        // Invalidation on change
+        byte[] changed = Arrays.copyOf(large, large.length + 1);
+        Files.write(new File(docBase, "large3.bin").toPath(), changed);
+        cache.removeCacheEntry("/large3.bin");
+        Assert.assertTrue(cache.getMappedSize() <= 40);
+        out = new CapturingOutputStream();
+        resource = cache.getResource("/large3.bin", false);
+        Assert.assertTrue(cache.writeMappedContent(resource, 0, changed.length, out));
+        Assert.assertArrayEquals(changed, out.toByteArray());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getMappedSize());
+    }
+
+
+    private Cache createCache() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "cache");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+        byte[] content = new byte[FILE_SIZE];
+        Files.write(new File(docBase, "hot.txt").toPath(), content);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Files.write(new File(docBase, "file" + i + ".txt").toPath(), content);
+        }
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", docBase.getAbsolutePath());
+        tomcat.start();
+
+        Cache cache = new Cache((StandardRoot) ctx.getResources());
+        cache.setMaxSize(100);
+        cache.setObjectMaxSize(4);
+        return cache;
+    }
+
+
+    private static class CapturingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(int b) {
+            baos.write(b);
+        }
+
+        private byte[] toByteArray() {
+            return baos.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.WebResourceRoot.ArchiveIndexStrategy;
+import org.apache.catalina.WebResourceSet;
+
+public class TestMergedArchiveIndex {
+
+    private static final String[] PATHS = { "/", "/index.html", "/test01.jsp", "/META-INF/resources/index.html",
+            "/WEB-INF", "/WEB-INF/", "/WEB-INF/classes", "/WEB-INF/classes/", "/WEB-INF/classes/f1.txt",
+            "/WEB-INF/classes/d1", "/WEB-INF/classes/d1/", "/WEB-INF/classes/d1/d1-f1.txt",
+            "/WEB-INF/classes/META-INF/versions/9/f9.txt", "/WEB-INF/classes/f9.txt", "/WEB-INF/classes/f3.txt",
+            "/sub", "/sub/", "/sub/f1.txt", "/sub/d2", "/sub/d2/d2-f1.txt", "/sub/dir1/f1.txt", "/f1.txt",
+            "/nothing.txt", "/d1/nothing.txt" };
+
+
+    @Test
+    public void testLookupsMatchUnindexed() {
+        WebResourceRoot simple = createRoot(ArchiveIndexStrategy.SIMPLE);
+        WebResourceRoot merged = createRoot(ArchiveIndexStrategy.MERGED);
+
+        for (String path : PATHS) {
+            assertSame(path, simple.getResource(path), merged.getResource(path));
+            WebResource[] expected = simple.getResources(path);
+            WebResource[] actual = merged.getResources(path);
+            Assert.assertEquals(path, expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertSame(path, expected[i], actual[i]);
+            }
+        }
+        for (String path : new String[] { "/f1.txt", "/d1/d1-f1.txt", "/d1", "/nothing.txt" }) {
+            assertSame(path, simple.getClassLoaderResource(path), merged.getClassLoaderResource(path));
+        }
+    }
+
+
+    @Test
+    public void testIndex() {
+        TesterWebResourceRoot root = createRoot(ArchiveIndexStrategy.MERGED);
+        WebResourceSet[] resourceSets = getResourceSets(root);
+
+        MergedArchiveIndex index = new MergedArchiveIndex(resourceSets, resourceSets[0], true);
+        Assert.assertEquals(3, index.getIndexedCount());
+
+        // Only the main resources need to be examined for paths no archive provides
+        Assert.assertArrayEquals(new WebResourceSet[] { resourceSets[0] }, index.getResourceSets("/nothing.txt"));
+        Assert.assertArrayEquals(new WebResourceSet[] { resourceSets[0], resourceSets[1] },
+                index.getResourceSets("/WEB-INF/classes/d1/d1-f1.txt"));
+        Assert.assertArrayEquals(new WebResourceSet[] { resourceSets[0], resourceSets[2] },
+                index.getResourceSets("/index.html"));
+        Assert.assertArrayEquals(new WebResourceSet[] { resourceSets[0], resourceSets[2] }, index.getResourceSets("/"));
+        Assert.assertArrayEquals(new WebResourceSet[] { resourceSets[0], resourceSets[3] },
+                index.getResourceSets("/sub"));
+
+        index = new MergedArchiveIndex(resourceSets, resourceSets[0], false);
+        Assert.assertEquals(0, index.getIndexedCount());
+        Assert.assertArrayEquals(resourceSets, index.getResourceSets("/index.html"));
+    }
+
+
+    @Test
+    public void testResourceSetAdded() {
+        TesterWebResourceRoot root = createRoot(ArchiveIndexStrategy.MERGED);
+        Assert.assertFalse(root.getResource("/extra/f1.txt").exists());
+
+        File jar = new File("test/webresources/dir1.jar");
+        root.addPostResources(new JarResourceSet(root, "/extra", jar.getAbsolutePath(), "/"));
+        Assert.assertTrue(root.getResource("/extra/f1.txt").exists());
+    }
+
+
+    private static void assertSame(String path, WebResource expected, WebResource actual) {
+        Assert.assertEquals(path, expected.exists(), actual.exists());
+        Assert.assertEquals(path, expected.isDirectory(), actual.isDirectory());
+        Assert.assertEquals(path, expected.isFile(), actual.isFile());
+        Assert.assertEquals(path, expected.getWebappPath(), actual.getWebappPath());
+        Assert.assertEquals(path, expected.getURL(), actual.getURL());
+    }
+
+
+    private static WebResourceSet[] getResourceSets(WebResourceRoot root) {
+        WebResourceSet[] jars = root.getJarResources();
+        WebResourceSet[] result = new WebResourceSet[jars.length + 1];
+        result[0] = new DirResourceSet(root, "/", new File("test/webresources/dir3").getAbsolutePath(), "/");
+        System.arraycopy(jars, 0, result, 1, jars.length);
+        return result;
+    }
+
+
+    private static TesterWebResourceRoot createRoot(ArchiveIndexStrategy strategy) {
+        TesterWebResourceRoot root = new TesterWebResourceRoot();
+        root.setArchiveIndexStrategy(strategy.name());
+
+        File empty = new File("test/webresources/dir3");
+        root.setMainResources(new DirResourceSet(root, "/", empty.getAbsolutePath(), "/"));
+
+        // Equivalent to a JAR in WEB-INF/lib
+        JarResourceSet classes = new JarResourceSet(root, "/WEB-INF/classes",
+                new File("test/webresources/dir1.jar").getAbsolutePath(), "/");
+        classes.setClassLoaderOnly(true);
+        root.addJarResources(classes);
+
+        // Equivalent to a resource JAR
+        JarResourceSet resources = new JarResourceSet(root, "/",
+                new File("test/webresources/static-resources.jar").getAbsolutePath(), "/META-INF/resources");
+        resources.setStaticOnly(true);
+        root.addJarResources(resources);
+
+        root.addJarResources(new JarResourceSet(root, "/sub",
+                new File("test/webresources/dir1-internal.jar").getAbsolutePath(), "/dir1"));
+        return root;
+    }
+}
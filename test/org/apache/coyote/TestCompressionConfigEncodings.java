@@ -0,0 +1,174 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompressionConfigEncodings {
+
+    @Test
+    public void testDefaultIsGzipOnly() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(1, codecs.length);
+        Assert.assertEquals("gzip", codecs[0].getEncoding());
+    }
+
+
+    @Test
+    public void testUnavailableEncodingIgnored() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setCompressionEncodings("foo, gzip");
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(1, codecs.length);
+        Assert.assertEquals("gzip", codecs[0].getEncoding());
+    }
+
+
+    @Test
+    public void testServerPreferenceOnTie() {
+        doTestNegotiation("zstd,br,gzip", "gzip, br, zstd", "zstd");
+    }
+
+
+    @Test
+    public void testServerPreferenceOnTieReordered() {
+        doTestNegotiation("gzip,br,zstd", "zstd, br, gzip", "gzip");
+    }
+
+
+    @Test
+    public void testClientQuality() {
+        doTestNegotiation("zstd,br,gzip", "gzip;q=1.0, br;q=0.8, zstd;q=0.5", "gzip");
+    }
+
+
+    @Test
+    public void testClientRefusal() {
+        doTestNegotiation("zstd,br,gzip", "zstd;q=0, br", "br");
+    }
+
+
+    @Test
+    public void testNoCommonEncoding() {
+        doTestNegotiation("zstd,br", "gzip, deflate", null);
+    }
+
+
+    @Test
+    public void testEncodingNotConfigured() {
+        doTestNegotiation("gzip", "br, zstd", null);
+    }
+
+
+    @Test
+    public void testTransferEncodingRequiresGzip() {
+        TesterCompressionConfig compressionConfig = new TesterCompressionConfig();
+        compressionConfig.setCompression("force");
+        compressionConfig.setCompressionEncodings("br");
+
+        Request request = new Request();
+        Response response = new Response();
+        request.getMimeHeaders().addValue("TE").setString("gzip");
+
+        Assert.assertNull(compressionConfig.negotiateCompression(request, response));
+        Assert.assertNull(response.getMimeHeaders().getHeader("Transfer-Encoding"));
+    }
+
+
+    @Test
+    public void testGzipLevel() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setGzipCompressionLevel(1);
+        Assert.assertEquals(1, compressionConfig.getCompressionCodecs()[0].getLevel());
+        compressionConfig.setGzipCompressionLevel(9);
+        Assert.assertEquals(9, compressionConfig.getCompressionCodecs()[0].getLevel());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGzipLevelInvalid() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setGzipCompressionLevel(10);
+        compressionConfig.getCompressionCodecs();
+    }
+
+
+    private void doTestNegotiation(String serverEncodings, String acceptEncoding, String expected) {
+        TesterCompressionConfig compressionConfig = new TesterCompressionConfig();
+        compressionConfig.setCompression("force");
+        compressionConfig.setCompressionEncodings(serverEncodings);
+
+        Request request = new Request();
+        Response response = new Response();
+        request.getMimeHeaders().addValue("accept-encoding").setString(acceptEncoding);
+
+        CompressionCodec codec = compressionConfig.negotiateCompression(request, response);
+        if (expected == null) {
+            Assert.assertNull(codec);
+            Assert.assertNull(response.getMimeHeaders().getHeader("Content-Encoding"));
+        } else {
+            Assert.assertNotNull(codec);
+            Assert.assertEquals(expected, codec.getEncoding());
+            Assert.assertEquals(expected, response.getMimeHeaders().getHeader("Content-Encoding"));
+        }
+    }
+
+
+    /*
+     * Provides stand-in codecs for the codings that would otherwise require the FFM API and native libraries.
+     */
+    private static class TesterCompressionConfig extends CompressionConfig {
+
+        @Override
+        protected CompressionCodec createCompressionCodec(String encoding) {
+            return switch (encoding) {
+                case "br", "zstd" -> new TesterCompressionCodec(encoding);
+                default -> super.createCompressionCodec(encoding);
+            };
+        }
+    }
+
+
+    private static class TesterCompressionCodec implements CompressionCodec {
+
+        private final String encoding;
+
+        TesterCompressionCodec(String encoding) {
+            this.encoding = encoding;
+        }
+
+        @Override
+        public String getEncoding() {
+            return encoding;
+        }
+
+        @Override
+        public int getLevel() {
+            return 0;
+        }
+
+        @Override
+        public OutputStream createOutputStream(OutputStream out) throws IOException {
+            return out;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote.http11;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+/*
+ * The io_uring connector is only available on Linux with a JRE that supports the FFM API. Elsewhere the NIO connector
+ * is used instead and these tests are skipped.
+ */
+public class TestHttp11IoUringProtocol extends TomcatBaseTest {
+
+    private static final String PROTOCOL = "org.apache.coyote.http11.Http11IoUringProtocol";
+
+    private static final int LARGE_RESPONSE_SIZE = 4 * 1024 * 1024;
+
+
+    @Override
+    protected String getProtocol() {
+        return PROTOCOL;
+    }
+
+
+    @Before
+    public void checkAvailable() {
+        Assume.assumeTrue("io_uring is not available",
+                PROTOCOL.equals(getTomcatInstance().getConnector().getProtocolHandlerClassName()));
+    }
+
+
+    @Test
+    public void testKeepAliveRequests() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "echo", new EchoBodyServlet());
+        ctx.addServletMappingDecoded("/echo", "echo");
+        tomcat.start();
+
+        for (int i = 1; i <= 20; i++) {
+            byte[] body = new byte[i * 7919];
+            Arrays.fill(body, (byte) ('a' + i));
+            ByteChunk out = new ByteChunk();
+            int rc = postUrl(body, "http://localhost:" + getPort() + "/echo", out, null);
+            Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+            Assert.assertArrayEquals(body, Arrays.copyOfRange(out.getBuffer(), out.getStart(), out.getEnd()));
+        }
+    }
+
+
+    @Test
+    public void testLargeResponse() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "large", new LargeResponseServlet());
+        ctx.addServletMappingDecoded("/large", "large");
+        tomcat.start();
+
+        ByteChunk out = new ByteChunk();
+        out.setLimit(-1);
+        int rc = getUrl("http://localhost:" + getPort() + "/large", out, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals(LARGE_RESPONSE_SIZE, out.getLength());
+    }
+
+
+    @Test
+    public void testStopReleasesPort() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/hello", "hello");
+        Assert.assertTrue(tomcat.getConnector().setProperty("bindOnInit", "false"));
+        tomcat.start();
+
+        int port = getPort();
+        Assert.assertEquals(HelloWorldServlet.RESPONSE_TEXT, getUrl("http://localhost:" + port + "/hello").toString());
+
+        tomcat.getConnector().stop();
+        try (ServerSocket s = new ServerSocket(port, 100, InetAddress.getByName("localhost"))) {
+            // This should not throw an Exception
+        }
+        tomcat.getConnector().start();
+
+        // The connector is configured to use a random port so the port will have changed
+        port = tomcat.getConnector().getLocalPort();
+        Assert.assertEquals(HelloWorldServlet.RESPONSE_TEXT, getUrl("http://localhost:" + port + "/hello").toString());
+    }
+
+
+    private static class LargeResponseServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("application/octet-stream");
+            resp.setContentLength(LARGE_RESPONSE_SIZE);
+            byte[] chunk = new byte[8192];
+            try (OutputStream os = resp.getOutputStream()) {
+                for (int written = 0; written < LARGE_RESPONSE_SIZE; written += chunk.length) {
+                    os.write(chunk);
+                }
+            }
+        }
+    }
+}
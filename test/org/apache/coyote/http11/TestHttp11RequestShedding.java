@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.modeler.Registry;
+
+public class TestHttp11RequestShedding extends TomcatBaseTest {
+
+    private static final int REQUEST_COUNT = 10;
+
+
+    @Test
+    public void testOverload() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assert.assertTrue(connector.setProperty("maxThreads", "1"));
+        Assert.assertTrue(connector.setProperty("minSpareThreads", "1"));
+        Assert.assertTrue(connector.setProperty("targetQueueDelay", "10"));
+
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "slow", new SlowServlet());
+        ctx.addServletMappingDecoded("/", "slow");
+
+        tomcat.start();
+
+        AtomicInteger okCount = new AtomicInteger();
+        AtomicInteger shedCount = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    int rc = getUrl("http://localhost:" + getPort() + "/", new ByteChunk(), null);
+                    if (rc == HttpServletResponse.SC_OK) {
+                        okCount.incrementAndGet();
+                    } else if (rc == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                        shedCount.incrementAndGet();
+                    }
+                } catch (IOException ioe) {
+                    // Ignore
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        Assert.assertTrue(okCount.get() > 0);
+        Assert.assertTrue(shedCount.get() > 0);
+        Assert.assertEquals(REQUEST_COUNT, okCount.get() + shedCount.get());
+
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("Tomcat:type=ThreadPool,*"), null);
+        Assert.assertEquals(1, onames.size());
+        ObjectName oname = onames.iterator().next();
+        Assert.assertEquals(Long.valueOf(shedCount.get()), mbeanServer.getAttribute(oname, "shedCount"));
+        Assert.assertTrue(((Double) mbeanServer.getAttribute(oname, "queueDelayMax")).doubleValue() > 20);
+    }
+
+
+    private static class SlowServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+            resp.setContentType("text/plain");
+            resp.getWriter().print("OK");
+        }
+    }
+}
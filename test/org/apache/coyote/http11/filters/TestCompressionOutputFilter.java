@@ -0,0 +1,87 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11.filters;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.coyote.GzipCompressionCodec;
+import org.apache.coyote.Response;
+
+public class TestCompressionOutputFilter {
+
+    @Test
+    public void testGzipLevels() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item").append(i % 37).append("\"},");
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        byte[] none = compress(new GzipCompressionCodec(0), data);
+        byte[] fast = compress(new GzipCompressionCodec(1), data);
+        byte[] best = compress(new GzipCompressionCodec(9), data);
+
+        Assert.assertTrue(none.length > data.length);
+        Assert.assertTrue(fast.length < data.length);
+        Assert.assertTrue(best.length <= fast.length);
+
+        Assert.assertArrayEquals(data, decompress(none));
+        Assert.assertArrayEquals(data, decompress(fast));
+        Assert.assertArrayEquals(data, decompress(best));
+    }
+
+
+    @Test
+    public void testRecycleRestoresDefaultCodec() throws Exception {
+        CompressionOutputFilter filter = new CompressionOutputFilter();
+        GzipCompressionCodec codec = new GzipCompressionCodec(1);
+        filter.setCodec(codec);
+        Assert.assertSame(codec, filter.getCodec());
+        filter.recycle();
+        Assert.assertEquals(GzipCompressionCodec.ENCODING, filter.getCodec().getEncoding());
+        Assert.assertNotSame(codec, filter.getCodec());
+    }
+
+
+    private static byte[] compress(GzipCompressionCodec codec, byte[] data) throws Exception {
+        Response res = new Response();
+        TesterOutputBuffer tob = new TesterOutputBuffer(res, 8 * 1024);
+        res.setOutputBuffer(tob);
+
+        CompressionOutputFilter filter = new CompressionOutputFilter(codec);
+        tob.addFilter(filter);
+        tob.addActiveFilter(filter);
+
+        tob.doWrite(ByteBuffer.wrap(data));
+        tob.end();
+
+        return tob.toByteArray();
+    }
+
+
+    private static byte[] decompress(byte[] data) throws Exception {
+        try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gis.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Globals;
+import org.apache.catalina.startup.Tomcat;
+
+/**
+ * Tests for DATA frames written directly from a memory mapped file using sendfile.
+ */
+public class TestHttp2Sendfile extends Http2TestBase {
+
+    private static final int FILE_SIZE = 256 * 1024;
+    // The response to the upgrade request uses part of the connection window
+    private static final int CONNECTION_WINDOW_SIZE =
+            ConnectionSettingsBase.DEFAULT_INITIAL_WINDOW_SIZE - SimpleServlet.CONTENT_LENGTH;
+
+
+    @Test
+    public void testSendfile() throws Exception {
+        startWithSendfile(false);
+
+        sendSendfileRequest(3);
+        sendWindowUpdate(3, FILE_SIZE);
+        // Read the headers and the body until the connection window is exhausted
+        readBody(CONNECTION_WINDOW_SIZE);
+        sendWindowUpdate(0, FILE_SIZE);
+
+        readUntilEndOfStream(3);
+        Assert.assertEquals(FILE_SIZE, getBodySize(3));
+        Assert.assertTrue(output.getTrace(), output.getTrace().contains("3-Header-[:status]-[200]"));
+    }
+
+
+    @Test
+    public void testSendfileTls() throws Exception {
+        startWithSendfile(true);
+
+        sendSendfileRequest(3);
+        sendWindowUpdate(3, FILE_SIZE);
+        sendWindowUpdate(0, FILE_SIZE);
+
+        readUntilEndOfStream(3);
+        Assert.assertEquals(FILE_SIZE, getBodySize(3));
+    }
+
+
+    @Test
+    public void testConnectionWindowShared() throws Exception {
+        startWithSendfile(false);
+
+        sendSendfileRequest(3);
+        sendSendfileRequest(5);
+        sendWindowUpdate(3, FILE_SIZE);
+        sendWindowUpdate(5, FILE_SIZE);
+        // Read the headers and the body until the connection window is exhausted
+        readBody(CONNECTION_WINDOW_SIZE);
+        // Give both streams time to wait for an allocation from the connection window
+        Thread.sleep(500);
+        output.clearTrace();
+
+        // Room for a frame of each stream
+        int increment = 2 * ConnectionSettingsBase.DEFAULT_MAX_FRAME_SIZE;
+        sendWindowUpdate(0, increment);
+        readBody(increment);
+        Assert.assertTrue(output.getTrace(), getBodySize(3) > 0);
+        Assert.assertTrue(output.getTrace(), getBodySize(5) > 0);
+
+        sendWindowUpdate(0, 2 * FILE_SIZE);
+        readUntilEndOfStream(3);
+        readUntilEndOfStream(5);
+    }
+
+
+    private void startWithSendfile(boolean tls) throws Exception {
+        enableHttp2(tls);
+
+        File file = new File(getTemporaryDirectory(), "sendfile.bin");
+        byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(file.toPath(), content);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctxt = getProgrammaticRootContext();
+        Tomcat.addServlet(ctxt, "simple", new SimpleServlet());
+        ctxt.addServletMappingDecoded("/simple", "simple");
+        Tomcat.addServlet(ctxt, "sendfile", new SendfileServlet(file));
+        ctxt.addServletMappingDecoded("/sendfile", "sendfile");
+        tomcat.start();
+
+        openClientConnection(tls);
+        doHttpUpgrade();
+        sendClientPreface();
+        validateHttp2InitialResponse();
+    }
+
+
+    private void sendSendfileRequest(int streamId) throws IOException {
+        byte[] frameHeader = new byte[9];
+        ByteBuffer headersPayload = ByteBuffer.allocate(128);
+        buildGetRequest(frameHeader, headersPayload, null, streamId, "/sendfile");
+        writeFrame(frameHeader, headersPayload);
+    }
+
+
+    private void readBody(long size) throws Exception {
+        long target = output.getBytesRead() + size;
+        while (output.getBytesRead() < target) {
+            parser.readFrame();
+        }
+    }
+
+
+    private void readUntilEndOfStream(int streamId) throws Exception {
+        while (!output.getTrace().contains(streamId + "-EndOfStream")) {
+            parser.readFrame();
+        }
+    }
+
+
+    private long getBodySize(int streamId) {
+        String prefix = streamId + "-Body-";
+        long result = 0;
+        for (String line : output.getTrace().split("\n")) {
+            if (line.startsWith(prefix)) {
+                result += Long.parseLong(line.substring(prefix.length()));
+            }
+        }
+        return result;
+    }
+
+
+    private static class SendfileServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+
+        SendfileServlet(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            if (!Boolean.TRUE.equals(req.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
+            resp.setContentType("application/octet-stream");
+            resp.setContentLengthLong(file.length());
+            req.setAttribute(Globals.SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+            req.setAttribute(Globals.SENDFILE_FILE_START_ATTR, Long.valueOf(0));
+            req.setAttribute(Globals.SENDFILE_FILE_END_ATTR, Long.valueOf(file.length()));
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -31,6 +32,8 @@ public class TestStringCache {
     private static final ByteChunk INPUT_VALID = new ByteChunk();
     private static final ByteChunk INPUT_INVALID = new ByteChunk();
 
+    private static final int DEFAULT_CACHE_SIZE = new StringCache().getCacheSize();
+
     private static final CodingErrorAction[] actions =
             new CodingErrorAction[] { CodingErrorAction.IGNORE, CodingErrorAction.REPLACE, CodingErrorAction.REPORT };
 
@@ -42,16 +45,24 @@ public class TestStringCache {
     }
 
 
+    @After
+    public void restoreDefaults() {
+        StringCache sc = new StringCache();
+        sc.setByteEnabled(false);
+        sc.setCharEnabled(false);
+        sc.setSiteEnabled(true);
+        sc.setCacheSize(DEFAULT_CACHE_SIZE);
+    }
+
+
     @Test
     public void testCodingErrorLookup() {
 
-        System.setProperty("tomcat.util.buf.StringCache.byte.enabled", "true");
-
-        Assert.assertTrue(StringCache.byteEnabled);
         StringCache sc = new StringCache();
+        sc.setByteEnabled(true);
         sc.reset();
 
-        for (int i = 0; i < StringCache.trainThreshold * 2; i++) {
+        for (int i = 0; i < 10; i++) {
             for (CodingErrorAction malformedInputAction : actions) {
                 try {
                     // UTF-8 doesn't have any unmappable characters
@@ -63,7 +74,7 @@ public class TestStringCache {
             }
         }
 
-        Assert.assertNotNull(StringCache.bcCache);
+        Assert.assertTrue(sc.getHitCount() > 0);
 
         // Check the valid input is cached correctly
         for (CodingErrorAction malformedInputAction : actions) {
@@ -97,4 +108,90 @@ public class TestStringCache {
         }
 
     }
+
+
+    @Test
+    public void testSiteCache() {
+        StringCache sc = new StringCache();
+        sc.reset();
+
+        ByteChunk bc = new ByteChunk();
+        bc.setBytes(BYTES_VALID, 0, BYTES_VALID.length);
+        String first = bc.toString(StringCache.Site.HEADER_NAME);
+        String second = bc.toString(StringCache.Site.HEADER_NAME);
+        Assert.assertEquals("ABCD", first);
+        Assert.assertSame(first, second);
+
+        CharChunk cc = new CharChunk();
+        cc.setChars("ABCD".toCharArray(), 0, 4);
+        Assert.assertSame(cc.toString(StringCache.Site.COOKIE_NAME), cc.toString(StringCache.Site.COOKIE_NAME));
+
+        // Generic conversions are not cached by default
+        Assert.assertNotSame(bc.toString(), bc.toString());
+
+        Assert.assertEquals(2, sc.getSiteAccessCount("HEADER_NAME"));
+        Assert.assertEquals(1, sc.getSiteHitCount("HEADER_NAME"));
+        Assert.assertEquals(0.5, sc.getSiteHitRatio("COOKIE_NAME"), 0);
+        Assert.assertEquals(0, sc.getSiteAccessCount("PARAMETER_NAME"));
+        Assert.assertEquals(0, sc.getSiteAccessCount("GENERIC"));
+        Assert.assertEquals(4, sc.getAccessCount());
+        Assert.assertEquals(2, sc.getHitCount());
+
+        sc.setSiteEnabled(false);
+        Assert.assertNotSame(bc.toString(StringCache.Site.HEADER_NAME), bc.toString(StringCache.Site.HEADER_NAME));
+        Assert.assertEquals(4, sc.getAccessCount());
+    }
+
+
+    @Test
+    public void testCharsetLookup() {
+        StringCache sc = new StringCache();
+        sc.reset();
+
+        byte[] bytes = new byte[] { 'A', (byte) 0xE9 };
+        ByteChunk bc = new ByteChunk();
+        bc.setBytes(bytes, 0, bytes.length);
+        bc.setCharset(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals("A\u00e9", bc.toString(StringCache.Site.PARAMETER_NAME));
+        bc.setCharset(StandardCharsets.UTF_8);
+        Assert.assertEquals("A\ufffd", bc.toString(StringCache.Site.PARAMETER_NAME));
+        bc.setCharset(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals("A\u00e9", bc.toString(StringCache.Site.PARAMETER_NAME));
+    }
+
+
+    @Test
+    public void testAdaptation() {
+        StringCache sc = new StringCache();
+        sc.setCacheSize(16);
+
+        for (int i = 0; i < 20; i++) {
+            convert(sc, "old", 8);
+        }
+        // Strings used only once do not displace the working set
+        convert(sc, "rare", 64);
+        Assert.assertTrue(convert(sc, "old", 8) >= 6);
+
+        // A new working set replaces the old one as it becomes more frequently used
+        Assert.assertTrue(convert(sc, "new", 8) <= 2);
+        for (int i = 0; i < 50; i++) {
+            convert(sc, "new", 8);
+        }
+        Assert.assertTrue(convert(sc, "new", 8) >= 6);
+    }
+
+
+    /*
+     * Convert count distinct Strings and return the number of cache hits.
+     */
+    private static long convert(StringCache sc, String prefix, int count) {
+        long hitCount = sc.getHitCount();
+        CharChunk cc = new CharChunk();
+        for (int i = 0; i < count; i++) {
+            char[] chars = (prefix + i).toCharArray();
+            cc.setChars(chars, 0, chars.length);
+            Assert.assertEquals(prefix + i, cc.toString(StringCache.Site.HEADER_NAME));
+        }
+        return sc.getHitCount() - hitCount;
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.buf;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TesterStringCachePerformance {
+
+    private static final String[] NAMES = new String[] { "host", "user-agent", "accept", "accept-language",
+            "accept-encoding", "referer", "connection", "cookie", "upgrade-insecure-requests", "sec-fetch-dest",
+            "sec-fetch-mode", "sec-fetch-site", "sec-fetch-user", "priority", "cache-control", "pragma" };
+
+
+    @Test
+    public void testHeaderNames() throws Exception {
+        StringCache sc = new StringCache();
+        for (int i = 0; i < 3; i++) {
+            sc.setSiteEnabled(false);
+            doTest(Runtime.getRuntime().availableProcessors(), 10000000);
+            sc.setSiteEnabled(true);
+            sc.reset();
+            doTest(Runtime.getRuntime().availableProcessors(), 10000000);
+            System.out.println("Hit ratio: " + sc.getSiteHitRatio("HEADER_NAME"));
+        }
+    }
+
+
+    private void doTest(int threadCount, int iterations) throws Exception {
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                byte[][] names = new byte[NAMES.length][];
+                for (int j = 0; j < NAMES.length; j++) {
+                    names[j] = NAMES[j].getBytes(StandardCharsets.ISO_8859_1);
+                }
+                ByteChunk bc = new ByteChunk();
+                bc.setCharset(StandardCharsets.ISO_8859_1);
+                for (int j = 0; j < iterations; j++) {
+                    byte[] name = names[j % names.length];
+                    bc.setBytes(name, 0, name.length);
+                    bc.toString(StringCache.Site.HEADER_NAME);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long end = System.nanoTime();
+
+        System.out.println("Site cache enabled [" + new StringCache().getSiteEnabled() + "], threads [" +
+                threadCount + "], iterations [" + iterations + "]: " + ((end - start) / 1000000) + "ms");
+    }
+}
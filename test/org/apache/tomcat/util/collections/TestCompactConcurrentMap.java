@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompactConcurrentMap {
+
+    @Test
+    public void testPutGetRemove() {
+        CompactConcurrentMap<String,String> map = new CompactConcurrentMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get("a"));
+
+        Assert.assertNull(map.put("a", "1"));
+        Assert.assertNull(map.put("b", "2"));
+        Assert.assertEquals("1", map.put("a", "3"));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals("3", map.get("a"));
+        Assert.assertEquals("2", map.get("b"));
+        Assert.assertTrue(map.containsKey("b"));
+        Assert.assertFalse(map.containsKey("c"));
+
+        Assert.assertEquals("3", map.remove("a"));
+        Assert.assertNull(map.remove("a"));
+        Assert.assertEquals(1, map.size());
+        Assert.assertNull(map.get("a"));
+        Assert.assertEquals("2", map.get("b"));
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertTrue(map.isInline());
+    }
+
+
+    @Test
+    public void testConcurrentMapMethods() {
+        CompactConcurrentMap<String,String> map = new CompactConcurrentMap<>();
+        Assert.assertNull(map.putIfAbsent("a", "1"));
+        Assert.assertEquals("1", map.putIfAbsent("a", "2"));
+        Assert.assertNull(map.replace("b", "1"));
+        Assert.assertFalse(map.containsKey("b"));
+        Assert.assertEquals("1", map.replace("a", "2"));
+        Assert.assertFalse(map.replace("a", "1", "3"));
+        Assert.assertTrue(map.replace("a", "2", "3"));
+        Assert.assertFalse(map.remove("a", "2"));
+        Assert.assertTrue(map.remove("a", "3"));
+        Assert.assertTrue(map.isEmpty());
+
+        Assert.assertEquals("x", map.computeIfAbsent("a", k -> "x"));
+        Assert.assertEquals("xy", map.merge("a", "y", String::concat));
+        Assert.assertEquals("z", map.getOrDefault("b", "z"));
+    }
+
+
+    @Test(expected=NullPointerException.class)
+    public void testPutNullKey() {
+        new CompactConcurrentMap<String,String>().put(null, "a");
+    }
+
+
+    @Test(expected=NullPointerException.class)
+    public void testPutNullValue() {
+        new CompactConcurrentMap<String,String>().put("a", null);
+    }
+
+
+    @Test
+    public void testGrowAndShrink() {
+        CompactConcurrentMap<String,Integer> map = new CompactConcurrentMap<>();
+        Map<String,Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < CompactConcurrentMap.MAX_INLINE_SIZE; i++) {
+            map.put("k" + i, Integer.valueOf(i));
+            expected.put("k" + i, Integer.valueOf(i));
+        }
+        Assert.assertTrue(map.isInline());
+        Assert.assertEquals(expected, map);
+
+        map.put("k" + CompactConcurrentMap.MAX_INLINE_SIZE, Integer.valueOf(-1));
+        expected.put("k" + CompactConcurrentMap.MAX_INLINE_SIZE, Integer.valueOf(-1));
+        Assert.assertFalse(map.isInline());
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+
+        map.remove("k0");
+        expected.remove("k0");
+        Assert.assertEquals(expected, map);
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+
+
+    @Test
+    public void testIterator() {
+        CompactConcurrentMap<String,String> map = new CompactConcurrentMap<>();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+
+        Iterator<Entry<String,String>> iter = map.entrySet().iterator();
+        // The iterator is not affected by later changes
+        map.put("d", "4");
+        List<String> keys = new ArrayList<>();
+        while (iter.hasNext()) {
+            Entry<String,String> entry = iter.next();
+            keys.add(entry.getKey());
+            if (entry.getKey().equals("b")) {
+                iter.remove();
+            } else if (entry.getKey().equals("c")) {
+                entry.setValue("5");
+            }
+        }
+        Assert.assertEquals(List.of("a", "b", "c"), keys);
+        Assert.assertEquals(Map.of("a", "1", "c", "5", "d", "4"), map);
+
+        String[] names = map.keySet().toArray(new String[0]);
+        Assert.assertEquals(3, names.length);
+    }
+
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final CompactConcurrentMap<Integer,Integer> map = new CompactConcurrentMap<>();
+        final int threadCount = 4;
+        final int iterations = 20000;
+        final AtomicInteger failures = new AtomicInteger();
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int threadIndex = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    // Each thread uses its own keys so every update can be checked
+                    Integer key = Integer.valueOf(threadIndex + threadCount * (i % 4));
+                    Integer value = Integer.valueOf(i);
+                    map.put(key, value);
+                    if (!value.equals(map.get(key))) {
+                        failures.incrementAndGet();
+                    }
+                    if (!map.remove(key, value)) {
+                        failures.incrementAndGet();
+                    }
+                    map.merge(Integer.valueOf(-1), Integer.valueOf(1), Integer::sum);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals(Integer.valueOf(threadCount * iterations), map.get(Integer.valueOf(-1)));
+    }
+}
@@ -48,6 +48,31 @@ public class TestCookies {
     private final Cookie $DOMAIN_YAHOO = new Cookie("$Domain", "yahoo.com");
     private final Cookie $PATH = new Cookie("$Path", "/examples");
 
+    @Test
+    public void testFindCookie() {
+        ServerCookies serverCookies = parse("foo=bar; a=b; foo=x y; foo=\"bar\"; a; foo=", null, true);
+
+        int idx = serverCookies.findCookie("foo", 0);
+        Assert.assertEquals(0, idx);
+        Assert.assertEquals("bar", serverCookies.getCookie(idx).getValue().toString());
+        // The invalid cookie is skipped
+        idx = serverCookies.findCookie("foo", idx + 1);
+        Assert.assertEquals(3, idx);
+        Assert.assertEquals("\"bar\"", serverCookies.getCookie(idx).getValue().toString());
+        idx = serverCookies.findCookie("foo", idx + 1);
+        Assert.assertEquals(5, idx);
+        Assert.assertEquals("", serverCookies.getCookie(idx).getValue().toString());
+        Assert.assertEquals(-1, serverCookies.findCookie("foo", idx + 1));
+        Assert.assertEquals(-1, serverCookies.findCookie("b", 0));
+
+        // The cookie without equals is ignored by default
+        Assert.assertEquals(4, serverCookies.getCookieCount());
+        Assert.assertEquals("a", serverCookies.getCookie(1).getName().toString());
+        Assert.assertEquals("b", serverCookies.getCookie(1).getValue().toString());
+        Assert.assertEquals(-1, serverCookies.findCookie("a", 2));
+    }
+
+
     @Test
     public void testBasicCookieRfc6265() {
         test("foo=bar; a=b", FOO, A);
@@ -370,17 +395,41 @@ public class TestCookies {
 
 
     private void test(String header, String cookiesWithoutEquals, Cookie... expected) {
+        test(header, cookiesWithoutEquals, false, expected);
+        test(header, cookiesWithoutEquals, true, expected);
+        // Looking up the cookies by name first must not change the result
+        ServerCookies serverCookies = parse(header, cookiesWithoutEquals, true);
+        for (Cookie cookie : expected) {
+            int idx = serverCookies.findCookie(cookie.getName(), 0);
+            Assert.assertTrue(idx >= 0);
+            Assert.assertEquals(cookie.getName(), serverCookies.getCookie(idx).getName().toString());
+        }
+        assertCookies(serverCookies, expected);
+    }
 
+
+    private void test(String header, String cookiesWithoutEquals, boolean lazyParsing, Cookie... expected) {
+        assertCookies(parse(header, cookiesWithoutEquals, lazyParsing), expected);
+    }
+
+
+    private ServerCookies parse(String header, String cookiesWithoutEquals, boolean lazyParsing) {
         MimeHeaders mimeHeaders = new MimeHeaders();
         ServerCookies serverCookies = new ServerCookies(4);
         Rfc6265CookieProcessor cookieProcessor = new Rfc6265CookieProcessor();
         if (cookiesWithoutEquals != null) {
             cookieProcessor.setCookiesWithoutEquals(cookiesWithoutEquals);
         }
+        cookieProcessor.setLazyParsing(lazyParsing);
         MessageBytes cookieHeaderValue = mimeHeaders.addValue("Cookie");
         byte[] bytes = header.getBytes(StandardCharsets.UTF_8);
         cookieHeaderValue.setBytes(bytes, 0, bytes.length);
         cookieProcessor.parseCookieHeader(mimeHeaders, serverCookies);
+        return serverCookies;
+    }
+
+
+    private void assertCookies(ServerCookies serverCookies, Cookie... expected) {
         Assert.assertEquals(expected.length, serverCookies.getCookieCount());
         for (int i = 0; i < expected.length; i++) {
             Cookie cookie = expected[i];
@@ -16,6 +16,7 @@
  */
 package org.apache.tomcat.util.http;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
@@ -107,4 +108,72 @@ public class TestMimeHeaders {
         }
         Assert.assertFalse(names.hasMoreElements());
     }
+
+    @Test
+    public void testIndexedLookups() {
+        MimeHeaders mh = createLargeHeaders();
+
+        Assert.assertEquals("value-5", mh.getHeader("X-HEADER-5"));
+        Assert.assertEquals("value-39", mh.getHeader("x-header-39"));
+        Assert.assertNull(mh.getHeader("x-header-40"));
+        Assert.assertEquals("close", mh.getHeader("Connection"));
+
+        // Multiple values
+        int first = mh.findHeader("accept", 0);
+        Assert.assertEquals("text/html", mh.getValue(first).toString());
+        int second = mh.findHeader("ACCEPT", first + 1);
+        Assert.assertEquals("*/*", mh.getValue(second).toString());
+        Assert.assertEquals(-1, mh.findHeader("accept", second + 1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> mh.getUniqueValue("accept"));
+        Assert.assertEquals("close", mh.getUniqueValue("connection").toString());
+    }
+
+
+    @Test
+    public void testIndexedChanges() {
+        MimeHeaders mh = createLargeHeaders();
+        Assert.assertNotNull(mh.getValue("x-header-1"));
+
+        // Added after the index has been built, including enough headers to grow the header array
+        for (int i = 0; i < 100; i++) {
+            mh.addValue("X-Added-" + i).setString("added-" + i);
+        }
+        Assert.assertEquals("added-0", mh.getHeader("x-added-0"));
+        Assert.assertEquals("added-99", mh.getHeader("X-ADDED-99"));
+
+        mh.removeHeader("x-header-1");
+        Assert.assertNull(mh.getValue("x-header-1"));
+        Assert.assertEquals("value-2", mh.getHeader("x-header-2"));
+
+        mh.setValue("accept").setString("application/json");
+        Assert.assertEquals("application/json", mh.getUniqueValue("Accept").toString());
+
+        mh.recycle();
+        Assert.assertNull(mh.getValue("accept"));
+        Assert.assertEquals(0, mh.size());
+    }
+
+
+    @Test
+    public void testIndexedNonAsciiName() {
+        MimeHeaders mh = createLargeHeaders();
+        // The Kelvin sign is equal to 'k', ignoring case, for String names
+        mh.addValue("\u212Aey").setString("kelvin");
+        Assert.assertEquals("kelvin", mh.getHeader("key"));
+        Assert.assertEquals("value-7", mh.getHeader("x-header-7"));
+    }
+
+
+    private static MimeHeaders createLargeHeaders() {
+        MimeHeaders mh = new MimeHeaders();
+        byte[] accept = "accept".getBytes(StandardCharsets.ISO_8859_1);
+        mh.addValue(accept, 0, accept.length).setString("text/html");
+        for (int i = 0; i < 40; i++) {
+            byte[] name = ("x-header-" + i).getBytes(StandardCharsets.ISO_8859_1);
+            mh.addValue(name, 0, name.length).setString("value-" + i);
+        }
+        mh.addValue("Accept").setString("*/*");
+        mh.addValue("Connection").setString("close");
+        return mh;
+    }
 }
@@ -19,7 +19,9 @@ package org.apache.tomcat.util.http;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -94,7 +96,13 @@ public class TestParameters {
         Assert.assertEquals("foo4=", EMPTY_VALUE.toString());
     }
 
-    private long doTestProcessParametersByteArrayIntInt(int limit,
+    private void doTestProcessParametersByteArrayIntInt(int limit,
+            Parameter... parameters) {
+        doTestProcessParametersByteArrayIntInt(limit, false, parameters);
+        doTestProcessParametersByteArrayIntInt(limit, true, parameters);
+    }
+
+    private long doTestProcessParametersByteArrayIntInt(int limit, boolean lazy,
             Parameter... parameters) {
 
         // Build the byte array
@@ -114,6 +122,7 @@ public class TestParameters {
         Parameters p = new Parameters();
         p.setCharset(StandardCharsets.UTF_8);
         p.setLimit(limit);
+        p.setLazyDecoding(lazy);
 
         long start = System.nanoTime();
         p.processParameters(data, 0, data.length);
@@ -252,6 +261,108 @@ public class TestParameters {
 
     }
 
+    @Test
+    public void testLazyDecoding() {
+        byte[] data = "a=x%41y&b=hello+world&a=%E2%82%AC&c=plain".getBytes(StandardCharsets.ISO_8859_1);
+
+        Parameters p = new Parameters();
+        p.setCharset(StandardCharsets.UTF_8);
+        p.setLazyDecoding(true);
+        p.processParameters(data, 0, data.length);
+
+        Assert.assertEquals(4, p.size());
+        // Nothing has been decoded yet
+        Assert.assertEquals("a=x%41y&b=hello+world&a=%E2%82%AC&c=plain",
+                new String(data, StandardCharsets.ISO_8859_1));
+
+        Assert.assertEquals("xAy", p.getParameter("a"));
+        Assert.assertArrayEquals(new String[] { "xAy", "\u20ac" }, p.getParameterValues("a"));
+        // Repeated access returns the value decoded on first access
+        Assert.assertArrayEquals(new String[] { "xAy", "\u20ac" }, p.getParameterValues("a"));
+        Assert.assertEquals("hello world", p.getParameter("b"));
+        Assert.assertEquals("plain", p.getParameter("c"));
+        Assert.assertNull(p.getParameter("d"));
+    }
+
+    @Test
+    public void testLazyDecodingInvalid() {
+        byte[] data = "a=%zz&b=valid".getBytes(StandardCharsets.ISO_8859_1);
+
+        Parameters p = new Parameters();
+        p.setCharset(StandardCharsets.UTF_8);
+        p.setLazyDecoding(true);
+        // The invalid value is not detected during parsing
+        p.processParameters(data, 0, data.length);
+
+        Assert.assertEquals("valid", p.getParameter("b"));
+        for (int i = 0; i < 2; i++) {
+            try {
+                p.getParameter("a");
+                Assert.fail();
+            } catch (InvalidParameterException expected) {
+                // Expected
+            }
+        }
+
+        // Without lazy decoding the invalid value is detected during parsing
+        data = "a=%zz&b=valid".getBytes(StandardCharsets.ISO_8859_1);
+        p.recycle();
+        p.setLazyDecoding(false);
+        try {
+            p.processParameters(data, 0, data.length);
+            Assert.fail();
+        } catch (InvalidParameterException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testForEach() {
+        doTestForEach(false);
+        doTestForEach(true);
+    }
+
+    private void doTestForEach(boolean lazy) {
+        byte[] data = "a=1&b=%32&a=3&c".getBytes(StandardCharsets.ISO_8859_1);
+
+        Parameters p = new Parameters();
+        p.setLazyDecoding(lazy);
+        p.processParameters(data, 0, data.length);
+        p.addParameter("d", "4");
+
+        List<String> result = new ArrayList<>();
+        p.forEach((name, value) -> result.add(name + ":" + value));
+        Assert.assertEquals(List.of("a:1", "b:2", "a:3", "c:", "d:4"), result);
+
+        // The values are still available afterwards
+        Assert.assertArrayEquals(new String[] { "1", "3" }, p.getParameterValues("a"));
+        Assert.assertEquals("2", p.getParameter("b"));
+    }
+
+    @Test
+    public void testRecycle() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("p").append(i % 10).append('=').append(i).append('&');
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        Parameters p = new Parameters();
+        p.setLazyDecoding(true);
+        p.processParameters(data, 0, data.length);
+        Assert.assertEquals(2000, p.size());
+        Assert.assertEquals(200, p.getParameterValues("p3").length);
+        Assert.assertEquals("1993", p.getParameterValues("p3")[199]);
+
+        p.recycle();
+        Assert.assertEquals(0, p.size());
+        Assert.assertNull(p.getParameter("p3"));
+
+        data = "p3=x".getBytes(StandardCharsets.ISO_8859_1);
+        p.processParameters(data, 0, data.length);
+        Assert.assertArrayEquals(new String[] { "x" }, p.getParameterValues("p3"));
+    }
+
     private void validateParameters(Parameter[] parameters, Parameters p) {
         Enumeration<String> names = p.getParameterNames();
 
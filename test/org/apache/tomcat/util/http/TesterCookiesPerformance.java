@@ -72,4 +72,58 @@ public class TesterCookiesPerformance {
 
         // As of November 2021 markt's desktop runs this test in 970ms to 1000ms
     }
+
+
+    /*
+     * Compares looking up the session cookie in a typical header with many tracking cookies when the cookies are fully
+     * parsed and when they are parsed lazily.
+     */
+    @Test
+    public void testPerformance02() throws Exception {
+        final int cookieCount = 40;
+        final int parsingLoops = 1000000;
+
+        MimeHeaders mimeHeaders = new MimeHeaders();
+
+        StringBuilder cookieHeader = new StringBuilder();
+        for (int i = 0; i < cookieCount; i++) {
+            if (i == cookieCount / 2) {
+                cookieHeader.append("JSESSIONID=0123456789ABCDEF0123456789ABCDEF; ");
+            }
+            cookieHeader.append("_tracking");
+            cookieHeader.append(i);
+            cookieHeader.append("=GA1.2.1234567890.");
+            cookieHeader.append(1700000000 + i);
+            cookieHeader.append("; ");
+        }
+
+        byte[] cookieHeaderBytes = cookieHeader.toString().getBytes("UTF-8");
+
+        MessageBytes headerValue = mimeHeaders.addValue("Cookie");
+        headerValue.setBytes(cookieHeaderBytes, 0, cookieHeaderBytes.length);
+        ServerCookies serverCookies = new ServerCookies(4);
+
+        Rfc6265CookieProcessor eagerCookieProcessor = new Rfc6265CookieProcessor();
+        Rfc6265CookieProcessor lazyCookieProcessor = new Rfc6265CookieProcessor();
+        lazyCookieProcessor.setLazyParsing(true);
+
+        for (int i = 0; i < 3; i++) {
+            long eagerDuration = findSessionCookie(eagerCookieProcessor, mimeHeaders, serverCookies, parsingLoops);
+            long lazyDuration = findSessionCookie(lazyCookieProcessor, mimeHeaders, serverCookies, parsingLoops);
+            System.out.println("Eager duration: " + eagerDuration + ", lazy duration: " + lazyDuration);
+        }
+    }
+
+
+    private static long findSessionCookie(CookieProcessor cookieProcessor, MimeHeaders mimeHeaders,
+            ServerCookies serverCookies, int parsingLoops) {
+        long start = System.nanoTime();
+        for (int i = 0; i < parsingLoops; i++) {
+            cookieProcessor.parseCookieHeader(mimeHeaders, serverCookies);
+            int idx = serverCookies.findCookie("JSESSIONID", 0);
+            Assert.assertEquals(32, serverCookies.getCookie(idx).getValue().getLength());
+            serverCookies.recycle();
+        }
+        return System.nanoTime() - start;
+    }
 }
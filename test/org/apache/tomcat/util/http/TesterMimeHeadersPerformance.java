@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TesterMimeHeadersPerformance {
+
+    // Headers looked up by Tomcat for a typical request
+    private static final String[] LOOKUPS = { "host", "content-type", "content-length", "transfer-encoding",
+            "connection", "expect", "user-agent", "accept-encoding", "cookie", "authorization", "x-forwarded-for",
+            "x-forwarded-proto", "if-modified-since", "range" };
+
+
+    @Test
+    public void testLookups() {
+        int count = 200000;
+        int loops = 5;
+
+        // Each round looks up every header in LOOKUPS. Additional rounds simulate lookups by valves and applications.
+        for (int rounds = 1; rounds <= 3; rounds += 2) {
+            for (int headerCount : new int[] { 8, 30, 60, 100 }) {
+                byte[][] names = createNames(headerCount);
+
+                // Warm up
+                doLookups(names, rounds, count);
+
+                for (int i = 0; i < loops; i++) {
+                    System.out.println(headerCount + " headers, " + rounds + " rounds: " +
+                            doLookups(names, rounds, count) / count + "ns per request");
+                }
+            }
+        }
+    }
+
+
+    private long doLookups(byte[][] names, int rounds, int iterations) {
+        MimeHeaders mh = new MimeHeaders();
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mh.recycle();
+            for (byte[] name : names) {
+                mh.addValue(name, 0, name.length);
+            }
+            for (int j = 0; j < rounds; j++) {
+                for (String lookup : LOOKUPS) {
+                    if (mh.getValue(lookup) != null) {
+                        found++;
+                    }
+                }
+            }
+        }
+        long result = System.nanoTime() - start;
+        // Host, User-Agent and Content-Type
+        if (found != iterations * rounds * 3) {
+            throw new IllegalStateException();
+        }
+        return result;
+    }
+
+
+    private static byte[][] createNames(int headerCount) {
+        // A few standard headers followed by gateway tracing and forwarding headers
+        String[] standard = { "Host", "User-Agent", "Accept", "Content-Type" };
+        byte[][] result = new byte[headerCount][];
+        for (int i = 0; i < headerCount; i++) {
+            String name = i < standard.length ? standard[i] : "X-Gateway-Trace-" + i;
+            result[i] = name.getBytes(StandardCharsets.ISO_8859_1);
+        }
+        return result;
+    }
+}
@@ -77,6 +77,41 @@ public class TesterParametersPerformance {
         return result;
     }
 
+    @Test
+    public void testLazyDecoding() {
+        LogManager.getLogManager().getLogger("").setLevel(Level.OFF);
+        // A large form of which only a few fields are accessed
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append("field").append(i).append("=some+value+%C3%A9+").append(i);
+        }
+        byte[] form = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < 5; i++) {
+            System.out.println("Eager: " + doTestLazyDecoding(form, false) + "ms, Lazy: " +
+                    doTestLazyDecoding(form, true) + "ms");
+        }
+    }
+
+    private long doTestLazyDecoding(byte[] form, boolean lazy) {
+        Parameters p = new Parameters();
+        p.setLazyDecoding(lazy);
+        byte[] data = new byte[form.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            p.setCharset(StandardCharsets.UTF_8);
+            // URL decoding modifies the data in place
+            System.arraycopy(form, 0, data, 0, form.length);
+            p.processParameters(data, 0, data.length);
+            Assert.assertEquals("some value \u00e9 10", p.getParameter("field10"));
+            p.recycle();
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
     @Test
     public void testCreateString() throws UnsupportedEncodingException {
         B2CConverter.getCharset("ISO-8859-1");
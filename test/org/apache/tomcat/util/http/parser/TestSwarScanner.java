@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http.parser;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSwarScanner {
+
+    @Test
+    public void testHeaderName() {
+        byte[] buf = "Accept-Encoding-X1: gzip".getBytes(StandardCharsets.ISO_8859_1);
+        // Stops at the block containing the colon
+        Assert.assertEquals(16, SwarScanner.scanHeaderName(buf, 0, buf.length));
+        Assert.assertEquals("accept-encoding-X1: gzip", new String(buf, StandardCharsets.ISO_8859_1));
+    }
+
+
+    @Test
+    public void testHeaderNameAllBytes() {
+        // Compare the fast path with the token table for every byte value in every position of a block
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < SwarScanner.BLOCK_SIZE; i++) {
+                byte[] buf = "abcdefgh".getBytes(StandardCharsets.ISO_8859_1);
+                buf[i] = (byte) b;
+                boolean expected = (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') ||
+                        b == '-';
+                Assert.assertEquals(Integer.toString(b), expected ? 8 : 0, SwarScanner.scanHeaderName(buf, 0, 8));
+                if (expected) {
+                    Assert.assertTrue(HttpParser.isToken(b));
+                    Assert.assertEquals(Character.toLowerCase((char) b), (char) buf[i]);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testRequestTarget() {
+        byte[] buf = "/path/to/resource.html?a=b&c=%20d HTTP/1.1".getBytes(StandardCharsets.ISO_8859_1);
+        // Stops at the block containing the question mark
+        Assert.assertEquals(16, SwarScanner.scanRequestTarget(buf, 0, buf.length));
+        // Stops at the block containing the space
+        Assert.assertEquals(31, SwarScanner.scanRequestTarget(buf, 23, buf.length));
+        // Only complete blocks are scanned
+        Assert.assertEquals(0, SwarScanner.scanRequestTarget(buf, 0, 7));
+    }
+
+
+    @Test
+    public void testRequestTargetAllBytes() {
+        HttpParser parser = new HttpParser(null, null);
+        for (int b = 0; b < 256; b++) {
+            byte[] buf = "abcdefgh".getBytes(StandardCharsets.ISO_8859_1);
+            buf[5] = (byte) b;
+            if (SwarScanner.scanRequestTarget(buf, 0, 8) == 8) {
+                // Anything accepted by the fast path must be valid in both the path and the query
+                Assert.assertFalse(Integer.toString(b), parser.isNotRequestTargetRelaxed(b));
+                Assert.assertTrue(Integer.toString(b), parser.isAbsolutePathRelaxed(b));
+                Assert.assertTrue(Integer.toString(b), parser.isQueryRelaxed(b));
+                Assert.assertNotEquals('?', b);
+            } else {
+                Assert.assertFalse(Integer.toString(b), Character.isLetterOrDigit(b) && b < 0x80);
+            }
+        }
+    }
+
+
+    @Test
+    public void testFieldContent() {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < SwarScanner.BLOCK_SIZE; i++) {
+                byte[] buf = "abcdefgh".getBytes(StandardCharsets.ISO_8859_1);
+                buf[i] = (byte) b;
+                Assert.assertEquals(Integer.toString(b), !HttpParser.isControl(b),
+                        SwarScanner.isFieldContent(SwarScanner.read(buf, 0)));
+            }
+        }
+    }
+
+
+    @Test
+    public void testLastIndexOfNonSpace() {
+        Assert.assertEquals(7, lastIndexOfNonSpace("abcdefgh"));
+        Assert.assertEquals(3, lastIndexOfNonSpace("a c\u00e9    "));
+        Assert.assertEquals(0, lastIndexOfNonSpace("\u00ff       "));
+        Assert.assertEquals(-1, lastIndexOfNonSpace("        "));
+    }
+
+
+    private static int lastIndexOfNonSpace(String s) {
+        return SwarScanner.lastIndexOfNonSpace(SwarScanner.read(s.getBytes(StandardCharsets.ISO_8859_1), 0));
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.util.net.SSLHostConfigCertificate.Type;
+
+public class TestFileTicketKeyProvider {
+
+    private File keyFile;
+
+
+    @Before
+    public void setUp() throws IOException {
+        keyFile = File.createTempFile("ticket", ".key");
+    }
+
+
+    @After
+    public void tearDown() {
+        Assert.assertTrue(keyFile.delete());
+    }
+
+
+    @Test
+    public void testReadKeys() throws IOException {
+        byte[] keys = writeKeys(1);
+        TicketKeyProvider provider = new FileTicketKeyProvider(keyFile.getAbsolutePath());
+        Assert.assertArrayEquals(keys, provider.getTicketKeys());
+
+        // Replacing the file rotates the keys
+        keys = writeKeys(2);
+        Assert.assertArrayEquals(keys, provider.getTicketKeys());
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testTooShort() throws IOException {
+        Files.write(keyFile.toPath(), new byte[FileTicketKeyProvider.TICKET_KEYS_SIZE - 1]);
+        new FileTicketKeyProvider(keyFile.getAbsolutePath()).getTicketKeys();
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testTooLong() throws IOException {
+        Files.write(keyFile.toPath(), new byte[FileTicketKeyProvider.TICKET_KEYS_SIZE + 1]);
+        new FileTicketKeyProvider(keyFile.getAbsolutePath()).getTicketKeys();
+    }
+
+
+    @Test
+    public void testProviderFromConfiguration() {
+        SSLHostConfig sslHostConfig = new SSLHostConfig();
+        Assert.assertNull(sslHostConfig.getSessionTicketKeyProvider());
+
+        sslHostConfig.setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        TicketKeyProvider provider = sslHostConfig.getSessionTicketKeyProvider();
+        Assert.assertTrue(provider instanceof FileTicketKeyProvider);
+        Assert.assertEquals(keyFile.getAbsolutePath(), ((FileTicketKeyProvider) provider).getPath());
+
+        sslHostConfig.setSessionTicketKeyProviderClassName(TesterTicketKeyProvider.class.getName());
+        Assert.assertTrue(sslHostConfig.getSessionTicketKeyProvider() instanceof TesterTicketKeyProvider);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProviderClassName() {
+        SSLHostConfig sslHostConfig = new SSLHostConfig();
+        sslHostConfig.setSessionTicketKeyProviderClassName(String.class.getName());
+        sslHostConfig.getSessionTicketKeyProvider();
+    }
+
+
+    @Test
+    public void testRotation() throws Exception {
+        SSLHostConfig sslHostConfig = new SSLHostConfig();
+        sslHostConfig.setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        sslHostConfig.setSessionTicketKeyRefreshInterval(0);
+        TesterSessionContext sessionContext = new TesterSessionContext();
+        SSLHostConfigCertificate certificate = new SSLHostConfigCertificate(sslHostConfig, Type.UNDEFINED);
+        certificate.setSslContext(new TesterSSLContext(sessionContext));
+        sslHostConfig.addCertificate(certificate);
+
+        NioEndpoint endpoint = new NioEndpoint();
+        endpoint.addSslHostConfig(sslHostConfig);
+
+        byte[] keys = writeKeys(1);
+        endpoint.refreshSessionTicketKeys();
+        Assert.assertArrayEquals(keys, sessionContext.keys);
+        Assert.assertEquals(1, sessionContext.updateCount);
+
+        // Unchanged keys are not set again
+        endpoint.refreshSessionTicketKeys();
+        Assert.assertEquals(1, sessionContext.updateCount);
+
+        keys = writeKeys(2);
+        endpoint.refreshSessionTicketKeys();
+        Assert.assertArrayEquals(keys, sessionContext.keys);
+        Assert.assertEquals(2, sessionContext.updateCount);
+
+        // A file that can't be read leaves the current keys in place
+        Files.write(keyFile.toPath(), new byte[1]);
+        endpoint.refreshSessionTicketKeys();
+        Assert.assertArrayEquals(keys, sessionContext.keys);
+
+        Assert.assertEquals(10, sslHostConfig.getHandshakeCount());
+        Assert.assertEquals(4, sslHostConfig.getResumedHandshakeCount());
+    }
+
+
+    private byte[] writeKeys(int seed) throws IOException {
+        byte[] keys = new byte[FileTicketKeyProvider.TICKET_KEYS_SIZE];
+        Arrays.fill(keys, (byte) seed);
+        Files.write(keyFile.toPath(), keys);
+        return keys;
+    }
+
+
+    public static class TesterTicketKeyProvider implements TicketKeyProvider {
+
+        @Override
+        public byte[] getTicketKeys() {
+            return new byte[FileTicketKeyProvider.TICKET_KEYS_SIZE];
+        }
+    }
+
+
+    private static class TesterSessionContext implements TicketKeySessionContext {
+
+        private byte[] keys;
+        private int updateCount;
+
+        @Override
+        public void setTicketKeys(byte[] keys) {
+            this.keys = keys;
+            updateCount++;
+        }
+
+        @Override
+        public long getHandshakeCount() {
+            return 10;
+        }
+
+        @Override
+        public long getResumedHandshakeCount() {
+            return 4;
+        }
+
+        @Override
+        public SSLSession getSession(byte[] sessionId) {
+            return null;
+        }
+
+        @Override
+        public Enumeration<byte[]> getIds() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public void setSessionTimeout(int seconds) {
+            // NO-OP
+        }
+
+        @Override
+        public int getSessionTimeout() {
+            return 0;
+        }
+
+        @Override
+        public void setSessionCacheSize(int size) {
+            // NO-OP
+        }
+
+        @Override
+        public int getSessionCacheSize() {
+            return 0;
+        }
+    }
+
+
+    private static class TesterSSLContext implements SSLContext {
+
+        private final TesterSessionContext sessionContext;
+
+        TesterSSLContext(TesterSessionContext sessionContext) {
+            this.sessionContext = sessionContext;
+        }
+
+        @Override
+        public void init(KeyManager[] kms, TrustManager[] tms, SecureRandom sr) {
+            // NO-OP
+        }
+
+        @Override
+        public void destroy() {
+            // NO-OP
+        }
+
+        @Override
+        public TesterSessionContext getServerSessionContext() {
+            return sessionContext;
+        }
+
+        @Override
+        public SSLEngine createSSLEngine() {
+            return null;
+        }
+
+        @Override
+        public SSLServerSocketFactory getServerSocketFactory() {
+            return null;
+        }
+
+        @Override
+        public SSLParameters getSupportedSSLParameters() {
+            return null;
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return null;
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.modeler.Registry;
+
+/**
+ * Tests for the NIO endpoint configured with multiple poller and acceptor threads.
+ */
+public class TestNioEndpointPollers extends TomcatBaseTest {
+
+    private static final int POLLER_COUNT = 4;
+    private static final int REQUEST_COUNT = 20;
+
+
+    @Test
+    public void testMultiplePollers() throws Exception {
+        doTest(POLLER_COUNT, 1);
+    }
+
+
+    @Test
+    public void testMultipleAcceptors() throws Exception {
+        doTest(POLLER_COUNT, 2);
+    }
+
+
+    private void doTest(int pollerThreadCount, int acceptorThreadCount) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector c = tomcat.getConnector();
+        Assume.assumeTrue("NIO specific test", c.getProtocolHandlerClassName().contains("Http11NioProtocol"));
+        Assert.assertTrue(c.setProperty("pollerThreadCount", Integer.toString(pollerThreadCount)));
+        Assert.assertTrue(c.setProperty("acceptorThreadCount", Integer.toString(acceptorThreadCount)));
+
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "hello");
+
+        tomcat.start();
+
+        doRequests();
+
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("Tomcat:type=Poller,*"), null);
+        Assert.assertEquals(pollerThreadCount, onames.size());
+        long readyKeyCount = 0;
+        for (ObjectName oname : onames) {
+            readyKeyCount += ((Long) mbeanServer.getAttribute(oname, "readyKeyCount")).longValue();
+        }
+        Assert.assertTrue(readyKeyCount > 0);
+
+        // Check the connector can be restarted
+        c.stop();
+        Assert.assertEquals(0,
+                mbeanServer.queryNames(new ObjectName("Tomcat:type=Poller,*"), null).size());
+        c.start();
+
+        doRequests();
+
+        // Check the connector can be paused and resumed
+        c.pause();
+        c.resume();
+
+        doRequests();
+    }
+
+
+    private void doRequests() throws Exception {
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            ByteChunk res = getUrl("http://localhost:" + getTomcatInstance().getConnector().getLocalPort() + "/");
+            Assert.assertEquals(HelloWorldServlet.RESPONSE_TEXT, res.toString());
+        }
+    }
+}
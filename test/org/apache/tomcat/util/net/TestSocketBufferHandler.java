@@ -33,12 +33,16 @@ import org.junit.runners.Parameterized.Parameter;
 @RunWith(Parameterized.class)
 public class TestSocketBufferHandler {
 
-    @Parameterized.Parameters(name = "{index}: direct[{0}]")
+    @Parameterized.Parameters(name = "{index}: direct[{0}], pooled[{1}]")
     public static Collection<Object[]> parameters() {
         List<Object[]> parameterSets = new ArrayList<>();
 
-        parameterSets.add(new Object[] { Boolean.FALSE });
-        parameterSets.add(new Object[] { Boolean.TRUE });
+        Boolean[] booleans = new Boolean[] { Boolean.FALSE, Boolean.TRUE };
+        for (Boolean direct : booleans) {
+            for (Boolean pooled : booleans) {
+                parameterSets.add(new Object[] { direct, pooled });
+            }
+        }
 
         return parameterSets;
     }
@@ -47,10 +51,13 @@ public class TestSocketBufferHandler {
     @Parameter(0)
     public boolean direct;
 
+    @Parameter(1)
+    public boolean pooled;
+
 
     @Test
     public void testReturnWhenEmpty() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
         sbh.unReadReadBuffer(ByteBuffer.wrap(getBytes("WXYZ")));
 
         validate(sbh, "WXYZ");
@@ -59,7 +66,7 @@ public class TestSocketBufferHandler {
 
     @Test
     public void testReturnWhenWritable() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
 
         sbh.configureReadBufferForWrite();
         sbh.getReadBuffer().put(getBytes("AB"));
@@ -72,7 +79,7 @@ public class TestSocketBufferHandler {
 
     @Test(expected = BufferOverflowException.class)
     public void testReturnWhenWritableAndFull() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
 
         sbh.configureReadBufferForWrite();
         sbh.getReadBuffer().put(getBytes("ABCDEFGH"));
@@ -83,7 +90,7 @@ public class TestSocketBufferHandler {
 
     @Test
     public void testReturnWhenReadableAndUnread() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
 
         sbh.configureReadBufferForWrite();
         sbh.getReadBuffer().put(getBytes("AB"));
@@ -97,7 +104,7 @@ public class TestSocketBufferHandler {
 
     @Test(expected = BufferOverflowException.class)
     public void testReturnWhenReadableAndUnreadAndFull() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
 
         sbh.configureReadBufferForWrite();
         sbh.getReadBuffer().put(getBytes("ABCDEF"));
@@ -109,7 +116,7 @@ public class TestSocketBufferHandler {
 
     @Test
     public void testReturnWhenReadableAndPartiallyead() {
-        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, direct);
+        SocketBufferHandler sbh = createSocketBufferHandler();
 
         sbh.configureReadBufferForWrite();
         sbh.getReadBuffer().put(getBytes("ABCDEFGH"));
@@ -124,6 +131,29 @@ public class TestSocketBufferHandler {
     }
 
 
+    @Test
+    public void testExpand() {
+        SocketBufferHandler sbh = createSocketBufferHandler();
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put(getBytes("ABCDEFGH"));
+        sbh.expand(16);
+        sbh.getReadBuffer().put(getBytes("IJKLMNOP"));
+
+        Assert.assertEquals(16, sbh.getReadBuffer().capacity());
+        validate(sbh, "ABCDEFGHIJKLMNOP");
+    }
+
+
+    private SocketBufferHandler createSocketBufferHandler() {
+        if (pooled) {
+            return new SocketBufferHandler(8, 8, new SocketBufferPool(direct, 1024 * 1024));
+        } else {
+            return new SocketBufferHandler(8, 8, direct);
+        }
+    }
+
+
     private void validate(SocketBufferHandler sbh, String expected) {
         sbh.configureReadBufferForRead();
         for (byte b : getBytes(expected)) {
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSocketBufferPool {
+
+    @Test
+    public void testSizeClasses() {
+        SocketBufferPool pool = new SocketBufferPool(true, 4 * 1024 * 1024);
+
+        ByteBuffer small = pool.borrow(1);
+        Assert.assertTrue(small.isDirect());
+        Assert.assertEquals(512, small.capacity());
+
+        ByteBuffer medium = pool.borrow(8193);
+        Assert.assertEquals(16384, medium.capacity());
+
+        Assert.assertEquals(2, pool.getBorrowedCount());
+        pool.release(small);
+        pool.release(medium);
+        Assert.assertEquals(0, pool.getBorrowedCount());
+        Assert.assertEquals(2, pool.getBorrowCount());
+    }
+
+
+    @Test
+    public void testMaxMemory() {
+        SocketBufferPool pool = new SocketBufferPool(false, 16384);
+
+        ByteBuffer b1 = pool.borrow(8192);
+        ByteBuffer b2 = pool.borrow(8192);
+        Assert.assertNotNull(b1);
+        Assert.assertNotNull(b2);
+        Assert.assertEquals(16384, pool.getAllocatedMemory());
+
+        Assert.assertNull(pool.borrow(8192));
+        Assert.assertEquals(1, pool.getMissCount());
+
+        pool.release(b1);
+        Assert.assertSame(b1, pool.borrow(8192));
+        Assert.assertEquals(16384, pool.getAllocatedMemory());
+    }
+
+
+    @Test
+    public void testReleaseHandler() {
+        SocketBufferPool pool = new SocketBufferPool(true, 1024 * 1024);
+        SocketBufferHandler sbh = new SocketBufferHandler(8192, 8192, pool);
+
+        // Buffers are only borrowed when used
+        Assert.assertTrue(sbh.isReadBufferEmpty());
+        Assert.assertTrue(sbh.isWriteBufferEmpty());
+        Assert.assertEquals(8192, sbh.getReadBufferCapacity());
+        Assert.assertEquals(0, pool.getBorrowedCount());
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put("ABCD".getBytes(StandardCharsets.ISO_8859_1));
+        sbh.configureWriteBufferForWrite();
+        sbh.getWriteBuffer().put("EFGH".getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertEquals(2, pool.getBorrowedCount());
+
+        // Buffers with data are retained
+        sbh.release();
+        Assert.assertEquals(2, pool.getBorrowedCount());
+
+        sbh.configureReadBufferForRead();
+        sbh.getReadBuffer().position(4);
+        sbh.release();
+        Assert.assertEquals(1, pool.getBorrowedCount());
+
+        sbh.configureWriteBufferForRead();
+        sbh.getWriteBuffer().position(4);
+        sbh.release();
+        Assert.assertEquals(0, pool.getBorrowedCount());
+
+        // Buffers are borrowed again in the initial state
+        Assert.assertEquals(0, sbh.getReadBuffer().position());
+        Assert.assertEquals(8192, sbh.getReadBuffer().limit());
+        sbh.free();
+        Assert.assertEquals(0, pool.getBorrowedCount());
+    }
+}
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -59,6 +60,7 @@ import org.apache.catalina.Wrapper;
 import org.apache.catalina.connector.Connector;
 import org.apache.catalina.connector.Request;
 import org.apache.catalina.connector.Response;
+import org.apache.catalina.servlets.DefaultServlet;
 import org.apache.catalina.startup.TesterServlet;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
@@ -98,6 +100,42 @@ public class TestSsl extends TomcatBaseTest {
     public String sslImplementationName;
 
 
+    @Test
+    public void testMappedSendfile() throws Exception {
+        TesterSupport.configureClientSsl();
+
+        Tomcat tomcat = getTomcatInstance();
+        Assume.assumeTrue("NIO specific test",
+                tomcat.getConnector().getProtocolHandlerClassName().contains("Http11NioProtocol"));
+        Assert.assertTrue(tomcat.getConnector().setProperty("useMappedSendfile", "true"));
+
+        // Larger than the region of the file mapped at once and not a multiple of the TLS record size
+        byte[] content = new byte[9 * 1024 * 1024 + 1];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        File docBase = new File(getTemporaryDirectory(), "sendfile");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+        Files.write(new File(docBase, "large.bin").toPath(), content);
+
+        Context ctxt = tomcat.addContext("", docBase.getAbsolutePath());
+        Tomcat.addServlet(ctxt, "default", DefaultServlet.class.getName());
+        ctxt.addServletMappingDecoded("/", "default");
+
+        TesterSupport.initSsl(tomcat);
+        TesterSupport.configureSSLImplementation(tomcat, sslImplementationName, useOpenSSL);
+
+        tomcat.start();
+
+        ByteChunk res = new ByteChunk();
+        res.setLimit(content.length + 1);
+        int rc = getUrl("https://localhost:" + getPort() + "/large.bin", res, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(content, Arrays.copyOfRange(res.getBytes(), res.getStart(), res.getEnd()));
+    }
+
+
     @Test
     public void testSimpleSsl() throws Exception {
         TesterSupport.configureClientSsl();
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTaskQueue {
+
+    // Longer than the interval used by TaskQueue to detect overload
+    private static final long INTERVAL_WAIT_TIME = 150;
+
+
+    @Test
+    public void testNoTargetDelay() throws Exception {
+        TaskQueue queue = new TaskQueue();
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertFalse(offerAndPoll(queue, new TestTask(1000, true)).isShed());
+            Thread.sleep(INTERVAL_WAIT_TIME);
+        }
+        Assert.assertEquals(0, queue.getShedCount());
+    }
+
+
+    @Test
+    public void testShedding() throws Exception {
+        TaskQueue queue = new TaskQueue();
+        queue.setTargetDelay(10);
+        Assert.assertEquals(10, queue.getTargetDelay());
+
+        // Delays exceed the target but the overload has not yet lasted for an interval
+        Assert.assertFalse(offerAndPoll(queue, new TestTask(50, true)).isShed());
+        Thread.sleep(INTERVAL_WAIT_TIME);
+
+        // Overloaded
+        Assert.assertTrue(offerAndPoll(queue, new TestTask(50, true)).isShed());
+        // Tasks that refuse to be shed are not counted
+        Assert.assertFalse(offerAndPoll(queue, new TestTask(50, false)).isShed());
+        // Tasks below twice the target are not shed
+        Assert.assertFalse(offerAndPoll(queue, new TestTask(15, true)).isShed());
+        Assert.assertFalse(offerAndPoll(queue, new TestTask(5, true)).isShed());
+        Assert.assertEquals(1, queue.getShedCount());
+        Thread.sleep(INTERVAL_WAIT_TIME);
+
+        // The fastest task of the last interval was below the target so the queue is no longer overloaded
+        Assert.assertFalse(offerAndPoll(queue, new TestTask(50, true)).isShed());
+        Assert.assertEquals(1, queue.getShedCount());
+    }
+
+
+    @Test
+    public void testDelayStatistics() throws Exception {
+        TaskQueue queue = new TaskQueue();
+        Assert.assertEquals(0, queue.getDelayPercentile(50), 0);
+
+        for (int i = 1; i <= 100; i++) {
+            offerAndPoll(queue, new TestTask(i, true));
+        }
+        // Percentiles are estimates within 25% of the actual value
+        assertDelay(50, queue.getDelayPercentile(50));
+        assertDelay(90, queue.getDelayPercentile(90));
+        assertDelay(99, queue.getDelayPercentile(99));
+        assertDelay(100, queue.getMaxDelay());
+        Assert.assertTrue(queue.getDelayPercentile(50) <= queue.getDelayPercentile(90));
+        Assert.assertTrue(queue.getDelayPercentile(90) <= queue.getDelayPercentile(99));
+        Assert.assertTrue(queue.getDelayPercentile(99) <= queue.getMaxDelay());
+
+        queue.resetDelayStatistics();
+        Assert.assertEquals(0, queue.getDelayPercentile(99), 0);
+        Assert.assertEquals(0, queue.getMaxDelay(), 0);
+    }
+
+
+    private static TestTask offerAndPoll(TaskQueue queue, TestTask task) throws InterruptedException {
+        Assert.assertTrue(queue.offer(task));
+        Assert.assertSame(task, queue.poll(0, TimeUnit.MILLISECONDS));
+        return task;
+    }
+
+
+    private static void assertDelay(double expected, double actual) {
+        Assert.assertTrue("Expected [" + expected + "] but was [" + actual + "]",
+                actual >= expected * 0.75 && actual <= expected * 1.25);
+    }
+
+
+    /*
+     * Task that pretends it was added to the queue a given time before it actually was.
+     */
+    private static class TestTask implements SheddableTask {
+
+        private final long age;
+        private final boolean sheddable;
+        private long queueTime;
+        private boolean shed;
+
+        TestTask(long age, boolean sheddable) {
+            this.age = TimeUnit.MILLISECONDS.toNanos(age);
+            this.sheddable = sheddable;
+        }
+
+        @Override
+        public void run() {
+            // NO-OP
+        }
+
+        @Override
+        public void setQueueTime(long queueTime) {
+            this.queueTime = queueTime - age;
+        }
+
+        @Override
+        public long getQueueTime() {
+            return queueTime;
+        }
+
+        @Override
+        public boolean shed() {
+            shed = sheddable;
+            return shed;
+        }
+
+        boolean isShed() {
+            return shed;
+        }
+    }
+}